@@ -0,0 +1,223 @@
+package org.example.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Random;
+
+
+/**
+ * Base H2 en mémoire (mode MySQL) qui tient lieu de MySQL pour les benchmarks et
+ * le générateur de charge : mêmes tables et colonnes que celles lues par les DAO,
+ * données générées avec une graine fixe pour que deux exécutions mesurent la même chose.
+ */
+public final class BaseEmbarquee {
+
+    public static final String UTILISATEUR = "sa";
+    public static final String MOT_DE_PASSE = "";
+    public static final int MEDECIN_ID = 1;
+    public static final int NOMBRE_PATIENTS = 20;
+    // Mot de passe de tous les médecins créés par creerCabinet
+    public static final String MOT_DE_PASSE_MEDECINS = "charge";
+    public static final String[] SPECIALITES = { "Cardiologie", "Dermatologie", "Pédiatrie", "Neurologie", "ORL" };
+
+    private static final String[] MOTS = {
+            "patient", "douleur", "thoracique", "examen", "normal", "tension", "artérielle", "traitement",
+            "suivi", "contrôle", "fièvre", "antibiotique", "radiographie", "bilan", "sanguin", "allergie",
+            "rendez-vous", "consultation", "symptômes", "amélioration", "prescription", "repos"
+    };
+
+
+    private BaseEmbarquee() {
+    }
+
+
+    public static String url(String nom) {
+        // "hour" est un mot-clé pour H2, pas pour MySQL (consultations.hour)
+        return "jdbc:h2:mem:" + nom + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=HOUR";
+    }
+
+
+    /**
+     * Crée (ou recrée) la base et y insère nombreRapports rapports du médecin MEDECIN_ID.
+     */
+    static Connection creer(String nom, int nombreRapports, int tailleTexte) throws SQLException {
+        Connection connexion = DriverManager.getConnection(url(nom), UTILISATEUR, MOT_DE_PASSE);
+        creerTables(connexion);
+        try (Statement stmt = connexion.createStatement()) {
+            stmt.execute("INSERT INTO doctor (id, last_name, first_name, specialite_id) VALUES ("
+                    + MEDECIN_ID + ", 'Martin', 'Claire', 1)");
+        }
+
+        Random aleatoire = new Random(42);
+        try (PreparedStatement patient = connexion.prepareStatement("INSERT INTO patient VALUES (?, ?, ?, ?)");
+             PreparedStatement consultation = connexion.prepareStatement(
+                     "INSERT INTO consultations (doctor_id, patient_id, date) VALUES (?, ?, ?)")) {
+            for (int id = 1; id <= NOMBRE_PATIENTS; id++) {
+                patient.setInt(1, id);
+                patient.setString(2, "Nom" + id);
+                patient.setString(3, "Prénom" + id);
+                patient.setDate(4, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(aleatoire.nextInt(20_000))));
+                patient.addBatch();
+                consultation.setInt(1, MEDECIN_ID);
+                consultation.setInt(2, id);
+                consultation.setDate(3, Date.valueOf(LocalDate.of(2025, 1, 1).plusDays(id)));
+                consultation.addBatch();
+            }
+            patient.executeBatch();
+            consultation.executeBatch();
+        }
+
+        try (PreparedStatement rapport = connexion.prepareStatement(
+                "INSERT INTO reports (doctor_id, patient_id, date_rapport, texte_rapport) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < nombreRapports; i++) {
+                rapport.setInt(1, MEDECIN_ID);
+                rapport.setInt(2, 1 + aleatoire.nextInt(NOMBRE_PATIENTS));
+                rapport.setDate(3, Date.valueOf(LocalDate.of(2024, 1, 1).plusDays(aleatoire.nextInt(730))));
+                rapport.setString(4, texte(aleatoire, tailleTexte));
+                rapport.addBatch();
+                if (i % 1000 == 999) {
+                    rapport.executeBatch();
+                }
+            }
+            rapport.executeBatch();
+        }
+        return connexion;
+    }
+
+
+    /**
+     * Crée (ou recrée) un cabinet pour le générateur de charge : nombreMedecins
+     * médecins (login {@link #login(int)}, mot de passe MOT_DE_PASSE_MEDECINS), chacun
+     * suivant patientsParMedecin patients et ayant rapportsParMedecin rapports, plus
+     * creneauxLibres consultations sans patient, réservables par l'API REST.
+     */
+    public static Connection creerCabinet(String nom, int nombreMedecins, int patientsParMedecin,
+                                          int rapportsParMedecin, int creneauxLibres) throws SQLException {
+        Connection connexion = DriverManager.getConnection(url(nom), UTILISATEUR, MOT_DE_PASSE);
+        creerTables(connexion);
+        int nombrePatients = Math.max(NOMBRE_PATIENTS, nombreMedecins * patientsParMedecin / 2);
+        Random aleatoire = new Random(42);
+
+        try (PreparedStatement specialite = connexion.prepareStatement("INSERT INTO specialties VALUES (?, ?)");
+             PreparedStatement medecin = connexion.prepareStatement(
+                     "INSERT INTO doctor (id, last_name, first_name, password, specialite_id) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement patient = connexion.prepareStatement("INSERT INTO patient VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < SPECIALITES.length; i++) {
+                specialite.setInt(1, i + 1);
+                specialite.setString(2, SPECIALITES[i]);
+                specialite.addBatch();
+            }
+            specialite.executeBatch();
+            for (int id = 1; id <= nombreMedecins; id++) {
+                medecin.setInt(1, id);
+                medecin.setString(2, "Medecin" + id);
+                medecin.setString(3, "Dr");
+                medecin.setString(4, MOT_DE_PASSE_MEDECINS);
+                medecin.setInt(5, 1 + (id - 1) % SPECIALITES.length);
+                medecin.addBatch();
+            }
+            medecin.executeBatch();
+            for (int id = 1; id <= nombrePatients; id++) {
+                patient.setInt(1, id);
+                patient.setString(2, "Nom" + id);
+                patient.setString(3, "Prénom" + id);
+                patient.setDate(4, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(aleatoire.nextInt(20_000))));
+                patient.addBatch();
+            }
+            patient.executeBatch();
+        }
+
+        LocalDate debut = LocalDate.of(2025, 6, 2);
+        try (PreparedStatement consultation = connexion.prepareStatement(
+                "INSERT INTO consultations (doctor_id, patient_id, date, hour, reason) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement rapport = connexion.prepareStatement(
+                     "INSERT INTO reports (doctor_id, patient_id, date_rapport, texte_rapport) VALUES (?, ?, ?, ?)")) {
+            for (int medecinId = 1; medecinId <= nombreMedecins; medecinId++) {
+                for (int k = 0; k < patientsParMedecin; k++) {
+                    consultation.setInt(1, medecinId);
+                    consultation.setInt(2, 1 + (medecinId * 7 + k) % nombrePatients);
+                    consultation.setDate(3, Date.valueOf(debut.minusDays(1 + aleatoire.nextInt(365))));
+                    consultation.setString(4, heure(k));
+                    consultation.setString(5, "Suivi");
+                    consultation.addBatch();
+                }
+                for (int k = 0; k < rapportsParMedecin; k++) {
+                    rapport.setInt(1, medecinId);
+                    rapport.setInt(2, 1 + (medecinId * 7 + aleatoire.nextInt(patientsParMedecin)) % nombrePatients);
+                    rapport.setDate(3, Date.valueOf(debut.minusDays(1 + aleatoire.nextInt(365))));
+                    rapport.setString(4, texte(aleatoire, 200 + aleatoire.nextInt(600)));
+                    rapport.addBatch();
+                }
+                consultation.executeBatch();
+                rapport.executeBatch();
+            }
+            for (int i = 0; i < creneauxLibres; i++) {
+                consultation.setInt(1, 1 + i % nombreMedecins);
+                consultation.setNull(2, Types.INTEGER);
+                consultation.setDate(3, Date.valueOf(debut.plusDays(i / nombreMedecins / 16)));
+                consultation.setString(4, heure(i / nombreMedecins));
+                consultation.setNull(5, Types.VARCHAR);
+                consultation.addBatch();
+                if (i % 1000 == 999) {
+                    consultation.executeBatch();
+                }
+            }
+            consultation.executeBatch();
+        }
+        return connexion;
+    }
+
+
+    /**
+     * Login du médecin id dans une base creerCabinet (prénom.nom, comme DoctorDAO).
+     */
+    public static String login(int medecinId) {
+        return "Dr.Medecin" + medecinId;
+    }
+
+
+    private static void creerTables(Connection connexion) throws SQLException {
+        try (Statement stmt = connexion.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("CREATE TABLE specialties (id INT PRIMARY KEY, name VARCHAR(100))");
+            stmt.execute("CREATE TABLE doctor (id INT PRIMARY KEY, last_name VARCHAR(100), "
+                    + "first_name VARCHAR(100), password VARCHAR(255), specialite_id INT)");
+            stmt.execute("CREATE TABLE patient (id INT PRIMARY KEY, last_name VARCHAR(100), "
+                    + "first_name VARCHAR(100), birth_date DATE)");
+            stmt.execute("CREATE TABLE consultations (id INT AUTO_INCREMENT PRIMARY KEY, doctor_id INT, "
+                    + "patient_id INT, date DATE, hour VARCHAR(5), reason VARCHAR(255))");
+            stmt.execute("CREATE INDEX idx_consultations_doctor ON consultations (doctor_id, patient_id)");
+            stmt.execute("CREATE TABLE reports (id INT AUTO_INCREMENT PRIMARY KEY, doctor_id INT NOT NULL, "
+                    + "patient_id INT NOT NULL, date_rapport DATE NOT NULL, texte_rapport TEXT NOT NULL, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE INDEX idx_doctor_date ON reports (doctor_id, date_rapport)");
+            stmt.execute("CREATE INDEX idx_doctor_patient ON reports (doctor_id, patient_id)");
+            stmt.execute("CREATE TABLE report_writes (idempotency_key VARCHAR(80) PRIMARY KEY, "
+                    + "report_id INT NOT NULL, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+
+    // Créneaux de 30 minutes à partir de 8 h, 16 par jour
+    private static String heure(int rang) {
+        int minutes = 8 * 60 + (rang % 16) * 30;
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+
+
+    public static String texte(Random aleatoire, int taille) {
+        StringBuilder texte = new StringBuilder(taille + 16);
+        while (texte.length() < taille) {
+            texte.append(MOTS[aleatoire.nextInt(MOTS.length)]).append(' ');
+        }
+        texte.setLength(taille);
+        return texte.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Compare deux fichiers de résultats JMH (-rf json) : référence d'une version
+ * précédente et exécution courante.
+ * <p>
+ * Un benchmark régresse si son score se dégrade de plus du seuil (10 % par
+ * défaut) et de plus que la somme des marges d'erreur des deux mesures. Le code
+ * de sortie est 1 s'il y a au moins une régression.
+ * </p>
+ * Usage : ComparateurResultats reference.json courant.json [seuil_pourcent]
+ */
+public final class ComparateurResultats {
+
+    private ComparateurResultats() {
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ComparateurResultats <reference.json> <courant.json> [seuil_pourcent]");
+            System.exit(2);
+        }
+        double seuil = args.length >= 3 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, JsonObject> reference = lire(args[0]);
+        Map<String, JsonObject> courant = lire(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Référence", "Courant", "Écart");
+        for (Map.Entry<String, JsonObject> entree : courant.entrySet()) {
+            JsonObject avant = reference.get(entree.getKey());
+            JsonObject apres = entree.getValue();
+            JsonObject mesureApres = apres.getAsJsonObject("primaryMetric");
+            if (avant == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entree.getKey(), "-",
+                        mesureApres.get("score").getAsDouble(), "nouveau");
+                continue;
+            }
+            JsonObject mesureAvant = avant.getAsJsonObject("primaryMetric");
+            double scoreAvant = mesureAvant.get("score").getAsDouble();
+            double scoreApres = mesureApres.get("score").getAsDouble();
+            // En débit (thrpt) un score plus bas est une dégradation, en temps (avgt, sample, ss) un score plus haut
+            boolean debit = "thrpt".equals(apres.get("mode").getAsString());
+            double degradation = debit ? scoreAvant - scoreApres : scoreApres - scoreAvant;
+            double marge = erreur(mesureAvant) + erreur(mesureApres);
+            boolean regression = degradation > seuil * scoreAvant && degradation > marge;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entree.getKey(), scoreAvant, scoreApres,
+                    100 * (scoreApres - scoreAvant) / scoreAvant, regression ? "  RÉGRESSION" : "");
+        }
+        for (String disparu : reference.keySet()) {
+            if (!courant.containsKey(disparu)) {
+                System.out.printf("%-70s %14s %14s %9s%n", disparu, "", "-", "absent");
+            }
+        }
+
+        System.out.println(regressions == 0 ? "Aucune régression" : regressions + " régression(s)");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+
+    // Clé : nom du benchmark, mode et paramètres (un même benchmark existe pour chaque @Param)
+    private static Map<String, JsonObject> lire(String chemin) throws IOException {
+        Map<String, JsonObject> resultats = new TreeMap<>();
+        try (Reader lecteur = Files.newBufferedReader(Paths.get(chemin), StandardCharsets.UTF_8)) {
+            JsonArray tableau = JsonParser.parseReader(lecteur).getAsJsonArray();
+            for (JsonElement element : tableau) {
+                JsonObject resultat = element.getAsJsonObject();
+                StringBuilder cle = new StringBuilder(resultat.get("benchmark").getAsString()
+                        .replace("org.example.benchmarks.", ""));
+                cle.append(" [").append(resultat.get("mode").getAsString()).append(']');
+                if (resultat.has("params")) {
+                    new TreeMap<>(resultat.getAsJsonObject("params").asMap())
+                            .forEach((nom, valeur) -> cle.append(' ').append(nom).append('=')
+                                    .append(valeur.getAsString()));
+                }
+                resultats.put(cle.toString(), resultat);
+            }
+        }
+        return resultats;
+    }
+
+
+    private static double erreur(JsonObject mesure) {
+        JsonElement erreur = mesure.get("scoreError");
+        // JMH écrit "NaN" quand il n'y a pas assez d'itérations pour une marge
+        return erreur == null || !erreur.isJsonPrimitive() || Double.isNaN(erreur.getAsDouble())
+                ? 0 : erreur.getAsDouble();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.benchmarks;
+
+import org.example.server.crypto.GestionnaireCrypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Primitives de GestionnaireCrypto appliquées à chaque requête, selon la taille
+ * du contenu (un identifiant chiffré, un rapport, une liste de rapports en JSON).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    public int taille;
+
+    private SecretKey cleSession;
+    private KeyPair paireRsa;
+    private byte[] donnees;
+    private byte[] chiffre;
+    private byte[] hmac;
+    private byte[] signature;
+
+
+    @Setup
+    public void preparer() throws Exception {
+        cleSession = GestionnaireCrypto.genererCleSession();
+        paireRsa = GestionnaireCrypto.genererPaireClesRSA();
+        donnees = new byte[taille];
+        new Random(42).nextBytes(donnees);
+        chiffre = GestionnaireCrypto.chiffrerAES(donnees, cleSession);
+        hmac = GestionnaireCrypto.calculerHMAC(chiffre, cleSession);
+        signature = GestionnaireCrypto.signer(donnees, paireRsa.getPrivate());
+    }
+
+
+    @Benchmark
+    public byte[] chiffrerAES() throws Exception {
+        return GestionnaireCrypto.chiffrerAES(donnees, cleSession);
+    }
+
+
+    @Benchmark
+    public byte[] dechiffrerAES() throws Exception {
+        return GestionnaireCrypto.dechiffrerAES(chiffre, cleSession);
+    }
+
+
+    @Benchmark
+    public byte[] calculerHMAC() throws Exception {
+        return GestionnaireCrypto.calculerHMAC(chiffre, cleSession);
+    }
+
+
+    @Benchmark
+    public boolean verifierHMAC() throws Exception {
+        return GestionnaireCrypto.verifierHMAC(chiffre, hmac, cleSession);
+    }
+
+
+    @Benchmark
+    public byte[] signer() throws Exception {
+        return GestionnaireCrypto.signer(donnees, paireRsa.getPrivate());
+    }
+
+
+    @Benchmark
+    public boolean verifierSignature() throws Exception {
+        return GestionnaireCrypto.verifierSignature(donnees, signature, paireRsa.getPublic());
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.benchmarks;
+
+import org.example.server.dao.PatientDAO;
+import org.example.server.dao.ReportDAO;
+import org.example.server.entity.Patient;
+import org.example.server.searchvm.PatientSearchVM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Boucles de lecture des DAO (ResultSet -> objets) sur la base H2. Le temps
+ * inclut la requête H2 : seules les comparaisons entre versions ont un sens,
+ * pas la valeur absolue face à MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmark {
+
+    @Param({"1000", "10000"})
+    public int nombreRapports;
+
+    private Connection connexion;
+    private ReportDAO reportDAO;
+    private PatientDAO patientDAO;
+    private PatientSearchVM recherchePatients;
+
+
+    @Setup
+    public void preparer() throws Exception {
+        connexion = BaseEmbarquee.creer("dao", nombreRapports, 400);
+        reportDAO = new ReportDAO(connexion);
+        patientDAO = new PatientDAO(connexion);
+        recherchePatients = new PatientSearchVM();
+        recherchePatients.setDoctorId(BaseEmbarquee.MEDECIN_ID);
+    }
+
+
+    @TearDown
+    public void fermer() throws Exception {
+        connexion.close();
+    }
+
+
+    @Benchmark
+    public List<ReportDAO.Rapport> listerRapportsMedecin() throws Exception {
+        return reportDAO.listerRapportsMedecin(BaseEmbarquee.MEDECIN_ID);
+    }
+
+
+    @Benchmark
+    public List<ReportDAO.Rapport> listerPageRapports() throws Exception {
+        return reportDAO.listerPageRapports(BaseEmbarquee.MEDECIN_ID, -1, 0, 50);
+    }
+
+
+    @Benchmark
+    public ReportDAO.Rapport trouverRapport() throws Exception {
+        return reportDAO.trouverRapport(nombreRapports / 2, BaseEmbarquee.MEDECIN_ID);
+    }
+
+
+    @Benchmark
+    public List<Patient> chargerPatientsMedecin() throws Exception {
+        return patientDAO.load(recherchePatients);
+    }
+}
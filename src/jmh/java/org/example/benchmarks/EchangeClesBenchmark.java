@@ -0,0 +1,64 @@
+package org.example.benchmarks;
+
+import org.example.server.crypto.GestionnaireCrypto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Opérations du LOGIN, indépendantes de la taille des rapports : digest salé du
+ * mot de passe et transport RSA de la clé de session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EchangeClesBenchmark {
+
+    private KeyPair paireRsa;
+    private byte[] cleSession;
+    private byte[] cleSessionChiffree;
+    private byte[] sel;
+
+
+    @Setup
+    public void preparer() throws Exception {
+        paireRsa = GestionnaireCrypto.genererPaireClesRSA();
+        SecretKey cle = GestionnaireCrypto.genererCleSession();
+        cleSession = cle.getEncoded();
+        cleSessionChiffree = GestionnaireCrypto.chiffrerRSA(cleSession, paireRsa.getPublic());
+        sel = GestionnaireCrypto.genererSel(16);
+    }
+
+
+    @Benchmark
+    public byte[] chiffrerRSA() throws Exception {
+        return GestionnaireCrypto.chiffrerRSA(cleSession, paireRsa.getPublic());
+    }
+
+
+    @Benchmark
+    public byte[] dechiffrerRSA() throws Exception {
+        return GestionnaireCrypto.dechiffrerRSA(cleSessionChiffree, paireRsa.getPrivate());
+    }
+
+
+    @Benchmark
+    public byte[] calculerDigestSale() throws Exception {
+        return GestionnaireCrypto.calculerDigestSale("dr.martin", "motdepasse-de-test", sel);
+    }
+}
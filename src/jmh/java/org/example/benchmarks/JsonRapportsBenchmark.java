@@ -0,0 +1,69 @@
+package org.example.benchmarks;
+
+import com.google.gson.Gson;
+import org.example.server.dao.ReportDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Sérialisation Gson des listes de ReportDAO.Rapport (réponses LIST_REPORTS*).
+ * "nouveauGson" reproduit ClientHandler, qui crée un Gson par réponse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonRapportsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int nombre;
+
+    private final Gson gsonPartage = new Gson();
+    private List<ReportDAO.Rapport> rapports;
+
+
+    @Setup
+    public void preparer() {
+        Random aleatoire = new Random(42);
+        rapports = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            ReportDAO.Rapport rapport = new ReportDAO.Rapport(i + 1, BaseEmbarquee.MEDECIN_ID,
+                    1 + aleatoire.nextInt(BaseEmbarquee.NOMBRE_PATIENTS),
+                    Date.valueOf(LocalDate.of(2024, 1, 1).plusDays(aleatoire.nextInt(730))),
+                    BaseEmbarquee.texte(aleatoire, 400));
+            rapport.misAJourMs = 1_700_000_000_000L + i;
+            rapports.add(rapport);
+        }
+    }
+
+
+    @Benchmark
+    public String nouveauGson() {
+        return new Gson().toJson(rapports);
+    }
+
+
+    @Benchmark
+    public String gsonPartage() {
+        return gsonPartage.toJson(rapports);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.benchmarks;
+
+import org.example.rest.RestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * RestUtils.parserRequete sur une requête de recherche courte et sur un
+ * formulaire plus long avec des caractères encodés.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParametresRestBenchmark {
+
+    private static final String COURTE = "doctorId=3&dateFrom=2026-01-01&dateTo=2026-01-31";
+    private static final String LONGUE = "lastName=Dupr%C3%A9&firstName=Ana%C3%AFs&birthDate=1987-04-12"
+            + "&consultationId=1542&reason=Douleur+thoracique+%26+essoufflement+depuis+3+jours"
+            + "&specialty=Cardiologie&doctorName=Martin&dateFrom=2026-01-01&dateTo=2026-12-31"
+            + "&patientId=87&hour=09%3A30&page=2&size=50&sort=date&order=desc";
+
+
+    @Benchmark
+    public Map<String, String> requeteCourte() {
+        return RestUtils.parserRequete(COURTE);
+    }
+
+
+    @Benchmark
+    public Map<String, String> requeteLongue() {
+        return RestUtils.parserRequete(LONGUE);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.benchmarks;
+
+import org.example.server.ClientHandler;
+import org.example.server.admission.LimiteurAdaptatif;
+import org.example.server.bd.BdManager;
+import org.example.server.crypto.GestionnaireCrypto;
+import org.example.server.crypto.GestionnaireTickets;
+import org.example.server.sessions.GestionnaireSessions;
+import org.example.shared.Protocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Chemin complet d'une commande dans ClientHandler (découpage, Base64, AES, DAO,
+ * JSON, HMAC de la réponse) sur la base H2, sans réseau.
+ * <p>
+ * Chaque invocation rejoue un script de REQUETES lignes précédé d'un RESUME qui
+ * authentifie la session ; le temps affiché est celui d'une ligne. "PING"
+ * (commande inconnue) mesure le découpage et l'envoi d'une erreur seuls.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequetesClientBenchmark {
+
+    private static final int REQUETES = 200;
+
+    @Param({"PING", "GET_REPORT", "LIST_REPORTS_PAGE", "EDIT_REPORT", "LIST_PATIENTS"})
+    public String commande;
+
+    private Connection base;
+    private BdManager bd;
+    private GestionnaireSessions sessions;
+    private LimiteurAdaptatif limiteur;
+    private byte[] script;
+
+
+    @Setup
+    public void preparer() throws Exception {
+        base = BaseEmbarquee.creer("requetes", 2_000, 400);
+        System.setProperty("DB_URL", BaseEmbarquee.url("requetes"));
+        System.setProperty("DB_USER", BaseEmbarquee.UTILISATEUR);
+        System.setProperty("DB_PASSWORD", BaseEmbarquee.MOT_DE_PASSE);
+        bd = new BdManager();
+        bd.connecter();
+        sessions = new GestionnaireSessions(0, 0);
+        limiteur = new LimiteurAdaptatif(1, 64, 64, 200);
+
+        // Le ticket de reprise authentifie la session sans l'échange RSA du LOGIN
+        SecretKey cle = GestionnaireCrypto.genererCleSession();
+        String ticket = GestionnaireTickets.emettre(BaseEmbarquee.MEDECIN_ID, "bench", cle);
+        String horodatage = String.valueOf(System.currentTimeMillis());
+        String preuve = Base64.getEncoder().encodeToString(GestionnaireTickets.preuve(cle, ticket, horodatage));
+
+        StringBuilder lignes = new StringBuilder();
+        lignes.append(Protocol.CMD_RESUME).append('|').append(ticket).append('|').append(horodatage)
+                .append('|').append(preuve).append('\n');
+        for (int i = 0; i < REQUETES; i++) {
+            lignes.append(requete(cle, 1 + i % 2_000)).append('\n');
+        }
+        script = lignes.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @TearDown
+    public void fermer() throws Exception {
+        sessions.arreter();
+        bd.deconnecter();
+        base.close();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(REQUETES)
+    public long traiterRequetes() {
+        SocketMemoire socket = new SocketMemoire(script);
+        new ClientHandler(socket, bd, sessions, limiteur).run();
+        return socket.getOctetsEcrits();
+    }
+
+
+    private String requete(SecretKey cle, int rapportId) throws Exception {
+        switch (commande) {
+            case "GET_REPORT":
+                return Protocol.CMD_GET_REPORT + "|" + chiffrer(String.valueOf(rapportId), cle);
+            case "LIST_REPORTS_PAGE":
+                return Protocol.CMD_LIST_REPORTS_PAGE + "|0|50";
+            case "EDIT_REPORT":
+                return Protocol.CMD_EDIT_REPORT + "|" + chiffrer(String.valueOf(rapportId), cle) + "|"
+                        + chiffrer("Texte modifié pendant le benchmark " + rapportId, cle);
+            case "LIST_PATIENTS":
+                return Protocol.CMD_LIST_PATIENTS;
+            default:
+                return "PING|" + rapportId;
+        }
+    }
+
+
+    private static String chiffrer(String valeur, SecretKey cle) throws Exception {
+        return Base64.getEncoder().encodeToString(
+                GestionnaireCrypto.chiffrerAES(valeur.getBytes(StandardCharsets.UTF_8), cle));
+    }
+}
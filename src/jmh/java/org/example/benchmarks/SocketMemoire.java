@@ -0,0 +1,49 @@
+package org.example.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+
+/**
+ * Socket sans réseau : ClientHandler lit un script de requêtes déjà écrit et ses
+ * réponses sont seulement comptées.
+ */
+final class SocketMemoire extends Socket {
+
+    private final byte[] script;
+    private long octetsEcrits;
+
+
+    SocketMemoire(byte[] script) {
+        this.script = script;
+    }
+
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(script);
+    }
+
+
+    @Override
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int octet) {
+                octetsEcrits++;
+            }
+
+            @Override
+            public void write(byte[] octets, int debut, int longueur) {
+                octetsEcrits += longueur;
+            }
+        };
+    }
+
+
+    long getOctetsEcrits() {
+        return octetsEcrits;
+    }
+}
@@ -0,0 +1,252 @@
+package org.example.charge;
+
+import org.example.benchmarks.BaseEmbarquee;
+import org.example.rest.RestServer;
+import org.example.server.MedicalReportServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Générateur de charge de bout en bout : N utilisateurs simulés envoient des
+ * requêtes à débit fixe (boucle ouverte) sur le protocole sécurisé ou sur l'API
+ * REST de réservation, puis le débit, les percentiles de latence et les erreurs
+ * sont affichés par opération.
+ * <p>
+ * Sans "hote=", les serveurs sont démarrés dans ce processus sur une base H2 en
+ * mémoire (BaseEmbarquee.creerCabinet). Les options sont passées en "cle=valeur" :
+ * </p>
+ * scenario=protocole|rest, utilisateurs=20, debit=50 (requêtes/s au total),
+ * duree=60 et prechauffage=10 (secondes), delai=30000 (ms), melange=OP:poids,...,
+ * hote, port, logins=a.b,c.d et motDePasse (serveur externe), creneaux=2000 (base embarquée).
+ */
+public final class GenerateurCharge {
+
+    private static final String MELANGE_PROTOCOLE = "LOGIN:5,LIST_PATIENTS:20,LIST_REPORTS:35,ADD_REPORT:20,"
+            + "EDIT_REPORT:20";
+    private static final String MELANGE_REST = PatientVirtuel.SPECIALITES + ":5," + PatientVirtuel.MEDECINS + ":10,"
+            + PatientVirtuel.RECHERCHE + ":45," + PatientVirtuel.RESERVATION + ":30," + PatientVirtuel.ANNULATION + ":10";
+    private static final int PATIENTS_PAR_MEDECIN = 10;
+    private static final int RAPPORTS_PAR_MEDECIN = 50;
+    private static final int CRENEAUX_PAR_JOUR = 16;
+    private static final long ATTENTE_DEMARRAGE_MS = 10_000;
+
+    private final Map<String, String> options;
+    private final int utilisateurs;
+    private final boolean embarque;
+
+
+    private GenerateurCharge(Map<String, String> options) {
+        this.options = options;
+        this.utilisateurs = entier("utilisateurs", 20);
+        this.embarque = !options.containsKey("hote");
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String argument : args) {
+            int egal = argument.indexOf('=');
+            if (egal <= 0) {
+                System.err.println("Argument ignoré (attendu cle=valeur) : " + argument);
+                continue;
+            }
+            options.put(argument.substring(0, egal), argument.substring(egal + 1));
+        }
+        String scenario = options.getOrDefault("scenario", "protocole");
+        GenerateurCharge generateur = new GenerateurCharge(options);
+        switch (scenario) {
+            case "protocole":
+                generateur.executerProtocole();
+                break;
+            case "rest":
+                generateur.executerRest();
+                break;
+            default:
+                System.err.println("Scénario inconnu : " + scenario + " (protocole ou rest)");
+                System.exit(2);
+        }
+        // Les threads de lecture des connexions clientes et ceux des serveurs ne retiennent pas la JVM
+        System.exit(0);
+    }
+
+
+    private void executerProtocole() throws Exception {
+        Melange melange = Melange.lire(options.getOrDefault("melange", MELANGE_PROTOCOLE), MedecinVirtuel.OPERATIONS);
+        String hote = options.getOrDefault("hote", "localhost");
+        String[] logins = options.containsKey("logins") ? options.get("logins").split(",") : null;
+        String motDePasse = options.getOrDefault("motDePasse", BaseEmbarquee.MOT_DE_PASSE_MEDECINS);
+        if (!embarque && (logins == null || !options.containsKey("motDePasse"))) {
+            throw new IllegalArgumentException("Serveur externe : logins= et motDePasse= sont obligatoires");
+        }
+
+        MedicalReportServer serveur = null;
+        Connection base = null;
+        int port;
+        if (embarque) {
+            base = BaseEmbarquee.creerCabinet("charge", utilisateurs, PATIENTS_PAR_MEDECIN, RAPPORTS_PAR_MEDECIN, 0);
+            utiliserBase();
+            // Une session occupe un thread du pool
+            proprieteParDefaut("ACCEPT_QUEUE_SIZE", String.valueOf(utilisateurs));
+            port = entier("port", portLibre());
+            serveur = new MedicalReportServer(port, utilisateurs + 2);
+            Thread fil = new Thread(serveur::demarrer, "serveur-charge");
+            fil.setDaemon(true);
+            fil.start();
+            attendrePort(hote, port);
+        } else {
+            port = entier("port", 5000);
+        }
+
+        List<UtilisateurVirtuel> medecins = new ArrayList<>();
+        Plan plan = new Plan();
+        for (int i = 0; i < utilisateurs; i++) {
+            String login = logins != null ? logins[i % logins.length].trim() : BaseEmbarquee.login(i + 1);
+            medecins.add(new MedecinVirtuel(hote, port, login, motDePasse, entier("delai", 30_000), 42 + i,
+                    melange, plan.statistiques, plan.intervalleNanos, plan.debutNanos, plan.finNanos));
+        }
+        System.out.printf("Protocole : %d médecins sur %s:%d%n", utilisateurs, hote, port);
+        plan.executer(medecins);
+
+        if (serveur != null) {
+            serveur.arreter();
+        }
+        if (base != null) {
+            base.close();
+        }
+    }
+
+
+    private void executerRest() throws Exception {
+        Melange melange = Melange.lire(options.getOrDefault("melange", MELANGE_REST), PatientVirtuel.OPERATIONS);
+        String hote = options.getOrDefault("hote", "localhost");
+        int creneaux = entier("creneaux", 2_000);
+        int medecins = Math.max(1, utilisateurs / 4);
+
+        RestServer serveur = null;
+        Connection base = null;
+        if (embarque) {
+            base = BaseEmbarquee.creerCabinet("charge", medecins, PATIENTS_PAR_MEDECIN, 0, creneaux);
+            utiliserBase();
+            serveur = new RestServer();
+            serveur.start();
+        }
+        // RestServer écoute toujours sur 9090
+        String adresse = "http://" + hote + ":" + entier("port", 9090);
+        int jours = entier("jours", embarque ? (creneaux + medecins * CRENEAUX_PAR_JOUR - 1)
+                / (medecins * CRENEAUX_PAR_JOUR) : 30);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<UtilisateurVirtuel> patients = new ArrayList<>();
+        Plan plan = new Plan();
+        for (int i = 0; i < utilisateurs; i++) {
+            patients.add(new PatientVirtuel(client, adresse, 1 + i % BaseEmbarquee.NOMBRE_PATIENTS, jours,
+                    entier("delai", 30_000), 42 + i, melange, plan.statistiques,
+                    plan.intervalleNanos, plan.debutNanos, plan.finNanos));
+        }
+        System.out.printf("REST : %d patients sur %s%n", utilisateurs, adresse);
+        plan.executer(patients);
+
+        if (serveur != null) {
+            serveur.stop();
+        }
+        if (base != null) {
+            base.close();
+        }
+    }
+
+
+    /**
+     * Planning commun : chaque utilisateur envoie une requête toutes les
+     * utilisateurs / debit secondes, du début du préchauffage à la fin de la mesure.
+     */
+    private final class Plan {
+        private final long intervalleNanos;
+        private final long debutNanos;
+        private final long finNanos;
+        private final StatistiquesCharge statistiques;
+
+        private Plan() {
+            double debit = Double.parseDouble(options.getOrDefault("debit", "50"));
+            intervalleNanos = (long) (utilisateurs * 1e9 / debit);
+            debutNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            long finPrechauffage = debutNanos + TimeUnit.SECONDS.toNanos(entier("prechauffage", 10));
+            finNanos = finPrechauffage + TimeUnit.SECONDS.toNanos(entier("duree", 60));
+            statistiques = new StatistiquesCharge(finPrechauffage);
+        }
+
+        private void executer(List<UtilisateurVirtuel> utilisateursVirtuels) throws InterruptedException {
+            System.out.printf("Débit visé : %s req/s, préchauffage %s s, mesure %s s%n",
+                    options.getOrDefault("debit", "50"), options.getOrDefault("prechauffage", "10"),
+                    options.getOrDefault("duree", "60"));
+            List<Thread> fils = new ArrayList<>();
+            for (int i = 0; i < utilisateursVirtuels.size(); i++) {
+                Thread fil = new Thread(utilisateursVirtuels.get(i), "utilisateur-" + (i + 1));
+                fil.setDaemon(true);
+                fils.add(fil);
+                fil.start();
+            }
+            for (Thread fil : fils) {
+                fil.join();
+            }
+            statistiques.terminer();
+            statistiques.afficher(System.out);
+        }
+    }
+
+
+    // BdManager lit les propriétés système avant config.properties
+    private static void utiliserBase() {
+        System.setProperty("DB_URL", BaseEmbarquee.url("charge"));
+        System.setProperty("DB_USER", BaseEmbarquee.UTILISATEUR);
+        System.setProperty("DB_PASSWORD", BaseEmbarquee.MOT_DE_PASSE);
+    }
+
+
+    private static void proprieteParDefaut(String cle, String valeur) {
+        if (System.getProperty(cle) == null) {
+            System.setProperty(cle, valeur);
+        }
+    }
+
+
+    private int entier(String cle, int defaut) {
+        String valeur = options.get(cle);
+        return valeur == null ? defaut : Integer.parseInt(valeur.trim());
+    }
+
+
+    private static int portLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+
+    private static void attendrePort(String hote, int port) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ATTENTE_DEMARRAGE_MS;
+        while (System.currentTimeMillis() < limite) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(hote, port), 200);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Le serveur embarqué n'écoute pas sur le port " + port);
+    }
+}
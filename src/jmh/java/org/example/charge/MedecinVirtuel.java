@@ -0,0 +1,220 @@
+package org.example.charge;
+
+import org.example.benchmarks.BaseEmbarquee;
+import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.PatientDTO;
+import org.example.client.donnees.RapportDTO;
+import org.example.client.reseau.GestionnaireConnexion;
+import org.example.shared.Protocol;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Médecin simulé sur le protocole sécurisé, avec la pile du vrai client
+ * (GestionnaireConnexion, GestionnaireCryptoClient, DecodeurReponses).
+ * <p>
+ * LOGIN refait la poignée de main complète (sel, digest, clé de session chiffrée
+ * en RSA) sur une nouvelle connexion. Tant que le médecin ne connaît ni patient ni
+ * rapport, ADD_REPORT et EDIT_REPORT sont remplacés par la liste correspondante,
+ * comme le ferait l'interface.
+ * </p>
+ */
+final class MedecinVirtuel extends UtilisateurVirtuel {
+
+    static final List<String> OPERATIONS = List.of(Protocol.CMD_LOGIN, Protocol.CMD_LIST_PATIENTS,
+            Protocol.CMD_LIST_REPORTS, Protocol.CMD_ADD_REPORT, Protocol.CMD_EDIT_REPORT);
+
+    private static final int RAPPORTS_CONNUS_MAX = 200;
+    private static final LocalDate DATE_REFERENCE = LocalDate.of(2025, 6, 2);
+
+    private final String hote;
+    private final int port;
+    private final String login;
+    private final String motDePasse;
+    private final long delaiMs;
+
+    private final GestionnaireCryptoClient crypto = new GestionnaireCryptoClient();
+    private final DecodeurReponses decodeur = new DecodeurReponses(crypto);
+    private GestionnaireConnexion connexion;
+    private boolean authentifie;
+    private final List<Integer> patients = new ArrayList<>();
+    private final List<Integer> rapports = new ArrayList<>();
+
+
+    MedecinVirtuel(String hote, int port, String login, String motDePasse, long delaiMs, long graine,
+                   Melange melange, StatistiquesCharge statistiques,
+                   long intervalleNanos, long debutNanos, long finNanos) {
+        super(graine, melange, statistiques, intervalleNanos, debutNanos, finNanos);
+        this.hote = hote;
+        this.port = port;
+        this.login = login;
+        this.motDePasse = motDePasse;
+        this.delaiMs = delaiMs;
+    }
+
+
+    @Override
+    protected String choisir(String operationTiree) {
+        if (!authentifie || connexion == null || !connexion.estConnecte()) {
+            return Protocol.CMD_LOGIN;
+        }
+        if (operationTiree.equals(Protocol.CMD_LOGIN)) {
+            // La déconnexion précède l'envoi : elle compte dans la latence corrigée, pas dans le service
+            fermer();
+        } else if (operationTiree.equals(Protocol.CMD_ADD_REPORT) && patients.isEmpty()) {
+            return Protocol.CMD_LIST_PATIENTS;
+        } else if (operationTiree.equals(Protocol.CMD_EDIT_REPORT) && rapports.isEmpty()) {
+            return Protocol.CMD_LIST_REPORTS;
+        }
+        return operationTiree;
+    }
+
+
+    @Override
+    protected String executer(String operation) throws Exception {
+        switch (operation) {
+            case Protocol.CMD_LOGIN:
+                return seConnecter();
+            case Protocol.CMD_LIST_PATIENTS:
+                return listerPatients();
+            case Protocol.CMD_LIST_REPORTS:
+                return listerRapports();
+            case Protocol.CMD_ADD_REPORT:
+                return ajouterRapport();
+            case Protocol.CMD_EDIT_REPORT:
+                return modifierRapport();
+            default:
+                throw new IllegalArgumentException("Opération inconnue : " + operation);
+        }
+    }
+
+
+    @Override
+    protected void terminer() {
+        fermer();
+    }
+
+
+    private String seConnecter() throws Exception {
+        fermer();
+        connexion = new GestionnaireConnexion();
+        if (!connexion.connecter(hote, port)) {
+            return "connexion refusée";
+        }
+
+        String reponse = envoyer(Protocol.CMD_LOGIN + "|" + login);
+        if (reponse == null || !reponse.startsWith(Protocol.RESP_SALT + "|")) {
+            return erreur(reponse);
+        }
+        byte[] sel = Base64.getDecoder().decode(reponse.substring(Protocol.RESP_SALT.length() + 1));
+        String digest = Base64.getEncoder().encodeToString(crypto.calculerDigestSale(login, motDePasse, sel));
+        crypto.genererCleSession();
+        String cleSession = Base64.getEncoder().encodeToString(crypto.chiffrerCleSession());
+
+        reponse = envoyer(Protocol.CMD_LOGIN + "|" + digest + "|" + cleSession);
+        String erreur = erreur(reponse);
+        authentifie = erreur == null;
+        return erreur;
+    }
+
+
+    private String listerPatients() throws Exception {
+        String reponse = envoyer(Protocol.CMD_LIST_PATIENTS);
+        String erreur = erreur(reponse);
+        if (erreur == null) {
+            patients.clear();
+            for (PatientDTO patient : DecodeurReponses.lirePatients(reponse)) {
+                patients.add(patient.getId());
+            }
+        }
+        return erreur;
+    }
+
+
+    private String listerRapports() throws Exception {
+        String reponse = envoyer(Protocol.CMD_LIST_REPORTS + "|");
+        String erreur = erreur(reponse);
+        if (erreur == null) {
+            // Déchiffrement et vérification du HMAC, comme le client : une réponse altérée est une erreur
+            List<RapportDTO> liste = decodeur.lireRapports(reponse);
+            rapports.clear();
+            for (int i = 0; i < liste.size() && i < RAPPORTS_CONNUS_MAX; i++) {
+                rapports.add(liste.get(i).getId());
+            }
+        }
+        return erreur;
+    }
+
+
+    private String ajouterRapport() throws Exception {
+        String date = DATE_REFERENCE.minusDays(aleatoire.nextInt(365)).toString();
+        String patientId = String.valueOf(patients.get(aleatoire.nextInt(patients.size())));
+        String texte = BaseEmbarquee.texte(aleatoire, 200 + aleatoire.nextInt(600));
+        byte[] signature = crypto.signer((date + patientId + texte).getBytes());
+
+        String reponse = envoyer(Protocol.CMD_ADD_REPORT + "|" + chiffrer(date) + "|" + chiffrer(patientId) + "|"
+                + chiffrer(texte) + "|" + Base64.getEncoder().encodeToString(signature) + "|" + UUID.randomUUID());
+        String erreur = erreur(reponse);
+        if (erreur == null && rapports.size() < RAPPORTS_CONNUS_MAX) {
+            rapports.add(Integer.parseInt(reponse.split("\\|")[1]));
+        }
+        return erreur;
+    }
+
+
+    private String modifierRapport() throws Exception {
+        String rapportId = String.valueOf(rapports.get(aleatoire.nextInt(rapports.size())));
+        String texte = BaseEmbarquee.texte(aleatoire, 200 + aleatoire.nextInt(600));
+        return erreur(envoyer(Protocol.CMD_EDIT_REPORT + "|" + chiffrer(rapportId) + "|" + chiffrer(texte) + "|"
+                + UUID.randomUUID()));
+    }
+
+
+    private String envoyer(String requete) throws Exception {
+        try {
+            return connexion.envoyer(requete, delaiMs).get();
+        } catch (ExecutionException e) {
+            authentifie = false;
+            throw e;
+        }
+    }
+
+
+    private String chiffrer(String valeur) throws Exception {
+        return Base64.getEncoder().encodeToString(crypto.chiffrer(valeur));
+    }
+
+
+    private void fermer() {
+        authentifie = false;
+        if (connexion != null) {
+            connexion.deconnecter();
+            connexion = null;
+        }
+    }
+
+
+    /**
+     * Catégorie d'une réponse ERROR|message (BUSY et SHUTDOWN regroupés), null pour OK.
+     */
+    private static String erreur(String reponse) {
+        if (reponse == null) {
+            return "réponse vide";
+        }
+        if (reponse.equals(Protocol.RESP_OK) || reponse.startsWith(Protocol.RESP_OK + "|")) {
+            return null;
+        }
+        String[] parties = reponse.split("\\|");
+        if (parties[0].equals(Protocol.RESP_ERROR) && parties.length >= 2) {
+            return tronquer(parties[1]);
+        }
+        return tronquer("réponse inattendue " + parties[0]);
+    }
+}
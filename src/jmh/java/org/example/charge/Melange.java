@@ -0,0 +1,50 @@
+package org.example.charge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Proportions des opérations d'un scénario, écrites "OPERATION:poids,OPERATION:poids".
+ * Les poids sont relatifs : "LIST_REPORTS:3,ADD_REPORT:1" tire LIST_REPORTS trois fois sur quatre.
+ */
+final class Melange {
+
+    private final List<String> operations = new ArrayList<>();
+    private final List<Integer> cumuls = new ArrayList<>();
+    private int total;
+
+
+    static Melange lire(String description, List<String> operationsConnues) {
+        Melange melange = new Melange();
+        for (String element : description.split(",")) {
+            String[] parties = element.trim().split(":");
+            if (parties.length != 2 || !operationsConnues.contains(parties[0].trim())) {
+                throw new IllegalArgumentException("Élément de mélange invalide : " + element
+                        + " (opérations possibles : " + operationsConnues + ")");
+            }
+            int poids = Integer.parseInt(parties[1].trim());
+            if (poids > 0) {
+                melange.total += poids;
+                melange.operations.add(parties[0].trim());
+                melange.cumuls.add(melange.total);
+            }
+        }
+        if (melange.total == 0) {
+            throw new IllegalArgumentException("Mélange vide : " + description);
+        }
+        return melange;
+    }
+
+
+    String tirer(Random aleatoire) {
+        int tirage = aleatoire.nextInt(total);
+        for (int i = 0; i < cumuls.size(); i++) {
+            if (tirage < cumuls.get(i)) {
+                return operations.get(i);
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.charge;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.example.rest.RestServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Patient simulé sur l'API REST de réservation : il consulte les spécialités et
+ * les médecins, cherche des créneaux libres à une date, en réserve un et annule
+ * parfois une de ses réservations (ce qui remet le créneau en jeu).
+ * <p>
+ * Une réservation refusée (400) veut dire qu'un autre patient a pris le créneau
+ * entre la recherche et la réservation : c'est la contention que l'on veut mesurer.
+ * </p>
+ */
+final class PatientVirtuel extends UtilisateurVirtuel {
+
+    static final String SPECIALITES = "GET " + RestServer.ROUTE_SPECIALTIES;
+    static final String MEDECINS = "GET " + RestServer.ROUTE_DOCTORS;
+    static final String RECHERCHE = "GET " + RestServer.ROUTE_CONSULTATIONS;
+    static final String RESERVATION = "PUT " + RestServer.ROUTE_CONSULTATIONS;
+    static final String ANNULATION = "DELETE " + RestServer.ROUTE_CONSULTATIONS;
+    static final List<String> OPERATIONS = List.of(SPECIALITES, MEDECINS, RECHERCHE, RESERVATION, ANNULATION);
+
+    private static final LocalDate DATE_REFERENCE = LocalDate.of(2025, 6, 2);
+
+    private final HttpClient client;
+    private final String base;
+    private final int patientId;
+    private final int joursCreneaux;
+    private final Duration delai;
+
+    private final List<Integer> creneauxLibres = new ArrayList<>();
+    private final List<Integer> reservations = new ArrayList<>();
+
+
+    PatientVirtuel(HttpClient client, String base, int patientId, int joursCreneaux, long delaiMs, long graine,
+                   Melange melange, StatistiquesCharge statistiques,
+                   long intervalleNanos, long debutNanos, long finNanos) {
+        super(graine, melange, statistiques, intervalleNanos, debutNanos, finNanos);
+        this.client = client;
+        this.base = base;
+        this.patientId = patientId;
+        this.joursCreneaux = Math.max(1, joursCreneaux);
+        this.delai = Duration.ofMillis(delaiMs);
+    }
+
+
+    @Override
+    protected String choisir(String operationTiree) {
+        if (operationTiree.equals(ANNULATION) && reservations.isEmpty()) {
+            return creneauxLibres.isEmpty() ? RECHERCHE : RESERVATION;
+        }
+        if (operationTiree.equals(RESERVATION) && creneauxLibres.isEmpty()) {
+            return RECHERCHE;
+        }
+        return operationTiree;
+    }
+
+
+    @Override
+    protected String executer(String operation) throws Exception {
+        switch (operation) {
+            case SPECIALITES:
+                return erreur(envoyer(requete(RestServer.ROUTE_SPECIALTIES).GET()));
+            case MEDECINS:
+                return erreur(envoyer(requete(RestServer.ROUTE_DOCTORS).GET()));
+            case RECHERCHE:
+                return chercher();
+            case RESERVATION:
+                return reserver();
+            case ANNULATION:
+                return annuler();
+            default:
+                throw new IllegalArgumentException("Opération inconnue : " + operation);
+        }
+    }
+
+
+    private String chercher() throws Exception {
+        LocalDate date = DATE_REFERENCE.plusDays(aleatoire.nextInt(joursCreneaux));
+        HttpResponse<String> reponse = envoyer(requete(RestServer.ROUTE_CONSULTATIONS + "?date=" + date).GET());
+        String erreur = erreur(reponse);
+        if (erreur == null) {
+            creneauxLibres.clear();
+            for (JsonElement consultation : JsonParser.parseString(reponse.body()).getAsJsonArray()) {
+                creneauxLibres.add(consultation.getAsJsonObject().get("id").getAsInt());
+            }
+        }
+        return erreur;
+    }
+
+
+    private String reserver() throws Exception {
+        Integer creneau = creneauxLibres.remove(aleatoire.nextInt(creneauxLibres.size()));
+        String corps = "{\"patientId\":" + patientId + ",\"reason\":\"Consultation\"}";
+        HttpResponse<String> reponse = envoyer(requete(RestServer.ROUTE_CONSULTATIONS + "?id=" + creneau)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(corps)));
+        String erreur = erreur(reponse);
+        if (erreur == null) {
+            reservations.add(creneau);
+        }
+        return erreur;
+    }
+
+
+    private String annuler() throws Exception {
+        Integer creneau = reservations.remove(aleatoire.nextInt(reservations.size()));
+        return erreur(envoyer(requete(RestServer.ROUTE_CONSULTATIONS + "?id=" + creneau).DELETE()));
+    }
+
+
+    private HttpRequest.Builder requete(String chemin) {
+        return HttpRequest.newBuilder(URI.create(base + chemin)).timeout(delai);
+    }
+
+
+    private HttpResponse<String> envoyer(HttpRequest.Builder requete) throws Exception {
+        return client.send(requete.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+
+    private static String erreur(HttpResponse<String> reponse) {
+        int code = reponse.statusCode();
+        return code >= 200 && code < 300 ? null : "HTTP " + code;
+    }
+}
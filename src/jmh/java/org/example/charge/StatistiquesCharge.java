@@ -0,0 +1,118 @@
+package org.example.charge;
+
+import org.example.server.metriques.Histogramme;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Mesures d'une exécution, par opération (commande du protocole ou route REST).
+ * <p>
+ * Deux latences par requête :
+ * - corrigée : depuis l'instant où la requête aurait dû partir selon le planning.
+ * Si le serveur bloque, les requêtes suivantes partent en retard et ce retard est
+ * compté (correction de l'omission coordonnée) ;
+ * - service : depuis l'envoi effectif, ce que verrait un client qui attend.
+ * </p>
+ * Les requêtes planifiées pendant le préchauffage ne sont pas comptées.
+ */
+final class StatistiquesCharge {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final long finPrechauffageNanos;
+    private volatile long finMesureNanos;
+
+
+    StatistiquesCharge(long finPrechauffageNanos) {
+        this.finPrechauffageNanos = finPrechauffageNanos;
+    }
+
+
+    /**
+     * @param prevuNanos instant planifié de la requête
+     * @param envoiNanos instant réel de l'envoi (après prevuNanos si l'utilisateur était en retard)
+     * @param erreur     null si la requête a réussi, sinon sa catégorie
+     */
+    void enregistrer(String operation, long prevuNanos, long envoiNanos, String erreur) {
+        if (prevuNanos < finPrechauffageNanos) {
+            return;
+        }
+        long finNanos = System.nanoTime();
+        Operation stats = operations.computeIfAbsent(operation, o -> new Operation());
+        stats.corrigee.enregistrer(finNanos - prevuNanos);
+        stats.service.enregistrer(finNanos - envoiNanos);
+        if (erreur == null) {
+            stats.succes.increment();
+        } else {
+            stats.erreurs.computeIfAbsent(erreur, e -> new LongAdder()).increment();
+        }
+    }
+
+
+    void terminer() {
+        finMesureNanos = System.nanoTime();
+    }
+
+
+    void afficher(PrintStream sortie) {
+        double dureeSecondes = Math.max(1e-9, (finMesureNanos - finPrechauffageNanos) / 1e9);
+        sortie.printf(Locale.ROOT, "%nDurée mesurée : %.1f s%n%n", dureeSecondes);
+        sortie.printf(Locale.ROOT, "%-26s %9s %9s %8s | %-44s | %s%n", "Opération", "req/s", "succès", "erreurs",
+                "latence corrigée ms (p50 p90 p99 p99.9 max)", "service ms (p50 p99)");
+
+        long totalSucces = 0;
+        long totalErreurs = 0;
+        List<String> lignesErreurs = new ArrayList<>();
+        for (Map.Entry<String, Operation> entree : new TreeMap<>(operations).entrySet()) {
+            Operation stats = entree.getValue();
+            long succes = stats.succes.sum();
+            long erreurs = 0;
+            for (Map.Entry<String, LongAdder> erreur : new TreeMap<>(stats.erreurs).entrySet()) {
+                erreurs += erreur.getValue().sum();
+                lignesErreurs.add(String.format(Locale.ROOT, "  %-26s %-40s %d", entree.getKey(), erreur.getKey(),
+                        erreur.getValue().sum()));
+            }
+            totalSucces += succes;
+            totalErreurs += erreurs;
+
+            StringBuilder corrigee = new StringBuilder();
+            for (double q : PERCENTILES) {
+                corrigee.append(millis(stats.corrigee.percentile(q))).append(' ');
+            }
+            corrigee.append(millis(stats.corrigee.maximum()));
+            sortie.printf(Locale.ROOT, "%-26s %9.1f %9d %8d | %-44s | %s %s%n", entree.getKey(),
+                    (succes + erreurs) / dureeSecondes, succes, erreurs, corrigee,
+                    millis(stats.service.percentile(50)), millis(stats.service.percentile(99)));
+        }
+        sortie.printf(Locale.ROOT, "%-26s %9.1f %9d %8d%n", "TOTAL", (totalSucces + totalErreurs) / dureeSecondes,
+                totalSucces, totalErreurs);
+
+        if (!lignesErreurs.isEmpty()) {
+            sortie.println();
+            sortie.println("Erreurs par opération :");
+            lignesErreurs.forEach(sortie::println);
+        }
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+
+
+    private static final class Operation {
+        private final Histogramme corrigee = new Histogramme();
+        private final Histogramme service = new Histogramme();
+        private final LongAdder succes = new LongAdder();
+        private final Map<String, LongAdder> erreurs = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.charge;
+
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Utilisateur simulé en boucle ouverte : ses requêtes sont planifiées à intervalle
+ * fixe, que le serveur ait répondu à temps ou non. Une requête en retard part dès
+ * que la précédente est terminée et sa latence compte depuis l'instant prévu.
+ * Le décalage initial, tiré au hasard, évite que tous les utilisateurs envoient
+ * au même instant.
+ */
+abstract class UtilisateurVirtuel implements Runnable {
+
+    private static final int LONGUEUR_MAX_ERREUR = 40;
+
+    protected final Random aleatoire;
+    private final Melange melange;
+    private final StatistiquesCharge statistiques;
+    private final long intervalleNanos;
+    private final long debutNanos;
+    private final long finNanos;
+
+
+    protected UtilisateurVirtuel(long graine, Melange melange, StatistiquesCharge statistiques,
+                                 long intervalleNanos, long debutNanos, long finNanos) {
+        this.aleatoire = new Random(graine);
+        this.melange = melange;
+        this.statistiques = statistiques;
+        this.intervalleNanos = intervalleNanos;
+        this.debutNanos = debutNanos;
+        this.finNanos = finNanos;
+    }
+
+
+    @Override
+    public void run() {
+        long prevu = debutNanos + (long) (aleatoire.nextDouble() * intervalleNanos);
+        try {
+            while (prevu < finNanos && !Thread.currentThread().isInterrupted()) {
+                long attente = prevu - System.nanoTime();
+                if (attente > 0) {
+                    LockSupport.parkNanos(attente);
+                    continue;
+                }
+                String operation = choisir(melange.tirer(aleatoire));
+                long envoi = System.nanoTime();
+                String erreur;
+                try {
+                    erreur = executer(operation);
+                } catch (Exception e) {
+                    erreur = categorie(e);
+                }
+                statistiques.enregistrer(operation, prevu, envoi, erreur);
+                prevu += intervalleNanos;
+            }
+        } finally {
+            terminer();
+        }
+    }
+
+
+    /**
+     * Opération réellement exécutée à la place de celle tirée (LOGIN si la session est perdue, par exemple).
+     */
+    protected String choisir(String operationTiree) {
+        return operationTiree;
+    }
+
+
+    /**
+     * @return null si l'opération a réussi, sinon la catégorie de l'erreur
+     */
+    protected abstract String executer(String operation) throws Exception;
+
+
+    protected void terminer() {
+    }
+
+
+    protected static String tronquer(String message) {
+        if (message == null) {
+            return "(sans message)";
+        }
+        return message.length() <= LONGUEUR_MAX_ERREUR ? message : message.substring(0, LONGUEUR_MAX_ERREUR);
+    }
+
+
+    private static String categorie(Exception e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            return "délai dépassé";
+        }
+        String type = cause.getClass().getSimpleName();
+        return tronquer(cause.getMessage() == null ? type : type + ": " + cause.getMessage());
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.client.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.IndexRapports;
+import org.example.client.donnees.RapportDTO;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Cache local chiffré des rapports d'un médecin.
+ * <p>
+ * Le fichier est propre à chaque login et chiffré en AES-GCM avec une clé
+ * dérivée du mot de passe (PBKDF2). Il garde aussi le curseur de la dernière
+ * synchronisation : à l'ouverture du panel, seuls les rapports modifiés depuis
+ * (LIST_REPORTS_SINCE) sont téléchargés puis fusionnés par id.
+ * </p>
+ * Format du fichier : MAGIC | sel (16) | IV (12) | JSON chiffré + tag GCM.
+ */
+public class CacheRapports {
+
+    private static final byte[] MAGIC = "MRC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int TAILLE_SEL = 16;
+    private static final int TAILLE_IV = 12;
+    private static final int TAILLE_TAG_BITS = 128;
+    private static final int ITERATIONS_PBKDF2 = 210_000;
+
+    private static final Path DOSSIER_DEFAUT = Paths.get(System.getProperty("user.home"),
+            ".medical-report-client", "cache");
+
+    private final Path fichier;
+    private final byte[] login;
+    private final byte[] sel;
+    private final SecretKey cle;
+    private final SecureRandom aleatoire = new SecureRandom();
+    private final Gson gson = new Gson();
+
+    private final Map<Integer, RapportDTO> rapportsParId = new HashMap<>();
+    private long curseur;
+    private IndexRapports index;
+
+
+    private CacheRapports(Path fichier, String login, byte[] sel, SecretKey cle) {
+        this.fichier = fichier;
+        this.login = login.getBytes(StandardCharsets.UTF_8);
+        this.sel = sel;
+        this.cle = cle;
+    }
+
+
+    public static CacheRapports ouvrir(String login, char[] motDePasse) throws Exception {
+        return ouvrir(DOSSIER_DEFAUT, login, motDePasse);
+    }
+
+
+    /**
+     * Ouvre (ou crée) le cache du médecin. Si le fichier ne peut pas être déchiffré
+     * (mot de passe changé, fichier altéré), on repart d'un cache vide.
+     */
+    public static CacheRapports ouvrir(Path dossier, String login, char[] motDePasse) throws Exception {
+        Path fichier = dossier.resolve("rapports-" + empreinte(login) + ".bin");
+
+        byte[] contenu = Files.exists(fichier) ? Files.readAllBytes(fichier) : null;
+        if (contenu != null && contenu.length > MAGIC.length + TAILLE_SEL + TAILLE_IV
+                && Arrays.equals(Arrays.copyOf(contenu, MAGIC.length), MAGIC)) {
+            byte[] sel = Arrays.copyOfRange(contenu, MAGIC.length, MAGIC.length + TAILLE_SEL);
+            CacheRapports cache = new CacheRapports(fichier, login, sel, deriverCle(motDePasse, sel));
+            try {
+                cache.charger(contenu);
+                return cache;
+            } catch (AEADBadTagException e) {
+                System.err.println("Cache local illisible, il sera reconstruit: " + fichier);
+            }
+        }
+
+        byte[] sel = new byte[TAILLE_SEL];
+        new SecureRandom().nextBytes(sel);
+        return new CacheRapports(fichier, login, sel, deriverCle(motDePasse, sel));
+    }
+
+
+    public synchronized long getCurseur() {
+        return curseur;
+    }
+
+
+    /**
+     * Fusionne un delta reçu du serveur : un rapport déjà connu est remplacé.
+     */
+    public synchronized void fusionner(long nouveauCurseur, List<RapportDTO> rapports) {
+        for (RapportDTO rapport : rapports) {
+            rapportsParId.put(rapport.getId(), rapport);
+        }
+        curseur = Math.max(curseur, nouveauCurseur);
+        if (!rapports.isEmpty()) {
+            index = null;
+        }
+    }
+
+
+    /**
+     * Index de filtrage sur tous les rapports en cache, reconstruit après un changement.
+     */
+    public synchronized IndexRapports getIndex() {
+        if (index == null) {
+            index = new IndexRapports(new ArrayList<>(rapportsParId.values()));
+        }
+        return index;
+    }
+
+
+    public synchronized int getNombreRapports() {
+        return rapportsParId.size();
+    }
+
+
+    /**
+     * Écrit le cache sur disque (fichier temporaire puis renommage).
+     */
+    public synchronized void sauvegarder() throws Exception {
+        JsonObject racine = new JsonObject();
+        racine.addProperty("curseur", curseur);
+        racine.add("rapports", gson.toJsonTree(new ArrayList<>(rapportsParId.values())));
+        byte[] clair = racine.toString().getBytes(StandardCharsets.UTF_8);
+
+        byte[] iv = new byte[TAILLE_IV];
+        aleatoire.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, cle, new GCMParameterSpec(TAILLE_TAG_BITS, iv));
+        // Le login est authentifié : un fichier copié d'un autre médecin est rejeté
+        cipher.updateAAD(login);
+        byte[] chiffre = cipher.doFinal(clair);
+
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        sortie.write(MAGIC);
+        sortie.write(sel);
+        sortie.write(iv);
+        sortie.write(chiffre);
+
+        Files.createDirectories(fichier.getParent());
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        Files.write(temporaire, sortie.toByteArray());
+        Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    public synchronized void effacer() throws IOException {
+        rapportsParId.clear();
+        curseur = 0;
+        index = null;
+        Files.deleteIfExists(fichier);
+    }
+
+
+    private void charger(byte[] contenu) throws Exception {
+        int debutIv = MAGIC.length + TAILLE_SEL;
+        byte[] iv = Arrays.copyOfRange(contenu, debutIv, debutIv + TAILLE_IV);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, cle, new GCMParameterSpec(TAILLE_TAG_BITS, iv));
+        cipher.updateAAD(login);
+        byte[] clair = cipher.doFinal(contenu, debutIv + TAILLE_IV, contenu.length - debutIv - TAILLE_IV);
+
+        long curseurLu = 0;
+        List<RapportDTO> rapports = new ArrayList<>();
+        try (JsonReader json = new JsonReader(new InputStreamReader(new ByteArrayInputStream(clair),
+                StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "curseur":
+                        curseurLu = json.nextLong();
+                        break;
+                    case "rapports":
+                        rapports = DecodeurReponses.lireListeRapports(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        fusionner(curseurLu, rapports);
+    }
+
+
+    private static SecretKey deriverCle(char[] motDePasse, byte[] sel) throws Exception {
+        PBEKeySpec spec = new PBEKeySpec(motDePasse, sel, ITERATIONS_PBKDF2, 256);
+        try {
+            byte[] cle = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(cle, "AES");
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+
+    // Le nom du fichier ne révèle pas le login
+    private static String empreinte(String login) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(login.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            hex.append(String.format("%02x", hash[i]));
+        }
+        return hex.toString();
+    }
+}
@@ -3,6 +3,10 @@ package org.example.client.crypto;
 import org.example.server.crypto.GestionnaireCrypto;
 import org.example.server.crypto.GenerateurCles;
 
+import org.example.shared.Protocol;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -129,6 +133,32 @@ public class GestionnaireCryptoClient {
         return GestionnaireCrypto.verifierHMAC(donnees, hmac, cleSession);
     }
 
+    /**
+     * Cipher de déchiffrement de session, pour déchiffrer en flux (CipherInputStream)
+     * sans matérialiser tout le texte clair.
+     */
+    public Cipher creerDechiffreurSession() throws Exception {
+        if (cleSession == null) {
+            throw new Exception("La clé de session n'est pas initialisée");
+        }
+        Cipher cipher = Cipher.getInstance(Protocol.SYMMETRIC_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, cleSession);
+        return cipher;
+    }
+
+
+    /**
+     * HMAC de session à alimenter au fil de la lecture.
+     */
+    public Mac creerMacSession() throws Exception {
+        if (cleSession == null) {
+            throw new Exception("La clé de session n'est pas initialisée");
+        }
+        Mac mac = Mac.getInstance(Protocol.HMAC_ALGORITHM);
+        mac.init(cleSession);
+        return mac;
+    }
+
     public SecretKey getCleSession() {
         if (cleSession == null) {
             return null;
@@ -0,0 +1,380 @@
+package org.example.client.donnees;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.reseau.GestionnaireConnexion;
+import org.example.shared.Protocol;
+
+import javax.crypto.CipherInputStream;
+import javax.crypto.Mac;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+
+/**
+ * Décodage typé des réponses du serveur, partagé par tous les panels.
+ * <p>
+ * Les réponses chiffrées (OK|nombre|JSON_AES|HMAC) sont décodées en flux :
+ * Base64 -> HMAC -> AES -> JsonReader, directement dans des DTO ou des
+ * tableaux de primitives. Ni le bloc chiffré ni le JSON clair ne sont
+ * recopiés en entier en mémoire. Le HMAC est vérifié sur tout le bloc avant
+ * de rendre le résultat.
+ * </p>
+ */
+public class DecodeurReponses {
+
+    private final GestionnaireCryptoClient crypto;
+
+
+    public DecodeurReponses(GestionnaireCryptoClient crypto) {
+        this.crypto = crypto;
+    }
+
+
+    @FunctionalInterface
+    public interface LecteurJson<T> {
+        T lire(JsonReader json) throws IOException;
+    }
+
+
+    public List<RapportDTO> lireRapports(String reponse) throws Exception {
+        return lireChiffre(reponse, DecodeurReponses::lireListeRapports);
+    }
+
+
+    public RapportDTO lireRapport(String reponse) throws Exception {
+        return lireChiffre(reponse, DecodeurReponses::lireRapport);
+    }
+
+
+    /**
+     * LIST_REPORTS_SINCE : {"curseur": ..., "rapports": [...]}
+     */
+    public DeltaRapports lireDelta(String reponse) throws Exception {
+        return lireChiffre(reponse, json -> {
+            long curseur = 0;
+            List<RapportDTO> rapports = new ArrayList<>();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "curseur":
+                        curseur = json.nextLong();
+                        break;
+                    case "rapports":
+                        rapports = lireListeRapports(json);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return new DeltaRapports(curseur, rapports);
+        });
+    }
+
+
+    /**
+     * LIST_REPORTS_PAGE : les lignes vont directement dans les colonnes de la page.
+     */
+    public PageRapports lirePage(String reponse, int debut) throws Exception {
+        int total = lireNombre(reponse);
+        return lireChiffre(reponse, json -> {
+            int[] ids = new int[16];
+            int[] patientIds = new int[16];
+            String[] dates = new String[16];
+            String[] apercus = new String[16];
+            int n = 0;
+            json.beginArray();
+            while (json.hasNext()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                    patientIds = Arrays.copyOf(patientIds, n * 2);
+                    dates = Arrays.copyOf(dates, n * 2);
+                    apercus = Arrays.copyOf(apercus, n * 2);
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "id":
+                            ids[n] = json.nextInt();
+                            break;
+                        case "patientId":
+                            patientIds[n] = json.nextInt();
+                            break;
+                        case "dateRapport":
+                            dates[n] = lireTexte(json);
+                            break;
+                        case "texteRapport":
+                            apercus[n] = lireTexte(json);
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+                n++;
+            }
+            json.endArray();
+            return new PageRapports(total, debut, Arrays.copyOf(ids, n), Arrays.copyOf(patientIds, n),
+                    Arrays.copyOf(dates, n), Arrays.copyOf(apercus, n));
+        });
+    }
+
+
+    /**
+     * LIST_PATIENTS : OK|[{"id":..,"first_name":..,"last_name":..,"birth_date":..}, ...]
+     * Les noms peuvent contenir des virgules ou des '|' : seul le premier séparateur compte.
+     */
+    public static List<PatientDTO> lirePatients(String reponse) throws Exception {
+        verifierOk(reponse);
+        int separateur = reponse.indexOf('|');
+        List<PatientDTO> patients = new ArrayList<>();
+        if (separateur < 0) {
+            return patients;
+        }
+        Reader lecteur = new StringReader(reponse);
+        lecteur.skip(separateur + 1);
+        try (JsonReader json = new JsonReader(lecteur)) {
+            json.beginArray();
+            while (json.hasNext()) {
+                int id = 0;
+                String prenom = "";
+                String nom = "";
+                String dateNaissance = "";
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "id":
+                            id = json.nextInt();
+                            break;
+                        case "first_name":
+                            prenom = lireTexte(json);
+                            break;
+                        case "last_name":
+                            nom = lireTexte(json);
+                            break;
+                        case "birth_date":
+                            dateNaissance = lireTexte(json);
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+                patients.add(new PatientDTO(id, prenom, nom, dateNaissance == null ? "" : dateNaissance));
+            }
+            json.endArray();
+        }
+        return patients;
+    }
+
+
+    /**
+     * Deuxième champ d'une réponse OK|nombre|...
+     */
+    public static int lireNombre(String reponse) throws Exception {
+        verifierOk(reponse);
+        int debut = reponse.indexOf('|') + 1;
+        int fin = reponse.indexOf('|', debut);
+        return Integer.parseInt(reponse.substring(debut, fin < 0 ? reponse.length() : fin));
+    }
+
+
+    /**
+     * Lève une exception avec le message du serveur si la réponse n'est pas OK.
+     */
+    public static void verifierOk(String reponse) throws Exception {
+        if (reponse.startsWith(Protocol.RESP_OK)) {
+            return;
+        }
+        String occupe = GestionnaireConnexion.messageOccupe(reponse);
+        if (occupe != null) {
+            throw new Exception(occupe);
+        }
+        String arret = GestionnaireConnexion.messageArret(reponse);
+        if (arret != null) {
+            throw new Exception(arret);
+        }
+        String msg = reponse.startsWith(Protocol.RESP_ERROR + "|")
+                ? reponse.substring(Protocol.RESP_ERROR.length() + 1)
+                : "Réponse inconnue";
+        throw new Exception(msg);
+    }
+
+
+    /**
+     * Décode le bloc JSON_AES en flux. Le HMAC est vérifié sur tout le bloc, même si
+     * le lecteur s'arrête avant la fin ou échoue : une réponse altérée donne toujours
+     * une SecurityException.
+     */
+    public <T> T lireChiffre(String reponse, LecteurJson<T> lecteur) throws Exception {
+        verifierOk(reponse);
+        int sep1 = reponse.indexOf('|');
+        int sep2 = sep1 < 0 ? -1 : reponse.indexOf('|', sep1 + 1);
+        int sep3 = sep2 < 0 ? -1 : reponse.indexOf('|', sep2 + 1);
+        if (sep3 < 0) {
+            throw new Exception("Réponse incomplète du serveur");
+        }
+        byte[] hmacRecu = Base64.getDecoder().decode(reponse.substring(sep3 + 1));
+
+        Mac mac = crypto.creerMacSession();
+        InputStream chiffre = new FluxMac(Base64.getDecoder().wrap(new FluxAscii(reponse, sep2 + 1, sep3)), mac);
+        InputStream clair = new CipherInputStream(chiffre, crypto.creerDechiffreurSession());
+
+        T resultat = null;
+        Exception erreur = null;
+        try {
+            resultat = lecteur.lire(new JsonReader(new InputStreamReader(clair, StandardCharsets.UTF_8)));
+        } catch (IOException | RuntimeException e) {
+            erreur = e;
+        }
+        // Le reste du bloc passe aussi dans le HMAC
+        chiffre.transferTo(OutputStream.nullOutputStream());
+
+        if (!MessageDigest.isEqual(mac.doFinal(), hmacRecu)) {
+            throw new SecurityException(
+                    "ALERTE SECURITE : HMAC invalide ! Les données ont peut-être été altérées en transit.");
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+        return resultat;
+    }
+
+
+    public static List<RapportDTO> lireListeRapports(JsonReader json) throws IOException {
+        List<RapportDTO> rapports = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            rapports.add(lireRapport(json));
+        }
+        json.endArray();
+        return rapports;
+    }
+
+
+    public static RapportDTO lireRapport(JsonReader json) throws IOException {
+        int id = 0;
+        int medecinId = 0;
+        int patientId = 0;
+        String date = null;
+        String texte = "";
+        long misAJour = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id":
+                    id = json.nextInt();
+                    break;
+                case "medecinId":
+                    medecinId = json.nextInt();
+                    break;
+                case "patientId":
+                    patientId = json.nextInt();
+                    break;
+                case "dateRapport":
+                    date = lireTexte(json);
+                    break;
+                case "texteRapport":
+                    texte = lireTexte(json);
+                    break;
+                case "misAJourMs":
+                    misAJour = json.nextLong();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return new RapportDTO(id, medecinId, patientId, date, texte, misAJour);
+    }
+
+
+    private static String lireTexte(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+
+    // Caractères ASCII d'une portion de chaîne, lus comme des octets (pas de copie)
+    private static class FluxAscii extends InputStream {
+        private final String texte;
+        private final int fin;
+        private int position;
+
+        private FluxAscii(String texte, int debut, int fin) {
+            this.texte = texte;
+            this.position = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        public int read() {
+            return position < fin ? texte.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] tampon, int decalage, int longueur) {
+            if (position >= fin) {
+                return -1;
+            }
+            int n = Math.min(longueur, fin - position);
+            for (int i = 0; i < n; i++) {
+                tampon[decalage + i] = (byte) texte.charAt(position++);
+            }
+            return n;
+        }
+    }
+
+
+    // Alimente le HMAC avec chaque octet lu
+    private static class FluxMac extends FilterInputStream {
+        private final Mac mac;
+
+        private FluxMac(InputStream source, Mac mac) {
+            super(source);
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int octet = super.read();
+            if (octet >= 0) {
+                mac.update((byte) octet);
+            }
+            return octet;
+        }
+
+        @Override
+        public int read(byte[] tampon, int decalage, int longueur) throws IOException {
+            int n = in.read(tampon, decalage, longueur);
+            if (n > 0) {
+                mac.update(tampon, decalage, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Tout octet doit passer dans le HMAC : on lit au lieu de sauter
+            byte[] tampon = new byte[(int) Math.min(n, 8192)];
+            int lus = read(tampon, 0, tampon.length);
+            return Math.max(lus, 0);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.client.donnees;
+
+import java.util.List;
+
+
+/**
+ * Réponse de LIST_REPORTS_SINCE : rapports modifiés et curseur de la prochaine synchronisation.
+ */
+public class DeltaRapports {
+
+    private final long curseur;
+    private final List<RapportDTO> rapports;
+
+
+    public DeltaRapports(long curseur, List<RapportDTO> rapports) {
+        this.curseur = curseur;
+        this.rapports = rapports;
+    }
+
+
+    public long getCurseur() {
+        return curseur;
+    }
+
+    public List<RapportDTO> getRapports() {
+        return rapports;
+    }
+}
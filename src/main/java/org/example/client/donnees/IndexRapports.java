@@ -0,0 +1,201 @@
+package org.example.client.donnees;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * Index en mémoire sur des rapports déjà déchiffrés, pour filtrer sans requête réseau.
+ * <p>
+ * Les rapports sont rangés dans l'ordre d'affichage (du plus récent au plus ancien).
+ * Une position dans cet ordre sert d'identifiant interne :
+ * - dates : tableau trié (décroissant), une plage de dates est un intervalle contigu ;
+ * - patients : positions triées par patient, un patient est un intervalle contigu ;
+ * - texte : index de mots (minuscules, sans accents) -> positions triées. Chaque mot
+ * de la recherche est traité comme un préfixe, pour filtrer pendant la saisie.
+ * </p>
+ * L'index est immuable : il est reconstruit quand le cache change.
+ */
+public class IndexRapports {
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final RapportDTO[] rapports;
+    private final long[] dates;
+
+    private final int[] patientsTries;
+    private final int[] positionsParPatient;
+
+    private final String[] termes;
+    private final int[][] positionsParTerme;
+
+
+    public IndexRapports(List<RapportDTO> source) {
+        rapports = source.toArray(new RapportDTO[0]);
+        Arrays.sort(rapports, Comparator.comparingLong(RapportDTO::getDateMs)
+                .thenComparingInt(RapportDTO::getId)
+                .reversed());
+
+        int n = rapports.length;
+        dates = new long[n];
+        long[] cles = new long[n];
+        Map<String, Positions> mots = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            RapportDTO rapport = rapports[i];
+            dates[i] = rapport.getDateMs();
+            // (patient, position) dans un seul long : un tri de primitives suffit
+            cles[i] = ((long) rapport.getPatientId() << 32) | i;
+            for (String mot : decouper(rapport.getTexteRapport())) {
+                mots.computeIfAbsent(mot, m -> new Positions()).ajouter(i);
+            }
+        }
+
+        Arrays.sort(cles);
+        patientsTries = new int[n];
+        positionsParPatient = new int[n];
+        for (int i = 0; i < n; i++) {
+            patientsTries[i] = (int) (cles[i] >> 32);
+            positionsParPatient[i] = (int) cles[i];
+        }
+
+        termes = mots.keySet().toArray(new String[0]);
+        Arrays.sort(termes);
+        positionsParTerme = new int[termes.length][];
+        for (int i = 0; i < termes.length; i++) {
+            positionsParTerme[i] = mots.get(termes[i]).versTableau();
+        }
+    }
+
+
+    public int getTaille() {
+        return rapports.length;
+    }
+
+
+    public RapportDTO getRapport(int position) {
+        return rapports[position];
+    }
+
+
+    /**
+     * Positions (dans l'ordre d'affichage) des rapports qui passent tous les filtres.
+     *
+     * @param patientId -1 pour tous les patients
+     * @param depuisMs  borne basse incluse, Long.MIN_VALUE pour ne pas filtrer
+     * @param jusquaMs  borne haute incluse, Long.MAX_VALUE pour ne pas filtrer
+     * @param texte     mots recherchés (préfixes), vide pour ne pas filtrer
+     */
+    public int[] filtrer(int patientId, long depuisMs, long jusquaMs, String texte) {
+        BitSet resultat = new BitSet(rapports.length);
+        int debut = premiereDateAuPlus(jusquaMs);
+        int fin = depuisMs == Long.MIN_VALUE ? rapports.length : premiereDateAuPlus(depuisMs - 1);
+        if (debut >= fin) {
+            return new int[0];
+        }
+        resultat.set(debut, fin);
+
+        if (patientId != -1) {
+            BitSet patient = new BitSet(rapports.length);
+            int i = Arrays.binarySearch(patientsTries, patientId);
+            if (i < 0) {
+                return new int[0];
+            }
+            while (i > 0 && patientsTries[i - 1] == patientId) {
+                i--;
+            }
+            for (; i < patientsTries.length && patientsTries[i] == patientId; i++) {
+                patient.set(positionsParPatient[i]);
+            }
+            resultat.and(patient);
+        }
+
+        for (String prefixe : decouper(texte)) {
+            if (resultat.isEmpty()) {
+                break;
+            }
+            resultat.and(positionsPourPrefixe(prefixe));
+        }
+        return resultat.stream().toArray();
+    }
+
+
+    // Première position dont la date est <= borne (les dates sont décroissantes)
+    private int premiereDateAuPlus(long borne) {
+        int bas = 0;
+        int haut = dates.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (dates[milieu] <= borne) {
+                haut = milieu;
+            } else {
+                bas = milieu + 1;
+            }
+        }
+        return bas;
+    }
+
+
+    private BitSet positionsPourPrefixe(String prefixe) {
+        BitSet positions = new BitSet(rapports.length);
+        int i = Arrays.binarySearch(termes, prefixe);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        // Les termes qui commencent par le préfixe se suivent dans le tableau trié
+        for (; i < termes.length && termes[i].startsWith(prefixe); i++) {
+            for (int position : positionsParTerme[i]) {
+                positions.set(position);
+            }
+        }
+        return positions;
+    }
+
+
+    /**
+     * Mots normalisés d'un texte : minuscules, sans accents, sans ponctuation.
+     */
+    static List<String> decouper(String texte) {
+        List<String> mots = new ArrayList<>();
+        if (texte == null || texte.isEmpty()) {
+            return mots;
+        }
+        String normalise = ACCENTS.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String mot : SEPARATEURS.split(normalise)) {
+            if (!mot.isEmpty()) {
+                mots.add(mot);
+            }
+        }
+        return mots;
+    }
+
+
+    // Liste de positions croissantes sans doublon (un mot répété dans un rapport)
+    private static class Positions {
+        private int[] valeurs = new int[4];
+        private int taille;
+
+        private void ajouter(int position) {
+            if (taille > 0 && valeurs[taille - 1] == position) {
+                return;
+            }
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = position;
+        }
+
+        private int[] versTableau() {
+            return Arrays.copyOf(valeurs, taille);
+        }
+    }
+}
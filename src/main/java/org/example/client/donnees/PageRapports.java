@@ -0,0 +1,54 @@
+package org.example.client.donnees;
+
+
+/**
+ * Une page de rapports stockée par colonnes (pas d'objet par ligne).
+ */
+public class PageRapports {
+
+    private final int total;
+    private final int debut;
+    private final int[] ids;
+    private final int[] patientIds;
+    private final String[] dates;
+    private final String[] apercus;
+
+
+    public PageRapports(int total, int debut, int[] ids, int[] patientIds, String[] dates, String[] apercus) {
+        this.total = total;
+        this.debut = debut;
+        this.ids = ids;
+        this.patientIds = patientIds;
+        this.dates = dates;
+        this.apercus = apercus;
+    }
+
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getDebut() {
+        return debut;
+    }
+
+    public int getTaille() {
+        return ids.length;
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public int getPatientId(int i) {
+        return patientIds[i];
+    }
+
+    public String getDate(int i) {
+        return dates[i];
+    }
+
+    public String getApercu(int i) {
+        return apercus[i];
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.client.donnees;
+
+
+/**
+ * Patient tel que reçu du serveur via LIST_PATIENTS.
+ */
+public class PatientDTO {
+
+    private final int id;
+    private final String prenom;
+    private final String nom;
+    private final String dateNaissance;
+
+
+    public PatientDTO(int id, String prenom, String nom, String dateNaissance) {
+        this.id = id;
+        this.prenom = prenom;
+        this.nom = nom;
+        this.dateNaissance = dateNaissance;
+    }
+
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public String getDateNaissance() {
+        return dateNaissance;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.client.donnees;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+
+/**
+ * Rapport tel que reçu du serveur (mêmes noms de champs que ReportDAO.Rapport).
+ */
+public class RapportDTO {
+
+    private int id;
+    private int medecinId;
+    private int patientId;
+    private String dateRapport;
+    private String texteRapport;
+    private long misAJourMs;
+
+    // Date convertie à la première comparaison, non sérialisée
+    private transient long dateMs = Long.MIN_VALUE;
+
+
+    public RapportDTO() {
+    }
+
+
+    public RapportDTO(int id, int medecinId, int patientId, String dateRapport, String texteRapport, long misAJourMs) {
+        this.id = id;
+        this.medecinId = medecinId;
+        this.patientId = patientId;
+        this.dateRapport = dateRapport;
+        this.texteRapport = texteRapport;
+        this.misAJourMs = misAJourMs;
+    }
+
+
+    public int getId() {
+        return id;
+    }
+
+    public int getMedecinId() {
+        return medecinId;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public String getDateRapport() {
+        return dateRapport;
+    }
+
+    public String getTexteRapport() {
+        return texteRapport;
+    }
+
+    public long getMisAJourMs() {
+        return misAJourMs;
+    }
+
+
+    /**
+     * Date du rapport en ms, 0 si illisible. Gson (côté serveur) écrit
+     * java.sql.Date au format "MMM d, yyyy".
+     */
+    public long getDateMs() {
+        if (dateMs == Long.MIN_VALUE) {
+            long valeur = 0;
+            if (dateRapport != null) {
+                try {
+                    valeur = new SimpleDateFormat("MMM d, yyyy", Locale.US).parse(dateRapport).getTime();
+                } catch (ParseException e) {
+                    valeur = 0;
+                }
+            }
+            dateMs = valeur;
+        }
+        return dateMs;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.client.donnees;
+
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Origine des rapports affichés par la table virtuelle : le serveur (pages à la
+ * demande) ou le cache local. Les futurs peuvent se terminer sur n'importe quel thread.
+ */
+public interface SourceRapports {
+
+    /**
+     * Lignes [debut, debut + taille[ avec un aperçu du texte, plus le nombre total de lignes.
+     */
+    CompletableFuture<PageRapports> chargerPage(int debut, int taille);
+
+    /**
+     * Texte complet d'un rapport.
+     */
+    CompletableFuture<String> chargerTexte(int rapportId);
+}
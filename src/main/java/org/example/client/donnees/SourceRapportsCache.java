@@ -0,0 +1,66 @@
+package org.example.client.donnees;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Rapports servis depuis le cache local déjà synchronisé : aucune requête réseau.
+ * La source est une vue figée (positions filtrées) sur un IndexRapports ; une
+ * nouvelle synchronisation ou un nouveau filtre crée une nouvelle source.
+ */
+public class SourceRapportsCache implements SourceRapports {
+
+    private static final int TAILLE_APERCU = 50;
+
+    private final IndexRapports index;
+    private final int[] positions;
+    private final Map<Integer, RapportDTO> rapportsParId = new HashMap<>();
+
+
+    public SourceRapportsCache(IndexRapports index, int[] positions) {
+        this.index = index;
+        this.positions = positions;
+        for (int position : positions) {
+            RapportDTO rapport = index.getRapport(position);
+            rapportsParId.put(rapport.getId(), rapport);
+        }
+    }
+
+
+    public int getTaille() {
+        return positions.length;
+    }
+
+
+    @Override
+    public CompletableFuture<PageRapports> chargerPage(int debut, int taille) {
+        int fin = Math.min(positions.length, debut + taille);
+        int nombre = Math.max(0, fin - debut);
+        int[] ids = new int[nombre];
+        int[] patientIds = new int[nombre];
+        String[] dates = new String[nombre];
+        String[] apercus = new String[nombre];
+        for (int i = 0; i < nombre; i++) {
+            RapportDTO rapport = index.getRapport(positions[debut + i]);
+            ids[i] = rapport.getId();
+            patientIds[i] = rapport.getPatientId();
+            dates[i] = rapport.getDateRapport();
+            String texte = rapport.getTexteRapport();
+            apercus[i] = (texte.length() > TAILLE_APERCU) ? texte.substring(0, TAILLE_APERCU) + "..." : texte;
+        }
+        return CompletableFuture.completedFuture(
+                new PageRapports(positions.length, debut, ids, patientIds, dates, apercus));
+    }
+
+
+    @Override
+    public CompletableFuture<String> chargerTexte(int rapportId) {
+        RapportDTO rapport = rapportsParId.get(rapportId);
+        if (rapport != null) {
+            return CompletableFuture.completedFuture(rapport.getTexteRapport());
+        }
+        return CompletableFuture.failedFuture(new IllegalArgumentException("Rapport introuvable: " + rapportId));
+    }
+}
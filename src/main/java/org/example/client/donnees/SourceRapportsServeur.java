@@ -0,0 +1,58 @@
+package org.example.client.donnees;
+
+import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.reseau.ExecuteurClient;
+import org.example.client.reseau.GestionnaireConnexion;
+import org.example.shared.Protocol;
+
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Rapports lus page par page sur le serveur (LIST_REPORTS_PAGE), le texte
+ * complet n'étant demandé qu'à l'affichage du détail (GET_REPORT).
+ */
+public class SourceRapportsServeur implements SourceRapports {
+
+    private final GestionnaireConnexion connexion;
+    private final GestionnaireCryptoClient crypto;
+    // -1 pour tous les patients
+    private final int patientId;
+    private final DecodeurReponses decodeur;
+
+
+    public SourceRapportsServeur(GestionnaireConnexion connexion, GestionnaireCryptoClient crypto, int patientId) {
+        this.connexion = connexion;
+        this.crypto = crypto;
+        this.patientId = patientId;
+        this.decodeur = new DecodeurReponses(crypto);
+    }
+
+
+    @Override
+    public CompletableFuture<PageRapports> chargerPage(int debut, int taille) {
+        return ExecuteurClient.executer(() -> {
+                    String requete = Protocol.CMD_LIST_REPORTS_PAGE + "|" + debut + "|" + taille;
+                    if (patientId != -1) {
+                        requete += "|" + chiffrer(String.valueOf(patientId));
+                    }
+                    return requete;
+                })
+                .thenCompose(connexion::envoyer)
+                .thenCompose(reponse -> ExecuteurClient.executer(() -> decodeur.lirePage(reponse, debut)));
+    }
+
+
+    @Override
+    public CompletableFuture<String> chargerTexte(int rapportId) {
+        return ExecuteurClient.executer(() -> Protocol.CMD_GET_REPORT + "|" + chiffrer(String.valueOf(rapportId)))
+                .thenCompose(connexion::envoyer)
+                .thenCompose(reponse -> ExecuteurClient.executer(() -> decodeur.lireRapport(reponse).getTexteRapport()));
+    }
+
+
+    private String chiffrer(String valeur) throws Exception {
+        return Base64.getEncoder().encodeToString(crypto.chiffrer(valeur));
+    }
+}
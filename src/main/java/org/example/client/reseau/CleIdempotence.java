@@ -0,0 +1,37 @@
+package org.example.client.reseau;
+
+import java.util.UUID;
+
+
+/**
+ * Clé d'idempotence d'une écriture (ADD_REPORT, EDIT_REPORT).
+ * <p>
+ * Tant que l'envoi d'un même contenu n'a pas reçu de réponse du serveur (coupure,
+ * délai dépassé), un nouvel essai réutilise la même clé : si la première requête
+ * avait été enregistrée, le serveur renvoie le même résultat au lieu d'écrire deux fois.
+ * </p>
+ * Utilisée depuis l'EDT uniquement.
+ */
+public class CleIdempotence {
+
+    private String contenu;
+    private String cle;
+
+
+    public String pour(String contenuEnvoye) {
+        if (cle == null || !contenuEnvoye.equals(contenu)) {
+            contenu = contenuEnvoye;
+            cle = UUID.randomUUID().toString();
+        }
+        return cle;
+    }
+
+
+    /**
+     * À appeler dès que le serveur a répondu (succès ou refus).
+     */
+    public void terminer() {
+        contenu = null;
+        cle = null;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.client.reseau;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Pool de threads borné partagé par toute l'interface client.
+ * <p>
+ * Sert aux traitements à sortir de l'EDT (chiffrement, vérification HMAC,
+ * parsing JSON). Si la file est pleine, la tâche échoue au lieu de créer
+ * un thread de plus.
+ * </p>
+ */
+public final class ExecuteurClient {
+
+    private static final int THREADS_BASE = 2;
+    private static final int THREADS_MAX = 4;
+    private static final int TAILLE_FILE = 64;
+
+    private static final AtomicInteger compteurThreads = new AtomicInteger();
+
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            THREADS_BASE, THREADS_MAX, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(TAILLE_FILE),
+            tache -> {
+                Thread thread = new Thread(tache, "client-tache-" + compteurThreads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    private ExecuteurClient() {
+    }
+
+
+    public static Executor partage() {
+        return pool;
+    }
+
+
+    /**
+     * Exécute la tâche sur le pool ; une exception de la tâche fait échouer le futur.
+     */
+    public static <T> CompletableFuture<T> executer(Callable<T> tache) {
+        CompletableFuture<T> futur = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                try {
+                    futur.complete(tache.call());
+                } catch (Throwable e) {
+                    futur.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            futur.completeExceptionally(e);
+        }
+        return futur;
+    }
+
+
+    /**
+     * Retire les enveloppes CompletionException / ExecutionException.
+     */
+    public static Throwable cause(Throwable erreur) {
+        while ((erreur instanceof CompletionException || erreur instanceof ExecutionException)
+                && erreur.getCause() != null) {
+            erreur = erreur.getCause();
+        }
+        return erreur;
+    }
+
+
+    /**
+     * Message à afficher à l'utilisateur pour une erreur de tâche ou de requête.
+     */
+    public static String message(Throwable erreur) {
+        Throwable cause = cause(erreur);
+        if (cause instanceof TimeoutException) {
+            return "Le serveur n'a pas répondu à temps";
+        }
+        if (cause.getMessage() == null) {
+            return cause.getClass().getSimpleName();
+        }
+        return cause.getMessage();
+    }
+}
@@ -1,28 +1,86 @@
 package org.example.client.reseau;
 
+import org.example.client.crypto.GestionnaireCryptoClient;
 import org.example.shared.Protocol;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Connexion TCP au serveur, partagée par tous les panels.
+ * <p>
+ * Toutes les requêtes passent par une file unique vidée par un thread d'écriture,
+ * et un thread de lecture dédié complète les futures dans l'ordre d'envoi
+ * (le serveur traite les requêtes d'une session une par une et répond une ligne
+ * par requête). Plusieurs panels peuvent donc envoyer en même temps sans
+ * mélanger les réponses.
+ * </p>
+ * Après le LOGIN, le serveur remet un ticket de reprise. Si la connexion est
+ * perdue, le thread de lecture se reconnecte et présente le ticket (RESUME) :
+ * la session est retrouvée en un aller-retour, sans refaire le LOGIN. Les
+ * requêtes déjà envoyées échouent (elles ont pu être exécutées) ; celles
+ * encore en file partent sur la nouvelle connexion.
+ */
 public class GestionnaireConnexion {
 
+    public static final long DELAI_DEFAUT_MS = 30_000;
+    private static final long DELAI_DECONNEXION_MS = 2_000;
+    private static final int DELAI_REPRISE_MS = 5_000;
+    private static final int TENTATIVES_REPRISE = 4;
+    private static final long ATTENTE_ENTRE_TENTATIVES_MS = 500;
+    private static final String MESSAGE_ARRET = "Le serveur s'est arrêté (maintenance)";
+
+    private String hote;
+    private int port;
     private Socket socket;
     private BufferedReader entree;
     private PrintWriter sortie;
-    private boolean connecte;
+    private volatile boolean connecte;
+    // Le thread d'écriture attend pendant une reprise de session
+    private boolean enReprise;
+
+    private GestionnaireCryptoClient crypto;
+    private volatile String ticket;
+
+    // Requêtes pas encore écrites sur le socket
+    private final BlockingQueue<RequeteEnAttente> fileEcriture = new LinkedBlockingQueue<>();
+    // Requêtes écrites dont on attend la réponse, dans l'ordre d'envoi
+    private final ConcurrentLinkedQueue<RequeteEnAttente> enAttenteReponse = new ConcurrentLinkedQueue<>();
+
+    private Thread ecrivain;
+    private Thread lecteur;
 
 
     public boolean connecter(String hote, int port) {
         try {
+            this.hote = hote;
+            this.port = port;
             socket = new Socket(hote, port);
             entree = new BufferedReader(new InputStreamReader(socket.getInputStream()));
             sortie = new PrintWriter(socket.getOutputStream(), true);
             connecte = true;
 
+            ecrivain = new Thread(this::boucleEcriture, "client-ecriture");
+            ecrivain.setDaemon(true);
+            ecrivain.start();
+
+            lecteur = new Thread(this::boucleLecture, "client-lecture");
+            lecteur.setDaemon(true);
+            lecteur.start();
+
             return true;
         } catch (Exception e) {
             System.err.println("✗ Erreur de connexion: " + e.getMessage());
@@ -32,40 +90,311 @@ public class GestionnaireConnexion {
     }
 
 
-    public void envoyerRequete(String requete) {
-        if (connecte && sortie != null) {
-            sortie.println(requete);
+    /**
+     * Active la reprise automatique avec le ticket reçu dans la réponse
+     * OK|sessionId|ticket du LOGIN. Sans ticket, une coupure reste définitive.
+     */
+    public void activerReprise(GestionnaireCryptoClient crypto, String reponseLogin) {
+        this.crypto = crypto;
+        this.ticket = extraireTicket(reponseLogin);
+    }
+
+
+    /**
+     * Envoie une requête avec le délai par défaut.
+     */
+    public CompletableFuture<String> envoyer(String requete) {
+        return envoyer(requete, DELAI_DEFAUT_MS);
+    }
+
+
+    /**
+     * Met la requête dans la file d'écriture et retourne le futur de sa réponse.
+     * Le futur échoue avec une TimeoutException si la réponse n'arrive pas dans le délai.
+     * Un futur annulé avant l'envoi n'est jamais écrit ; annulé après, sa réponse
+     * est lue puis ignorée pour ne pas décaler les suivantes.
+     */
+    public CompletableFuture<String> envoyer(String requete, long delaiMs) {
+        if (!connecte) {
+            return CompletableFuture.failedFuture(new IOException("Non connecté au serveur"));
+        }
+        RequeteEnAttente attente = new RequeteEnAttente(requete);
+        fileEcriture.add(attente);
+        if (!connecte) {
+            // La connexion s'est fermée pendant l'ajout
+            echouerTout(new IOException("Connexion au serveur fermée"));
+        }
+        return attente.futur.orTimeout(delaiMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Version bloquante de envoyer(), pour le code déjà exécuté hors de l'EDT.
+     */
+    public String envoyerEtAttendre(String requete) throws Exception {
+        try {
+            return envoyer(requete).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+
+    private void boucleEcriture() {
+        try {
+            while (connecte) {
+                RequeteEnAttente attente = fileEcriture.take();
+                Socket cible;
+                PrintWriter ecriture;
+                synchronized (this) {
+                    while (enReprise && connecte) {
+                        wait();
+                    }
+                    if (!connecte) {
+                        attente.futur.completeExceptionally(new IOException("Connexion au serveur fermée"));
+                        break;
+                    }
+                    if (attente.futur.isDone()) {
+                        // Annulée ou expirée avant l'envoi
+                        continue;
+                    }
+                    // Ajoutée avant l'écriture : la réponse ne peut pas arriver avant
+                    enAttenteReponse.add(attente);
+                    cible = socket;
+                    ecriture = sortie;
+                }
+                ecriture.println(attente.ligne);
+                if (ecriture.checkError()) {
+                    // Le thread de lecture voit la coupure et tente la reprise
+                    fermerSocket(cible);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
 
+    private void boucleLecture() {
+        BufferedReader lecture = entree;
+        while (true) {
+            IOException erreur = new IOException("Connexion au serveur fermée");
+            boolean arretServeur = false;
+            try {
+                String ligne;
+                while ((ligne = lecture.readLine()) != null) {
+                    if (ligne.startsWith(Protocol.RESP_SHUTDOWN + "|")) {
+                        // Annonce hors séquence : les réponses en attente arrivent encore
+                        // pendant le drainage, puis le serveur ferme la connexion
+                        arretServeur = true;
+                        erreur = new IOException(MESSAGE_ARRET);
+                        System.err.println("Le serveur annonce son arrêt: " + ligne);
+                        continue;
+                    }
+                    RequeteEnAttente attente = enAttenteReponse.poll();
+                    if (attente == null) {
+                        // Ligne non sollicitée : aucune requête en attente, sauf un refus
+                        // d'admission envoyé juste avant que le serveur ferme
+                        String occupe = messageOccupe(ligne);
+                        if (occupe != null) {
+                            erreur = new IOException(occupe);
+                        }
+                        continue;
+                    }
+                    // Sans effet si le futur a été annulé ou a expiré
+                    attente.futur.complete(ligne);
+                }
+            } catch (IOException e) {
+                if (connecte) {
+                    erreur = new IOException("Connexion au serveur perdue: " + e.getMessage(), e);
+                }
+            }
+            // Après un arrêt annoncé, le serveur ne répondra pas à un RESUME
+            if (arretServeur || !reprendreSession(erreur)) {
+                fermer(erreur);
+                return;
+            }
+            lecture = entree;
         }
     }
 
 
-    public String recevoirReponse() throws Exception {
-        if (connecte && entree != null) {
-            String reponse = entree.readLine();
+    /**
+     * Se reconnecte et présente le ticket de reprise. Retourne false si la
+     * reprise est impossible (pas de ticket, ticket refusé, serveur injoignable).
+     */
+    private boolean reprendreSession(IOException coupure) {
+        synchronized (this) {
+            if (!connecte || ticket == null) {
+                return false;
+            }
+            enReprise = true;
+        }
+        // Les requêtes déjà écrites ont pu être exécutées : elles ne sont pas rejouées
+        echouerEnvoyees(coupure);
+        fermerSocket(socket);
+
+        for (int tentative = 0; tentative < TENTATIVES_REPRISE && connecte; tentative++) {
+            Socket nouveau = new Socket();
+            try {
+                if (tentative > 0) {
+                    Thread.sleep(ATTENTE_ENTRE_TENTATIVES_MS << (tentative - 1));
+                }
+                nouveau.connect(new InetSocketAddress(hote, port), DELAI_REPRISE_MS);
+                nouveau.setSoTimeout(DELAI_REPRISE_MS);
+                BufferedReader lecture = new BufferedReader(new InputStreamReader(nouveau.getInputStream()));
+                PrintWriter ecriture = new PrintWriter(nouveau.getOutputStream(), true);
+
+                ecriture.println(requeteReprise());
+                String reponse = lecture.readLine();
+                if (messageOccupe(reponse) != null) {
+                    // Serveur surchargé : on réessaie à la tentative suivante
+                    System.err.println("Reprise de session: " + messageOccupe(reponse));
+                    nouveau.close();
+                    continue;
+                }
+                if (reponse == null || !reponse.startsWith(Protocol.RESP_OK)) {
+                    // Ticket expiré ou serveur redémarré : inutile de réessayer
+                    System.err.println("Reprise de session refusée: " + reponse);
+                    nouveau.close();
+                    return false;
+                }
+                nouveau.setSoTimeout(0);
 
-            return reponse;
+                synchronized (this) {
+                    if (!connecte) {
+                        nouveau.close();
+                        return false;
+                    }
+                    socket = nouveau;
+                    entree = lecture;
+                    sortie = ecriture;
+                    String nouveauTicket = extraireTicket(reponse);
+                    if (nouveauTicket != null) {
+                        ticket = nouveauTicket;
+                    }
+                    enReprise = false;
+                    notifyAll();
+                }
+                System.out.println("✓ Session reprise après coupure réseau");
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fermerSocket(nouveau);
+                return false;
+            } catch (Exception e) {
+                System.err.println("Reprise de session, tentative " + (tentative + 1) + " échouée: " + e.getMessage());
+                fermerSocket(nouveau);
+            }
         }
-        return null;
+        return false;
+    }
+
+
+    // RESUME|ticket|horodatage|HMAC(clé de session, "RESUME|ticket|horodatage")
+    private String requeteReprise() throws Exception {
+        String horodatage = String.valueOf(System.currentTimeMillis());
+        String signe = Protocol.CMD_RESUME + "|" + ticket + "|" + horodatage;
+        byte[] preuve = crypto.creerMacSession().doFinal(signe.getBytes(StandardCharsets.UTF_8));
+        return signe + "|" + Base64.getEncoder().encodeToString(preuve);
+    }
+
+
+    /**
+     * Message lisible pour une réponse ERROR|SHUTDOWN, null pour une autre réponse.
+     */
+    public static String messageArret(String reponse) {
+        if (reponse == null || !reponse.startsWith(Protocol.RESP_ERROR + "|" + Protocol.RESP_SHUTDOWN)) {
+            return null;
+        }
+        return MESSAGE_ARRET;
+    }
+
+
+    /**
+     * Message lisible pour une réponse ERROR|BUSY|délai_ms, null pour une autre réponse.
+     */
+    public static String messageOccupe(String reponse) {
+        String prefixe = Protocol.RESP_ERROR + "|" + Protocol.RESP_BUSY;
+        if (reponse == null || !reponse.startsWith(prefixe)) {
+            return null;
+        }
+        String[] parties = reponse.split("\\|");
+        long secondes = 1;
+        if (parties.length >= 3) {
+            try {
+                secondes = Math.max(1, (Long.parseLong(parties[2]) + 999) / 1000);
+            } catch (NumberFormatException e) {
+                secondes = 1;
+            }
+        }
+        return "Serveur occupé, réessayez dans " + secondes + " s";
+    }
+
+
+    private static String extraireTicket(String reponse) {
+        if (reponse == null) {
+            return null;
+        }
+        String[] parties = reponse.split("\\|");
+        return parties.length >= 3 && !parties[2].isEmpty() ? parties[2] : null;
     }
 
 
     public void deconnecter() {
+        // Le serveur ferme après LOGOUT : ce n'est pas une coupure à reprendre
+        ticket = null;
+        if (connecte) {
+            try {
+                envoyer(Protocol.CMD_LOGOUT, DELAI_DECONNEXION_MS).get();
+            } catch (Exception e) {
+                System.err.println("Erreur lors de la déconnexion: " + e.getMessage());
+            }
+        }
+        fermer(new IOException("Déconnecté"));
+    }
+
+
+    private synchronized void fermer(IOException cause) {
+        connecte = false;
+        enReprise = false;
+        notifyAll();
+        fermerSocket(socket);
+        if (ecrivain != null && ecrivain != Thread.currentThread()) {
+            ecrivain.interrupt();
+        }
+        echouerTout(cause);
+    }
+
+
+    private static void fermerSocket(Socket cible) {
         try {
-            if (connecte) {
-                envoyerRequete(Protocol.CMD_LOGOUT);
-                recevoirReponse();
+            if (cible != null) {
+                cible.close();
             }
-            if (entree != null)
-                entree.close();
-            if (sortie != null)
-                sortie.close();
-            if (socket != null)
-                socket.close();
-            connecte = false;
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du socket: " + e.getMessage());
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erreur lors de la déconnexion: " + e.getMessage());
+
+    private void echouerEnvoyees(IOException cause) {
+        RequeteEnAttente attente;
+        while ((attente = enAttenteReponse.poll()) != null) {
+            attente.futur.completeExceptionally(cause);
+        }
+    }
+
+
+    private void echouerTout(IOException cause) {
+        echouerEnvoyees(cause);
+        RequeteEnAttente attente;
+        while ((attente = fileEcriture.poll()) != null) {
+            attente.futur.completeExceptionally(cause);
         }
     }
 
@@ -73,4 +402,14 @@ public class GestionnaireConnexion {
     public boolean estConnecte() {
         return connecte;
     }
+
+
+    private static class RequeteEnAttente {
+        private final String ligne;
+        private final CompletableFuture<String> futur = new CompletableFuture<>();
+
+        private RequeteEnAttente(String ligne) {
+            this.ligne = ligne;
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package org.example.client.ui;
 
+import org.example.client.cache.CacheRapports;
 import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.reseau.ExecuteurClient;
 import org.example.client.reseau.GestionnaireConnexion;
 import org.example.shared.Protocol;
 
@@ -107,7 +109,10 @@ public class FenetreLogin extends JFrame {
         setInterfaceActive(false);
 
         // Exécution en arrière-plan avec les paramètres en dur
-        new Thread(() -> executerProtocoleConnexion(HOST, PORT, login, motDePasse)).start();
+        ExecuteurClient.executer(() -> {
+            executerProtocoleConnexion(HOST, PORT, login, motDePasse);
+            return null;
+        });
     }
 
     /**
@@ -125,12 +130,12 @@ public class FenetreLogin extends JFrame {
             }
 
             // B. Envoi Login pour récupérer le Sel (Salt)
-            gestionnaireConnexion.envoyerRequete(Protocol.CMD_LOGIN + "|" + login);
-            String reponse = gestionnaireConnexion.recevoirReponse();
+            String reponse = gestionnaireConnexion.envoyerEtAttendre(Protocol.CMD_LOGIN + "|" + login);
 
+            String occupe = GestionnaireConnexion.messageOccupe(reponse);
             if (reponse == null || reponse.startsWith(Protocol.RESP_ERROR)) {
                 SwingUtilities.invokeLater(() -> {
-                    afficherErreur("Login refusé ou compte inexistant.");
+                    afficherErreur(occupe != null ? occupe : "Login refusé ou compte inexistant.");
                     setInterfaceActive(true);
                 });
                 return;
@@ -151,19 +156,25 @@ public class FenetreLogin extends JFrame {
             String cleSessionBase64 = Base64.getEncoder().encodeToString(cleSessionChiffree);
 
             // E. Envoi des identifiants sécurisés (Digest + Clé Session)
-            gestionnaireConnexion.envoyerRequete(Protocol.CMD_LOGIN + "|" + digestBase64 + "|" + cleSessionBase64);
-            reponse = gestionnaireConnexion.recevoirReponse();
+            reponse = gestionnaireConnexion.envoyerEtAttendre(Protocol.CMD_LOGIN + "|" + digestBase64 + "|" + cleSessionBase64);
 
             if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
-                // F. Succès final
+                // Le ticket de reprise permet de retrouver la session après une coupure réseau
+                gestionnaireConnexion.activerReprise(gestionnaireCrypto, reponse);
+
+                // F. Ouverture du cache local des rapports (clé dérivée du mot de passe)
+                CacheRapports cache = ouvrirCacheRapports(login, motDePasse);
+
+                // G. Succès final
                 SwingUtilities.invokeLater(() -> {
                     JOptionPane.showMessageDialog(this, "Connexion réussie!", "Succès",
                             JOptionPane.INFORMATION_MESSAGE);
-                    ouvrirFenetrePrincipale(login);
+                    ouvrirFenetrePrincipale(login, cache);
                 });
             } else {
+                String occupeAuth = GestionnaireConnexion.messageOccupe(reponse);
                 SwingUtilities.invokeLater(() -> {
-                    afficherErreur("Authentification échouée (Mot de passe incorrect ?).");
+                    afficherErreur(occupeAuth != null ? occupeAuth : "Authentification échouée (Mot de passe incorrect ?).");
                     setInterfaceActive(true);
                 });
             }
@@ -177,8 +188,21 @@ public class FenetreLogin extends JFrame {
         }
     }
 
-    private void ouvrirFenetrePrincipale(String login) {
-        FenetrePrincipale fenetrePrincipale = new FenetrePrincipale(login, gestionnaireConnexion, gestionnaireCrypto);
+    /**
+     * Sans cache (disque indisponible...), la liste des rapports est téléchargée en entier.
+     */
+    private CacheRapports ouvrirCacheRapports(String login, String motDePasse) {
+        try {
+            return CacheRapports.ouvrir(login, motDePasse.toCharArray());
+        } catch (Exception e) {
+            System.err.println("Cache local des rapports désactivé: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void ouvrirFenetrePrincipale(String login, CacheRapports cache) {
+        FenetrePrincipale fenetrePrincipale = new FenetrePrincipale(login, gestionnaireConnexion, gestionnaireCrypto,
+                cache);
         fenetrePrincipale.setVisible(true);
         this.dispose(); // Fermer la fenêtre de login
     }
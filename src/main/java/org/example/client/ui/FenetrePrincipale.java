@@ -1,5 +1,6 @@
 package org.example.client.ui;
 
+import org.example.client.cache.CacheRapports;
 import org.example.client.crypto.GestionnaireCryptoClient;
 import org.example.client.reseau.GestionnaireConnexion;
 
@@ -19,14 +20,17 @@ public class FenetrePrincipale extends JFrame {
     private final String loginMedecin;
     private final GestionnaireConnexion gestionnaireConnexion;
     private final GestionnaireCryptoClient gestionnaireCrypto;
+    private final CacheRapports cacheRapports;
 
     // --- Composants UI ---
     private JTabbedPane onglets;
 
-    public FenetrePrincipale(String loginMedecin, GestionnaireConnexion connexion, GestionnaireCryptoClient crypto) {
+    public FenetrePrincipale(String loginMedecin, GestionnaireConnexion connexion, GestionnaireCryptoClient crypto,
+                             CacheRapports cache) {
         this.loginMedecin = loginMedecin;
         this.gestionnaireConnexion = connexion;
         this.gestionnaireCrypto = crypto;
+        this.cacheRapports = cache;
 
         initialiserInterface();
     }
@@ -54,7 +58,7 @@ public class FenetrePrincipale extends JFrame {
          */
         onglets.addTab("📝 Ajouter un Rapport", new PanelAjoutRapport(gestionnaireConnexion, gestionnaireCrypto));
         onglets.addTab("✏️ Modifier un Rapport",new PanelModificationRapport(gestionnaireConnexion, gestionnaireCrypto));
-        onglets.addTab("📋 Liste des Rapports", new PanelListeRapports(gestionnaireConnexion, gestionnaireCrypto));
+        onglets.addTab("📋 Liste des Rapports", new PanelListeRapports(gestionnaireConnexion, gestionnaireCrypto, cacheRapports));
         onglets.addTab("👥 Liste des Patients", new PanelListePatients(gestionnaireConnexion, gestionnaireCrypto));
 
         panelPrincipal.add(onglets, BorderLayout.CENTER);
@@ -0,0 +1,229 @@
+package org.example.client.ui;
+
+import org.example.client.donnees.PageRapports;
+import org.example.client.donnees.SourceRapports;
+import org.example.client.reseau.ExecuteurClient;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modèle de table virtuel pour la liste des rapports.
+ * <p>
+ * Seul le nombre total de lignes est connu au départ : les pages sont chargées
+ * quand la JTable demande à afficher une de leurs lignes (défilement), et les
+ * textes complets seulement à la sélection. Les données sont rangées par
+ * colonnes dans des tableaux (un int par ligne pour les ids) avec un index
+ * id -> ligne.
+ * </p>
+ * Toutes les méthodes s'appellent sur l'EDT.
+ */
+public class ModeleRapports extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int TAILLE_PAGE = 200;
+    private static final int TEXTES_EN_MEMOIRE = 64;
+    private static final String[] COLONNES = { "ID", "Patient ID", "Date", "Aperçu" };
+    private static final String CHARGEMENT = "…";
+
+    private SourceRapports source;
+    // Incrémenté à chaque changement de source : les pages d'une ancienne source sont ignorées
+    private int generation;
+
+    private int nombreLignes;
+    private int[] ids = new int[0];
+    private int[] patientIds = new int[0];
+    private String[] dates = new String[0];
+    private String[] apercus = new String[0];
+    private final BitSet pagesChargees = new BitSet();
+    private final BitSet pagesDemandees = new BitSet();
+    private final Map<Integer, Integer> ligneParId = new HashMap<>();
+
+    // Derniers textes complets consultés (LRU)
+    private final Map<Integer, String> textes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> plusAncien) {
+            return size() > TEXTES_EN_MEMOIRE;
+        }
+    };
+
+
+    /**
+     * Remplace la source et charge la première page, qui donne le nombre total de lignes.
+     * Le futur renvoie ce total.
+     */
+    public CompletableFuture<Integer> changerSource(SourceRapports nouvelleSource) {
+        source = nouvelleSource;
+        int generationCourante = ++generation;
+        vider();
+        fireTableDataChanged();
+
+        pagesDemandees.set(0);
+        CompletableFuture<Integer> total = new CompletableFuture<>();
+        nouvelleSource.chargerPage(0, TAILLE_PAGE).whenComplete((page, erreur) -> SwingUtilities.invokeLater(() -> {
+            if (generationCourante != generation) {
+                total.cancel(false);
+                return;
+            }
+            if (erreur != null) {
+                pagesDemandees.clear(0);
+                total.completeExceptionally(ExecuteurClient.cause(erreur));
+                return;
+            }
+            allouer(page.getTotal());
+            ranger(page);
+            fireTableDataChanged();
+            total.complete(nombreLignes);
+        }));
+        return total;
+    }
+
+
+    /**
+     * Id du rapport de la ligne, ou -1 si sa page n'est pas encore chargée.
+     */
+    public int getId(int ligne) {
+        if (ligne < 0 || ligne >= nombreLignes || !pagesChargees.get(ligne / TAILLE_PAGE)) {
+            return -1;
+        }
+        return ids[ligne];
+    }
+
+
+    public int getLigne(int rapportId) {
+        Integer ligne = ligneParId.get(rapportId);
+        return ligne != null ? ligne : -1;
+    }
+
+
+    /**
+     * Texte complet du rapport, depuis la mémoire ou la source.
+     */
+    public CompletableFuture<String> chargerTexte(int rapportId) {
+        String texte = textes.get(rapportId);
+        if (texte != null) {
+            return CompletableFuture.completedFuture(texte);
+        }
+        SourceRapports sourceCourante = source;
+        CompletableFuture<String> resultat = new CompletableFuture<>();
+        sourceCourante.chargerTexte(rapportId).whenComplete((valeur, erreur) -> SwingUtilities.invokeLater(() -> {
+            if (erreur != null) {
+                resultat.completeExceptionally(ExecuteurClient.cause(erreur));
+                return;
+            }
+            if (sourceCourante == source) {
+                textes.put(rapportId, valeur);
+            }
+            resultat.complete(valeur);
+        }));
+        return resultat;
+    }
+
+
+    @Override
+    public int getRowCount() {
+        return nombreLignes;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLONNES.length;
+    }
+
+    @Override
+    public String getColumnName(int colonne) {
+        return COLONNES[colonne];
+    }
+
+    @Override
+    public boolean isCellEditable(int ligne, int colonne) {
+        return false;
+    }
+
+
+    @Override
+    public Object getValueAt(int ligne, int colonne) {
+        int page = ligne / TAILLE_PAGE;
+        if (!pagesChargees.get(page)) {
+            // La JTable ne demande que les lignes visibles : on charge leur page
+            demanderPage(page);
+            return colonne == 3 ? CHARGEMENT : null;
+        }
+        switch (colonne) {
+            case 0:
+                return ids[ligne];
+            case 1:
+                return patientIds[ligne];
+            case 2:
+                return dates[ligne];
+            default:
+                return apercus[ligne];
+        }
+    }
+
+
+    private void demanderPage(int page) {
+        if (pagesDemandees.get(page) || source == null) {
+            return;
+        }
+        pagesDemandees.set(page);
+        int generationCourante = generation;
+        source.chargerPage(page * TAILLE_PAGE, TAILLE_PAGE)
+                .whenComplete((resultat, erreur) -> SwingUtilities.invokeLater(() -> {
+                    if (generationCourante != generation) {
+                        return;
+                    }
+                    if (erreur != null) {
+                        // Sera redemandée au prochain affichage de la ligne
+                        pagesDemandees.clear(page);
+                        System.err.println("Erreur chargement page " + page + ": " + ExecuteurClient.message(erreur));
+                        return;
+                    }
+                    ranger(resultat);
+                    int premiere = resultat.getDebut();
+                    int derniere = Math.min(nombreLignes, premiere + resultat.getTaille()) - 1;
+                    if (derniere >= premiere) {
+                        fireTableRowsUpdated(premiere, derniere);
+                    }
+                }));
+    }
+
+
+    private void ranger(PageRapports page) {
+        int debut = page.getDebut();
+        int taille = Math.min(page.getTaille(), nombreLignes - debut);
+        for (int i = 0; i < taille; i++) {
+            int ligne = debut + i;
+            ids[ligne] = page.getId(i);
+            patientIds[ligne] = page.getPatientId(i);
+            dates[ligne] = page.getDate(i);
+            apercus[ligne] = page.getApercu(i);
+            ligneParId.put(ids[ligne], ligne);
+        }
+        pagesChargees.set(debut / TAILLE_PAGE);
+    }
+
+
+    private void allouer(int total) {
+        nombreLignes = total;
+        ids = new int[total];
+        patientIds = new int[total];
+        dates = new String[total];
+        apercus = new String[total];
+    }
+
+
+    private void vider() {
+        allouer(0);
+        pagesChargees.clear();
+        pagesDemandees.clear();
+        ligneParId.clear();
+        textes.clear();
+    }
+}
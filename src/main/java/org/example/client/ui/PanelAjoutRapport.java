@@ -1,6 +1,10 @@
 package org.example.client.ui;
 
 import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.PatientDTO;
+import org.example.client.reseau.CleIdempotence;
+import org.example.client.reseau.ExecuteurClient;
 import org.example.client.reseau.GestionnaireConnexion;
 import org.example.shared.Protocol;
 
@@ -24,6 +28,7 @@ public class PanelAjoutRapport extends JPanel {
 
     private final GestionnaireConnexion gestionnaireConnexion;
     private final GestionnaireCryptoClient gestionnaireCrypto;
+    private final CleIdempotence cleEnvoi = new CleIdempotence();
 
     // --- Composants UI ---
     private JComboBox<PatientItem> comboPatients;
@@ -144,42 +149,21 @@ public class PanelAjoutRapport extends JPanel {
         boutonEnregistrer.setEnabled(false);
         boutonEnregistrer.setText("Sécurisation & Envoi...");
 
+        // Même clé si on renvoie ce rapport après une erreur technique
+        String cle = cleEnvoi.pour(date + "|" + patientId + "|" + texteRapport);
+
         // C. Traitement asynchrone
-        new Thread(() -> {
-            try {
-                // 1. Chiffrement (AES) des données sensibles
-                // On chiffres les champs individuellement pour que le serveur puisse les
-                // traiter/stocker séparément si besoin
-                // Note: Dans une vraie app, on chiffrerait peut-être tout le JSON, mais ici on
-                // suit le protocole établi.
-                byte[] dateChiffree = gestionnaireCrypto.chiffrer(date);
-                byte[] patientIdChiffre = gestionnaireCrypto.chiffrer(patientId);
-                byte[] texteChiffre = gestionnaireCrypto.chiffrer(texteRapport);
-
-                // 2. Signature (RSA)
-                // On signe la concaténation des données claires pour prouver que c'est bien
-                // nous qui avons émis ces infos.
-                // Le serveur pourra vérifier la signature avec notre clé publique.
-                byte[] donneesASigner = (date + patientId + texteRapport).getBytes();
-                byte[] signature = gestionnaireCrypto.signer(donneesASigner);
-
-                // 3. Encodage Base64 pour le transport
-                String dateBase64 = Base64.getEncoder().encodeToString(dateChiffree);
-                String patientIdBase64 = Base64.getEncoder().encodeToString(patientIdChiffre);
-                String texteBase64 = Base64.getEncoder().encodeToString(texteChiffre);
-                String signatureBase64 = Base64.getEncoder().encodeToString(signature);
-
-                // 4. Construction de la requête protocolaire
-                // Format: ADD_REPORT | DATE_CRYPT | PID_CRYPT | CONTENT_CRYPT | SIGNATURE
-                String requete = Protocol.CMD_ADD_REPORT + "|" + dateBase64 + "|" +
-                        patientIdBase64 + "|" + texteBase64 + "|" + signatureBase64;
-
-                gestionnaireConnexion.envoyerRequete(requete);
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                // D. Traitement réponse
-                SwingUtilities.invokeLater(() -> {
-                    if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
+        ExecuteurClient.executer(() -> construireRequeteAjout(date, patientId, texteRapport, cle))
+                .thenCompose(gestionnaireConnexion::envoyer)
+                .whenComplete((reponse, erreur) -> SwingUtilities.invokeLater(() -> {
+                    // D. Traitement réponse
+                    if (erreur == null) {
+                        cleEnvoi.terminer();
+                    }
+                    if (erreur != null) {
+                        ExecuteurClient.cause(erreur).printStackTrace();
+                        afficherErreur("Erreur technique : " + ExecuteurClient.message(erreur));
+                    } else if (reponse.startsWith(Protocol.RESP_OK)) {
                         String[] parties = reponse.split("\\|");
                         String rapportId = (parties.length > 1) ? parties[1] : "?";
 
@@ -189,60 +173,66 @@ public class PanelAjoutRapport extends JPanel {
 
                         resetFormulaire();
                     } else {
-                        String msg = (reponse != null && reponse.startsWith(Protocol.RESP_ERROR))
+                        String msg = reponse.startsWith(Protocol.RESP_ERROR)
                                 ? reponse.substring(Protocol.RESP_ERROR.length() + 1)
                                 : "Réponse inconnue";
                         afficherErreur("Erreur serveur : " + msg);
                     }
                     boutonEnregistrer.setEnabled(true);
                     boutonEnregistrer.setText("📝 Enregistrer le Rapport");
-                });
+                }));
+    }
 
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> {
-                    afficherErreur("Erreur technique : " + ex.getMessage());
-                    boutonEnregistrer.setEnabled(true);
-                    boutonEnregistrer.setText("📝 Enregistrer le Rapport");
-                });
-            }
-        }).start();
+    private String construireRequeteAjout(String date, String patientId, String texteRapport, String cle)
+            throws Exception {
+        // 1. Chiffrement (AES) des données sensibles
+        // On chiffres les champs individuellement pour que le serveur puisse les
+        // traiter/stocker séparément si besoin
+        // Note: Dans une vraie app, on chiffrerait peut-être tout le JSON, mais ici on
+        // suit le protocole établi.
+        byte[] dateChiffree = gestionnaireCrypto.chiffrer(date);
+        byte[] patientIdChiffre = gestionnaireCrypto.chiffrer(patientId);
+        byte[] texteChiffre = gestionnaireCrypto.chiffrer(texteRapport);
+
+        // 2. Signature (RSA)
+        // On signe la concaténation des données claires pour prouver que c'est bien
+        // nous qui avons émis ces infos.
+        // Le serveur pourra vérifier la signature avec notre clé publique.
+        byte[] donneesASigner = (date + patientId + texteRapport).getBytes();
+        byte[] signature = gestionnaireCrypto.signer(donneesASigner);
+
+        // 3. Encodage Base64 pour le transport
+        String dateBase64 = Base64.getEncoder().encodeToString(dateChiffree);
+        String patientIdBase64 = Base64.getEncoder().encodeToString(patientIdChiffre);
+        String texteBase64 = Base64.getEncoder().encodeToString(texteChiffre);
+        String signatureBase64 = Base64.getEncoder().encodeToString(signature);
+
+        // 4. Construction de la requête protocolaire
+        // Format: ADD_REPORT | DATE_CRYPT | PID_CRYPT | CONTENT_CRYPT | SIGNATURE | CLE_IDEMPOTENCE
+        return Protocol.CMD_ADD_REPORT + "|" + dateBase64 + "|" +
+                patientIdBase64 + "|" + texteBase64 + "|" + signatureBase64 + "|" + cle;
     }
 
     private void chargerPatients() {
         boutonRafraichir.setEnabled(false);
         comboPatients.removeAllItems();
 
-        new Thread(() -> {
-            try {
-                // Utilisation constante Protocol
-                gestionnaireConnexion.envoyerRequete(Protocol.CMD_LIST_PATIENTS);
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                SwingUtilities.invokeLater(() -> {
-                    if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
-                        String[] parties = reponse.split("\\|");
-                        // Format: OK | ID,Prenom,Nom | ID,Prenom,Nom ...
-                        for (int i = 1; i < parties.length; i++) {
-                            String[] infos = parties[i].split(",");
-                            if (infos.length >= 3) {
-                                try {
-                                    int id = Integer.parseInt(infos[0]);
-                                    comboPatients.addItem(new PatientItem(id, infos[1], infos[2]));
-                                } catch (NumberFormatException ignored) {
-                                }
+        gestionnaireConnexion.envoyer(Protocol.CMD_LIST_PATIENTS)
+                .whenComplete((reponse, erreur) -> SwingUtilities.invokeLater(() -> {
+                    if (erreur != null) {
+                        System.err.println("Erreur chargement patients: " + ExecuteurClient.message(erreur));
+                    } else {
+                        try {
+                            for (PatientDTO patient : DecodeurReponses.lirePatients(reponse)) {
+                                comboPatients.addItem(new PatientItem(patient.getId(), patient.getPrenom(),
+                                        patient.getNom()));
                             }
+                        } catch (Exception e) {
+                            System.err.println("Erreur chargement patients: " + e.getMessage());
                         }
-                    } else {
-                        System.err.println("Erreur chargement patients: " + reponse);
                     }
                     boutonRafraichir.setEnabled(true);
-                });
-            } catch (Exception e) {
-                e.printStackTrace();
-                SwingUtilities.invokeLater(() -> boutonRafraichir.setEnabled(true));
-            }
-        }).start();
+                }));
     }
 
     private void resetFormulaire() {
@@ -1,12 +1,16 @@
 package org.example.client.ui;
 
 import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.PatientDTO;
+import org.example.client.reseau.ExecuteurClient;
 import org.example.client.reseau.GestionnaireConnexion;
 import org.example.shared.Protocol;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.List;
 
 /**
  * Panel d'affichage de la liste des patients.
@@ -88,16 +92,10 @@ public class PanelListePatients extends JPanel {
         boutonCharger.setEnabled(false);
         boutonCharger.setText("Chargement...");
 
-        new Thread(() -> {
-            try {
-                // Envoi commande
-                gestionnaireConnexion.envoyerRequete(Protocol.CMD_LIST_PATIENTS);
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                // Traitement UI
-                SwingUtilities.invokeLater(() -> {
-                    if (reponse == null) {
-                        afficherErreur("Aucune réponse du serveur.");
+        gestionnaireConnexion.envoyer(Protocol.CMD_LIST_PATIENTS)
+                .whenComplete((reponse, erreur) -> SwingUtilities.invokeLater(() -> {
+                    if (erreur != null) {
+                        afficherErreur("Erreur technique : " + ExecuteurClient.message(erreur));
                     } else if (reponse.startsWith(Protocol.RESP_OK)) {
                         miseAJourTableau(reponse);
                     } else {
@@ -109,37 +107,29 @@ public class PanelListePatients extends JPanel {
                     // Reset bouton
                     boutonCharger.setEnabled(true);
                     boutonCharger.setText("🔄 Actualiser la liste");
-                });
-
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> {
-                    afficherErreur("Erreur technique : " + ex.getMessage());
-                    boutonCharger.setEnabled(true);
-                    boutonCharger.setText("🔄 Actualiser la liste");
-                });
-            }
-        }).start();
+                }));
     }
 
     private void miseAJourTableau(String reponse) {
         modeleTable.setRowCount(0); // Vider la table
 
-        String[] parties = reponse.split("\\|");
+        List<PatientDTO> patients;
+        try {
+            patients = DecodeurReponses.lirePatients(reponse);
+        } catch (Exception e) {
+            afficherErreur("Réponse invalide : " + e.getMessage());
+            return;
+        }
 
-        // Format reponse : OK | ID,Pre,Nom,Date | ID,Pre,Nom,Date ...
         int compteur = 0;
-        for (int i = 1; i < parties.length; i++) {
-            String[] patient = parties[i].split(",");
-            if (patient.length >= 4) {
-                modeleTable.addRow(new Object[] {
-                        patient[0], // ID
-                        patient[1], // Prénom
-                        patient[2], // Nom
-                        patient[3] // Date Naissance
-                });
-                compteur++;
-            }
+        for (PatientDTO patient : patients) {
+            modeleTable.addRow(new Object[] {
+                    patient.getId(),
+                    patient.getPrenom(),
+                    patient.getNom(),
+                    patient.getDateNaissance()
+            });
+            compteur++;
         }
 
         JOptionPane.showMessageDialog(this, compteur + " patient(s) chargé(s).", "Succès",
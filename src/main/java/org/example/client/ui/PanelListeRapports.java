@@ -1,18 +1,27 @@
 package org.example.client.ui;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import org.example.client.cache.CacheRapports;
 import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.DeltaRapports;
+import org.example.client.donnees.IndexRapports;
+import org.example.client.donnees.PatientDTO;
+import org.example.client.donnees.SourceRapports;
+import org.example.client.donnees.SourceRapportsCache;
+import org.example.client.donnees.SourceRapportsServeur;
+import org.example.client.reseau.ExecuteurClient;
 import org.example.client.reseau.GestionnaireConnexion;
 import org.example.shared.Protocol;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.lang.reflect.Type;
-import java.util.Base64;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /**
  * Panel visualisant les rapports médicaux.
@@ -24,26 +33,39 @@ import java.util.Map;
  * 3. Déchiffrement des données (Confidentialité).
  * 4. Désérialisation JSON et affichage.
  * </p>
+ * Avec le cache local, les filtres (patient, dates, mots du texte) s'appliquent
+ * pendant la saisie sur un index en mémoire, sans requête réseau.
  */
 public class PanelListeRapports extends JPanel {
 
     private final GestionnaireConnexion gestionnaireConnexion;
     private final GestionnaireCryptoClient gestionnaireCrypto;
+    // Peut être null : on retombe alors sur LIST_REPORTS (téléchargement complet)
+    private final CacheRapports cacheRapports;
+    private final DecodeurReponses decodeur;
+    // Index de la dernière synchronisation, null tant qu'elle n'a pas eu lieu
+    private IndexRapports index;
 
     // --- Composants UI ---
     private JComboBox<PatientItem> comboPatients;
     private JButton boutonCharger;
     private JButton boutonTous;
     private JTable tableRapports;
-    private DefaultTableModel modeleTable;
+    private ModeleRapports modeleTable;
     private JTextArea zoneTexteRapport;
-
-    // Cache des données déchiffrées
-    private List<Map<String, Object>> listeRapportsComplets;
-
-    public PanelListeRapports(GestionnaireConnexion connexion, GestionnaireCryptoClient crypto) {
+    private JTextField champTexte;
+    private JTextField champDepuis;
+    private JTextField champJusqua;
+    private JLabel labelResultat;
+    // Regroupe les frappes rapprochées en un seul filtrage
+    private Timer minuteurFiltre;
+
+    public PanelListeRapports(GestionnaireConnexion connexion, GestionnaireCryptoClient crypto,
+                              CacheRapports cache) {
         this.gestionnaireConnexion = connexion;
         this.gestionnaireCrypto = crypto;
+        this.cacheRapports = cache;
+        this.decodeur = new DecodeurReponses(crypto);
 
         initialiserInterface();
     }
@@ -58,6 +80,7 @@ public class PanelListeRapports extends JPanel {
 
         comboPatients = new JComboBox<>();
         comboPatients.addItem(new PatientItem(-1, "Tous", "les patients")); // Option par défaut
+        comboPatients.addActionListener(e -> appliquerFiltre());
         panelFiltres.add(comboPatients);
 
         boutonCharger = new JButton("🔍 Rechercher");
@@ -65,10 +88,13 @@ public class PanelListeRapports extends JPanel {
         panelFiltres.add(boutonCharger);
 
         boutonTous = new JButton("📋 Voir Tout");
-        boutonTous.addActionListener(e -> chargerRapports("")); // Chaine vide = tout
+        boutonTous.addActionListener(e -> actionVoirTout());
         panelFiltres.add(boutonTous);
 
-        add(panelFiltres, BorderLayout.NORTH);
+        JPanel panelHaut = new JPanel(new GridLayout(2, 1));
+        panelHaut.add(panelFiltres);
+        panelHaut.add(creerPanelRecherche());
+        add(panelHaut, BorderLayout.NORTH);
 
         // Chargement initial de la liste des patients pour le filtre
         chargerListePatientsPourFiltre();
@@ -86,17 +112,55 @@ public class PanelListeRapports extends JPanel {
         add(splitPane, BorderLayout.CENTER);
     }
 
-    private JPanel creerPanelTable() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder("Liste des Rapports"));
+    private JPanel creerPanelRecherche() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        champTexte = new JTextField(18);
+        champDepuis = new JTextField(8);
+        champJusqua = new JTextField(8);
+        labelResultat = new JLabel();
+
+        panel.add(new JLabel("Texte:"));
+        panel.add(champTexte);
+        panel.add(new JLabel("Du (aaaa-mm-jj):"));
+        panel.add(champDepuis);
+        panel.add(new JLabel("Au:"));
+        panel.add(champJusqua);
+        panel.add(labelResultat);
+
+        minuteurFiltre = new Timer(150, e -> appliquerFiltre());
+        minuteurFiltre.setRepeats(false);
+        DocumentListener ecouteur = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                minuteurFiltre.restart();
+            }
 
-        String[] colonnes = { "ID", "Patient ID", "Date", "Aperçu" };
-        modeleTable = new DefaultTableModel(colonnes, 0) {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            public void removeUpdate(DocumentEvent e) {
+                minuteurFiltre.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                minuteurFiltre.restart();
             }
         };
+        for (JTextField champ : new JTextField[] { champTexte, champDepuis, champJusqua }) {
+            champ.getDocument().addDocumentListener(ecouteur);
+            if (cacheRapports == null) {
+                // Sans cache, les rapports ne sont pas tous en mémoire
+                champ.setEnabled(false);
+                champ.setToolTipText("Disponible avec le cache local");
+            }
+        }
+        return panel;
+    }
+
+    private JPanel creerPanelTable() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createTitledBorder("Liste des Rapports"));
+
+        modeleTable = new ModeleRapports();
 
         tableRapports = new JTable(modeleTable);
         tableRapports.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -125,6 +189,14 @@ public class PanelListeRapports extends JPanel {
         return panel;
     }
 
+    private void actionVoirTout() {
+        comboPatients.setSelectedIndex(0);
+        champTexte.setText("");
+        champDepuis.setText("");
+        champJusqua.setText("");
+        chargerRapports(""); // Chaine vide = tout
+    }
+
     private void actionRechercher() {
         PatientItem selected = (PatientItem) comboPatients.getSelectedItem();
         if (selected != null && selected.getId() != -1) {
@@ -135,137 +207,155 @@ public class PanelListeRapports extends JPanel {
     }
 
     /**
-     * Charge et DÉCHIFFRE les rapports.
+     * Charge les rapports : depuis le cache local après synchronisation s'il existe,
+     * sinon page par page depuis le serveur.
      */
     private void chargerRapports(String patientId) {
         setBoutonsActifs(false);
+        int idPatient = patientId.isEmpty() ? -1 : Integer.parseInt(patientId);
 
-        new Thread(() -> {
-            try {
-                String requete;
-                if (patientId.isEmpty()) {
-                    requete = Protocol.CMD_LIST_REPORTS + "|";
-                } else {
-                    // Même l'ID dans la requête est chiffré pour la confidentialité de la recherche
-                    byte[] patientIdChiffre = gestionnaireCrypto.chiffrer(patientId);
-                    String patientIdBase64 = Base64.getEncoder().encodeToString(patientIdChiffre);
-                    requete = Protocol.CMD_LIST_REPORTS + "|" + patientIdBase64;
-                }
-
-                gestionnaireConnexion.envoyerRequete(requete);
-                String reponse = gestionnaireConnexion.recevoirReponse();
+        if (cacheRapports != null) {
+            synchroniserRapports();
+        } else {
+            afficherSource(new SourceRapportsServeur(gestionnaireConnexion, gestionnaireCrypto, idPatient), "");
+        }
+    }
 
-                if (reponse.startsWith(Protocol.RESP_OK)) { // le startwith permet de vérifier que la réponse commence par OK
-                    traiterReponseRapports(reponse);
-                } else {
-                    String msg = reponse.startsWith(Protocol.RESP_ERROR)
-                            ? reponse.substring(Protocol.RESP_ERROR.length() + 1)
-                            : "Erreur inconnue";
-                    SwingUtilities.invokeLater(() -> afficherErreurAndUnlock(msg));
-                }
+    /**
+     * Synchronisation incrémentale : affiche tout de suite le cache local, puis
+     * demande au serveur les rapports modifiés depuis le dernier curseur.
+     * L'index de filtrage est reconstruit hors de l'EDT.
+     */
+    private void synchroniserRapports() {
+        appliquerFiltre();
+
+        gestionnaireConnexion.envoyer(Protocol.CMD_LIST_REPORTS_SINCE + "|" + cacheRapports.getCurseur())
+                .thenCompose(reponse -> ExecuteurClient.executer(() -> {
+                    DeltaRapports delta = decodeur.lireDelta(reponse);
+                    cacheRapports.fusionner(delta.getCurseur(), delta.getRapports());
+                    cacheRapports.sauvegarder();
+                    cacheRapports.getIndex();
+                    return delta.getRapports().size();
+                }))
+                .whenComplete((nombreModifies, erreur) -> SwingUtilities.invokeLater(() -> {
+                    if (erreur != null) {
+                        ExecuteurClient.cause(erreur).printStackTrace();
+                        index = cacheRapports.getIndex();
+                        appliquerFiltre();
+                        afficherErreurAndUnlock("Synchronisation impossible (données locales affichées) : "
+                                + ExecuteurClient.message(erreur));
+                        return;
+                    }
+                    index = cacheRapports.getIndex();
+                    int[] positions = filtrerIndex();
+                    if (positions == null) {
+                        setBoutonsActifs(true);
+                        return;
+                    }
+                    afficherResultat(positions.length);
+                    afficherSource(new SourceRapportsCache(index, positions),
+                            ", dont " + nombreModifies + " nouveau(x) ou modifié(s)");
+                }));
+    }
 
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> afficherErreurAndUnlock("Erreur: " + ex.getMessage()));
-            }
-        }).start();
+    /**
+     * Filtre l'index en mémoire avec les valeurs saisies (aucune requête réseau).
+     */
+    private void appliquerFiltre() {
+        if (index == null) {
+            return;
+        }
+        int[] positions = filtrerIndex();
+        if (positions == null) {
+            return;
+        }
+        zoneTexteRapport.setText("");
+        modeleTable.changerSource(new SourceRapportsCache(index, positions));
+        afficherResultat(positions.length);
     }
 
     /**
-     * Traite la réponse cryptée du serveur.
-     * C'est ici que se passe la vérification HMAC et le déchiffrement.
+     * Positions filtrées, ou null si une date saisie est invalide.
      */
-    private void traiterReponseRapports(String reponse) throws Exception {
-        String[] parties = reponse.split("\\|");
-
-        // Format: OK | Count | JSON_AES_Base64 | HMAC_Base64
-        int count = Integer.parseInt(parties[1]);
-        String jsonChiffreBase64 = parties[2];
-        String hmacBase64 = parties[3];
-
-        byte[] jsonChiffre = Base64.getDecoder().decode(jsonChiffreBase64);
-        byte[] hmacRecu = Base64.getDecoder().decode(hmacBase64);
-
-        // 1. VERIFICATION INTEGRITE (HMAC)
-        // On vérifie que le bloc chiffré n'a pas été altéré
-        if (!gestionnaireCrypto.verifierHMAC(jsonChiffre, hmacRecu)) {
-            throw new SecurityException(
-                    "ALERTE SECURITE : HMAC invalide ! Les données ont peut-être été altérées en transit.");
+    private int[] filtrerIndex() {
+        long depuis;
+        long jusqua;
+        try {
+            depuis = champDepuis.getText().isBlank() ? Long.MIN_VALUE : debutJournee(champDepuis, 0);
+            // Borne haute incluse : jusqu'à la fin de la journée
+            jusqua = champJusqua.getText().isBlank() ? Long.MAX_VALUE : debutJournee(champJusqua, 1) - 1;
+        } catch (DateTimeParseException e) {
+            labelResultat.setText("Date invalide (aaaa-mm-jj)");
+            return null;
         }
+        PatientItem patient = (PatientItem) comboPatients.getSelectedItem();
+        int patientId = patient != null ? patient.getId() : -1;
+        return index.filtrer(patientId, depuis, jusqua, champTexte.getText());
+    }
+
+    private static long debutJournee(JTextField champ, int joursEnPlus) {
+        return LocalDate.parse(champ.getText().trim()).plusDays(joursEnPlus)
+                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void afficherResultat(int nombre) {
+        labelResultat.setText(nombre + " / " + index.getTaille() + " rapport(s)");
+    }
 
-        // 2. DECHIFFREMENT (AES)
-        String jsonClair = gestionnaireCrypto.dechiffrer(jsonChiffre);
-
-        // 3. PARSING JSON
-        Gson gson = new Gson();
-        Type listType = new TypeToken<List<Map<String, Object>>>() {
-        }.getType();
-        List<Map<String, Object>> rapports = gson.fromJson(jsonClair, listType);
-
-        this.listeRapportsComplets = rapports;
-
-        // 4. MISE A JOUR UI
-        SwingUtilities.invokeLater(() -> {
-            modeleTable.setRowCount(0);
-            for (Map<String, Object> rapport : rapports) {
-                // Le JSON contient des Nombres sous forme de Double par défaut avec Gson
-                // générique
-                int id = ((Double) rapport.get("id")).intValue();
-                int patId = ((Double) rapport.get("patientId")).intValue();
-                String date = (String) rapport.get("dateRapport");
-                String texte = (String) rapport.get("texteRapport");
-
-                String apercu = (texte.length() > 50) ? texte.substring(0, 50) + "..." : texte;
-                modeleTable.addRow(new Object[] { id, patId, date, apercu });
+    private void afficherSource(SourceRapports source, String complement) {
+        zoneTexteRapport.setText("");
+        modeleTable.changerSource(source).whenComplete((total, erreur) -> {
+            if (erreur != null) {
+                if (!(erreur instanceof CancellationException)) {
+                    afficherErreurAndUnlock("Erreur: " + ExecuteurClient.message(erreur));
+                }
+                return;
             }
-            JOptionPane.showMessageDialog(this, count + " rapport(s) déchiffré(s) avec succès.", "Données Sécurisées",
-                    JOptionPane.INFORMATION_MESSAGE);
+            JOptionPane.showMessageDialog(this, total + " rapport(s) déchiffré(s)" + complement + ".",
+                    "Données Sécurisées", JOptionPane.INFORMATION_MESSAGE);
             setBoutonsActifs(true);
         });
     }
 
+    /**
+     * Le texte complet n'est chargé qu'à la sélection de la ligne.
+     */
     private void afficherDetailRapport() {
-        int ligneSelectionnee = tableRapports.getSelectedRow();
-        if (ligneSelectionnee >= 0 && listeRapportsComplets != null) {
-            int idSelectionne = (int) modeleTable.getValueAt(ligneSelectionnee, 0);
-
-            // Recherche du texte complet dans notre liste en mémoire
-            for (Map<String, Object> rapport : listeRapportsComplets) {
-                int id = ((Double) rapport.get("id")).intValue();
-                if (id == idSelectionne) {
-                    zoneTexteRapport.setText((String) rapport.get("texteRapport"));
-                    return; // Trouvé
-                }
-            }
+        int idSelectionne = modeleTable.getId(tableRapports.getSelectedRow());
+        if (idSelectionne == -1) {
+            zoneTexteRapport.setText("");
+            return;
         }
-        zoneTexteRapport.setText("");
+        zoneTexteRapport.setText("Chargement...");
+        modeleTable.chargerTexte(idSelectionne).whenComplete((texte, erreur) -> {
+            // La sélection a pu changer pendant le chargement
+            if (modeleTable.getId(tableRapports.getSelectedRow()) != idSelectionne) {
+                return;
+            }
+            zoneTexteRapport.setText(erreur != null ? "Erreur: " + ExecuteurClient.message(erreur) : texte);
+        });
     }
 
     private void chargerListePatientsPourFiltre() {
-        new Thread(() -> {
-            try {
-                gestionnaireConnexion.envoyerRequete(Protocol.CMD_LIST_PATIENTS);
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                SwingUtilities.invokeLater(() -> {
-                    if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
-                        String[] parties = reponse.split("\\|");
-                        for (int i = 1; i < parties.length; i++) {
-                            String[] infos = parties[i].split(",");
-                            if (infos.length >= 3) {
-                                try {
-                                    int id = Integer.parseInt(infos[0]);
-                                    comboPatients.addItem(new PatientItem(id, infos[1], infos[2]));
-                                } catch (NumberFormatException ignored) {
-                                }
-                            }
-                        }
+        gestionnaireConnexion.envoyer(Protocol.CMD_LIST_PATIENTS)
+                .whenComplete((reponse, erreur) -> {
+                    if (erreur != null) {
+                        System.err.println("Erreur chargement patients: " + ExecuteurClient.message(erreur));
+                        return;
                     }
+                    List<PatientDTO> patients;
+                    try {
+                        patients = DecodeurReponses.lirePatients(reponse);
+                    } catch (Exception e) {
+                        System.err.println("Erreur chargement patients: " + e.getMessage());
+                        return;
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        for (PatientDTO patient : patients) {
+                            comboPatients.addItem(new PatientItem(patient.getId(), patient.getPrenom(), patient.getNom()));
+                        }
+                    });
                 });
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
     }
 
     private void setBoutonsActifs(boolean actif) {
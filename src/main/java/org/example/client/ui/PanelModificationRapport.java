@@ -1,17 +1,17 @@
 package org.example.client.ui;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import org.example.client.crypto.GestionnaireCryptoClient;
+import org.example.client.donnees.DecodeurReponses;
+import org.example.client.donnees.RapportDTO;
+import org.example.client.reseau.CleIdempotence;
+import org.example.client.reseau.ExecuteurClient;
 import org.example.client.reseau.GestionnaireConnexion;
 import org.example.shared.Protocol;
 
 import javax.swing.*;
 import java.awt.*;
-import java.lang.reflect.Type;
 import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Panel permettant de modifier un rapport existant.
@@ -25,6 +25,8 @@ public class PanelModificationRapport extends JPanel {
 
     private final GestionnaireConnexion gestionnaireConnexion;
     private final GestionnaireCryptoClient gestionnaireCrypto;
+    private final DecodeurReponses decodeur;
+    private final CleIdempotence cleEnvoi = new CleIdempotence();
 
     // --- Composants UI ---
     private JComboBox<ReportItem> comboRapports;
@@ -35,6 +37,7 @@ public class PanelModificationRapport extends JPanel {
     public PanelModificationRapport(GestionnaireConnexion connexion, GestionnaireCryptoClient crypto) {
         this.gestionnaireConnexion = connexion;
         this.gestionnaireCrypto = crypto;
+        this.decodeur = new DecodeurReponses(crypto);
 
         initialiserInterface();
     }
@@ -111,54 +114,31 @@ public class PanelModificationRapport extends JPanel {
         comboRapports.removeAllItems();
         zoneTexteRapport.setText("");
 
-        new Thread(() -> {
-            try {
-                // Demande de tous les rapports
-                gestionnaireConnexion.envoyerRequete(Protocol.CMD_LIST_REPORTS + "|");
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
-                    // Protocol: OK | Count | JSON_AES | HMAC
-                    String[] parties = reponse.split("\\|");
-
-                    if (parties.length >= 4) {
-                        String jsonChiffreBase64 = parties[2];
-                        String hmacBase64 = parties[3];
-
-                        byte[] jsonChiffre = Base64.getDecoder().decode(jsonChiffreBase64);
-                        byte[] hmac = Base64.getDecoder().decode(hmacBase64);
-
-                        // Vérif HMAC
-                        if (gestionnaireCrypto.verifierHMAC(jsonChiffre, hmac)) {
-                            // Déchiffrement
-                            String json = gestionnaireCrypto.dechiffrer(jsonChiffre);
-
-                            // Parsing
-                            Gson gson = new Gson();
-                            Type listType = new TypeToken<List<Map<String, Object>>>() {
-                            }.getType();
-                            List<Map<String, Object>> rapports = gson.fromJson(json, listType);
-
-                            // Update UI
-                            SwingUtilities.invokeLater(() -> {
-                                for (Map<String, Object> rapport : rapports) {
-                                    int id = ((Double) rapport.get("id")).intValue();
-                                    String date = (String) rapport.get("dateRapport");
-                                    String texte = (String) rapport.get("texteRapport");
-                                    comboRapports.addItem(new ReportItem(id, date, texte));
-                                }
-                                boutonCharger.setEnabled(true);
-                            });
+        // Demande de tous les rapports
+        gestionnaireConnexion.envoyer(Protocol.CMD_LIST_REPORTS + "|")
+                .thenCompose(reponse -> ExecuteurClient.executer(() -> dechiffrerRapports(reponse)))
+                .whenComplete((rapports, erreur) -> SwingUtilities.invokeLater(() -> {
+                    if (erreur != null) {
+                        ExecuteurClient.cause(erreur).printStackTrace();
+                    } else if (rapports != null) {
+                        for (RapportDTO rapport : rapports) {
+                            comboRapports.addItem(new ReportItem(rapport.getId(), rapport.getDateRapport(),
+                                    rapport.getTexteRapport()));
                         }
                     }
-                } else {
-                    SwingUtilities.invokeLater(() -> boutonCharger.setEnabled(true));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                SwingUtilities.invokeLater(() -> boutonCharger.setEnabled(true));
-            }
-        }).start();
+                    boutonCharger.setEnabled(true);
+                }));
+    }
+
+    /**
+     * Retourne null si la réponse n'est pas exploitable (le HMAC est vérifié par le décodeur).
+     */
+    private List<RapportDTO> dechiffrerRapports(String reponse) throws Exception {
+        if (!reponse.startsWith(Protocol.RESP_OK)) {
+            return null;
+        }
+        // Protocol: OK | Count | JSON_AES | HMAC
+        return decodeur.lireRapports(reponse);
     }
 
     /**
@@ -181,49 +161,44 @@ public class PanelModificationRapport extends JPanel {
 
         boutonModifier.setEnabled(false);
         boutonModifier.setText("Chiffrement & Envoi...");
-
-        new Thread(() -> {
-            try {
-                // 1. Chiffrement
-                byte[] rapportIdChiffre = gestionnaireCrypto.chiffrer(rapportId);
-                byte[] texteChiffre = gestionnaireCrypto.chiffrer(nouveauTexte);
-
-                String rapportIdBase64 = Base64.getEncoder().encodeToString(rapportIdChiffre);
-                String texteBase64 = Base64.getEncoder().encodeToString(texteChiffre);
-
-                // 2. Construction Requête
-                // Protocol: EDIT_REPORT | ID_CRYPT | CONTENT_CRYPT
-                String requete = Protocol.CMD_EDIT_REPORT + "|" + rapportIdBase64 + "|" + texteBase64;
-
-                gestionnaireConnexion.envoyerRequete(requete);
-                String reponse = gestionnaireConnexion.recevoirReponse();
-
-                // 3. Feedback UI
-                SwingUtilities.invokeLater(() -> {
-                    if (reponse != null && reponse.startsWith(Protocol.RESP_OK)) {
+        // Même clé si on renvoie cette modification après une erreur technique
+        String cle = cleEnvoi.pour(rapportId + "|" + nouveauTexte);
+
+        ExecuteurClient.executer(() -> {
+                    // 1. Chiffrement
+                    byte[] rapportIdChiffre = gestionnaireCrypto.chiffrer(rapportId);
+                    byte[] texteChiffre = gestionnaireCrypto.chiffrer(nouveauTexte);
+
+                    String rapportIdBase64 = Base64.getEncoder().encodeToString(rapportIdChiffre);
+                    String texteBase64 = Base64.getEncoder().encodeToString(texteChiffre);
+
+                    // 2. Construction Requête
+                    // Protocol: EDIT_REPORT | ID_CRYPT | CONTENT_CRYPT | CLE_IDEMPOTENCE
+                    return Protocol.CMD_EDIT_REPORT + "|" + rapportIdBase64 + "|" + texteBase64 + "|" + cle;
+                })
+                .thenCompose(gestionnaireConnexion::envoyer)
+                .whenComplete((reponse, erreur) -> SwingUtilities.invokeLater(() -> {
+                    // 3. Feedback UI
+                    if (erreur == null) {
+                        cleEnvoi.terminer();
+                    }
+                    if (erreur != null) {
+                        ExecuteurClient.cause(erreur).printStackTrace();
+                        afficherErreur("Erreur technique : " + ExecuteurClient.message(erreur));
+                    } else if (reponse.startsWith(Protocol.RESP_OK)) {
                         JOptionPane.showMessageDialog(this, "Rapport modifié avec succès !", "Succès",
                                 JOptionPane.INFORMATION_MESSAGE);
                         zoneTexteRapport.setText("");
                         chargerRapports(); // Recharger la liste pour voir les changements si nécessaire
                     } else {
-                        String msg = (reponse != null && reponse.startsWith(Protocol.RESP_ERROR))
+                        String msg = reponse.startsWith(Protocol.RESP_ERROR)
                                 ? reponse.substring(Protocol.RESP_ERROR.length() + 1)
                                 : "Erreur inconnue";
                         afficherErreur("Echec modification : " + msg);
                     }
                     boutonModifier.setEnabled(true);
                     boutonModifier.setText("✏️ Sauvegarder les modifications");
-                });
-
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                SwingUtilities.invokeLater(() -> {
-                    afficherErreur("Erreur technique : " + ex.getMessage());
-                    boutonModifier.setEnabled(true);
-                    boutonModifier.setText("✏️ Sauvegarder les modifications");
-                });
-            }
-        }).start();
+                }));
     }
 
     private void afficherContenuSelectionne() {
@@ -0,0 +1,151 @@
+package org.example.rest;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Cache partagé des réponses JSON des handlers REST.
+ * <p>
+ * La clé est composée du chemin et des paramètres de la requête triés par nom,
+ * pour que "?a=1&b=2" et "?b=2&a=1" tombent sur la même entrée.
+ * Chaque route a sa propre durée de vie (TTL) et le nombre d'entrées est borné :
+ * au-delà, l'entrée la moins récemment utilisée est évincée (LRU).
+ * Les écritures (réservation, annulation, création de patient) invalident
+ * explicitement les routes concernées.
+ * </p>
+ */
+public class CacheReponses {
+
+    private final int tailleMax;
+    private final Map<String, Long> ttlParRoute = new HashMap<>();
+    private final Map<String, Long> generations = new HashMap<>();
+    private final LinkedHashMap<String, Entree> entrees;
+
+    private long succes;
+    private long echecs;
+    private long evictions;
+
+
+    public CacheReponses(int tailleMax) {
+        this.tailleMax = tailleMax;
+        // accessOrder = true : l'ordre d'itération suit le dernier accès, ce qui donne le LRU
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> plusAncienne) {
+                if (size() > CacheReponses.this.tailleMax) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    public synchronized void definirTtl(String route, long ttlMillis) {
+        ttlParRoute.put(route, ttlMillis);
+    }
+
+
+    public synchronized boolean estActif(String route) {
+        Long ttl = ttlParRoute.get(route);
+        return ttl != null && ttl > 0;
+    }
+
+
+    public static String construireCle(String chemin, Map<String, String> parametres) {
+        StringBuilder cle = new StringBuilder(chemin);
+        if (parametres != null && !parametres.isEmpty()) {
+            char separateur = '?';
+            for (Map.Entry<String, String> parametre : new TreeMap<>(parametres).entrySet()) {
+                cle.append(separateur).append(parametre.getKey()).append('=').append(parametre.getValue());
+                separateur = '&';
+            }
+        }
+        return cle.toString();
+    }
+
+
+    public synchronized byte[] obtenir(String cle) {
+        Entree entree = entrees.get(cle);
+        if (entree == null) {
+            echecs++;
+            return null;
+        }
+        if (entree.expiration < System.currentTimeMillis()) {
+            entrees.remove(cle);
+            echecs++;
+            return null;
+        }
+        succes++;
+        return entree.octets;
+    }
+
+
+    /**
+     * Numéro de version de la route, incrémenté à chaque invalidation.
+     * Il est relevé avant d'interroger la base pour ne pas stocker une réponse
+     * calculée avant une écriture mais arrivée après son invalidation.
+     */
+    public synchronized long generation(String route) {
+        return generations.getOrDefault(route, 0L);
+    }
+
+
+    public synchronized void stocker(String route, String cle, byte[] octets, long generationLue) {
+        Long ttl = ttlParRoute.get(route);
+        if (ttl == null || ttl <= 0) {
+            return;
+        }
+        if (generation(route) != generationLue) {
+            return;
+        }
+        entrees.put(cle, new Entree(route, octets, System.currentTimeMillis() + ttl));
+    }
+
+
+    /**
+     * Supprime toutes les entrées d'une route, quels que soient leurs paramètres.
+     */
+    public synchronized void invalider(String route) {
+        generations.merge(route, 1L, Long::sum);
+        Iterator<Entree> iterateur = entrees.values().iterator();
+        while (iterateur.hasNext()) {
+            if (iterateur.next().route.equals(route)) {
+                iterateur.remove();
+            }
+        }
+    }
+
+
+    public synchronized void vider() {
+        entrees.clear();
+    }
+
+
+    public synchronized Map<String, Long> statistiques() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entrees.size());
+        stats.put("hits", succes);
+        stats.put("misses", echecs);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+
+    private static class Entree {
+        private final String route;
+        private final byte[] octets;
+        private final long expiration;
+
+        private Entree(String route, byte[] octets, long expiration) {
+            this.route = route;
+            this.octets = octets;
+            this.expiration = expiration;
+        }
+    }
+}
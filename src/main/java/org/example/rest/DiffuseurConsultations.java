@@ -0,0 +1,248 @@
+package org.example.rest;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.bd.EcouteurConsultations;
+import org.example.server.bd.EvenementConsultation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Diffusion Server-Sent Events des changements de disponibilité des créneaux.
+ * <p>
+ * Chaque abonné a une file bornée et son propre thread d'écriture.
+ * Si la file d'un abonné est pleine (navigateur bloqué, réseau lent),
+ * il est évincé plutôt que de laisser la mémoire grossir sans limite.
+ * </p>
+ */
+public class DiffuseurConsultations implements EcouteurConsultations {
+
+    private static final int TAILLE_FILE_ABONNE = 64;
+    private static final long INTERVALLE_PING_MS = 15_000;
+    // Marque de fin de flux (comparée par identité) : les messages déjà en file partent avant
+    private static final String FIN = new String("fin");
+
+    private final int abonnesMax;
+    private final Set<Abonne> abonnes = ConcurrentHashMap.newKeySet();
+    // Places prises, réservées avant l'inscription : le plafond tient sous les connexions simultanées
+    private final AtomicInteger places = new AtomicInteger();
+    private final Gson gson = new Gson();
+
+    private final AtomicLong evenementsDiffuses = new AtomicLong();
+    private final AtomicLong abonnesEvinces = new AtomicLong();
+
+
+    public DiffuseurConsultations(int abonnesMax) {
+        this.abonnesMax = abonnesMax;
+    }
+
+
+    /**
+     * Ouvre le flux SSE sur l'échange et démarre le thread d'écriture de l'abonné.
+     * Retourne false si le nombre maximal d'abonnés est atteint.
+     */
+    public boolean abonner(HttpExchange echange, String medecin, String specialite, String date) throws IOException {
+        int prises;
+        do {
+            prises = places.get();
+            if (prises >= abonnesMax) {
+                return false;
+            }
+        } while (!places.compareAndSet(prises, prises + 1));
+
+        try {
+            echange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+            echange.getResponseHeaders().set("Cache-Control", "no-cache");
+            echange.sendResponseHeaders(200, 0);
+        } catch (IOException | RuntimeException e) {
+            places.decrementAndGet();
+            throw e;
+        }
+
+        Abonne abonne = new Abonne(echange, medecin, specialite, date);
+        abonnes.add(abonne);
+        abonne.ecrivain = new Thread(abonne, "sse-abonne-" + echange.getRemoteAddress());
+        abonne.ecrivain.setDaemon(true);
+        abonne.ecrivain.start();
+        return true;
+    }
+
+
+    @Override
+    public void surEvenement(EvenementConsultation evenement) {
+        String message = "event: " + evenement.getType() + "\n" +
+                "data: " + gson.toJson(evenement) + "\n\n";
+        for (Abonne abonne : abonnes) {
+            if (!abonne.accepte(evenement)) {
+                continue;
+            }
+            if (abonne.file.offer(message)) {
+                evenementsDiffuses.incrementAndGet();
+            } else {
+                // File pleine : le client ne suit pas, on le déconnecte
+                abonnesEvinces.incrementAndGet();
+                abonne.fermer();
+            }
+        }
+    }
+
+
+    /**
+     * Arrêt du serveur : envoie un évènement "shutdown" à chaque abonné puis
+     * termine son flux une fois sa file écrite.
+     */
+    public void annoncerArret(long delaiReessaiMs) {
+        String message = "event: shutdown\n" + "retry: " + delaiReessaiMs + "\n"
+                + "data: {\"retryAfterMs\":" + delaiReessaiMs + "}\n\n";
+        for (Abonne abonne : abonnes) {
+            if (!abonne.file.offer(message) || !abonne.file.offer(FIN)) {
+                abonne.fermer();
+            }
+        }
+    }
+
+
+    /**
+     * Attend que les files des abonnés soient écrites (au plus delaiMs), puis
+     * ferme les flux restants.
+     */
+    public void vider(long delaiMs) {
+        long limite = System.nanoTime() + delaiMs * 1_000_000;
+        for (Abonne abonne : abonnes) {
+            long restantMs = (limite - System.nanoTime()) / 1_000_000;
+            if (restantMs <= 0) {
+                break;
+            }
+            try {
+                abonne.ecrivain.join(restantMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        fermerTout();
+    }
+
+
+    public void fermerTout() {
+        for (Abonne abonne : abonnes) {
+            abonne.fermer();
+        }
+    }
+
+
+    public int getNombreAbonnes() {
+        return abonnes.size();
+    }
+
+
+    public long getEvenementsDiffuses() {
+        return evenementsDiffuses.get();
+    }
+
+
+    public long getAbonnesEvinces() {
+        return abonnesEvinces.get();
+    }
+
+
+    private class Abonne implements Runnable {
+        private final HttpExchange echange;
+        private final String medecin;
+        private final String specialite;
+        private final String date;
+        private final BlockingQueue<String> file = new ArrayBlockingQueue<>(TAILLE_FILE_ABONNE);
+        private volatile boolean actif = true;
+        private Thread ecrivain;
+
+        private Abonne(HttpExchange echange, String medecin, String specialite, String date) {
+            this.echange = echange;
+            this.medecin = minuscules(medecin);
+            this.specialite = minuscules(specialite);
+            this.date = date;
+        }
+
+        // Même sémantique que GET /api/consultations : LIKE %...% sur les noms, égalité sur la date
+        private boolean accepte(EvenementConsultation evenement) {
+            if (medecin != null && !contient(evenement.getDoctorName(), medecin)) {
+                return false;
+            }
+            if (specialite != null && !contient(evenement.getSpecialty(), specialite)) {
+                return false;
+            }
+            if (date != null && !date.equals(evenement.getDate())) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            OutputStream sortie = echange.getResponseBody();
+            try {
+                sortie.write(": flux consultations ouvert\n\n".getBytes(StandardCharsets.UTF_8));
+                sortie.flush();
+                while (actif) {
+                    String message = file.poll(INTERVALLE_PING_MS, TimeUnit.MILLISECONDS);
+                    if (message == FIN) {
+                        break;
+                    }
+                    if (message == null) {
+                        // Commentaire SSE : garde la connexion ouverte et détecte les clients partis
+                        message = ": ping\n\n";
+                    }
+                    sortie.write(message.getBytes(StandardCharsets.UTF_8));
+                    sortie.flush();
+                }
+            } catch (IOException e) {
+                // Client déconnecté
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                retirer();
+                echange.close();
+            }
+        }
+
+        // Rend la place une seule fois, que l'abonné parte de lui-même ou soit évincé
+        private void retirer() {
+            if (abonnes.remove(this)) {
+                places.decrementAndGet();
+            }
+        }
+
+        private void fermer() {
+            actif = false;
+            retirer();
+            file.clear();
+            // Débloque le thread d'écriture, qu'il attende un message ou qu'il soit coincé
+            // dans un write() vers un client qui ne lit plus (le canal est alors fermé)
+            if (ecrivain != null) {
+                ecrivain.interrupt();
+            }
+        }
+    }
+
+
+    private static String minuscules(String valeur) {
+        if (valeur == null || valeur.isEmpty()) {
+            return null;
+        }
+        return valeur.toLowerCase();
+    }
+
+
+    private static boolean contient(String valeur, String recherche) {
+        return valeur != null && valeur.toLowerCase().contains(recherche);
+    }
+}
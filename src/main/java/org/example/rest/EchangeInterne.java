@@ -0,0 +1,206 @@
+package org.example.rest;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Échange HTTP en mémoire, utilisé pour rejouer une sous-requête d'un batch
+ * directement sur un handler existant sans repasser par le réseau.
+ */
+public class EchangeInterne extends HttpExchange {
+
+    private final String methode;
+    private final URI uri;
+    private final HttpContext contexte;
+    private final HttpExchange echangeParent;
+    private final Headers entetesRequete = new Headers();
+    private final Headers entetesReponse = new Headers();
+    private final Map<String, Object> attributs = new HashMap<>();
+    private InputStream corpsRequete;
+    private ByteArrayOutputStream corpsReponse = new ByteArrayOutputStream();
+    private int codeReponse = -1;
+
+
+    public EchangeInterne(HttpExchange echangeParent, String methode, URI uri, String route,
+                          String typeContenu, String corps) {
+        this.echangeParent = echangeParent;
+        this.methode = methode;
+        this.uri = uri;
+        this.contexte = new ContexteInterne(route);
+        if (typeContenu != null) {
+            entetesRequete.set("Content-Type", typeContenu);
+        }
+        byte[] octets;
+        if (corps != null) {
+            octets = corps.getBytes(StandardCharsets.UTF_8);
+        } else {
+            octets = new byte[0];
+        }
+        this.corpsRequete = new ByteArrayInputStream(octets);
+    }
+
+
+    public String getCorpsReponse() {
+        return corpsReponse.toString(StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public Headers getRequestHeaders() {
+        return entetesRequete;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return entetesReponse;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return methode;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return contexte;
+    }
+
+    @Override
+    public void close() {
+        // Rien à libérer : tout est en mémoire
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return corpsRequete;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return corpsReponse;
+    }
+
+    @Override
+    public void sendResponseHeaders(int code, long longueur) {
+        this.codeReponse = code;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return echangeParent.getRemoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return codeReponse;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return echangeParent.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return echangeParent.getProtocol();
+    }
+
+    @Override
+    public Object getAttribute(String nom) {
+        return attributs.get(nom);
+    }
+
+    @Override
+    public void setAttribute(String nom, Object valeur) {
+        attributs.put(nom, valeur);
+    }
+
+    @Override
+    public void setStreams(InputStream entree, OutputStream sortie) {
+        if (entree != null) {
+            corpsRequete = entree;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return echangeParent.getPrincipal();
+    }
+
+
+    private static class ContexteInterne extends HttpContext {
+        private final String chemin;
+        private final Map<String, Object> attributs = new HashMap<>();
+        private final List<Filter> filtres = new ArrayList<>();
+        // Handler de la route qui traite la sous-requête, renseigné par le batch
+        private volatile HttpHandler handler;
+
+        private ContexteInterne(String chemin) {
+            this.chemin = chemin;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return chemin;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributs;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filtres;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator authenticator) {
+            return null;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+}
@@ -1,35 +1,147 @@
 package org.example.rest;
 
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import org.example.server.bd.BdAsync;
 import org.example.server.bd.BdManager;
+import org.example.server.bd.IndexDisponibilites;
 import org.example.rest.handlers.*;
+import org.example.server.arret.ArretOrdonne;
+import org.example.server.metriques.Metriques;
+import org.example.server.metriques.ServeurMetriques;
+import org.example.server.statistiques.InstantaneConsultations;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 public class RestServer {
 
+    public static final String ROUTE_SPECIALTIES = "/api/specialties";
+    public static final String ROUTE_DOCTORS = "/api/doctors";
+    public static final String ROUTE_PATIENTS = "/api/patients";
+    public static final String ROUTE_CONSULTATIONS = "/api/consultations";
+    public static final String ROUTE_CONTENTION = "/api/consultations/contention";
+    public static final String ROUTE_STREAM = "/api/consultations/stream";
+    public static final String ROUTE_OVERVIEW = "/api/consultations/overview";
+    public static final String ROUTE_NEXT = "/api/consultations/next";
+    public static final String ROUTE_OCCUPANCY = "/api/stats/occupancy";
+    public static final String ROUTE_BATCH = "/api/batch";
+    public static final String ROUTE_METRIQUES = ServeurMetriques.ROUTE;
+
     private static final int PORT = 9090;
+    private static final int TAILLE_CACHE = 1000;
+    private static final int ABONNES_SSE_MAX = 500;
+    private static final long DELAI_DRAINAGE_DEFAUT_MS = 10_000;
+    private static final long DELAI_VIDAGE_SSE_MS = 2_000;
     private HttpServer serveur;
     private BdManager bdManager;
+    private BdAsync bdAsync;
+    private InstantaneConsultations statistiques;
+    private IndexDisponibilites disponibilites;
+    private CacheReponses cache;
+    private DiffuseurConsultations diffuseur;
+    private final SuiviRequetes suiviRequetes = new SuiviRequetes();
+    private final ArretOrdonne arret;
 
 
     public RestServer() {
         bdManager = new BdManager();
+        cache = new CacheReponses(TAILLE_CACHE);
+        // Les créneaux libres changent à chaque réservation : TTL court, le reste bouge peu
+        cache.definirTtl(ROUTE_CONSULTATIONS, 5_000);
+        cache.definirTtl(ROUTE_DOCTORS, 60_000);
+        cache.definirTtl(ROUTE_SPECIALTIES, 300_000);
+        diffuseur = new DiffuseurConsultations(ABONNES_SSE_MAX);
+        bdManager.ajouterEcouteurConsultations(diffuseur);
+        arret = new ArretOrdonne("rest", lireDelaiDrainageMs());
+        preparerArret();
+        enregistrerJauges();
+    }
+
+
+    private long lireDelaiDrainageMs() {
+        String valeur = bdManager.getProperty("SHUTDOWN_DRAIN_TIMEOUT_SECONDS");
+        try {
+            return valeur == null || valeur.isBlank() ? DELAI_DRAINAGE_DEFAUT_MS : Long.parseLong(valeur.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return DELAI_DRAINAGE_DEFAUT_MS;
+        }
+    }
+
+
+    /**
+     * Étapes de l'arrêt : 503 pour les nouvelles requêtes, évènement "shutdown" aux
+     * abonnés SSE, attente des requêtes en cours, écriture des files SSE, puis fermeture.
+     */
+    private void preparerArret() {
+        arret.surArretAcceptation("nouvelles requêtes",
+                        () -> suiviRequetes.refuserNouvelles(arret.getDelaiDrainageMs()))
+                .surNotification("SSE shutdown", () -> diffuseur.annoncerArret(arret.getDelaiDrainageMs()))
+                .drainer(suiviRequetes::getNombreEnCours)
+                .surVidage("files SSE", () -> diffuseur.vider(DELAI_VIDAGE_SSE_MS))
+                .surFermeture("serveur HTTP", () -> {
+                    if (serveur != null) {
+                        // Les échanges sont déjà terminés : rien à attendre
+                        serveur.stop(0);
+                    }
+                })
+                .surFermeture("statistiques", () -> {
+                    if (statistiques != null) {
+                        statistiques.arreter();
+                    }
+                    if (disponibilites != null) {
+                        disponibilites.arreter();
+                    }
+                })
+                .surFermeture("pool base asynchrone", () -> {
+                    if (bdAsync != null) {
+                        bdAsync.arreter(arret.getDelaiDrainageMs());
+                    }
+                })
+                .surFermeture("base de données", () -> {
+                    try {
+                        bdManager.deconnecter();
+                    } catch (SQLException e) {
+                        System.err.println("✗ Error while disconnecting from DB: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                });
     }
 
 
     public void start() {
         try {
             bdManager.connecter();
+            bdAsync = new BdAsync(bdManager);
+            statistiques = new InstantaneConsultations(bdManager);
+            statistiques.demarrer();
+            disponibilites = new IndexDisponibilites(bdManager);
+            disponibilites.demarrer();
             serveur = HttpServer.create(new InetSocketAddress(PORT), 0);
 
-            serveur.createContext("/api/specialties", new SpecialtiesHandler(bdManager));
-            serveur.createContext("/api/doctors", new DoctorsHandler(bdManager));
-            serveur.createContext("/api/patients", new PatientsHandler(bdManager));
-            serveur.createContext("/api/consultations", new ConsultationsHandler(bdManager));
+            // Routes classiques, également accessibles depuis /api/batch
+            Map<String, HttpHandler> handlers = new LinkedHashMap<>();
+            handlers.put(ROUTE_SPECIALTIES, new SpecialtiesHandler(bdManager, cache));
+            handlers.put(ROUTE_DOCTORS, new DoctorsHandler(bdManager, cache));
+            handlers.put(ROUTE_PATIENTS, new PatientsHandler(bdManager));
+            handlers.put(ROUTE_CONSULTATIONS, new ConsultationsHandler(bdManager, cache));
+            handlers.put(ROUTE_CONTENTION, new ContentionHandler(bdManager));
+            handlers.put(ROUTE_OVERVIEW, new OverviewHandler(bdManager, bdAsync));
+            handlers.put(ROUTE_NEXT, new NextSlotsHandler(bdManager, disponibilites));
+            handlers.put(ROUTE_OCCUPANCY, new OccupancyHandler(bdManager, statistiques));
+            for (Map.Entry<String, HttpHandler> route : handlers.entrySet()) {
+                suivre(serveur.createContext(route.getKey(), route.getValue()));
+            }
+
+            // Le flux SSE reste hors batch : il ne se termine jamais
+            suivre(serveur.createContext(ROUTE_STREAM, new ConsultationsStreamHandler(bdManager, diffuseur)));
+            suivre(serveur.createContext(ROUTE_BATCH, new BatchHandler(bdManager, handlers)));
+            serveur.createContext(ROUTE_METRIQUES, ServeurMetriques.creerHandler());
 
             serveur.start();
             System.out.println("✓ REST server started on port " + PORT);
@@ -43,16 +155,31 @@ public class RestServer {
     }
 
 
+    private void suivre(HttpContext contexte) {
+        contexte.getFilters().add(suiviRequetes);
+    }
+
+
+    private void enregistrerJauges() {
+        Metriques.jauge("mrps_sse_subscribers", "Abonnés au flux SSE des consultations",
+                () -> diffuseur.getNombreAbonnes());
+        Metriques.compteurCalcule("mrps_sse_evicted_total", "Abonnés SSE évincés car trop lents",
+                () -> diffuseur.getAbonnesEvinces());
+        Metriques.compteurCalcule("mrps_booking_attempts_total", "Tentatives de réservation",
+                () -> bdManager.getCoordinateurReservations().getTentatives());
+        Metriques.compteurCalcule("mrps_booking_winners_total", "Réservations confirmées par la base",
+                () -> bdManager.getCoordinateurReservations().getGagnants());
+        Metriques.compteurCalcule("mrps_booking_fast_rejects_total", "Réservations refusées en mémoire",
+                () -> bdManager.getCoordinateurReservations().getRejetsRapides());
+        bdManager.enregistrerJauges();
+    }
+
+
+    /**
+     * Arrêt coordonné (voir preparerArret) ; sans effet s'il a déjà eu lieu.
+     */
     public void stop() {
-        if (serveur != null) {
-            serveur.stop(0);
-        }
-        try {
-            bdManager.deconnecter();
-        } catch (SQLException e) {
-            System.err.println("✗ Error while disconnecting from DB: " + e.getMessage());
-            e.printStackTrace();
-        }
+        arret.arreter();
     }
 
 
@@ -1,21 +1,81 @@
 package org.example.rest;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
 import com.sun.net.httpserver.HttpExchange;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.entity.IdentitePatient;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.lang.reflect.Type;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
 
 public class RestUtils {
 
-    private static final Gson gson = new Gson();
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ConsultationCompacte.class, new ConsultationCompacteJson())
+            .create();
+
+
+    /**
+     * Écrit une ConsultationCompacte avec les mêmes champs que Consultation
+     * (date aaaa-mm-jj, heure hh:mm:ss, champs null omis) : le JSON ne change pas
+     * pour les clients.
+     */
+    private static final class ConsultationCompacteJson implements JsonSerializer<ConsultationCompacte> {
+
+        @Override
+        public JsonElement serialize(ConsultationCompacte c, Type type, JsonSerializationContext contexte) {
+            JsonObject objet = new JsonObject();
+            objet.addProperty("id", c.getId());
+            objet.addProperty("doctor_id", c.getMedecinId());
+            if (!c.estLibre()) {
+                objet.addProperty("patient_id", c.getPatientId());
+            }
+            objet.addProperty("date", LocalDate.ofEpochDay(c.getDate()).toString());
+            if (c.getHeure() != ConsultationCompacte.HEURE_AUCUNE) {
+                objet.addProperty("hour", heure(c.getHeure()));
+            }
+            if (c.getRaison() != null) {
+                objet.addProperty("reason", c.getRaison());
+            }
+            IdentitePatient patient = c.getPatient();
+            if (patient != null) {
+                if (patient.getPrenom() != null) {
+                    objet.addProperty("patient_first_name", patient.getPrenom());
+                }
+                if (patient.getNom() != null) {
+                    objet.addProperty("patient_last_name", patient.getNom());
+                }
+                if (patient.getNaissance() != IdentitePatient.NAISSANCE_INCONNUE) {
+                    objet.addProperty("patient_birth_date", patient.getNaissanceIso());
+                }
+            }
+            return objet;
+        }
+
+        private static String heure(int secondes) {
+            int h = secondes / 3600;
+            int m = secondes / 60 % 60;
+            int s = secondes % 60;
+            return new String(new char[] {
+                    (char) ('0' + h / 10), (char) ('0' + h % 10), ':',
+                    (char) ('0' + m / 10), (char) ('0' + m % 10), ':',
+                    (char) ('0' + s / 10), (char) ('0' + s % 10) });
+        }
+    }
 
 
     public static Map<String, String> parserRequete(String requete) {
@@ -64,9 +124,17 @@ public class RestUtils {
 
 
     public static void envoyerJson(HttpExchange echange, int code, Object donnees) throws IOException {
-        String json = gson.toJson(donnees);
+        envoyerOctetsJson(echange, code, versOctetsJson(donnees));
+    }
+
+
+    public static byte[] versOctetsJson(Object donnees) {
+        return gson.toJson(donnees).getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    public static void envoyerOctetsJson(HttpExchange echange, int code, byte[] octets) throws IOException {
         echange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        byte[] octets = json.getBytes(StandardCharsets.UTF_8);
         echange.sendResponseHeaders(code, octets.length);
         OutputStream fluxSortie = echange.getResponseBody();
         fluxSortie.write(octets);
@@ -0,0 +1,54 @@
+package org.example.rest;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Filtre commun à toutes les routes : compte les requêtes en cours pour le
+ * drainage à l'arrêt, et répond 503 (Retry-After, Connection: close) aux
+ * requêtes qui arrivent une fois l'arrêt commencé.
+ */
+public class SuiviRequetes extends Filter {
+
+    private final AtomicInteger enCours = new AtomicInteger();
+    private volatile boolean arret;
+    private volatile long delaiReessaiMs;
+
+
+    @Override
+    public void doFilter(HttpExchange echange, Chain chaine) throws IOException {
+        enCours.incrementAndGet();
+        try {
+            if (arret) {
+                echange.getResponseHeaders().set("Retry-After", String.valueOf(Math.max(1, delaiReessaiMs / 1000)));
+                echange.getResponseHeaders().set("Connection", "close");
+                RestUtils.envoyerErreur(echange, 503, "Serveur en cours d'arrêt");
+                return;
+            }
+            chaine.doFilter(echange);
+        } finally {
+            enCours.decrementAndGet();
+        }
+    }
+
+
+    @Override
+    public String description() {
+        return "Suivi des requêtes en cours et refus pendant l'arrêt";
+    }
+
+
+    public void refuserNouvelles(long delaiReessaiMs) {
+        this.delaiReessaiMs = delaiReessaiMs;
+        this.arret = true;
+    }
+
+
+    public int getNombreEnCours() {
+        return enCours.get();
+    }
+}
@@ -3,16 +3,32 @@ package org.example.rest.handlers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.example.server.bd.BdManager;
+import org.example.rest.CacheReponses;
 import org.example.rest.RestUtils;
+import org.example.server.metriques.Metriques;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public abstract class ApiHandler implements HttpHandler {
 
     protected BdManager bdManager;
+    protected CacheReponses cache;
+    // GET absents du cache, en cours de traitement : envoyerJson y retrouve la clé de sa propre requête
+    private final Map<HttpExchange, ReponseACacher> aCacher = new ConcurrentHashMap<>();
+
+
+    private static final class ReponseACacher {
+        final String cle;
+        final long generation;
+
+        ReponseACacher(String cle, long generation) {
+            this.cle = cle;
+            this.generation = generation;
+        }
+    }
 
 
     public ApiHandler(BdManager bdManager) {
@@ -20,10 +36,31 @@ public abstract class ApiHandler implements HttpHandler {
     }
 
 
+    // Les handlers qui passent un cache voient leurs GET servis depuis la mémoire
+    // tant que le TTL de leur route n'est pas écoulé.
+    public ApiHandler(BdManager bdManager, CacheReponses cache) {
+        this.bdManager = bdManager;
+        this.cache = cache;
+    }
+
+
     @Override
     public void handle(HttpExchange echange) throws IOException {
+        long debut = System.nanoTime();
+        String methode = echange.getRequestMethod();
         try {
-            String methode = echange.getRequestMethod();
+            traiter(echange, methode);
+        } finally {
+            enregistrerMetriques(echange, methode, debut);
+        }
+    }
+
+
+    private void traiter(HttpExchange echange, String methode) throws IOException {
+        try {
+            if ("GET".equals(methode) && servirDepuisCache(echange)) {
+                return;
+            }
             switch (methode) {
                 case "GET":
                     gererGet(echange);
@@ -43,7 +80,32 @@ public abstract class ApiHandler implements HttpHandler {
             }
         } catch (Exception e) {
             RestUtils.envoyerErreur(echange, 500, "Erreur: " + e.getMessage());
+        } finally {
+            aCacher.remove(echange);
+        }
+    }
+
+
+    private static void enregistrerMetriques(HttpExchange echange, String methode, long debut) {
+        String route = echange.getHttpContext().getPath();
+        // Méthodes inattendues regroupées pour ne pas créer une série par valeur envoyée
+        String etiquetteMethode;
+        switch (methode) {
+            case "GET":
+            case "POST":
+            case "PUT":
+            case "DELETE":
+                etiquetteMethode = methode;
+                break;
+            default:
+                etiquetteMethode = "OTHER";
+                break;
         }
+        Metriques.histogramme("mrps_rest_request_duration_seconds", "Durée de traitement des requêtes REST",
+                "route", route, "method", etiquetteMethode).enregistrerDepuis(debut);
+        Metriques.compteur("mrps_rest_requests_total", "Requêtes REST par route, méthode et code de statut",
+                "route", route, "method", etiquetteMethode, "status", String.valueOf(echange.getResponseCode()))
+                .increment();
     }
 
 
@@ -67,11 +129,6 @@ public abstract class ApiHandler implements HttpHandler {
     }
 
 
-    protected Connection obtenirConnexion() {
-        return bdManager.getConnection();
-    }
-
-
     protected Map<String, String> obtenirParametresRequete(HttpExchange echange) {
         String requete = echange.getRequestURI().getQuery();
         return RestUtils.parserRequete(requete);
@@ -84,12 +141,49 @@ public abstract class ApiHandler implements HttpHandler {
 
 
     protected void envoyerJson(HttpExchange echange, int codeStatut, Object donnees) throws IOException {
-        RestUtils.envoyerJson(echange, codeStatut, donnees);
+        byte[] octets = RestUtils.versOctetsJson(donnees);
+        ReponseACacher aCacherIci = aCacher.remove(echange);
+        if (aCacherIci != null && codeStatut == 200) {
+            cache.stocker(echange.getHttpContext().getPath(), aCacherIci.cle, octets, aCacherIci.generation);
+        }
+        RestUtils.envoyerOctetsJson(echange, codeStatut, octets);
     }
 
 
     protected void envoyerErreur(HttpExchange echange, int codeStatut, String message) throws IOException {
         RestUtils.envoyerErreur(echange, codeStatut, message);
     }
+
+
+    protected void invaliderCache(String... routes) {
+        if (cache == null) {
+            return;
+        }
+        for (String route : routes) {
+            cache.invalider(route);
+        }
+    }
+
+
+    private boolean servirDepuisCache(HttpExchange echange) throws IOException {
+        if (cache == null) {
+            return false;
+        }
+        String route = echange.getHttpContext().getPath();
+        if (!cache.estActif(route)) {
+            return false;
+        }
+
+        String cle = CacheReponses.construireCle(echange.getRequestURI().getPath(), obtenirParametresRequete(echange));
+        byte[] octets = cache.obtenir(cle);
+        if (octets != null) {
+            RestUtils.envoyerOctetsJson(echange, 200, octets);
+            return true;
+        }
+
+        // Pas en cache : on retient la clé pour que envoyerJson puisse stocker la réponse
+        aCacher.put(echange, new ReponseACacher(cle, cache.generation(route)));
+        return false;
+    }
 }
 
@@ -0,0 +1,302 @@
+package org.example.rest.handlers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.example.rest.EchangeInterne;
+import org.example.rest.RestServer;
+import org.example.server.bd.BdManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Exécute une liste ordonnée de sous-requêtes en un seul aller-retour HTTP.
+ * <p>
+ * Corps attendu :
+ * <pre>
+ * {"stopOnError": true, "requests": [
+ *   {"id": "patient", "method": "POST", "path": "/api/patients", "body": {...}},
+ *   {"method": "PUT", "path": "/api/consultations?id=12", "body": {"patientId": "${patient.patientId}"}}
+ * ]}
+ * </pre>
+ * Une référence ${cle.chemin} désigne le corps JSON de la réponse d'une étape
+ * précédente, par son "id" ou son indice (ex: ${0.0.id} = id du premier élément
+ * de la première réponse).
+ * </p>
+ */
+public class BatchHandler extends ApiHandler {
+
+    private static final int SOUS_REQUETES_MAX = 20;
+    private static final Pattern REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    // Flux sans fin et batch imbriqué : jamais dans un batch, même si un préfixe correspond
+    private static final List<String> ROUTES_INTERDITES = List.of(RestServer.ROUTE_STREAM, RestServer.ROUTE_BATCH);
+
+    private final Map<String, HttpHandler> handlers;
+
+
+    // handlers : route -> handler, uniquement les routes autorisées dans un batch
+    public BatchHandler(BdManager bdManager, Map<String, HttpHandler> handlers) {
+        super(bdManager);
+        this.handlers = handlers;
+    }
+
+
+    @Override
+    protected void gererPost(HttpExchange echange) throws IOException {
+        JsonObject batch;
+        try {
+            batch = JsonParser.parseString(lireCorps(echange)).getAsJsonObject();
+        } catch (Exception e) {
+            envoyerErreur(echange, 400, "Format JSON invalide");
+            return;
+        }
+
+        if (!batch.has("requests") || !batch.get("requests").isJsonArray()) {
+            envoyerErreur(echange, 400, "Champ 'requests' manquant");
+            return;
+        }
+        JsonArray sousRequetes = batch.getAsJsonArray("requests");
+        if (sousRequetes.size() > SOUS_REQUETES_MAX) {
+            envoyerErreur(echange, 400, "Trop de sous-requêtes (max " + SOUS_REQUETES_MAX + ")");
+            return;
+        }
+        boolean arretSurErreur = !batch.has("stopOnError") || batch.get("stopOnError").getAsBoolean();
+
+        List<Map<String, Object>> resultats = new ArrayList<>();
+        Map<String, JsonElement> corpsParCle = new HashMap<>();
+        boolean interrompu = false;
+
+        for (int i = 0; i < sousRequetes.size(); i++) {
+            JsonElement element = sousRequetes.get(i);
+            JsonObject sousRequete = element.isJsonObject() ? element.getAsJsonObject() : null;
+            String id = sousRequete != null && sousRequete.has("id") && sousRequete.get("id").isJsonPrimitive()
+                    ? sousRequete.get("id").getAsString() : null;
+
+            Map<String, Object> resultat = new LinkedHashMap<>();
+            resultat.put("index", i);
+            if (id != null) {
+                resultat.put("id", id);
+            }
+
+            int code;
+            JsonElement corpsReponse;
+            try {
+                if (sousRequete == null) {
+                    throw new IllegalArgumentException("Sous-requête " + i + " : objet JSON attendu");
+                }
+                EchangeInterne sousEchange = construireEchange(echange, sousRequete, corpsParCle);
+                HttpHandler handler = handlers.get(sousEchange.getHttpContext().getPath());
+                sousEchange.getHttpContext().setHandler(handler);
+                handler.handle(sousEchange);
+                code = sousEchange.getResponseCode();
+                corpsReponse = lireJson(sousEchange.getCorpsReponse());
+            } catch (IllegalArgumentException e) {
+                code = 400;
+                corpsReponse = erreurJson(e.getMessage());
+            }
+
+            resultat.put("status", code);
+            resultat.put("body", corpsReponse);
+            resultats.add(resultat);
+
+            corpsParCle.put(String.valueOf(i), corpsReponse);
+            if (id != null) {
+                corpsParCle.put(id, corpsReponse);
+            }
+
+            if (arretSurErreur && code >= 400) {
+                interrompu = i < sousRequetes.size() - 1;
+                break;
+            }
+        }
+
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("results", resultats);
+        reponse.put("aborted", interrompu);
+        envoyerJson(echange, 200, reponse);
+    }
+
+
+    private EchangeInterne construireEchange(HttpExchange parent, JsonObject sousRequete,
+                                             Map<String, JsonElement> corpsParCle) {
+        if (!sousRequete.has("method") || !sousRequete.has("path")
+                || !sousRequete.get("method").isJsonPrimitive() || !sousRequete.get("path").isJsonPrimitive()) {
+            throw new IllegalArgumentException("Champs 'method' et 'path' requis");
+        }
+        String methode = sousRequete.get("method").getAsString().toUpperCase();
+        String chemin = resoudreDansTexte(sousRequete.get("path").getAsString(), corpsParCle);
+
+        URI uri;
+        try {
+            uri = URI.create(chemin);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Chemin invalide: " + chemin);
+        }
+        String route = trouverRoute(uri.getPath());
+        if (route == null || estInterdite(uri.getPath())) {
+            throw new IllegalArgumentException("Route non autorisée dans un batch: " + uri.getPath());
+        }
+
+        String typeContenu = null;
+        String corps = null;
+        if (sousRequete.has("body") && !sousRequete.get("body").isJsonNull()) {
+            JsonElement corpsJson = sousRequete.get("body");
+            if (corpsJson.isJsonPrimitive()) {
+                // Chaîne brute : envoyée comme un formulaire
+                typeContenu = "application/x-www-form-urlencoded";
+                corps = resoudreDansTexte(corpsJson.getAsString(), corpsParCle);
+            } else {
+                typeContenu = "application/json";
+                corps = resoudreDansJson(corpsJson, corpsParCle).toString();
+            }
+        }
+        return new EchangeInterne(parent, methode, uri, route, typeContenu, corps);
+    }
+
+
+    private static boolean estInterdite(String chemin) {
+        for (String interdite : ROUTES_INTERDITES) {
+            if (chemin.startsWith(interdite)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // Même règle que HttpServer : le préfixe de contexte le plus long l'emporte
+    private String trouverRoute(String chemin) {
+        String meilleure = null;
+        for (String route : handlers.keySet()) {
+            if (chemin.startsWith(route) && (meilleure == null || route.length() > meilleure.length())) {
+                meilleure = route;
+            }
+        }
+        return meilleure;
+    }
+
+
+    private JsonElement resoudreDansJson(JsonElement element, Map<String, JsonElement> corpsParCle) {
+        if (element.isJsonObject()) {
+            JsonObject copie = new JsonObject();
+            for (Map.Entry<String, JsonElement> entree : element.getAsJsonObject().entrySet()) {
+                copie.add(entree.getKey(), resoudreDansJson(entree.getValue(), corpsParCle));
+            }
+            return copie;
+        }
+        if (element.isJsonArray()) {
+            JsonArray copie = new JsonArray();
+            for (JsonElement enfant : element.getAsJsonArray()) {
+                copie.add(resoudreDansJson(enfant, corpsParCle));
+            }
+            return copie;
+        }
+        if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            String texte = element.getAsString();
+            Matcher matcher = REFERENCE.matcher(texte);
+            // Une référence seule garde le type de la valeur (nombre, booléen...)
+            if (matcher.matches()) {
+                return resoudreReference(matcher.group(1), corpsParCle);
+            }
+            return new JsonPrimitive(resoudreDansTexte(texte, corpsParCle));
+        }
+        return element;
+    }
+
+
+    private String resoudreDansTexte(String texte, Map<String, JsonElement> corpsParCle) {
+        Matcher matcher = REFERENCE.matcher(texte);
+        StringBuilder resultat = new StringBuilder();
+        while (matcher.find()) {
+            JsonElement valeur = resoudreReference(matcher.group(1), corpsParCle);
+            String remplacement;
+            if (valeur.isJsonPrimitive()) {
+                remplacement = valeurTexte(valeur);
+            } else {
+                remplacement = valeur.toString();
+            }
+            matcher.appendReplacement(resultat, Matcher.quoteReplacement(remplacement));
+        }
+        matcher.appendTail(resultat);
+        return resultat.toString();
+    }
+
+
+    private JsonElement resoudreReference(String reference, Map<String, JsonElement> corpsParCle) {
+        String[] segments = reference.split("\\.");
+        JsonElement courant = corpsParCle.get(segments[0]);
+        if (courant == null) {
+            throw new IllegalArgumentException("Référence inconnue: " + reference);
+        }
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            if (courant.isJsonObject() && courant.getAsJsonObject().has(segment)) {
+                courant = courant.getAsJsonObject().get(segment);
+            } else if (courant.isJsonArray() && estIndice(segment)
+                    && Integer.parseInt(segment) < courant.getAsJsonArray().size()) {
+                courant = courant.getAsJsonArray().get(Integer.parseInt(segment));
+            } else {
+                throw new IllegalArgumentException("Référence introuvable: " + reference);
+            }
+        }
+        return courant;
+    }
+
+
+    // Gson lit tous les nombres en double : 42.0 doit redevenir "42" dans une URL
+    private static String valeurTexte(JsonElement valeur) {
+        if (valeur.getAsJsonPrimitive().isNumber()) {
+            double nombre = valeur.getAsDouble();
+            if (nombre == Math.rint(nombre) && !Double.isInfinite(nombre)) {
+                return String.valueOf((long) nombre);
+            }
+        }
+        return valeur.getAsString();
+    }
+
+
+    private static boolean estIndice(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static JsonElement lireJson(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return JsonNull.INSTANCE;
+        }
+        try {
+            return JsonParser.parseString(texte);
+        } catch (Exception e) {
+            return new JsonPrimitive(texte);
+        }
+    }
+
+
+    private static JsonElement erreurJson(String message) {
+        JsonObject erreur = new JsonObject();
+        erreur.addProperty("error", message);
+        return erreur;
+    }
+}
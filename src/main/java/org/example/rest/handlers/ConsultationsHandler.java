@@ -2,21 +2,22 @@ package org.example.rest.handlers;
 
 import com.sun.net.httpserver.HttpExchange;
 import org.example.server.bd.BdManager;
-import org.example.server.dao.ConsultationDAO;
-import org.example.server.entity.Consultation;
+import org.example.rest.CacheReponses;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.rest.RestServer;
 import org.example.rest.RestUtils;
 import org.example.server.searchvm.ConsultationSearchVM;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ConsultationsHandler extends ApiHandler {
 
-    public ConsultationsHandler(BdManager bdManager) {
-        super(bdManager);
+    public ConsultationsHandler(BdManager bdManager, CacheReponses cache) {
+        super(bdManager, cache);
     }
 
     @Override
@@ -35,18 +36,16 @@ public class ConsultationsHandler extends ApiHandler {
             vm.setSpecialityName(parametres.get("specialty"));
         }
 
-        Connection connexion = obtenirConnexion();
-        ConsultationDAO dao = new ConsultationDAO(connexion);
-        ArrayList<Consultation> consultations = dao.load(vm);
+        List<ConsultationCompacte> consultations = bdManager.loadConsultationsCompact(vm);
 
         String idPatientStr = parametres.get("patientId");
         if (idPatientStr != null) {
             try {
                 int idPatient = Integer.parseInt(idPatientStr);
-                ArrayList<Consultation> consultationsFiltrees = new ArrayList<>();
-                for (Consultation c : consultations) {
+                List<ConsultationCompacte> consultationsFiltrees = new ArrayList<>();
+                for (ConsultationCompacte c : consultations) {
                     // Si l'id patient correspond, on garde la consultation
-                    if (c.getPatient_id() != null && c.getPatient_id() == idPatient) {
+                    if (!c.estLibre() && c.getPatientId() == idPatient) {
                         consultationsFiltrees.add(c);
                     }
                 }
@@ -58,9 +57,9 @@ public class ConsultationsHandler extends ApiHandler {
         } else {
             // Si pas de patientId, on ne garde que les consultations libres (patientId ==
             // null)
-            ArrayList<Consultation> consultationsFiltrees = new ArrayList<>();
-            for (Consultation c : consultations) {
-                if (c.getPatient_id() == null) {
+            List<ConsultationCompacte> consultationsFiltrees = new ArrayList<>();
+            for (ConsultationCompacte c : consultations) {
+                if (c.estLibre()) {
                     consultationsFiltrees.add(c);
                 }
             }
@@ -155,15 +154,16 @@ public class ConsultationsHandler extends ApiHandler {
         }
 
         // Etape 5 : Enregistrer la réservation dans la base de données
-        Connection connexion = obtenirConnexion();
-        ConsultationDAO dao = new ConsultationDAO(connexion);
-        boolean succes = dao.bookConsultation(idConsultation, idPatient, raison);
+        // (le coordinateur ne laisse passer qu'une seule demande par créneau)
+        boolean succes = bdManager.reserverConsultation(idConsultation, idPatient, raison);
 
         // Etape 6 : Envoyer la réponse au client
         Map<String, Object> reponse = new HashMap<>();
         reponse.put("success", succes);
 
         if (succes) {
+            // Le créneau n'est plus libre : les recherches en cache ne doivent plus le proposer
+            invaliderCache(RestServer.ROUTE_CONSULTATIONS);
             envoyerJson(echange, 200, reponse);
         } else {
             envoyerJson(echange, 400, reponse);
@@ -187,14 +187,13 @@ public class ConsultationsHandler extends ApiHandler {
             return;
         }
 
-        Connection connexion = obtenirConnexion();
-        ConsultationDAO dao = new ConsultationDAO(connexion);
-        boolean succes = dao.cancelConsultation(idConsultation);
+        boolean succes = bdManager.annulerConsultation(idConsultation);
 
         Map<String, Object> reponse = new HashMap<>();
         reponse.put("success", succes);
         int codeReponse;
         if (succes) {
+            invaliderCache(RestServer.ROUTE_CONSULTATIONS);
             codeReponse = 200;
         } else {
             codeReponse = 404;
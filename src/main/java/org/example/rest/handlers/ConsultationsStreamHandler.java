@@ -0,0 +1,35 @@
+package org.example.rest.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.rest.DiffuseurConsultations;
+import org.example.server.bd.BdManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+
+public class ConsultationsStreamHandler extends ApiHandler {
+
+    private final DiffuseurConsultations diffuseur;
+
+
+    public ConsultationsStreamHandler(BdManager bdManager, DiffuseurConsultations diffuseur) {
+        super(bdManager);
+        this.diffuseur = diffuseur;
+    }
+
+
+    @Override
+    protected void gererGet(HttpExchange echange) throws IOException {
+        Map<String, String> parametres = obtenirParametresRequete(echange);
+
+        // La réponse reste ouverte : c'est le thread de l'abonné qui écrit et ferme l'échange
+        boolean accepte = diffuseur.abonner(echange,
+                parametres.get("doctor"),
+                parametres.get("specialty"),
+                parametres.get("date"));
+        if (!accepte) {
+            envoyerErreur(echange, 503, "Trop d'abonnés au flux des consultations");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.rest.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.bd.BdManager;
+
+import java.io.IOException;
+
+
+public class ContentionHandler extends ApiHandler {
+
+
+    public ContentionHandler(BdManager bdManager) {
+        super(bdManager);
+    }
+
+
+    @Override
+    protected void gererGet(HttpExchange echange) throws IOException {
+        envoyerJson(echange, 200, bdManager.getCoordinateurReservations().statistiques());
+    }
+}
@@ -2,21 +2,20 @@ package org.example.rest.handlers;
 
 import com.sun.net.httpserver.HttpExchange;
 import org.example.server.bd.BdManager;
-import org.example.server.dao.DoctorDAO;
+import org.example.rest.CacheReponses;
 import org.example.server.entity.Doctor;
 import org.example.server.searchvm.DoctorSearchVM;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 
 public class DoctorsHandler extends ApiHandler {
 
 
-    public DoctorsHandler(BdManager bdManager) {
-        super(bdManager);
+    public DoctorsHandler(BdManager bdManager, CacheReponses cache) {
+        super(bdManager, cache);
     }
 
 
@@ -32,9 +31,7 @@ public class DoctorsHandler extends ApiHandler {
             vm.setSpecialityName(parametres.get("specialty"));
         }
 
-        Connection connexion = obtenirConnexion();
-        DoctorDAO daoMedecin = new DoctorDAO(connexion);
-        ArrayList<Doctor> medecins = daoMedecin.load(vm);
+        List<Doctor> medecins = bdManager.loadDoctors(vm);
         envoyerJson(echange, 200, medecins);
     }
 }
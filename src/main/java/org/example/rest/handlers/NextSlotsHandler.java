@@ -0,0 +1,58 @@
+package org.example.rest.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.bd.BdManager;
+import org.example.server.bd.IndexDisponibilites;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+
+/**
+ * Premiers créneaux libres d'une spécialité, tous médecins confondus
+ * (?specialty=, ?k= entre 1 et IndexDisponibilites.K_MAX, ?from=), lus dans
+ * l'index des disponibilités.
+ */
+public class NextSlotsHandler extends ApiHandler {
+
+    private static final int K_DEFAUT = 5;
+
+    private final IndexDisponibilites index;
+
+
+    public NextSlotsHandler(BdManager bdManager, IndexDisponibilites index) {
+        super(bdManager);
+        this.index = index;
+    }
+
+
+    @Override
+    protected void gererGet(HttpExchange echange) throws IOException {
+        if (!index.estPret()) {
+            envoyerErreur(echange, 503, "Index des disponibilités en cours de construction, réessayez");
+            return;
+        }
+        Map<String, String> parametres = obtenirParametresRequete(echange);
+        int k;
+        try {
+            k = parametres.containsKey("k") ? Integer.parseInt(parametres.get("k")) : K_DEFAUT;
+        } catch (NumberFormatException e) {
+            envoyerErreur(echange, 400, "Format invalide pour k");
+            return;
+        }
+        if (k < 1 || k > IndexDisponibilites.K_MAX) {
+            envoyerErreur(echange, 400, "k doit être compris entre 1 et " + IndexDisponibilites.K_MAX);
+            return;
+        }
+        LocalDate debut;
+        try {
+            debut = parametres.containsKey("from") ? LocalDate.parse(parametres.get("from")) : null;
+        } catch (DateTimeParseException e) {
+            envoyerErreur(echange, 400, "Format de date invalide (aaaa-mm-jj attendu)");
+            return;
+        }
+        envoyerJson(echange, 200, index.suivants(parametres.get("specialty"), debut, k));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.rest.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.bd.BdManager;
+import org.example.server.statistiques.InstantaneConsultations;
+import org.example.server.statistiques.ResultatOccupation;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Taux d'occupation des créneaux (?group=day|doctor|specialty, ?from=, ?to=,
+ * ?doctorId=, ?specialty=, ?reason=), calculé sur l'instantané en colonnes.
+ */
+public class OccupancyHandler extends ApiHandler {
+
+    private final InstantaneConsultations instantane;
+
+
+    public OccupancyHandler(BdManager bdManager, InstantaneConsultations instantane) {
+        super(bdManager);
+        this.instantane = instantane;
+    }
+
+
+    @Override
+    protected void gererGet(HttpExchange echange) throws IOException {
+        if (!instantane.estPret()) {
+            envoyerErreur(echange, 503, "Statistiques en cours de construction, réessayez");
+            return;
+        }
+        Map<String, String> parametres = obtenirParametresRequete(echange);
+        String groupe = parametres.getOrDefault("group", InstantaneConsultations.GROUPE_JOUR);
+        LocalDate debut;
+        LocalDate fin;
+        Integer medecinId;
+        try {
+            debut = parametres.containsKey("from") ? LocalDate.parse(parametres.get("from")) : null;
+            fin = parametres.containsKey("to") ? LocalDate.parse(parametres.get("to")) : null;
+        } catch (DateTimeParseException e) {
+            envoyerErreur(echange, 400, "Format de date invalide (aaaa-mm-jj attendu)");
+            return;
+        }
+        try {
+            medecinId = parametres.containsKey("doctorId") ? Integer.parseInt(parametres.get("doctorId")) : null;
+        } catch (NumberFormatException e) {
+            envoyerErreur(echange, 400, "Format invalide pour doctorId");
+            return;
+        }
+
+        long debutCalcul = System.nanoTime();
+        ResultatOccupation resultat;
+        try {
+            resultat = instantane.occupation(groupe, debut, fin, medecinId, parametres.get("specialty"),
+                    parametres.get("reason"));
+        } catch (IllegalArgumentException e) {
+            envoyerErreur(echange, 400, e.getMessage());
+            return;
+        }
+
+        List<Map<String, Object>> groupes = new ArrayList<>();
+        for (ResultatOccupation.Groupe g : resultat.getGroupes()) {
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("key", g.getCle());
+            ligne.put("label", g.getLibelle());
+            ligne.put("slots", g.getCreneaux());
+            ligne.put("booked", g.getReserves());
+            ligne.put("occupancy", taux(g.getReserves(), g.getCreneaux()));
+            groupes.add(ligne);
+        }
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("group", groupe);
+        reponse.put("slots", resultat.getCreneaux());
+        reponse.put("booked", resultat.getReserves());
+        reponse.put("occupancy", taux(resultat.getReserves(), resultat.getCreneaux()));
+        reponse.put("groups", groupes);
+        reponse.put("scannedRows", resultat.getLignes());
+        reponse.put("snapshotAt", Instant.ofEpochMilli(resultat.getInstantane()).toString());
+        reponse.put("computeMs", (System.nanoTime() - debutCalcul) / 1_000_000.0);
+        envoyerJson(echange, 200, reponse);
+    }
+
+
+    private static double taux(int reserves, int creneaux) {
+        return creneaux == 0 ? 0 : (double) reserves / creneaux;
+    }
+}
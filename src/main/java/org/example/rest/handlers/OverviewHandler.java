@@ -0,0 +1,90 @@
+package org.example.rest.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.example.server.bd.BdAsync;
+import org.example.server.bd.BdManager;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Specialty;
+import org.example.server.searchvm.ConsultationSearchVM;
+import org.example.server.searchvm.DoctorSearchVM;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Page d'accueil de la réservation en une requête : spécialités, médecins et
+ * créneaux libres (?date=, ?specialty=), lus en parallèle sur le pool de BdAsync.
+ */
+public class OverviewHandler extends ApiHandler {
+
+    private final BdAsync bdAsync;
+
+
+    public OverviewHandler(BdManager bdManager, BdAsync bdAsync) {
+        super(bdManager);
+        this.bdAsync = bdAsync;
+    }
+
+
+    @Override
+    protected void gererGet(HttpExchange echange) throws IOException {
+        Map<String, String> parametres = obtenirParametresRequete(echange);
+        DoctorSearchVM medecinsVm = new DoctorSearchVM();
+        ConsultationSearchVM consultationsVm = new ConsultationSearchVM();
+        if (parametres.containsKey("specialty")) {
+            medecinsVm.setSpecialityName(parametres.get("specialty"));
+            consultationsVm.setSpecialityName(parametres.get("specialty"));
+        }
+        if (parametres.containsKey("date")) {
+            consultationsVm.setDateFrom(parametres.get("date"));
+            consultationsVm.setDateTo(parametres.get("date"));
+        }
+
+        CompletableFuture<List<Specialty>> specialites = bdAsync.getAllSpecialtiesAsync();
+        CompletableFuture<List<Doctor>> medecins = bdAsync.loadDoctorsAsync(medecinsVm);
+        CompletableFuture<List<ConsultationCompacte>> consultations = bdAsync.loadConsultationsCompactAsync(consultationsVm);
+
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        try {
+            CompletableFuture.allOf(specialites, medecins, consultations).join();
+            reponse.put("specialties", specialites.join());
+            reponse.put("doctors", medecins.join());
+            reponse.put("consultations", creneauxLibres(consultations.join()));
+        } catch (CompletionException e) {
+            // Une lecture a échoué : inutile de laisser les autres occuper le pool
+            specialites.cancel(true);
+            medecins.cancel(true);
+            consultations.cancel(true);
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                envoyerErreur(echange, 504, "Base de données trop lente");
+            } else if (cause instanceof RejectedExecutionException) {
+                envoyerErreur(echange, 503, "Serveur occupé, réessayez");
+            } else {
+                envoyerErreur(echange, 500, "Erreur: " + (cause != null ? cause.getMessage() : e.getMessage()));
+            }
+            return;
+        }
+        envoyerJson(echange, 200, reponse);
+    }
+
+
+    private static List<ConsultationCompacte> creneauxLibres(List<ConsultationCompacte> consultations) {
+        List<ConsultationCompacte> libres = new ArrayList<>();
+        for (ConsultationCompacte c : consultations) {
+            if (c.estLibre()) {
+                libres.add(c);
+            }
+        }
+        return libres;
+    }
+}
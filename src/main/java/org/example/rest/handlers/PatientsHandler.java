@@ -2,12 +2,10 @@ package org.example.rest.handlers;
 
 import com.sun.net.httpserver.HttpExchange;
 import org.example.server.bd.BdManager;
-import org.example.server.dao.PatientDAO;
 import org.example.server.entity.Patient;
 import org.example.rest.RestUtils;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -53,9 +51,6 @@ public class PatientsHandler extends ApiHandler {
         // On vérifie si c'est un nouveau patient
         boolean nouveauPatient = "true".equals(nouveauPatientStr);
 
-        Connection connexion = obtenirConnexion();
-        PatientDAO dao = new PatientDAO(connexion);
-
         int idPatient;
         if (nouveauPatient) {
             // Création d'un nouveau patient
@@ -63,13 +58,13 @@ public class PatientsHandler extends ApiHandler {
             patient.setLast_name(nom);
             patient.setFirst_name(prenom);
             patient.setBirth_date(dateNaissance);
-            idPatient = dao.create(patient);
+            idPatient = bdManager.creerPatient(patient);
             if (idPatient == -1) {
                 envoyerErreur(echange, 500, "Erreur lors de la création du patient");
                 return;
             }
         } else {
-            Integer idTrouve = dao.findByDetails(nom, prenom, dateNaissance);
+            Integer idTrouve = bdManager.trouverPatient(nom, prenom, dateNaissance);
             if (idTrouve == null) {
                 envoyerErreur(echange, 404, "Patient non trouvé");
                 return;
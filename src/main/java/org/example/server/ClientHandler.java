@@ -1,11 +1,17 @@
 package org.example.server;
 
+import org.example.server.admission.ControleAdmission;
+import org.example.server.admission.LimiteurAdaptatif;
 import org.example.server.bd.BdManager;
 import org.example.server.crypto.GenerateurCles;
 import org.example.server.crypto.GestionnaireCrypto;
+import org.example.server.crypto.GestionnaireTickets;
 import org.example.server.dao.ReportDAO;
 import org.example.server.entity.Patient;
+import org.example.server.metriques.Metriques;
 import org.example.server.searchvm.PatientSearchVM;
+import org.example.server.sessions.GestionnaireSessions;
+import org.example.server.stockage.SessionLectures;
 import org.example.shared.Protocol;
 import com.google.gson.Gson;
 
@@ -14,13 +20,35 @@ import java.io.*;
 import java.net.Socket;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 
 public class ClientHandler implements Runnable {
+    private static final Set<String> COMMANDES_CONNUES = Set.of(
+            Protocol.CMD_LOGIN, Protocol.CMD_ADD_REPORT, Protocol.CMD_EDIT_REPORT,
+            Protocol.CMD_LIST_REPORTS, Protocol.CMD_LIST_REPORTS_SINCE, Protocol.CMD_LIST_REPORTS_PAGE,
+            Protocol.CMD_GET_REPORT, Protocol.CMD_LIST_PATIENTS, Protocol.CMD_LOGOUT, Protocol.CMD_RESUME);
+    // Commandes qui ne touchent pas la base : jamais soumises à la limite adaptative
+    private static final Set<String> COMMANDES_SANS_BD = Set.of(Protocol.CMD_LOGOUT, Protocol.CMD_RESUME);
+    private static final int TAILLE_PAGE_MAX = 500;
+    private static final Pattern CLE_IDEMPOTENCE = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private static final AtomicInteger sessionsActives = new AtomicInteger();
+    private static final AtomicInteger sessionsAuthentifiees = new AtomicInteger();
+
     private final Socket socketClient;
     private final BdManager gestionnaireBd;
+    private final GestionnaireSessions gestionnaireSessions;
+    private final LimiteurAdaptatif limiteurCommandes;
+    private GestionnaireSessions.Session session;
     private BufferedReader entree;
     private PrintWriter sortie;
 
@@ -30,15 +58,19 @@ public class ClientHandler implements Runnable {
     private SecretKey cleSession;
     private byte[] selCourant;
     private boolean authentifie;
+    private String commandeCourante;
 
 
     private PrivateKey clePriveeServeur;
     private PublicKey clePubliqueClient;
 
 
-    public ClientHandler(Socket socket, BdManager gestionnaireBd) {
+    public ClientHandler(Socket socket, BdManager gestionnaireBd, GestionnaireSessions gestionnaireSessions,
+                         LimiteurAdaptatif limiteurCommandes) {
         this.socketClient = socket;
         this.gestionnaireBd = gestionnaireBd;
+        this.gestionnaireSessions = gestionnaireSessions;
+        this.limiteurCommandes = limiteurCommandes;
         this.authentifie = false;
 
 
@@ -51,21 +83,55 @@ public class ClientHandler implements Runnable {
     }
 
 
+    public static int getSessionsActives() {
+        return sessionsActives.get();
+    }
+
+
+    public static int getSessionsAuthentifiees() {
+        return sessionsAuthentifiees.get();
+    }
+
+
     @Override
     public void run() {
+        sessionsActives.incrementAndGet();
+        session = gestionnaireSessions.ouvrir(socketClient);
         try {
 
             entree = new BufferedReader(new InputStreamReader(socketClient.getInputStream()));
             sortie = new PrintWriter(socketClient.getOutputStream(), true);
 
+            session.attacherSortie(sortie);
+
             String requete;
             while ((requete = entree.readLine()) != null) {
-                traiterRequete(requete);
+                if (!session.debutRequete()) {
+                    // Arrêt en cours : la commande n'est pas exécutée, la connexion va être fermée
+                    sortie.println(Protocol.RESP_ERROR + "|" + Protocol.RESP_SHUTDOWN);
+                    continue;
+                }
+                try {
+                    traiterRequete(requete);
+                } finally {
+                    session.finRequete();
+                }
             }
 
         } catch (Exception e) {
             System.err.println("❌ Erreur client: " + e.getMessage());
         } finally {
+            if (authentifie) {
+                sessionsAuthentifiees.decrementAndGet();
+                authentifie = false;
+            }
+            sessionsActives.decrementAndGet();
+            session.fermer();
+            // La clé de session ne doit pas survivre à la connexion
+            cleSession = null;
+            selCourant = null;
+            idMedecinCourant = null;
+            loginCourant = null;
             nettoyer();
         }
     }
@@ -79,6 +145,20 @@ public class ClientHandler implements Runnable {
         }
 
         String commande = parties[0];
+        // Les commandes inconnues partagent une seule série pour borner le nombre de métriques
+        commandeCourante = COMMANDES_CONNUES.contains(commande) ? commande : "UNKNOWN";
+        long debut = System.nanoTime();
+        boolean limitee = !COMMANDES_SANS_BD.contains(commande);
+        if (limitee && !limiteurCommandes.essayerAcquerir()) {
+            // Base surchargée : refus immédiat plutôt qu'une file d'attente de plus
+            Metriques.compteur("mrps_admission_rejected_total", "Connexions ou commandes refusées (serveur occupé)",
+                    "reason", "overload").increment();
+            sortie.println(ControleAdmission.reponseOccupe(limiteurCommandes.getDelaiReessaiMs()));
+            return;
+        }
+        long tempsBdAvant = Metriques.tempsDaoThread();
+        // Lectures sur le primaire juste après une écriture de ce médecin (réplicas en retard)
+        SessionLectures.ouvrir(idMedecinCourant);
 
         try {
             switch (commande) {
@@ -100,18 +180,45 @@ public class ClientHandler implements Runnable {
                         traiterListeRapports(parties);
                     }
                     break;
+                case Protocol.CMD_LIST_REPORTS_SINCE:
+                    if (verifierAuthentification()) {
+                        traiterListeRapportsDepuis(parties);
+                    }
+                    break;
+                case Protocol.CMD_LIST_REPORTS_PAGE:
+                    if (verifierAuthentification()) {
+                        traiterPageRapports(parties);
+                    }
+                    break;
+                case Protocol.CMD_GET_REPORT:
+                    if (verifierAuthentification()) {
+                        traiterLectureRapport(parties);
+                    }
+                    break;
                 case Protocol.CMD_LIST_PATIENTS:
                     traiterListePatients();
                     break;
                 case Protocol.CMD_LOGOUT:
                     traiterLogout();
                     break;
+                case Protocol.CMD_RESUME:
+                    traiterReprise(parties);
+                    break;
                 default:
                     envoyerErreur("Commande inconnue: " + commande);
             }
         } catch (Exception e) {
             envoyerErreur("Erreur lors du traitement: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            SessionLectures.fermer();
+            if (limitee) {
+                limiteurCommandes.liberer(Metriques.tempsDaoThread() - tempsBdAvant);
+            }
+            Metriques.histogramme("mrps_command_duration_seconds", "Durée de traitement des commandes du protocole",
+                    "command", commandeCourante).enregistrerDepuis(debut);
+            Metriques.compteur("mrps_commands_total", "Commandes du protocole reçues",
+                    "command", commandeCourante).increment();
         }
     }
 
@@ -171,15 +278,52 @@ public class ClientHandler implements Runnable {
 
 
             idMedecinCourant = gestionnaireBd.getIdMedecin(loginCourant);
+            if (!authentifie) {
+                sessionsAuthentifiees.incrementAndGet();
+            }
             authentifie = true;
 
             String sessionId = "session_" + System.currentTimeMillis();
-            sortie.println(Protocol.RESP_OK + "|" + sessionId);
+            String ticket = GestionnaireTickets.emettre(idMedecinCourant, loginCourant, cleSession);
+            sortie.println(Protocol.RESP_OK + "|" + sessionId + "|" + ticket);
             System.out.println("✓ Médecin authentifié: " + loginCourant + " (ID: " + idMedecinCourant + ")");
         }
     }
 
 
+    /**
+     * RESUME|ticket|horodatage|HMAC : reprise après une coupure, sans RSA ni requête en base.
+     * Un nouveau ticket est renvoyé pour prolonger la session.
+     */
+    private void traiterReprise(String[] parties) throws Exception {
+        if (parties.length < 4) {
+            envoyerErreur("Format RESUME invalide");
+            return;
+        }
+
+        GestionnaireTickets.Session reprise = GestionnaireTickets.verifier(parties[1], parties[2], parties[3]);
+        Metriques.compteur("mrps_session_resumptions_total", "Reprises de session par ticket",
+                "result", reprise != null ? "ok" : "refused").increment();
+        if (reprise == null) {
+            envoyerErreur("Ticket de reprise invalide ou expiré");
+            return;
+        }
+
+        idMedecinCourant = reprise.getMedecinId();
+        loginCourant = reprise.getLogin();
+        cleSession = reprise.getCleSession();
+        if (!authentifie) {
+            sessionsAuthentifiees.incrementAndGet();
+        }
+        authentifie = true;
+
+        String sessionId = "session_" + System.currentTimeMillis();
+        String ticket = GestionnaireTickets.emettre(idMedecinCourant, loginCourant, cleSession);
+        sortie.println(Protocol.RESP_OK + "|" + sessionId + "|" + ticket);
+        System.out.println("✓ Session reprise: " + loginCourant + " (ID: " + idMedecinCourant + ")");
+    }
+
+
 
     private void traiterAjoutRapport(String[] parties) throws Exception {
         if (parties.length < 5) {
@@ -204,7 +348,20 @@ public class ClientHandler implements Runnable {
             return;
         }
 
-        int patientId = Integer.parseInt(patientIdStr);
+        int patientId;
+        try {
+            patientId = Integer.parseInt(patientIdStr);
+        } catch (NumberFormatException e) {
+            envoyerErreur("Patient invalide");
+            return;
+        }
+        // Avec l'écriture différée, une date refusée par la base ne serait vue qu'après l'acquittement
+        try {
+            dateStr = LocalDate.parse(dateStr).toString();
+        } catch (DateTimeParseException e) {
+            envoyerErreur("Format de date invalide (aaaa-mm-jj attendu)");
+            return;
+        }
 
 
         if (!gestionnaireBd.medecinAConsultationAvecPatient(idMedecinCourant, patientId)) {
@@ -213,7 +370,12 @@ public class ClientHandler implements Runnable {
         }
 
 
-        int rapportId = gestionnaireBd.ajouterRapport(idMedecinCourant, patientId, dateStr, texteRapport);
+        String cle = lireCleIdempotence(parties, 5);
+        if (cle == null && parties.length > 5) {
+            envoyerErreur("Clé d'idempotence invalide");
+            return;
+        }
+        int rapportId = gestionnaireBd.ajouterRapport(idMedecinCourant, patientId, dateStr, texteRapport, cle);
 
         sortie.println(Protocol.RESP_OK + "|" + rapportId);
         System.out.println("✓ Rapport ajouté (ID: " + rapportId + ")");
@@ -236,7 +398,12 @@ public class ClientHandler implements Runnable {
 
         int rapportId = Integer.parseInt(rapportIdStr);
 
-        boolean succes = gestionnaireBd.modifierRapport(rapportId, nouveauTexte, idMedecinCourant);
+        String cle = lireCleIdempotence(parties, 3);
+        if (cle == null && parties.length > 3) {
+            envoyerErreur("Clé d'idempotence invalide");
+            return;
+        }
+        boolean succes = gestionnaireBd.modifierRapport(rapportId, nouveauTexte, idMedecinCourant, cle);
 
         if (succes) {
             sortie.println(Protocol.RESP_OK);
@@ -248,6 +415,16 @@ public class ClientHandler implements Runnable {
 
 
 
+    // Champ optionnel ajouté par les clients récents ; null s'il est absent ou mal formé
+    private static String lireCleIdempotence(String[] parties, int index) {
+        if (parties.length <= index || !CLE_IDEMPOTENCE.matcher(parties[index]).matches()) {
+            return null;
+        }
+        return parties[index];
+    }
+
+
+
     private void traiterListeRapports(String[] parties) throws Exception {
         List<ReportDAO.Rapport> rapports;
 
@@ -280,6 +457,115 @@ public class ClientHandler implements Runnable {
 
 
 
+    /**
+     * LIST_REPORTS_SINCE|curseur : rapports modifiés depuis le curseur (ms, vide = tout).
+     * Réponse : OK|nombre|JSON_AES|HMAC, le JSON contient la liste et le nouveau curseur
+     * à renvoyer lors de la prochaine synchronisation.
+     */
+    private void traiterListeRapportsDepuis(String[] parties) throws Exception {
+        long curseur = 0;
+        if (parties.length >= 2 && !parties[1].isEmpty()) {
+            try {
+                curseur = Long.parseLong(parties[1]);
+            } catch (NumberFormatException e) {
+                envoyerErreur("Curseur invalide");
+                return;
+            }
+        }
+
+        List<ReportDAO.Rapport> rapports = gestionnaireBd.listerRapportsModifiesDepuis(idMedecinCourant, curseur);
+
+        // Le curseur suit updated_at de la base (pas l'horloge du client) pour ne rien manquer
+        long nouveauCurseur = curseur;
+        for (ReportDAO.Rapport rapport : rapports) {
+            nouveauCurseur = Math.max(nouveauCurseur, rapport.misAJourMs);
+        }
+
+        Map<String, Object> contenu = new LinkedHashMap<>();
+        contenu.put("curseur", nouveauCurseur);
+        contenu.put("rapports", rapports);
+        envoyerJsonChiffre(rapports.size(), contenu);
+    }
+
+
+
+    /**
+     * LIST_REPORTS_PAGE|debut|taille|patientIdChiffre(optionnel) : une page de rapports,
+     * texte réduit à un aperçu. Réponse : OK|total|JSON_AES|HMAC.
+     */
+    private void traiterPageRapports(String[] parties) throws Exception {
+        if (parties.length < 3) {
+            envoyerErreur("Format LIST_REPORTS_PAGE invalide");
+            return;
+        }
+        int debutPage;
+        int taille;
+        try {
+            debutPage = Integer.parseInt(parties[1]);
+            taille = Integer.parseInt(parties[2]);
+        } catch (NumberFormatException e) {
+            envoyerErreur("Pagination invalide");
+            return;
+        }
+        if (debutPage < 0 || taille <= 0) {
+            envoyerErreur("Pagination invalide");
+            return;
+        }
+        taille = Math.min(taille, TAILLE_PAGE_MAX);
+
+        int patientId = -1;
+        if (parties.length >= 4 && !parties[3].isEmpty()) {
+            patientId = dechiffrerEntier(parties[3]);
+        }
+
+        int total = gestionnaireBd.compterRapports(idMedecinCourant, patientId);
+        List<ReportDAO.Rapport> rapports = gestionnaireBd.listerPageRapports(idMedecinCourant, patientId,
+                debutPage, taille);
+        envoyerJsonChiffre(total, rapports);
+    }
+
+
+
+    /**
+     * GET_REPORT|idChiffre : texte complet d'un rapport du médecin connecté.
+     */
+    private void traiterLectureRapport(String[] parties) throws Exception {
+        if (parties.length < 2) {
+            envoyerErreur("Format GET_REPORT invalide");
+            return;
+        }
+        ReportDAO.Rapport rapport = gestionnaireBd.trouverRapport(dechiffrerEntier(parties[1]), idMedecinCourant);
+        if (rapport == null) {
+            envoyerErreur("Rapport non trouvé ou non autorisé");
+            return;
+        }
+        envoyerJsonChiffre(1, rapport);
+    }
+
+
+
+    private int dechiffrerEntier(String base64) throws Exception {
+        byte[] chiffre = Base64.getDecoder().decode(base64);
+        return Integer.parseInt(new String(GestionnaireCrypto.dechiffrerAES(chiffre, cleSession)));
+    }
+
+
+
+    // Réponse OK|nombre|JSON_AES|HMAC commune aux listes de rapports
+    private void envoyerJsonChiffre(int nombre, Object contenu) throws Exception {
+        String json = new Gson().toJson(contenu);
+
+        byte[] jsonChiffre = GestionnaireCrypto.chiffrerAES(json.getBytes(), cleSession);
+        String jsonChiffreBase64 = Base64.getEncoder().encodeToString(jsonChiffre);
+
+        byte[] hmac = GestionnaireCrypto.calculerHMAC(jsonChiffre, cleSession);
+        String hmacBase64 = Base64.getEncoder().encodeToString(hmac);
+
+        sortie.println(Protocol.RESP_OK + "|" + nombre + "|" + jsonChiffreBase64 + "|" + hmacBase64);
+    }
+
+
+
     private void traiterListePatients() throws Exception {
 
         PatientSearchVM searchVM = new PatientSearchVM();
@@ -287,28 +573,17 @@ public class ClientHandler implements Runnable {
         List<Patient> patients = gestionnaireBd.load(searchVM);
 
 
-        StringBuilder reponse = new StringBuilder(Protocol.RESP_OK);
-        for (Patient patient : patients) {
-            reponse.append("|");
-            reponse.append(patient.getId()).append(",");
-            reponse.append(patient.getFirst_name()).append(",");
-            reponse.append(patient.getLast_name()).append(",");
-            String dateNaissance;
-            if (patient.getBirth_date() != null) {
-                dateNaissance = patient.getBirth_date();
-            } else {
-                dateNaissance = "";
-            }
-            reponse.append(dateNaissance);
-        }
-
-        sortie.println(reponse.toString());
+        // JSON plutôt que des virgules : un nom peut contenir "," ou "|"
+        sortie.println(Protocol.RESP_OK + "|" + new Gson().toJson(patients));
 
     }
 
 
 
     private void traiterLogout() {
+        if (authentifie) {
+            sessionsAuthentifiees.decrementAndGet();
+        }
         authentifie = false;
         idMedecinCourant = null;
         loginCourant = null;
@@ -329,6 +604,10 @@ public class ClientHandler implements Runnable {
 
 
     private void envoyerErreur(String message) {
+        if (commandeCourante != null) {
+            Metriques.compteur("mrps_command_errors_total", "Commandes du protocole terminées en erreur",
+                    "command", commandeCourante).increment();
+        }
         sortie.println(Protocol.RESP_ERROR + "|" + message);
     }
 
@@ -1,30 +1,141 @@
 package org.example.server;
 
+import org.example.server.admission.ControleAdmission;
+import org.example.server.admission.LimiteurAdaptatif;
+import org.example.server.arret.ArretOrdonne;
 import org.example.server.bd.BdManager;
+import org.example.server.journal.JournalRapports;
+import org.example.server.metriques.Metriques;
+import org.example.server.metriques.ServeurMetriques;
+import org.example.server.sessions.GestionnaireSessions;
+import org.example.shared.Protocol;
 
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.sql.SQLException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 public class MedicalReportServer {
+    private static final long DELAI_REESSAI_PAR_IP_MS = 5_000;
+    private static final long DELAI_REESSAI_MAX_MS = 30_000;
+    private static final long DELAI_VIDAGE_JOURNAL_MS = 5_000;
+
     private final int port;
     private final int taillePoolThreads;
-    private final ExecutorService poolThreads;
+    private final ThreadPoolExecutor poolThreads;
     private final BdManager gestionnaireBd;
+    private final GestionnaireSessions gestionnaireSessions;
+    private final ControleAdmission controleAdmission;
+    private final LimiteurAdaptatif limiteurCommandes;
+    private final ArretOrdonne arret;
     private volatile boolean enCours;
+    private volatile ServerSocket socketServeur;
+    private ServeurMetriques serveurMetriques;
+    private JournalRapports journalRapports;
 
 
     public MedicalReportServer(int port, int taillePoolThreads) {
         this.port = port;
         this.taillePoolThreads = taillePoolThreads;
-        //on prépare un nb max de thread, pour pas que notre serveur plante
-        this.poolThreads = Executors.newFixedThreadPool(taillePoolThreads);
         this.gestionnaireBd = new BdManager();
+        //on prépare un nb max de thread, pour pas que notre serveur plante
+        // File bornée : au-delà, la connexion est refusée (ERROR|BUSY) au lieu d'attendre sans fin
+        this.poolThreads = new ThreadPoolExecutor(taillePoolThreads, taillePoolThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>((int) Math.max(1, lireNombre("ACCEPT_QUEUE_SIZE", taillePoolThreads))),
+                new ThreadPoolExecutor.AbortPolicy());
+        // Désactivé par défaut : les postes d'un cabinet sortent souvent par la même adresse (NAT)
+        this.controleAdmission = new ControleAdmission((int) lireNombre("MAX_CONNECTIONS_PER_IP", 0));
+        // Départ au quart du pool, puis montée additive tant que la base tient la cible
+        this.limiteurCommandes = new LimiteurAdaptatif(1, taillePoolThreads / 4, taillePoolThreads,
+                lireNombre("DB_LATENCY_TARGET_MS", 200));
+        // Sans cela, un client resté ouvert garde un thread du pool indéfiniment
+        this.gestionnaireSessions = new GestionnaireSessions(
+                lireNombre("SESSION_IDLE_TIMEOUT_SECONDS", 900) * 1000,
+                lireNombre("SESSION_MAX_DURATION_SECONDS", 12 * 3600) * 1000);
         this.enCours = false;
+        this.arret = new ArretOrdonne("mrps", lireNombre("SHUTDOWN_DRAIN_TIMEOUT_SECONDS", 10) * 1000);
+        preparerArret();
+        enregistrerJauges();
+    }
+
+
+    /**
+     * Étapes de l'arrêt : les commandes en cours (un ADD_REPORT par exemple) se
+     * terminent avant la fermeture des sockets et de la base.
+     */
+    private void preparerArret() {
+        arret.surArretAcceptation("socket serveur", () -> {
+                    enCours = false;
+                    fermerSocketServeur();
+                })
+                .surArretAcceptation("nouvelles commandes", gestionnaireSessions::commencerDrainage)
+                .surArretAcceptation("connexions en file", this::refuserConnexionsEnFile)
+                .surNotification("SHUTDOWN", () -> gestionnaireSessions.notifierTout(
+                        Protocol.RESP_SHUTDOWN + "|" + arret.getDelaiDrainageMs()))
+                .drainer(gestionnaireSessions::getNombreRequetesEnCours)
+                .surVidage("journal des rapports", () -> {
+                    if (journalRapports != null) {
+                        journalRapports.arreter(DELAI_VIDAGE_JOURNAL_MS);
+                    }
+                })
+                .surFermeture("sessions", gestionnaireSessions::fermerTout)
+                .surFermeture("pool", this::fermerPool)
+                .surFermeture("roue des sessions", gestionnaireSessions::arreter)
+                .surFermeture("métriques", () -> {
+                    if (serveurMetriques != null) {
+                        serveurMetriques.arreter();
+                    }
+                })
+                .surFermeture("base de données", () -> {
+                    try {
+                        gestionnaireBd.deconnecter();
+                    } catch (SQLException e) {
+                        System.err.println("Erreur lors de la déconnexion de la BD: " + e.getMessage());
+                    }
+                });
+    }
+
+
+    private long lireNombre(String cle, long defaut) {
+        String valeur = gestionnaireBd.getProperty(cle);
+        if (valeur == null || valeur.isBlank()) {
+            return defaut;
+        }
+        try {
+            return Long.parseLong(valeur.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valeur invalide pour " + cle + ", défaut utilisé: " + defaut);
+            return defaut;
+        }
+    }
+
+
+    private void enregistrerJauges() {
+        Metriques.jauge("mrps_sessions_active", "Connexions clients ouvertes",
+                ClientHandler::getSessionsActives);
+        Metriques.jauge("mrps_sessions_authenticated", "Sessions authentifiées",
+                ClientHandler::getSessionsAuthentifiees);
+        Metriques.jauge("mrps_sessions_idle", "Sessions sans requête depuis plus d'une minute",
+                gestionnaireSessions::getNombreInactives);
+        Metriques.jauge("mrps_thread_pool_size", "Threads du pool de sessions", poolThreads::getPoolSize);
+        Metriques.jauge("mrps_thread_pool_active", "Threads du pool occupés par une session",
+                poolThreads::getActiveCount);
+        Metriques.jauge("mrps_thread_pool_queued", "Connexions acceptées en attente d'un thread",
+                () -> poolThreads.getQueue().size());
+        Metriques.jauge("mrps_concurrency_limit", "Limite adaptative de commandes simultanées",
+                limiteurCommandes::getLimite);
+        Metriques.jauge("mrps_concurrency_inflight", "Commandes en cours sous la limite adaptative",
+                limiteurCommandes::getEnCours);
+        gestionnaireBd.enregistrerJauges();
     }
 
 
@@ -37,15 +148,20 @@ public class MedicalReportServer {
             e.printStackTrace();
             return;
         }
+        if (!demarrerJournal()) {
+            return;
+        }
+
+        demarrerServeurMetriques();
 
         try (ServerSocket socketServeur = new ServerSocket(port)) {
+            this.socketServeur = socketServeur;
 
             while (enCours) {//on attend juste la connexion
                 try {
                     //on attend qu'un client se connecte
                     Socket socketClient = socketServeur.accept();
-                    //c'est ici le thread à la demande, on donne le traitement du client au pool de thread
-                    poolThreads.submit(new ClientHandler(socketClient, gestionnaireBd));
+                    admettre(socketClient);
                 } catch (IOException e) {
                     if (enCours) {
                         System.err.println("Erreur lors de l'acceptation de la connexion client: " + e.getMessage());
@@ -61,16 +177,143 @@ public class MedicalReportServer {
     }
 
 
+    /**
+     * Confie la connexion au pool, ou la refuse tout de suite (ERROR|BUSY|délai)
+     * si l'adresse a trop de connexions ou si la file d'attente est pleine.
+     */
+    private void admettre(Socket socketClient) {
+        InetAddress adresse = socketClient.getInetAddress();
+        if (!controleAdmission.reserver(adresse)) {
+            ControleAdmission.refuser(socketClient, DELAI_REESSAI_PAR_IP_MS, "per_ip");
+            return;
+        }
+        ClientHandler handler = new ClientHandler(socketClient, gestionnaireBd, gestionnaireSessions,
+                limiteurCommandes);
+        try {
+            //c'est ici le thread à la demande, on donne le traitement du client au pool de thread
+            poolThreads.execute(new Connexion(socketClient, handler));
+        } catch (RejectedExecutionException e) {
+            controleAdmission.liberer(adresse);
+            // Plus la file est longue par rapport au pool, plus on conseille d'attendre
+            long delai = Math.min(DELAI_REESSAI_MAX_MS,
+                    1_000L * (1 + poolThreads.getQueue().size() / Math.max(1, taillePoolThreads)));
+            ControleAdmission.refuser(socketClient, delai, "queue_full");
+        }
+    }
+
+
+    /**
+     * Écriture différée des rapports (REPORT_WRITE_BEHIND). Si le journal de
+     * l'exécution précédente ne peut pas être rejoué, le serveur ne démarre pas :
+     * écrire directement en base ferait passer des écritures plus récentes avant lui.
+     */
+    private boolean demarrerJournal() {
+        if (!Boolean.parseBoolean(gestionnaireBd.getProperty("REPORT_WRITE_BEHIND"))) {
+            return true;
+        }
+        if (!gestionnaireBd.utiliseJdbc()) {
+            // Le journal rejoue en SQL sur DB_URL ; le moteur mémoire écrit déjà sans attendre le disque
+            // et, avec les shards, les rapports ne sont pas sur le nœud principal
+            System.out.println("REPORT_WRITE_BEHIND ignoré avec le moteur de stockage "
+                    + gestionnaireBd.getStockage().getNom());
+            return true;
+        }
+        String chemin = gestionnaireBd.getProperty("REPORT_WAL_FILE");
+        JournalRapports journal = new JournalRapports(
+                Paths.get(chemin == null || chemin.isBlank() ? "data/reports.wal" : chemin.trim()),
+                (int) lireNombre("REPORT_WAL_BATCH_SIZE", 100),
+                lireNombre("REPORT_WAL_BATCH_INTERVAL_MS", 20),
+                gestionnaireBd::ouvrirConnexion);
+        try {
+            journal.demarrer();
+        } catch (IOException | SQLException | RuntimeException e) {
+            System.err.println("✗ Impossible de démarrer le journal des rapports: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        journalRapports = journal;
+        gestionnaireBd.utiliserJournal(journal);
+        return true;
+    }
+
+
+    private void demarrerServeurMetriques() {
+        String portMetriques = gestionnaireBd.getProperty("PORT_METRIQUES");
+        if (portMetriques == null || portMetriques.isEmpty()) {
+            return;
+        }
+        try {
+            serveurMetriques = new ServeurMetriques(Integer.parseInt(portMetriques.trim()));
+            serveurMetriques.demarrer();
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Impossible de démarrer le serveur de métriques: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Arrêt coordonné (voir preparerArret) ; sans effet s'il a déjà eu lieu.
+     */
     public void arreter() {
-        enCours = false;
+        arret.arreter();
+    }
+
+
+    private void fermerSocketServeur() {
+        ServerSocket socket = socketServeur;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la fermeture du socket serveur: " + e.getMessage());
+            }
+        }
+    }
+
+
+    // Acceptées mais jamais prises par un thread : prévenues et fermées tout de suite
+    private void refuserConnexionsEnFile() {
+        List<Runnable> enFile = new ArrayList<>();
+        poolThreads.getQueue().drainTo(enFile);
+        for (Runnable tache : enFile) {
+            Connexion connexion = (Connexion) tache;
+            controleAdmission.liberer(connexion.socket.getInetAddress());
+            ControleAdmission.envoyerEtFermer(connexion.socket, Protocol.RESP_SHUTDOWN + "|0");
+        }
+    }
+
+
+    private void fermerPool() {
         //on libere le thread lorsque le serveur n'en a plus besoin
         poolThreads.shutdown();
         try {
-            if (gestionnaireBd != null) {
-                gestionnaireBd.deconnecter();
+            if (!poolThreads.awaitTermination(2, TimeUnit.SECONDS)) {
+                poolThreads.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            poolThreads.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    // Tâche du pool : libère la place de l'adresse IP à la fin de la session
+    private class Connexion implements Runnable {
+        private final Socket socket;
+        private final ClientHandler handler;
+
+        private Connexion(Socket socket, ClientHandler handler) {
+            this.socket = socket;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            try {
+                handler.run();
+            } finally {
+                controleAdmission.liberer(socket.getInetAddress());
             }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la déconnexion de la BD: " + e.getMessage());
         }
     }
 
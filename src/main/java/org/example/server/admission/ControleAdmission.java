@@ -0,0 +1,96 @@
+package org.example.server.admission;
+
+import org.example.server.metriques.Metriques;
+import org.example.shared.Protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Admission des connexions entrantes.
+ * <p>
+ * Limite le nombre de connexions simultanées par adresse IP. Une connexion
+ * refusée (IP au maximum, file d'attente du pool pleine) reçoit tout de suite
+ * ERROR|BUSY|délai_ms puis est fermée : le client sait quand réessayer au lieu
+ * d'attendre indéfiniment le sel du LOGIN.
+ * </p>
+ */
+public class ControleAdmission {
+
+    private final int maxParIp;
+    private final Map<InetAddress, Integer> connexionsParIp = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param maxParIp 0 pour ne pas limiter
+     */
+    public ControleAdmission(int maxParIp) {
+        this.maxParIp = maxParIp;
+    }
+
+
+    /**
+     * Réserve une place pour l'adresse. À libérer avec liberer() à la fin de la connexion.
+     */
+    public boolean reserver(InetAddress adresse) {
+        if (maxParIp <= 0) {
+            return true;
+        }
+        boolean[] accepte = new boolean[1];
+        connexionsParIp.compute(adresse, (ip, nombre) -> {
+            int actuel = nombre == null ? 0 : nombre;
+            accepte[0] = actuel < maxParIp;
+            return accepte[0] ? actuel + 1 : nombre;
+        });
+        return accepte[0];
+    }
+
+
+    public void liberer(InetAddress adresse) {
+        if (maxParIp <= 0) {
+            return;
+        }
+        connexionsParIp.computeIfPresent(adresse, (ip, nombre) -> nombre > 1 ? nombre - 1 : null);
+    }
+
+
+    public int getNombreAdresses() {
+        return connexionsParIp.size();
+    }
+
+
+    /**
+     * Répond ERROR|BUSY|délai_ms et ferme la connexion, sans passer par le pool.
+     */
+    public static void refuser(Socket socket, long delaiReessaiMs, String raison) {
+        Metriques.compteur("mrps_admission_rejected_total", "Connexions ou commandes refusées (serveur occupé)",
+                "reason", raison).increment();
+        envoyerEtFermer(socket, reponseOccupe(delaiReessaiMs));
+    }
+
+
+    /**
+     * Écrit une dernière ligne puis ferme la connexion.
+     */
+    public static void envoyerEtFermer(Socket socket, String ligne) {
+        try (Socket aFermer = socket) {
+            aFermer.setSoTimeout(1_000);
+            OutputStream sortie = aFermer.getOutputStream();
+            sortie.write(ligne.concat("\n").getBytes(StandardCharsets.UTF_8));
+            sortie.flush();
+        } catch (IOException e) {
+            System.err.println("Erreur lors du refus d'une connexion: " + e.getMessage());
+        }
+    }
+
+
+    public static String reponseOccupe(long delaiReessaiMs) {
+        return Protocol.RESP_ERROR + "|" + Protocol.RESP_BUSY + "|" + delaiReessaiMs;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.server.admission;
+
+
+/**
+ * Limite adaptative du nombre de commandes traitées en même temps (AIMD).
+ * <p>
+ * La limite part d'une valeur basse et, tant que le temps passé en base par
+ * commande reste sous la cible, augmente d'environ 1 par « fenêtre » (+1/limite par commande réussie, si la
+ * limite est réellement utilisée). Dès qu'une commande dépasse la cible, la
+ * limite est multipliée par 0,8 (au plus une fois par cible écoulée, pour ne
+ * pas s'effondrer sur une rafale de réponses lentes). Une commande au-delà de
+ * la limite est refusée tout de suite (ERROR|BUSY) au lieu de s'ajouter à la
+ * file de la base : la surcharge dégrade le service au lieu de le bloquer.
+ * </p>
+ */
+public class LimiteurAdaptatif {
+
+    private static final double FACTEUR_RECUL = 0.8;
+    private static final double LISSAGE = 0.1;
+    private static final long DELAI_REESSAI_MIN_MS = 100;
+    private static final long DELAI_REESSAI_MAX_MS = 5_000;
+
+    private final int limiteMin;
+    private final int limiteMax;
+    private final long latenceCibleNs;
+
+    private double limite;
+    private int enCours;
+    private double latenceLisseeNs;
+    private long dernierReculNs = System.nanoTime();
+
+
+    /**
+     * @param limiteInitiale limite de départ, ramenée entre limiteMin et limiteMax
+     */
+    public LimiteurAdaptatif(int limiteMin, int limiteInitiale, int limiteMax, long latenceCibleMs) {
+        this.limiteMin = Math.max(1, limiteMin);
+        this.limiteMax = Math.max(this.limiteMin, limiteMax);
+        this.latenceCibleNs = latenceCibleMs * 1_000_000;
+        this.limite = Math.max(this.limiteMin, Math.min(this.limiteMax, limiteInitiale));
+    }
+
+
+    public synchronized boolean essayerAcquerir() {
+        if (enCours >= (int) limite) {
+            return false;
+        }
+        enCours++;
+        return true;
+    }
+
+
+    /**
+     * À appeler après chaque commande acquise, avec le temps passé en base.
+     */
+    public synchronized void liberer(long latenceBdNs) {
+        enCours--;
+        latenceLisseeNs = latenceLisseeNs == 0 ? latenceBdNs
+                : latenceLisseeNs + LISSAGE * (latenceBdNs - latenceLisseeNs);
+
+        long maintenant = System.nanoTime();
+        if (latenceBdNs > latenceCibleNs) {
+            if (maintenant - dernierReculNs >= latenceCibleNs) {
+                limite = Math.max(limiteMin, limite * FACTEUR_RECUL);
+                dernierReculNs = maintenant;
+            }
+        } else if (enCours + 1 >= limite / 2) {
+            limite = Math.min(limiteMax, limite + 1 / limite);
+        }
+    }
+
+
+    public synchronized int getLimite() {
+        return (int) limite;
+    }
+
+
+    public synchronized int getEnCours() {
+        return enCours;
+    }
+
+
+    /**
+     * Délai conseillé au client refusé : deux fois la latence base observée.
+     */
+    public synchronized long getDelaiReessaiMs() {
+        long delai = (long) (2 * latenceLisseeNs / 1_000_000);
+        return Math.max(DELAI_REESSAI_MIN_MS, Math.min(DELAI_REESSAI_MAX_MS, delai));
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.server.arret;
+
+import org.example.server.metriques.Metriques;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Arrêt coordonné d'un serveur, en phases successives :
+ * 1. arrêt de l'acceptation (plus de nouvelle connexion ni de nouvelle requête) ;
+ * 2. notification des clients (SHUTDOWN, évènement SSE...) ;
+ * 3. drainage : attente des requêtes en cours, au plus jusqu'au délai ;
+ * 4. vidage des files d'écriture différée ;
+ * 5. fermeture des pools, sockets et de la base.
+ * <p>
+ * Chaque étape est isolée : une erreur est journalisée et n'empêche pas les
+ * suivantes. arreter() peut être appelé plusieurs fois (hook d'arrêt et fin
+ * de la boucle d'acceptation) : seul le premier appel agit.
+ * </p>
+ * Les requêtes terminées pendant le drainage et celles encore en cours au délai
+ * sont comptées dans mrps_shutdown_requests_total{outcome="drained"|"aborted"}.
+ */
+public class ArretOrdonne {
+
+    private static final long INTERVALLE_VERIFICATION_MS = 50;
+
+    /**
+     * Source de requêtes en cours à attendre pendant le drainage.
+     */
+    @FunctionalInterface
+    public interface Drainable {
+        int getNombreEnCours();
+    }
+
+    private final String serveur;
+    private final long delaiDrainageMs;
+    private final AtomicBoolean arrete = new AtomicBoolean();
+
+    private final List<Etape> arretAcceptation = new ArrayList<>();
+    private final List<Etape> notification = new ArrayList<>();
+    private final List<Drainable> drainables = new ArrayList<>();
+    private final List<Etape> vidage = new ArrayList<>();
+    private final List<Etape> fermeture = new ArrayList<>();
+
+
+    public ArretOrdonne(String serveur, long delaiDrainageMs) {
+        this.serveur = serveur;
+        this.delaiDrainageMs = delaiDrainageMs;
+    }
+
+
+    public ArretOrdonne surArretAcceptation(String nom, Runnable action) {
+        arretAcceptation.add(new Etape(nom, action));
+        return this;
+    }
+
+    public ArretOrdonne surNotification(String nom, Runnable action) {
+        notification.add(new Etape(nom, action));
+        return this;
+    }
+
+    public ArretOrdonne drainer(Drainable drainable) {
+        drainables.add(drainable);
+        return this;
+    }
+
+    public ArretOrdonne surVidage(String nom, Runnable action) {
+        vidage.add(new Etape(nom, action));
+        return this;
+    }
+
+    public ArretOrdonne surFermeture(String nom, Runnable action) {
+        fermeture.add(new Etape(nom, action));
+        return this;
+    }
+
+
+    public long getDelaiDrainageMs() {
+        return delaiDrainageMs;
+    }
+
+
+    public boolean estArrete() {
+        return arrete.get();
+    }
+
+
+    public void arreter() {
+        if (!arrete.compareAndSet(false, true)) {
+            return;
+        }
+        System.out.println("Arrêt de " + serveur + "...");
+        executer(arretAcceptation);
+        executer(notification);
+        attendreDrainage();
+        executer(vidage);
+        executer(fermeture);
+        System.out.println("✓ " + serveur + " arrêté");
+    }
+
+
+    private void attendreDrainage() {
+        int initial = nombreEnCours();
+        long limite = System.nanoTime() + delaiDrainageMs * 1_000_000;
+        int restant = initial;
+        while (restant > 0 && System.nanoTime() < limite) {
+            try {
+                Thread.sleep(INTERVALLE_VERIFICATION_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            restant = nombreEnCours();
+        }
+        // Aucune nouvelle requête n'est acceptée pendant le drainage
+        int drainees = Math.max(0, initial - restant);
+        Metriques.compteur("mrps_shutdown_requests_total", "Requêtes en cours à l'arrêt (terminées ou abandonnées)",
+                "server", serveur, "outcome", "drained").add(drainees);
+        Metriques.compteur("mrps_shutdown_requests_total", "Requêtes en cours à l'arrêt (terminées ou abandonnées)",
+                "server", serveur, "outcome", "aborted").add(restant);
+        System.out.println("Drainage " + serveur + ": " + drainees + " requête(s) terminée(s), "
+                + restant + " abandonnée(s)");
+    }
+
+
+    private int nombreEnCours() {
+        int total = 0;
+        for (Drainable drainable : drainables) {
+            total += drainable.getNombreEnCours();
+        }
+        return total;
+    }
+
+
+    private void executer(List<Etape> etapes) {
+        for (Etape etape : etapes) {
+            try {
+                etape.action.run();
+            } catch (RuntimeException e) {
+                System.err.println("Erreur à l'étape d'arrêt '" + etape.nom + "': " + e.getMessage());
+            }
+        }
+    }
+
+
+    private static final class Etape {
+        private final String nom;
+        private final Runnable action;
+
+        private Etape(String nom, Runnable action) {
+            this.nom = nom;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.server.bd;
+
+import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Report;
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.ConsultationSearchVM;
+import org.example.server.searchvm.DoctorSearchVM;
+import org.example.server.searchvm.ReportSearchVM;
+import org.example.server.stockage.RequetesAnnulables;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Façade asynchrone de BdManager : chaque appel part sur un pool de threads
+ * dédié à la base et rend un CompletableFuture, que l'appelant peut composer
+ * (plusieurs recherches lancées ensemble puis jointes).
+ * <p>
+ * Le pool est borné (DB_ASYNC_THREADS threads, DB_ASYNC_QUEUE_SIZE tâches en
+ * attente) : au-delà, le futur échoue tout de suite avec une
+ * RejectedExecutionException. Chaque thread du pool a sa propre connexion
+ * (MoteurStockage.attacherConnexionThread), ouverte à sa première tâche et
+ * fermée avec lui : les tâches ne s'attendent pas sur la connexion partagée.
+ * Un futur annulé ou non terminé après DB_ASYNC_TIMEOUT_MS (comptés depuis la
+ * soumission, attente dans la file comprise : TimeoutException) retire la
+ * tâche de la file si elle n'a pas commencé et annule sa requête SQL en cours
+ * (Statement.cancel).
+ * </p>
+ * <p>
+ * Les écritures (réservation, annulation) n'ont ni délai ni annulation une
+ * fois commencées : un échec rendu après leur commit ferait croire à tort
+ * qu'elles n'ont pas eu lieu.
+ * </p>
+ * <p>
+ * Les tâches ne voient pas la session du protocole (SessionLectures) : elles
+ * servent aux handlers REST.
+ * </p>
+ */
+public class BdAsync {
+
+    private final BdManager bdManager;
+    private final ThreadPoolExecutor executeur;
+    private final long delaiMs;
+
+
+    /**
+     * Tâche exécutée sur le pool de la base.
+     */
+    public interface AppelBd<T> {
+        T appeler() throws Exception;
+    }
+
+
+    public BdAsync(BdManager bdManager) {
+        this.bdManager = bdManager;
+        int threads = (int) Math.max(1, bdManager.lireNombre("DB_ASYNC_THREADS", 4));
+        int file = (int) Math.max(1, bdManager.lireNombre("DB_ASYNC_QUEUE_SIZE", 100));
+        this.delaiMs = bdManager.lireNombre("DB_ASYNC_TIMEOUT_MS", 5_000);
+        AtomicInteger numero = new AtomicInteger();
+        this.executeur = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(file), r -> {
+                    Thread fil = new Thread(() -> {
+                        try {
+                            r.run();
+                        } finally {
+                            bdManager.detacherConnexionThread();
+                        }
+                    }, "bd-async-" + numero.incrementAndGet());
+                    fil.setDaemon(true);
+                    return fil;
+                });
+        Metriques.jauge("mrps_db_async_queued", "Tâches base asynchrones en attente d'un thread",
+                () -> executeur.getQueue().size());
+        Metriques.jauge("mrps_db_async_active", "Tâches base asynchrones en cours", executeur::getActiveCount);
+    }
+
+
+    public CompletableFuture<List<Doctor>> loadDoctorsAsync(DoctorSearchVM dsearchvm) {
+        return executer(() -> bdManager.loadDoctors(dsearchvm));
+    }
+
+
+    public CompletableFuture<List<Specialty>> getAllSpecialtiesAsync() {
+        return executer(bdManager::getAllSpecialties);
+    }
+
+
+    public CompletableFuture<List<Consultation>> loadConsultationsAsync(ConsultationSearchVM csearchvm) {
+        return executer(() -> bdManager.loadConsultations(csearchvm));
+    }
+
+
+    public CompletableFuture<List<ConsultationCompacte>> loadConsultationsCompactAsync(ConsultationSearchVM csearchvm) {
+        return executer(() -> bdManager.loadConsultationsCompact(csearchvm));
+    }
+
+
+    public CompletableFuture<List<Report>> loadReportsAsync(ReportSearchVM rsearchvm) {
+        return executer(() -> bdManager.loadReports(rsearchvm));
+    }
+
+
+    public CompletableFuture<Boolean> reserverConsultationAsync(int consultationId, int patientId, String raison) {
+        return executerEcriture(() -> bdManager.reserverConsultation(consultationId, patientId, raison));
+    }
+
+
+    public CompletableFuture<Boolean> annulerConsultationAsync(int consultationId) {
+        return executerEcriture(() -> bdManager.annulerConsultation(consultationId));
+    }
+
+
+    /**
+     * Exécute un appel quelconque de BdManager sur le pool, avec le délai par défaut.
+     */
+    public <T> CompletableFuture<T> executer(AppelBd<T> appel) {
+        return soumettre(appel, true);
+    }
+
+
+    /**
+     * Exécute une écriture sur le pool, sans délai : annuler le futur ne la
+     * retire que si elle n'a pas encore commencé.
+     */
+    public <T> CompletableFuture<T> executerEcriture(AppelBd<T> appel) {
+        return soumettre(appel, false);
+    }
+
+
+    private <T> CompletableFuture<T> soumettre(AppelBd<T> appel, boolean annulable) {
+        CompletableFuture<T> resultat = new CompletableFuture<>();
+        RequetesAnnulables.Jeton jeton = annulable ? new RequetesAnnulables.Jeton() : null;
+        Future<?> tache;
+        try {
+            tache = executeur.submit(() -> {
+                if (resultat.isDone()) {
+                    return;
+                }
+                if (jeton != null) {
+                    jeton.attacher();
+                }
+                try {
+                    bdManager.attacherConnexionThread();
+                    resultat.complete(appel.appeler());
+                } catch (Throwable e) {
+                    resultat.completeExceptionally(e);
+                } finally {
+                    if (jeton != null) {
+                        jeton.detacher();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Metriques.compteur("mrps_db_async_aborted_total", "Tâches base asynchrones abandonnées",
+                    "reason", "rejected").increment();
+            resultat.completeExceptionally(e);
+            return resultat;
+        }
+        resultat.whenComplete((valeur, erreur) -> {
+            if (resultat.isCancelled() || erreur instanceof TimeoutException) {
+                Metriques.compteur("mrps_db_async_aborted_total", "Tâches base asynchrones abandonnées",
+                        "reason", resultat.isCancelled() ? "cancelled" : "timeout").increment();
+                tache.cancel(false);
+                executeur.remove((Runnable) tache);
+                if (jeton != null) {
+                    jeton.annuler();
+                }
+            }
+        });
+        if (annulable && delaiMs > 0) {
+            resultat.orTimeout(delaiMs, TimeUnit.MILLISECONDS);
+        }
+        return resultat;
+    }
+
+
+    /**
+     * Laisse les tâches en cours se terminer au plus delaiMs, puis interrompt les autres.
+     */
+    public void arreter(long delaiMs) {
+        executeur.shutdown();
+        try {
+            if (!executeur.awaitTermination(delaiMs, TimeUnit.MILLISECONDS)) {
+                executeur.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executeur.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,34 +1,58 @@
 package org.example.server.bd;
 
-import org.example.server.dao.ConsultationDAO;
-import org.example.server.dao.DoctorDAO;
-import org.example.server.dao.PatientDAO;
 import org.example.server.dao.ReportDAO;
 import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
 import org.example.server.entity.Doctor;
 import org.example.server.entity.Patient;
 import org.example.server.entity.Report;
+import org.example.server.entity.Specialty;
+import org.example.server.journal.JournalRapports;
+import org.example.server.metriques.Metriques;
 import org.example.server.searchvm.ConsultationSearchVM;
 import org.example.server.searchvm.DoctorSearchVM;
 import org.example.server.searchvm.PatientSearchVM;
 import org.example.server.searchvm.ReportSearchVM;
+import org.example.server.stockage.MoteurJdbc;
+import org.example.server.stockage.MoteurMemoire;
+import org.example.server.stockage.MoteurRepliques;
+import org.example.server.stockage.MoteurShards;
+import org.example.server.stockage.MoteurStockage;
+import org.example.server.stockage.SessionLectures;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.sql.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 
 public class BdManager {
     private Properties properties;
-    private Connection connexion;
-
-
-    private DoctorDAO doctorDAO;
-    private PatientDAO patientDAO;
-    private ConsultationDAO consultationDAO;
-    private ReportDAO reportDAO;
+    private MoteurStockage stockage;
+    // null : écriture directe des rapports (REPORT_WRITE_BEHIND=false)
+    private JournalRapports journalRapports;
+    // Attente maximale des écritures d'un médecin avant de servir ses lectures de rapports
+    private static final long ATTENTE_JOURNAL_MS = 5_000;
+
+    private final CoordinateurReservations coordinateurReservations = new CoordinateurReservations();
+    private final List<EcouteurConsultations> ecouteursConsultations = new CopyOnWriteArrayList<>();
+    // Médecin, spécialité, date et heure d'un créneau ne changent pas avec ses réservations :
+    // décrit une fois, il sert à tous les évènements suivants sans relecture
+    private static final int CRENEAUX_DECRITS_MAX = 10_000;
+    private final Map<Integer, EvenementConsultation> creneauxDecrits = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, EvenementConsultation> plusAncien) {
+                    return size() > CRENEAUX_DECRITS_MAX;
+                }
+            });
 
     public BdManager() {
         properties = new Properties();
@@ -47,107 +71,488 @@ public class BdManager {
         }
     }
 
+    /**
+     * Une propriété système (-DDB_URL=...) remplace la valeur de config.properties.
+     */
     public String getProperty(String key) {
-        return properties.getProperty(key);
+        return System.getProperty(key, properties.getProperty(key));
     }
 
 
     public void connecter() throws SQLException {
+        stockage = creerMoteur();
+        stockage.demarrer();
+        if (stockage instanceof MoteurRepliques) {
+            ((MoteurRepliques) stockage).enregistrerJauges();
+        }
+    }
+
+
+    /**
+     * STORAGE_ENGINE : "jdbc" (défaut, MySQL via DB_URL), "memoire"
+     * (STORAGE_SNAPSHOT_FILE, instantané toutes les STORAGE_SNAPSHOT_INTERVAL_SECONDS)
+     * ou "shards" (DB_SHARDS, DB_URL restant le nœud principal).
+     */
+    private MoteurStockage creerMoteur() throws SQLException {
+        String moteur = getProperty("STORAGE_ENGINE");
+        if (moteur == null || moteur.isBlank() || moteur.trim().equals(MoteurJdbc.NOM)) {
+            Map<String, JournalRapports.OuvreurConnexion> repliques = lireRepliques();
+            if (repliques.isEmpty()) {
+                return new MoteurJdbc(this::ouvrirConnexion);
+            }
+            return new MoteurRepliques(this::ouvrirConnexion, repliques,
+                    lireNombre("DB_REPLICA_MAX_LAG_SECONDS", 5), lireNombre("DB_REPLICA_CHECK_INTERVAL_SECONDS", 2));
+        }
+        if (moteur.trim().equals(MoteurMemoire.NOM)) {
+            String fichier = getProperty("STORAGE_SNAPSHOT_FILE");
+            long secondes = lireNombre("STORAGE_SNAPSHOT_INTERVAL_SECONDS", MoteurMemoire.INTERVALLE_PAR_DEFAUT_S);
+            return new MoteurMemoire(Paths.get(fichier != null ? fichier : MoteurMemoire.FICHIER_PAR_DEFAUT),
+                    secondes * 1000);
+        }
+        if (moteur.trim().equals(MoteurShards.NOM)) {
+            return new MoteurShards(this::ouvrirConnexion, lireShards("DB_SHARDS"), lireShards("DB_SHARDS_SORTANTS"),
+                    lireNombre("DB_SHARD_REFRESH_SECONDS", 2));
+        }
+        throw new SQLException("STORAGE_ENGINE inconnu: " + moteur + " (jdbc, memoire ou shards)");
+    }
+
+
+    /**
+     * Nœuds "nom=url,nom=url" (DB_SHARDS, DB_SHARDS_SORTANTS), avec DB_USER et DB_PASSWORD.
+     * Le nom place le nœud sur l'anneau : il ne doit plus changer une fois des données rangées.
+     */
+    public Map<String, JournalRapports.OuvreurConnexion> lireShards(String cle) {
+        Map<String, JournalRapports.OuvreurConnexion> shards = new LinkedHashMap<>();
+        String valeur = getProperty(cle);
+        if (valeur == null || valeur.isBlank()) {
+            return shards;
+        }
+        String user = getProperty("DB_USER");
+        String password = getProperty("DB_PASSWORD");
+        for (String entree : valeur.split(",")) {
+            int egal = entree.indexOf('=');
+            if (egal <= 0) {
+                throw new IllegalArgumentException(cle + " : entrée sans nom (attendu nom=url) : " + entree.trim());
+            }
+            String url = entree.substring(egal + 1).trim();
+            shards.put(entree.substring(0, egal).trim(), () -> DriverManager.getConnection(url, user, password));
+        }
+        return shards;
+    }
+
+
+    /**
+     * DB_REPLICA_URLS : URL des réplicas en lecture, séparées par des virgules.
+     * DB_REPLICA_USER et DB_REPLICA_PASSWORD valent par défaut ceux du primaire.
+     */
+    private Map<String, JournalRapports.OuvreurConnexion> lireRepliques() {
+        Map<String, JournalRapports.OuvreurConnexion> repliques = new LinkedHashMap<>();
+        String urls = getProperty("DB_REPLICA_URLS");
+        if (urls == null || urls.isBlank()) {
+            return repliques;
+        }
+        String user = getProperty("DB_REPLICA_USER") != null ? getProperty("DB_REPLICA_USER") : getProperty("DB_USER");
+        String password = getProperty("DB_REPLICA_PASSWORD") != null
+                ? getProperty("DB_REPLICA_PASSWORD") : getProperty("DB_PASSWORD");
+        for (String url : urls.split(",")) {
+            String replique = url.trim();
+            if (!replique.isEmpty()) {
+                repliques.put(replique, () -> DriverManager.getConnection(replique, user, password));
+            }
+        }
+        return repliques;
+    }
+
+
+    public long lireNombre(String cle, long defaut) {
+        String valeur = getProperty(cle);
+        return valeur == null || valeur.isBlank() ? defaut : Long.parseLong(valeur.trim());
+    }
+
+
+    /**
+     * Nouvelle connexion, indépendante de la connexion partagée (transactions du journal des rapports).
+     */
+    public Connection ouvrirConnexion() throws SQLException {
         String url = getProperty("DB_URL");
         String user = getProperty("DB_USER");
         String password = getProperty("DB_PASSWORD");
-        connexion = DriverManager.getConnection(url, user, password);
+        return DriverManager.getConnection(url, user, password);
+    }
 
 
-        doctorDAO = new DoctorDAO(connexion);
-        patientDAO = new PatientDAO(connexion);
-        consultationDAO = new ConsultationDAO(connexion);
-        reportDAO = new ReportDAO(connexion);
+    /**
+     * Fait passer les ajouts et modifications de rapports par le journal (déjà démarré).
+     */
+    public void utiliserJournal(JournalRapports journal) {
+        this.journalRapports = journal;
     }
 
 
     public void deconnecter() throws SQLException {
-        if (connexion != null && !connexion.isClosed()) {
-            connexion.close();
+        if (stockage != null) {
+            stockage.arreter();
         }
     }
 
 
+    /**
+     * Connexion partagée du moteur JDBC (du nœud principal avec les shards), null avec le moteur mémoire.
+     */
     public Connection getConnection() {
-        return connexion;
+        if (stockage instanceof MoteurShards) {
+            return ((MoteurShards) stockage).getPrincipal().getConnexion();
+        }
+        return stockage instanceof MoteurJdbc ? ((MoteurJdbc) stockage).getConnexion() : null;
+    }
+
+
+    /**
+     * Connexion propre au thread courant (threads de BdAsync), voir MoteurStockage.
+     */
+    public void attacherConnexionThread() throws SQLException {
+        if (stockage != null) {
+            stockage.attacherConnexionThread();
+        }
+    }
+
+
+    public void detacherConnexionThread() {
+        if (stockage != null) {
+            stockage.detacherConnexionThread();
+        }
+    }
+
+
+    public MoteurStockage getStockage() {
+        return stockage;
+    }
+
+
+    /**
+     * Vrai si toutes les tables sont dans la base de DB_URL (moteur jdbc, avec ou sans réplicas).
+     */
+    public boolean utiliseJdbc() {
+        return stockage == null || stockage instanceof MoteurJdbc;
+    }
+
+
+    /**
+     * État de la connexion partagée (il n'y a pas de pool : une seule connexion par processus).
+     */
+    public void enregistrerJauges() {
+        Metriques.jauge("mrps_db_connections_open", "Connexions JDBC ouvertes", () -> {
+            Connection connexion = getConnection();
+            try {
+                return connexion != null && !connexion.isClosed() ? 1 : 0;
+            } catch (SQLException e) {
+                return 0;
+            }
+        });
     }
 
 
 
 
     public String getMotDePasseMedecin(String login) throws SQLException {
-        return doctorDAO.getMotDePasseMedecin(login);
+        return stockage.medecins().getMotDePasseMedecin(login);
     }
 
 
     public boolean medecinExiste(String login) throws SQLException {
-        return doctorDAO.medecinExiste(login);
+        return stockage.medecins().medecinExiste(login);
     }
 
 
     public Integer getIdMedecin(String login) throws SQLException {
-        return doctorDAO.getIdMedecin(login);
+        return stockage.medecins().getIdMedecin(login);
     }
 
 
-    public List<Doctor> loadDoctors(DoctorSearchVM dsearchvm) throws SQLException {
-        return doctorDAO.load(dsearchvm);
+    public List<Doctor> loadDoctors(DoctorSearchVM dsearchvm) {
+        return stockage.medecins().load(dsearchvm);
+    }
+
+
+    public List<Specialty> getAllSpecialties() {
+        return stockage.specialites().getAllSpecialties();
     }
 
 
 
 
     public boolean medecinAConsultationAvecPatient(int medecinId, int patientId) throws SQLException {
-        return consultationDAO.medecinAConsultationAvecPatient(medecinId, patientId);
+        return stockage.consultations().medecinAConsultationAvecPatient(medecinId, patientId);
     }
 
 
-    public List<Consultation> loadConsultations(ConsultationSearchVM csearchvm) throws SQLException {
-        return consultationDAO.load(csearchvm);
+    public List<Consultation> loadConsultations(ConsultationSearchVM csearchvm) {
+        return stockage.consultations().load(csearchvm);
+    }
+
+
+    /**
+     * Même liste que loadConsultations, en ConsultationCompacte (entiers au lieu
+     * d'objets, identité du patient partagée entre ses consultations).
+     */
+    public List<ConsultationCompacte> loadConsultationsCompact(ConsultationSearchVM csearchvm) {
+        return stockage.consultations().loadCompact(csearchvm);
+    }
+
+
+    public boolean reserverConsultation(int consultationId, int patientId, String raison) {
+        boolean succes = coordinateurReservations.reserver(consultationId,
+                () -> stockage.consultations().bookConsultation(consultationId, patientId, raison));
+        if (succes) {
+            publierEvenement(EvenementConsultation.TYPE_RESERVE, consultationId);
+        }
+        return succes;
+    }
+
+
+    public boolean annulerConsultation(int consultationId) {
+        boolean succes = stockage.consultations().cancelConsultation(consultationId);
+        if (succes) {
+            coordinateurReservations.liberer(consultationId);
+            publierEvenement(EvenementConsultation.TYPE_LIBERE, consultationId);
+        }
+        return succes;
+    }
+
+
+    public void ajouterEcouteurConsultations(EcouteurConsultations ecouteur) {
+        ecouteursConsultations.add(ecouteur);
+    }
+
+
+    public void retirerEcouteurConsultations(EcouteurConsultations ecouteur) {
+        ecouteursConsultations.remove(ecouteur);
+    }
+
+
+    private void publierEvenement(String type, int consultationId) {
+        if (ecouteursConsultations.isEmpty()) {
+            return;
+        }
+        try {
+            EvenementConsultation creneau = decrireCreneau(consultationId);
+            if (creneau == null) {
+                return;
+            }
+            EvenementConsultation evenement = new EvenementConsultation(type, consultationId,
+                    creneau.getDoctorId(), creneau.getDoctorName(), creneau.getSpecialty(), creneau.getDate(),
+                    creneau.getHour());
+            for (EcouteurConsultations ecouteur : ecouteursConsultations) {
+                ecouteur.surEvenement(evenement);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la publication de l'événement consultation: " + e.getMessage());
+        }
+    }
+
+
+    // Relu seulement à la première réservation ou annulation du créneau depuis le démarrage
+    private EvenementConsultation decrireCreneau(int consultationId) throws SQLException {
+        EvenementConsultation creneau = creneauxDecrits.get(consultationId);
+        if (creneau != null) {
+            return creneau;
+        }
+        Consultation consultation = stockage.consultations().findById(consultationId);
+        if (consultation == null) {
+            return null;
+        }
+        creneau = new EvenementConsultation(null, consultationId, consultation.getDoctor_id(),
+                consultation.getDoctor_last_name(), consultation.getSpecialty_name(), consultation.getDate(),
+                consultation.getHour());
+        creneauxDecrits.put(consultationId, creneau);
+        return creneau;
+    }
+
+
+    public CoordinateurReservations getCoordinateurReservations() {
+        return coordinateurReservations;
     }
 
 
 
 
     public List<Patient> listerTousPatients() throws SQLException {
-        return patientDAO.load();
+        return stockage.patients().load();
     }
 
 
     public List<Patient> load(PatientSearchVM psearchvm) throws SQLException {
-        return patientDAO.load(psearchvm);
+        return stockage.patients().load(psearchvm);
+    }
+
+
+    /**
+     * @return l'id attribué, -1 en cas d'échec
+     */
+    public int creerPatient(Patient patient) {
+        return stockage.patients().create(patient);
+    }
+
+
+    public Integer trouverPatient(String nom, String prenom, String naissance) {
+        return stockage.patients().findByDetails(nom, prenom, naissance);
     }
 
 
 
 
     public int ajouterRapport(int medecinId, int patientId, String date, String texteRapport) throws SQLException {
-        return reportDAO.ajouterRapport(medecinId, patientId, date, texteRapport);
+        return ajouterRapport(medecinId, patientId, date, texteRapport, null);
+    }
+
+
+    /**
+     * Avec le journal, une clé déjà vue (client qui réessaie) redonne l'id du
+     * rapport sans nouvelle insertion. Sans journal, la clé est ignorée.
+     */
+    public int ajouterRapport(int medecinId, int patientId, String date, String texteRapport, String cleIdempotence)
+            throws SQLException {
+        if (journalRapports == null) {
+            return stockage.rapports().ajouterRapport(medecinId, patientId, date, texteRapport);
+        }
+        String cle = cleMedecin(medecinId, cleIdempotence);
+        Integer dejaEcrit = trouverEcriture(cle);
+        if (dejaEcrit != null) {
+            return dejaEcrit;
+        }
+        try {
+            int rapportId = journalRapports.ajouter(medecinId, patientId, date, texteRapport, cle);
+            SessionLectures.ecritureFaite();
+            return rapportId;
+        } catch (IOException e) {
+            throw new SQLException("Journal des rapports indisponible: " + e.getMessage(), e);
+        }
     }
 
 
     public boolean modifierRapport(int rapportId, String nouveauTexte, int medecinId) throws SQLException {
-        return reportDAO.modifierRapport(rapportId, nouveauTexte, medecinId);
+        return modifierRapport(rapportId, nouveauTexte, medecinId, null);
+    }
+
+
+    public boolean modifierRapport(int rapportId, String nouveauTexte, int medecinId, String cleIdempotence)
+            throws SQLException {
+        if (journalRapports == null) {
+            return stockage.rapports().modifierRapport(rapportId, nouveauTexte, medecinId);
+        }
+        String cle = cleMedecin(medecinId, cleIdempotence);
+        if (trouverEcriture(cle) != null) {
+            return true;
+        }
+        // Le contrôle d'appartenance ne peut pas attendre l'application en base
+        if (stockage.rapports().trouverRapport(rapportId, medecinId) == null
+                && !journalRapports.estAjoutEnAttente(rapportId, medecinId)) {
+            return false;
+        }
+        try {
+            journalRapports.modifier(rapportId, nouveauTexte, medecinId, cle);
+            SessionLectures.ecritureFaite();
+            return true;
+        } catch (IOException e) {
+            throw new SQLException("Journal des rapports indisponible: " + e.getMessage(), e);
+        }
+    }
+
+
+    // Une clé n'a de sens que pour le médecin qui l'a envoyée
+    private static String cleMedecin(int medecinId, String cleIdempotence) {
+        return cleIdempotence == null ? null : medecinId + ":" + cleIdempotence;
+    }
+
+
+    // Le journal d'abord : une entrée n'en sort qu'une fois sa clé en base
+    private Integer trouverEcriture(String cle) throws SQLException {
+        if (cle == null) {
+            return null;
+        }
+        Integer rapportId = journalRapports.trouverEnAttente(cle);
+        return rapportId != null ? rapportId : stockage.rapports().trouverRapportParCle(cle);
+    }
+
+
+    // Avec le journal, un médecin doit relire les écritures qui lui ont déjà été acquittées
+    private void attendreEcritures(int medecinId) throws SQLException {
+        if (journalRapports == null) {
+            return;
+        }
+        try {
+            if (!journalRapports.attendreApplication(medecinId, ATTENTE_JOURNAL_MS)) {
+                throw new SQLException("Écritures de rapports pas encore appliquées en base");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Lecture des rapports interrompue", e);
+        }
     }
 
 
     public List<ReportDAO.Rapport> listerRapportsMedecin(int medecinId) throws SQLException {
-        return reportDAO.listerRapportsMedecin(medecinId);
+        attendreEcritures(medecinId);
+        return stockage.rapports().listerRapportsMedecin(medecinId);
     }
 
 
     public List<ReportDAO.Rapport> listerRapportsMedecinPatient(int medecinId, int patientId) throws SQLException {
-        return reportDAO.listerRapportsMedecinPatient(medecinId, patientId);
+        attendreEcritures(medecinId);
+        return stockage.rapports().listerRapportsMedecinPatient(medecinId, patientId);
+    }
+
+
+    public List<ReportDAO.Rapport> listerRapportsModifiesDepuis(int medecinId, long depuisMs) throws SQLException {
+        attendreEcritures(medecinId);
+        return stockage.rapports().listerRapportsModifiesDepuis(medecinId, depuisMs);
+    }
+
+
+    public List<ReportDAO.Rapport> listerPageRapports(int medecinId, int patientId, int debut, int taille)
+            throws SQLException {
+        attendreEcritures(medecinId);
+        return stockage.rapports().listerPageRapports(medecinId, patientId, debut, taille);
+    }
+
+
+    public int compterRapports(int medecinId, int patientId) throws SQLException {
+        attendreEcritures(medecinId);
+        return stockage.rapports().compterRapports(medecinId, patientId);
+    }
+
+
+    public ReportDAO.Rapport trouverRapport(int rapportId, int medecinId) throws SQLException {
+        attendreEcritures(medecinId);
+        return stockage.rapports().trouverRapport(rapportId, medecinId);
     }
 
 
     public List<Report> loadReports(ReportSearchVM rsearchvm) throws SQLException {
-        return reportDAO.load(rsearchvm);
+        return stockage.rapports().load(rsearchvm);
+    }
+
+
+    /**
+     * Variantes de load lues au fil de l'eau (exports) : le flux doit être fermé après lecture.
+     */
+    public Stream<Report> fluxRapports(ReportSearchVM rsearchvm) throws SQLException {
+        return stockage.rapports().flux(rsearchvm);
+    }
+
+
+    public Stream<Consultation> fluxConsultations(ConsultationSearchVM csearchvm) throws SQLException {
+        return stockage.consultations().flux(csearchvm);
+    }
+
+
+    public Stream<Patient> fluxPatients(PatientSearchVM psearchvm) throws SQLException {
+        return stockage.patients().flux(psearchvm);
+    }
+
+
+    public Stream<Doctor> fluxMedecins(DoctorSearchVM dsearchvm) throws SQLException {
+        return stockage.medecins().flux(dsearchvm);
     }
 
 
@@ -0,0 +1,182 @@
+package org.example.server.bd;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Coordonne les réservations concurrentes d'un même créneau de consultation.
+ * <p>
+ * Chaque créneau a un état sans verrou (un AtomicLong) :
+ * -1 = réservation en cours, > 0 = pris (ou refusé) jusqu'à ce timestamp,
+ * -2 = entrée retirée de la table. Un seul appelant passe à "en cours" par
+ * compareAndSet et part en base, les autres sont refusés immédiatement sans
+ * toucher à la connexion partagée.
+ * </p>
+ * <p>
+ * Un créneau pris n'est retenu que DUREE_PRIS_MS : une annulation faite ailleurs
+ * (autre serveur, SQL) redevient visible ensuite. Un id inconnu refusé dès sa
+ * première écriture ne laisse pas d'entrée, et les entrées expirées sont
+ * balayées toutes les BALAYAGE tentatives : la table reste bornée.
+ * </p>
+ */
+public class CoordinateurReservations {
+
+    // Retour de prendreLaMain quand l'appelant a la main
+    private static final long OBTENUE = 0L;
+    private static final long EN_COURS = -1L;
+    private static final long RETIREE = -2L;
+    private static final long DUREE_PRIS_MS = 300_000;
+    private static final int BALAYAGE = 1_024;
+
+    // Un refus de la base (créneau déjà pris ailleurs, ou erreur SQL) n'est retenu
+    // que temporairement, pour se resynchroniser avec la table sans annulation explicite
+    private static final long DUREE_REFUS_MS = 30_000;
+
+    private final ConcurrentHashMap<Integer, AtomicLong> etats = new ConcurrentHashMap<>();
+    private final AtomicInteger avantBalayage = new AtomicInteger(BALAYAGE);
+
+    private final LongAdder tentatives = new LongAdder();
+    private final LongAdder gagnants = new LongAdder();
+    private final LongAdder rejetsRapides = new LongAdder();
+    private final LongAdder refusBd = new LongAdder();
+
+
+    public boolean reserver(int consultationId, BooleanSupplier ecritureBd) {
+        tentatives.increment();
+        if (avantBalayage.decrementAndGet() <= 0) {
+            avantBalayage.set(BALAYAGE);
+            balayer();
+        }
+
+        AtomicLong etat;
+        boolean creee;
+        while (true) {
+            AtomicLong nouvel = new AtomicLong(EN_COURS);
+            AtomicLong existant = etats.putIfAbsent(consultationId, nouvel);
+            if (existant == null) {
+                etat = nouvel;
+                creee = true;
+                break;
+            }
+            long resultat = prendreLaMain(existant);
+            if (resultat == RETIREE) {
+                // Balayée entre-temps : on repart d'une nouvelle entrée
+                etats.remove(consultationId, existant);
+                continue;
+            }
+            if (resultat != OBTENUE) {
+                rejetsRapides.increment();
+                return false;
+            }
+            etat = existant;
+            creee = false;
+            break;
+        }
+
+        boolean succes = false;
+        try {
+            succes = ecritureBd.getAsBoolean();
+        } finally {
+            if (succes) {
+                gagnants.increment();
+                etat.set(System.currentTimeMillis() + DUREE_PRIS_MS);
+            } else {
+                refusBd.increment();
+                if (creee) {
+                    etat.set(RETIREE);
+                    etats.remove(consultationId, etat);
+                } else {
+                    etat.set(System.currentTimeMillis() + DUREE_REFUS_MS);
+                }
+            }
+        }
+        return succes;
+    }
+
+
+    /**
+     * À appeler après une annulation réussie : le créneau redevient réservable.
+     */
+    public void liberer(int consultationId) {
+        etats.remove(consultationId);
+    }
+
+
+    public void oublierTout() {
+        etats.clear();
+    }
+
+
+    /**
+     * OBTENUE si l'appelant a la main, RETIREE si l'entrée n'est plus dans la
+     * table, sinon l'état qui l'a fait refuser.
+     */
+    private long prendreLaMain(AtomicLong etat) {
+        while (true) {
+            long valeur = etat.get();
+            if (valeur == EN_COURS || valeur == RETIREE) {
+                return valeur;
+            }
+            if (valeur > System.currentTimeMillis()) {
+                return valeur;
+            }
+            // Pris ou refusé, mais expiré : on tente de devenir l'unique gagnant
+            if (etat.compareAndSet(valeur, EN_COURS)) {
+                return OBTENUE;
+            }
+        }
+    }
+
+
+    /**
+     * Retire les entrées expirées ; une entrée n'est retirée qu'après être passée
+     * à RETIREE, pour qu'aucun appelant ne la reprenne en même temps.
+     */
+    private void balayer() {
+        long maintenant = System.currentTimeMillis();
+        for (Map.Entry<Integer, AtomicLong> entree : etats.entrySet()) {
+            AtomicLong etat = entree.getValue();
+            long valeur = etat.get();
+            if (valeur > 0 && valeur <= maintenant && etat.compareAndSet(valeur, RETIREE)) {
+                etats.remove(entree.getKey(), etat);
+            }
+        }
+    }
+
+
+    public long getTentatives() {
+        return tentatives.sum();
+    }
+
+
+    public long getGagnants() {
+        return gagnants.sum();
+    }
+
+
+    public long getRejetsRapides() {
+        return rejetsRapides.sum();
+    }
+
+
+    public long getRefusBd() {
+        return refusBd.sum();
+    }
+
+
+    public Map<String, Long> statistiques() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("attempts", getTentatives());
+        stats.put("winners", getGagnants());
+        stats.put("fastRejects", getRejetsRapides());
+        stats.put("dbRejects", getRefusBd());
+        stats.put("trackedSlots", (long) etats.size());
+        return stats;
+    }
+}
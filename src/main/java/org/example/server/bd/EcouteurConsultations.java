@@ -0,0 +1,8 @@
+package org.example.server.bd;
+
+
+public interface EcouteurConsultations {
+
+
+    void surEvenement(EvenementConsultation evenement);
+}
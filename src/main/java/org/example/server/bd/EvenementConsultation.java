@@ -0,0 +1,59 @@
+package org.example.server.bd;
+
+
+/**
+ * Changement de disponibilité d'un créneau, publié après une réservation
+ * ou une annulation réussie.
+ */
+public class EvenementConsultation {
+
+    public static final String TYPE_RESERVE = "slot-booked";
+    public static final String TYPE_LIBERE = "slot-freed";
+
+    private final String type;
+    private final int consultationId;
+    private final Integer doctorId;
+    private final String doctorName;
+    private final String specialty;
+    private final String date;
+    private final String hour;
+
+    public EvenementConsultation(String type, int consultationId, Integer doctorId, String doctorName,
+                                 String specialty, String date, String hour) {
+        this.type = type;
+        this.consultationId = consultationId;
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.specialty = specialty;
+        this.date = date;
+        this.hour = hour;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getConsultationId() {
+        return consultationId;
+    }
+
+    public Integer getDoctorId() {
+        return doctorId;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getHour() {
+        return hour;
+    }
+}
@@ -0,0 +1,260 @@
+package org.example.server.bd;
+
+import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.ConsultationSearchVM;
+import org.example.server.stockage.FusionTriee;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Créneaux libres à venir de chaque médecin, triés par date puis heure, pour
+ * trouver les k premiers d'une spécialité sans relire la base
+ * (/api/consultations/next).
+ * <p>
+ * Un créneau est une clé long (date, seconde, id) dans un ensemble trié par
+ * médecin ; un créneau sans heure n'est pas indexé. Les k premiers sur
+ * plusieurs médecins sortent d'une fusion par tas des ensembles (FusionTriee),
+ * arrêtée après k éléments.
+ * </p>
+ * <p>
+ * Les réservations et annulations de ce serveur mettent l'index à jour dès
+ * l'évènement. Toutes les AVAILABILITY_REFRESH_SECONDS, il est reconstruit depuis
+ * la base (créneaux créés ou réservés ailleurs, médecins et spécialités) ; les
+ * évènements reçus pendant la relecture sont rejoués sur le nouvel index.
+ * </p>
+ */
+public class IndexDisponibilites implements EcouteurConsultations {
+
+    public static final int K_MAX = 100;
+
+    // Clé : jours depuis 1970 (bits 48-63), seconde du jour (bits 31-47), id (bits 0-30),
+    // comparée sans signe : les jours tiennent sur 16 bits jusqu'en 2149
+    private static final int DECALAGE_DATE = 48;
+    private static final int DECALAGE_SECONDE = 31;
+    private static final long MASQUE_SECONDE = (1L << 17) - 1;
+    private static final long MASQUE_ID = (1L << 31) - 1;
+    private static final Comparator<Long> ORDRE = Long::compareUnsigned;
+
+    private final BdManager bdManager;
+    private final long rafraichissementS;
+    private final AtomicInteger libres = new AtomicInteger();
+    private volatile Index index;
+    // Évènements reçus pendant une reconstruction, null sinon
+    private List<EvenementConsultation> enAttente;
+    private ScheduledExecutorService planificateur;
+
+
+    private static final class Index {
+        final Map<Integer, NavigableSet<Long>> creneaux = new ConcurrentHashMap<>();
+        final Map<String, List<Integer>> medecinsParSpecialite = new HashMap<>();
+        final Map<Integer, Doctor> medecins = new HashMap<>();
+        final Map<Integer, String> specialites = new HashMap<>();
+
+        NavigableSet<Long> de(int medecinId) {
+            return creneaux.computeIfAbsent(medecinId, m -> new ConcurrentSkipListSet<>(ORDRE));
+        }
+    }
+
+
+    public IndexDisponibilites(BdManager bdManager) {
+        this.bdManager = bdManager;
+        this.rafraichissementS = Math.max(1, bdManager.lireNombre("AVAILABILITY_REFRESH_SECONDS", 60));
+        Metriques.jauge("mrps_availability_free_slots", "Créneaux libres à venir dans l'index des disponibilités",
+                libres::get);
+    }
+
+
+    /**
+     * Première construction en arrière-plan (la recherche répond 503 d'ici là),
+     * puis reconstructions périodiques.
+     */
+    public void demarrer() {
+        bdManager.ajouterEcouteurConsultations(this);
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread fil = new Thread(r, "index-disponibilites");
+            fil.setDaemon(true);
+            return fil;
+        });
+        planificateur.scheduleWithFixedDelay(() -> {
+            try {
+                reconstruire();
+            } catch (RuntimeException e) {
+                System.err.println("Erreur lors de la reconstruction de l'index des disponibilités: "
+                        + e.getMessage());
+            }
+        }, 0, rafraichissementS, TimeUnit.SECONDS);
+    }
+
+
+    public void arreter() {
+        bdManager.retirerEcouteurConsultations(this);
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+        }
+    }
+
+
+    public boolean estPret() {
+        return index != null;
+    }
+
+
+    private void reconstruire() {
+        synchronized (this) {
+            enAttente = new ArrayList<>();
+        }
+        Index nouvel = new Index();
+        int total = 0;
+        try {
+            Map<Integer, String> specialites = new HashMap<>();
+            for (Specialty s : bdManager.getAllSpecialties()) {
+                specialites.put(s.getId(), s.getName());
+            }
+            for (Doctor d : bdManager.loadDoctors(null)) {
+                nouvel.medecins.put(d.getId(), d);
+                String specialite = specialites.get(d.getSpecialite_id());
+                if (specialite != null) {
+                    nouvel.specialites.put(d.getId(), specialite);
+                    nouvel.medecinsParSpecialite.computeIfAbsent(specialite.toLowerCase(Locale.ROOT),
+                            s -> new ArrayList<>()).add(d.getId());
+                }
+            }
+            ConsultationSearchVM aVenir = new ConsultationSearchVM();
+            aVenir.setDateFrom(LocalDate.now().toString());
+            for (ConsultationCompacte c : bdManager.loadConsultationsCompact(aVenir)) {
+                if (c.estLibre() && c.getHeure() != ConsultationCompacte.HEURE_AUCUNE
+                        && nouvel.de(c.getMedecinId()).add(cle(c.getDate(), c.getHeure(), c.getId()))) {
+                    total++;
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                enAttente = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            index = nouvel;
+            libres.set(total);
+            for (EvenementConsultation evenement : enAttente) {
+                appliquer(nouvel, evenement);
+            }
+            enAttente = null;
+        }
+    }
+
+
+    @Override
+    public synchronized void surEvenement(EvenementConsultation evenement) {
+        if (enAttente != null) {
+            enAttente.add(evenement);
+        }
+        Index courant = index;
+        if (courant != null) {
+            appliquer(courant, evenement);
+        }
+    }
+
+
+    private void appliquer(Index courant, EvenementConsultation evenement) {
+        if (evenement.getDoctorId() == null || evenement.getDate() == null
+                || evenement.getHour() == null || evenement.getHour().isEmpty()) {
+            return;
+        }
+        long cle = cle((int) LocalDate.parse(evenement.getDate()).toEpochDay(),
+                LocalTime.parse(evenement.getHour()).toSecondOfDay(), evenement.getConsultationId());
+        NavigableSet<Long> creneaux = courant.de(evenement.getDoctorId());
+        if (EvenementConsultation.TYPE_RESERVE.equals(evenement.getType())) {
+            if (creneaux.remove(cle)) {
+                libres.decrementAndGet();
+            }
+        } else if (creneaux.add(cle)) {
+            libres.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Les k créneaux libres les plus proches à partir de debut (aujourd'hui et
+     * l'heure courante si null), parmi les médecins de la spécialité (tous si null).
+     *
+     * @throws IllegalStateException si la première construction n'est pas terminée
+     */
+    public List<Consultation> suivants(String specialite, LocalDate debut, int k) {
+        Index courant = index;
+        if (courant == null) {
+            throw new IllegalStateException("Index des disponibilités en cours de construction");
+        }
+        Iterable<Integer> medecins = specialite == null ? courant.creneaux.keySet()
+                : courant.medecinsParSpecialite.getOrDefault(specialite.toLowerCase(Locale.ROOT), List.of());
+        long borne = borne(debut);
+
+        // Élément fusionné : { clé, médecin }
+        List<Stream<long[]>> flux = new ArrayList<>();
+        for (Integer medecinId : medecins) {
+            NavigableSet<Long> creneaux = courant.creneaux.get(medecinId);
+            if (creneaux != null && !creneaux.isEmpty()) {
+                flux.add(creneaux.tailSet(borne, true).stream().map(cle -> new long[] { cle, medecinId }));
+            }
+        }
+        List<long[]> premiers;
+        try (Stream<long[]> fusion = FusionTriee.fusionnerFlux(flux, (a, b) -> Long.compareUnsigned(a[0], b[0]))) {
+            premiers = fusion.limit(Math.max(0, Math.min(k, K_MAX))).collect(Collectors.toList());
+        }
+
+        List<Consultation> resultat = new ArrayList<>(premiers.size());
+        for (long[] premier : premiers) {
+            long cle = premier[0];
+            int medecinId = (int) premier[1];
+            Consultation c = new Consultation();
+            c.setId((int) (cle & MASQUE_ID));
+            c.setDoctor_id(medecinId);
+            c.setDate(LocalDate.ofEpochDay(cle >>> DECALAGE_DATE).toString());
+            long seconde = (cle >>> DECALAGE_SECONDE) & MASQUE_SECONDE;
+            c.setHour(LocalTime.ofSecondOfDay(seconde).format(DateTimeFormatter.ISO_LOCAL_TIME));
+            Doctor medecin = courant.medecins.get(medecinId);
+            if (medecin != null) {
+                c.setDoctor_last_name(medecin.getLast_name());
+            }
+            c.setSpecialty_name(courant.specialites.get(medecinId));
+            resultat.add(c);
+        }
+        return resultat;
+    }
+
+
+    private static long borne(LocalDate debut) {
+        LocalDate aujourdHui = LocalDate.now();
+        if (debut != null && debut.isAfter(aujourdHui)) {
+            return cle((int) debut.toEpochDay(), 0, 0);
+        }
+        return cle((int) aujourdHui.toEpochDay(), LocalTime.now().toSecondOfDay(), 0);
+    }
+
+
+    private static long cle(int date, int seconde, int id) {
+        return ((long) date << DECALAGE_DATE) | ((long) seconde << DECALAGE_SECONDE) | (id & MASQUE_ID);
+    }
+}
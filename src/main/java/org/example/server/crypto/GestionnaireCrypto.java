@@ -1,6 +1,8 @@
 package org.example.server.crypto;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.example.server.metriques.Histogramme;
+import org.example.server.metriques.Metriques;
 
 import javax.crypto.*;
 import javax.crypto.spec.SecretKeySpec;
@@ -21,12 +23,27 @@ public class GestionnaireCrypto {
     private static final int TAILLE_CLE_AES = 256;
     private static final int TAILLE_CLE_RSA = 2048;
 
+    private static final Histogramme DUREE_CHIFFRER_AES = duree("aes_encrypt");
+    private static final Histogramme DUREE_DECHIFFRER_AES = duree("aes_decrypt");
+    private static final Histogramme DUREE_CHIFFRER_RSA = duree("rsa_encrypt");
+    private static final Histogramme DUREE_DECHIFFRER_RSA = duree("rsa_decrypt");
+    private static final Histogramme DUREE_DIGEST_SALE = duree("salted_digest");
+    private static final Histogramme DUREE_SIGNER = duree("sign");
+    private static final Histogramme DUREE_VERIFIER_SIGNATURE = duree("verify_signature");
+    private static final Histogramme DUREE_HMAC = duree("hmac");
+
     static {
 
         Security.addProvider(new BouncyCastleProvider()); // le provider c'est un ensemble d'algorithmes de chiffrement et de fonctions cryptographiques
     }
 
 
+    private static Histogramme duree(String operation) {
+        return Metriques.histogramme("mrps_crypto_duration_seconds", "Durée des primitives cryptographiques",
+                "op", operation);
+    }
+
+
     public static SecretKey genererCleSession() throws NoSuchAlgorithmException {
         KeyGenerator generateur = KeyGenerator.getInstance(ALGORITHME_SYMETRIQUE);
         generateur.init(TAILLE_CLE_AES);
@@ -42,65 +59,105 @@ public class GestionnaireCrypto {
 
     // Chiffre les données avec AES elle sert a chiffrer les données de la session
     public static byte[] chiffrerAES(byte[] donnees, SecretKey cle) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHME_SYMETRIQUE);
-        cipher.init(Cipher.ENCRYPT_MODE, cle);
-        return cipher.doFinal(donnees); // retourne les données chiffrées (le dofinal effectue l'opération de chiffrement)
+        long debut = System.nanoTime();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHME_SYMETRIQUE);
+            cipher.init(Cipher.ENCRYPT_MODE, cle);
+            return cipher.doFinal(donnees); // retourne les données chiffrées (le dofinal effectue l'opération de chiffrement)
+        } finally {
+            DUREE_CHIFFRER_AES.enregistrerDepuis(debut);
+        }
     }
 
     // on l'utilise pour déchiffrer les données de la session
     public static byte[] dechiffrerAES(byte[] donnees, SecretKey cle) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHME_SYMETRIQUE);
-        cipher.init(Cipher.DECRYPT_MODE, cle);
-        return cipher.doFinal(donnees);
+        long debut = System.nanoTime();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHME_SYMETRIQUE);
+            cipher.init(Cipher.DECRYPT_MODE, cle);
+            return cipher.doFinal(donnees);
+        } finally {
+            DUREE_DECHIFFRER_AES.enregistrerDepuis(debut);
+        }
     }
 
 
     public static byte[] chiffrerRSA(byte[] donnees, PublicKey clePublique) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHME_ASYMETRIQUE);
-        cipher.init(Cipher.ENCRYPT_MODE, clePublique);
-        return cipher.doFinal(donnees);
+        long debut = System.nanoTime();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHME_ASYMETRIQUE);
+            cipher.init(Cipher.ENCRYPT_MODE, clePublique);
+            return cipher.doFinal(donnees);
+        } finally {
+            DUREE_CHIFFRER_RSA.enregistrerDepuis(debut);
+        }
     }
 
 
     public static byte[] dechiffrerRSA(byte[] donnees, PrivateKey clePrivee) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHME_ASYMETRIQUE);
-        cipher.init(Cipher.DECRYPT_MODE, clePrivee);
-        return cipher.doFinal(donnees);
+        long debut = System.nanoTime();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHME_ASYMETRIQUE);
+            cipher.init(Cipher.DECRYPT_MODE, clePrivee);
+            return cipher.doFinal(donnees);
+        } finally {
+            DUREE_DECHIFFRER_RSA.enregistrerDepuis(debut);
+        }
     }
 
 
     // on calcule le digest salé pour le mot de passe de l'utilisateur(le digest c'est une empreinte numérique)
     public static byte[] calculerDigestSale(String login, String motDePasse, byte[] sel)
             throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance(ALGORITHME_HASH);
-        digest.update(login.getBytes());
-        digest.update(motDePasse.getBytes());
-        digest.update(sel);
-        return digest.digest();
+        long debut = System.nanoTime();
+        try {
+            MessageDigest digest = MessageDigest.getInstance(ALGORITHME_HASH);
+            digest.update(login.getBytes());
+            digest.update(motDePasse.getBytes());
+            digest.update(sel);
+            return digest.digest();
+        } finally {
+            DUREE_DIGEST_SALE.enregistrerDepuis(debut);
+        }
     }
 
 
     public static byte[] signer(byte[] donnees, PrivateKey clePrivee) throws Exception {
-        Signature signature = Signature.getInstance(ALGORITHME_SIGNATURE);
-        signature.initSign(clePrivee);
-        signature.update(donnees);
-        return signature.sign();
+        long debut = System.nanoTime();
+        try {
+            Signature signature = Signature.getInstance(ALGORITHME_SIGNATURE);
+            signature.initSign(clePrivee);
+            signature.update(donnees);
+            return signature.sign();
+        } finally {
+            DUREE_SIGNER.enregistrerDepuis(debut);
+        }
     }
 
 
     public static boolean verifierSignature(byte[] donnees, byte[] signatureBytes, PublicKey clePublique)
             throws Exception {
-        Signature signature = Signature.getInstance(ALGORITHME_SIGNATURE);
-        signature.initVerify(clePublique); // la cle c'est a qui on veut verifier la signature
-        signature.update(donnees);
-        return signature.verify(signatureBytes);
+        long debut = System.nanoTime();
+        try {
+            Signature signature = Signature.getInstance(ALGORITHME_SIGNATURE);
+            signature.initVerify(clePublique); // la cle c'est a qui on veut verifier la signature
+            signature.update(donnees);
+            return signature.verify(signatureBytes);
+        } finally {
+            DUREE_VERIFIER_SIGNATURE.enregistrerDepuis(debut);
+        }
     }
 
     // je l'utilise pour calculer le HMAC des messages échangés entre le client et le serveur pour garantir l'intégrité et l'authenticité des messages
     public static byte[] calculerHMAC(byte[] donnees, SecretKey cle) throws Exception {
-        Mac mac = Mac.getInstance(ALGORITHME_HMAC);
-        mac.init(cle);
-        return mac.doFinal(donnees);
+        long debut = System.nanoTime();
+        try {
+            Mac mac = Mac.getInstance(ALGORITHME_HMAC);
+            mac.init(cle);
+            return mac.doFinal(donnees);
+        } finally {
+            DUREE_HMAC.enregistrerDepuis(debut);
+        }
     }
 
     // je l'utilise pour vérifier le HMAC des messages échangés entre le client et le serveur
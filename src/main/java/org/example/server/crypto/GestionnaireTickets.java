@@ -0,0 +1,211 @@
+package org.example.server.crypto;
+
+import org.example.shared.Protocol;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+
+/**
+ * Tickets de reprise de session (sans état côté serveur).
+ * <p>
+ * Après un LOGIN réussi, le serveur remet au client un ticket chiffré en AES-GCM
+ * avec une clé connue de lui seul. Le ticket contient l'id du médecin, son login,
+ * la clé de session et une date d'expiration. Après une coupure réseau, le client
+ * envoie RESUME|ticket|horodatage|HMAC : le serveur retrouve la session en un
+ * aller-retour, sans RSA ni requête en base. Le HMAC (calculé avec la clé de
+ * session) prouve que le client possède la clé et pas seulement le ticket.
+ * </p>
+ * La clé des tickets change à chaque durée de validité ; la précédente reste
+ * acceptée jusqu'à expiration des tickets qu'elle a chiffrés. Un redémarrage du
+ * serveur invalide tous les tickets (le client refait alors un LOGIN complet).
+ */
+public final class GestionnaireTickets {
+
+    public static final long DUREE_VALIDITE_MS = 10 * 60_000L;
+    // Écart toléré entre l'horloge du client et celle du serveur
+    public static final long DERIVE_HORLOGE_MS = 60_000L;
+
+    private static final int TAILLE_IV = 12;
+    private static final int TAILLE_TAG_BITS = 128;
+    private static final SecureRandom ALEATOIRE = new SecureRandom();
+
+    private static Cle courante = nouvelleCle((byte) 0);
+    private static Cle precedente;
+
+
+    private GestionnaireTickets() {
+    }
+
+
+    /**
+     * Session retrouvée dans un ticket valide.
+     */
+    public static final class Session {
+        private final int medecinId;
+        private final String login;
+        private final SecretKey cleSession;
+
+        private Session(int medecinId, String login, SecretKey cleSession) {
+            this.medecinId = medecinId;
+            this.login = login;
+            this.cleSession = cleSession;
+        }
+
+        public int getMedecinId() {
+            return medecinId;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public SecretKey getCleSession() {
+            return cleSession;
+        }
+    }
+
+
+    /**
+     * Ticket en Base64 : id de clé (1) | IV (12) | contenu chiffré + tag GCM.
+     */
+    public static String emettre(int medecinId, String login, SecretKey cleSession) throws GeneralSecurityException {
+        Cle cle = cleCourante(System.currentTimeMillis());
+        byte[] octetsLogin = login.getBytes(StandardCharsets.UTF_8);
+        byte[] octetsCle = cleSession.getEncoded();
+        ByteBuffer clair = ByteBuffer.allocate(8 + 4 + 1 + octetsCle.length + octetsLogin.length);
+        clair.putLong(System.currentTimeMillis() + DUREE_VALIDITE_MS);
+        clair.putInt(medecinId);
+        clair.put((byte) octetsCle.length);
+        clair.put(octetsCle);
+        clair.put(octetsLogin);
+
+        byte[] iv = new byte[TAILLE_IV];
+        ALEATOIRE.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, cle.cle, new GCMParameterSpec(TAILLE_TAG_BITS, iv));
+        cipher.updateAAD(new byte[] { cle.id });
+        byte[] chiffre = cipher.doFinal(clair.array());
+        Arrays.fill(clair.array(), (byte) 0);
+
+        ByteBuffer ticket = ByteBuffer.allocate(1 + TAILLE_IV + chiffre.length);
+        ticket.put(cle.id).put(iv).put(chiffre);
+        return Base64.getEncoder().encodeToString(ticket.array());
+    }
+
+
+    /**
+     * Vérifie le ticket et la preuve de possession de la clé de session.
+     *
+     * @return la session, ou null si le ticket est expiré, altéré ou si la preuve est invalide
+     */
+    public static Session verifier(String ticketBase64, String horodatage, String preuveBase64) {
+        try {
+            long maintenant = System.currentTimeMillis();
+            if (Math.abs(maintenant - Long.parseLong(horodatage)) > DERIVE_HORLOGE_MS) {
+                return null;
+            }
+            byte[] ticket = Base64.getDecoder().decode(ticketBase64);
+            if (ticket.length <= 1 + TAILLE_IV) {
+                return null;
+            }
+            Cle cle = trouverCle(ticket[0], maintenant);
+            if (cle == null) {
+                return null;
+            }
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, cle.cle, new GCMParameterSpec(TAILLE_TAG_BITS, ticket, 1, TAILLE_IV));
+            cipher.updateAAD(new byte[] { cle.id });
+            ByteBuffer clair = ByteBuffer.wrap(cipher.doFinal(ticket, 1 + TAILLE_IV, ticket.length - 1 - TAILLE_IV));
+
+            if (clair.getLong() < maintenant) {
+                return null;
+            }
+            int medecinId = clair.getInt();
+            byte[] octetsCle = new byte[clair.get() & 0xFF];
+            clair.get(octetsCle);
+            byte[] octetsLogin = new byte[clair.remaining()];
+            clair.get(octetsLogin);
+            SecretKey cleSession = new SecretKeySpec(octetsCle, Protocol.SYMMETRIC_ALGORITHM);
+
+            byte[] attendu = preuve(cleSession, ticketBase64, horodatage);
+            if (!MessageDigest.isEqual(attendu, Base64.getDecoder().decode(preuveBase64))) {
+                return null;
+            }
+            return new Session(medecinId, new String(octetsLogin, StandardCharsets.UTF_8), cleSession);
+        } catch (GeneralSecurityException | IllegalArgumentException | java.nio.BufferUnderflowException e) {
+            // Ticket altéré ou chiffré avec une clé retirée
+            return null;
+        }
+    }
+
+
+    /**
+     * HMAC de "RESUME|ticket|horodatage" avec la clé de session (même calcul côté client).
+     */
+    public static byte[] preuve(SecretKey cleSession, String ticketBase64, String horodatage)
+            throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(Protocol.HMAC_ALGORITHM);
+        mac.init(cleSession);
+        return mac.doFinal((Protocol.CMD_RESUME + "|" + ticketBase64 + "|" + horodatage)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static synchronized Cle cleCourante(long maintenant) {
+        if (maintenant - courante.creeeMs >= DUREE_VALIDITE_MS) {
+            precedente = courante;
+            courante = nouvelleCle((byte) (courante.id + 1));
+        }
+        return courante;
+    }
+
+
+    private static synchronized Cle trouverCle(byte id, long maintenant) {
+        Cle actuelle = cleCourante(maintenant);
+        if (actuelle.id == id) {
+            return actuelle;
+        }
+        // Une clé remplacée depuis plus d'une durée de validité n'a plus de ticket valide
+        if (precedente != null && precedente.id == id && maintenant - actuelle.creeeMs < DUREE_VALIDITE_MS) {
+            return precedente;
+        }
+        return null;
+    }
+
+
+    private static Cle nouvelleCle(byte id) {
+        try {
+            KeyGenerator generateur = KeyGenerator.getInstance("AES");
+            generateur.init(256, ALEATOIRE);
+            return new Cle(id, generateur.generateKey(), System.currentTimeMillis());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES indisponible pour les tickets de reprise", e);
+        }
+    }
+
+
+    private static final class Cle {
+        private final byte id;
+        private final SecretKey cle;
+        private final long creeeMs;
+
+        private Cle(byte id, SecretKey cle, long creeeMs) {
+            this.id = id;
+            this.cle = cle;
+            this.creeeMs = creeeMs;
+        }
+    }
+}
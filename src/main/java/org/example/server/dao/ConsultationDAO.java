@@ -2,16 +2,53 @@ package org.example.server.dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.entity.IdentitePatient;
+import org.example.server.journal.JournalRapports;
 import org.example.server.searchvm.ConsultationSearchVM;
+import org.example.server.stockage.DepotConsultations;
 
 
-public class ConsultationDAO {
+public class ConsultationDAO implements DepotConsultations {
+
+    public static final FluxLignes.LecteurLigne<Consultation> LIGNE_CONSULTATION = rs -> {
+        Consultation consultation = new Consultation();
+        consultation.setId(rs.getInt("id"));
+        consultation.setDoctor_id(rs.getInt("doctor_id"));
+
+        int patientId = rs.getInt("patient_id");
+        if (rs.wasNull()) {
+            consultation.setPatient_id(null);
+        } else {
+            consultation.setPatient_id(patientId);
+        }
+
+        consultation.setDate(rs.getString("date"));
+        consultation.setHour(rs.getString("hour"));
+        consultation.setReason(rs.getString("reason"));
+
+        consultation.setPatient_first_name(rs.getString("p_first_name"));
+        consultation.setPatient_last_name(rs.getString("p_last_name"));
+        consultation.setPatient_birth_date(rs.getString("p_birth_date"));
+        return consultation;
+    };
 
     private Connection connexion;
+    // Connexions dédiées aux flux ; null : flux sur la connexion partagée
+    private final JournalRapports.OuvreurConnexion ouvreur;
 
     public ConsultationDAO(Connection connexion) {
+        this(connexion, null);
+    }
+
+    public ConsultationDAO(Connection connexion, JournalRapports.OuvreurConnexion ouvreur) {
         this.connexion = connexion;
+        this.ouvreur = ouvreur;
     }
 
 
@@ -36,62 +73,129 @@ public class ConsultationDAO {
 
     public ArrayList<Consultation> load(ConsultationSearchVM csearchvm) {
         ArrayList<Consultation> consultations = new ArrayList<>();
-        try {
-            String query = "SELECT c.*, p.first_name AS p_first_name, p.last_name AS p_last_name, p.birth_date AS p_birth_date "
-                    +
-                    "FROM consultations c " +
-                    "LEFT JOIN patient p ON c.patient_id = p.id " +
-                    "LEFT JOIN doctor d ON c.doctor_id = d.id " +
-                    "WHERE 1=1 ";
-
-            if (csearchvm != null) {
-                if (csearchvm.getPatientName() != null && !csearchvm.getPatientName().isEmpty()) {
-                    query += "AND p.last_name LIKE ? ";
-                }
-                if (csearchvm.getDoctorName() != null && !csearchvm.getDoctorName().isEmpty()) {
-                    query += "AND d.last_name LIKE ? ";
-                }
-                if (csearchvm.getDateFrom() != null && !csearchvm.getDateFrom().isEmpty()) {
-                    query += "AND c.date >= ? ";
-                }
-                if (csearchvm.getDateTo() != null && !csearchvm.getDateTo().isEmpty()) {
-                    query += "AND c.date <= ? ";
-                }
-                if (csearchvm.getReason() != null && !csearchvm.getReason().isEmpty()) {
-                    query += "AND c.reason LIKE ? ";
-                }
+        try (PreparedStatement ps = preparerRecherche(connexion, csearchvm)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                consultations.add(LIGNE_CONSULTATION.lire(rs));
             }
+            rs.close();
 
-            query += " ORDER BY c.date DESC";
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return consultations;
+    }
 
-            PreparedStatement ps = connexion.prepareStatement(query);
 
-            if (csearchvm != null) {
-                int index = 1;
-                if (csearchvm.getPatientName() != null && !csearchvm.getPatientName().isEmpty()) {
-                    ps.setString(index++, "%" + csearchvm.getPatientName() + "%");
-                }
-                if (csearchvm.getDoctorName() != null && !csearchvm.getDoctorName().isEmpty()) {
-                    ps.setString(index++, "%" + csearchvm.getDoctorName() + "%");
-                }
-                if (csearchvm.getDateFrom() != null && !csearchvm.getDateFrom().isEmpty()) {
-                    ps.setString(index++, csearchvm.getDateFrom());
-                }
-                if (csearchvm.getDateTo() != null && !csearchvm.getDateTo().isEmpty()) {
-                    ps.setString(index++, csearchvm.getDateTo());
-                }
-                if (csearchvm.getReason() != null && !csearchvm.getReason().isEmpty()) {
-                    ps.setString(index++, "%" + csearchvm.getReason() + "%");
+    public List<ConsultationCompacte> loadCompact(ConsultationSearchVM csearchvm) {
+        List<ConsultationCompacte> consultations = new ArrayList<>();
+        // Une seule IdentitePatient par patient pour toute la liste
+        Map<Integer, IdentitePatient> patients = new HashMap<>();
+        try (PreparedStatement ps = preparerRecherche(connexion, csearchvm)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int patientId = rs.getInt("patient_id");
+                IdentitePatient patient = null;
+                if (rs.wasNull()) {
+                    patientId = ConsultationCompacte.PATIENT_AUCUN;
+                } else {
+                    patient = patients.get(patientId);
+                    if (patient == null) {
+                        Date naissance = rs.getDate("p_birth_date");
+                        patient = new IdentitePatient(rs.getString("p_first_name"), rs.getString("p_last_name"),
+                                naissance == null ? IdentitePatient.NAISSANCE_INCONNUE
+                                        : (int) naissance.toLocalDate().toEpochDay());
+                        patients.put(patientId, patient);
+                    }
                 }
+                Time heure = rs.getTime("hour");
+                consultations.add(new ConsultationCompacte(rs.getInt("id"), rs.getInt("doctor_id"), patientId,
+                        (int) rs.getDate("date").toLocalDate().toEpochDay(),
+                        heure == null ? ConsultationCompacte.HEURE_AUCUNE
+                                : ConsultationCompacte.secondes(heure.toLocalTime()),
+                        rs.getString("reason"), patient));
             }
+            rs.close();
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return consultations;
+    }
+
+
+    public Stream<Consultation> flux(ConsultationSearchVM csearchvm) throws SQLException {
+        return FluxLignes.ouvrir(connexion, ouvreur, c -> preparerRecherche(c, csearchvm), LIGNE_CONSULTATION);
+    }
+
+
+    private static PreparedStatement preparerRecherche(Connection connexion, ConsultationSearchVM csearchvm)
+            throws SQLException {
+        String query = "SELECT c.*, p.first_name AS p_first_name, p.last_name AS p_last_name, p.birth_date AS p_birth_date "
+                +
+                "FROM consultations c " +
+                "LEFT JOIN patient p ON c.patient_id = p.id " +
+                "LEFT JOIN doctor d ON c.doctor_id = d.id " +
+                "WHERE 1=1 ";
+
+        if (csearchvm != null) {
+            if (csearchvm.getPatientName() != null && !csearchvm.getPatientName().isEmpty()) {
+                query += "AND p.last_name LIKE ? ";
+            }
+            if (csearchvm.getDoctorName() != null && !csearchvm.getDoctorName().isEmpty()) {
+                query += "AND d.last_name LIKE ? ";
+            }
+            if (csearchvm.getDateFrom() != null && !csearchvm.getDateFrom().isEmpty()) {
+                query += "AND c.date >= ? ";
+            }
+            if (csearchvm.getDateTo() != null && !csearchvm.getDateTo().isEmpty()) {
+                query += "AND c.date <= ? ";
+            }
+            if (csearchvm.getReason() != null && !csearchvm.getReason().isEmpty()) {
+                query += "AND c.reason LIKE ? ";
+            }
+        }
+
+        query += " ORDER BY c.date DESC";
+
+        PreparedStatement ps = connexion.prepareStatement(query);
+
+        if (csearchvm != null) {
+            int index = 1;
+            if (csearchvm.getPatientName() != null && !csearchvm.getPatientName().isEmpty()) {
+                ps.setString(index++, "%" + csearchvm.getPatientName() + "%");
+            }
+            if (csearchvm.getDoctorName() != null && !csearchvm.getDoctorName().isEmpty()) {
+                ps.setString(index++, "%" + csearchvm.getDoctorName() + "%");
+            }
+            if (csearchvm.getDateFrom() != null && !csearchvm.getDateFrom().isEmpty()) {
+                ps.setString(index++, csearchvm.getDateFrom());
+            }
+            if (csearchvm.getDateTo() != null && !csearchvm.getDateTo().isEmpty()) {
+                ps.setString(index++, csearchvm.getDateTo());
+            }
+            if (csearchvm.getReason() != null && !csearchvm.getReason().isEmpty()) {
+                ps.setString(index++, "%" + csearchvm.getReason() + "%");
+            }
+        }
+        return ps;
+    }
+
+
+    public Consultation findById(int consultationId) throws SQLException {
+        String sql = "SELECT c.*, d.last_name AS d_last_name, s.name AS s_name " +
+                "FROM consultations c " +
+                "LEFT JOIN doctor d ON c.doctor_id = d.id " +
+                "LEFT JOIN specialties s ON d.specialite_id = s.id " +
+                "WHERE c.id = ?";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setInt(1, consultationId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
                 Consultation consultation = new Consultation();
                 consultation.setId(rs.getInt("id"));
                 consultation.setDoctor_id(rs.getInt("doctor_id"));
 
-
                 int patientId = rs.getInt("patient_id");
                 if (rs.wasNull()) {
                     consultation.setPatient_id(null);
@@ -102,20 +206,12 @@ public class ConsultationDAO {
                 consultation.setDate(rs.getString("date"));
                 consultation.setHour(rs.getString("hour"));
                 consultation.setReason(rs.getString("reason"));
-
-                consultation.setPatient_first_name(rs.getString("p_first_name"));
-                consultation.setPatient_last_name(rs.getString("p_last_name"));
-                consultation.setPatient_birth_date(rs.getString("p_birth_date"));
-
-                consultations.add(consultation);
+                consultation.setDoctor_last_name(rs.getString("d_last_name"));
+                consultation.setSpecialty_name(rs.getString("s_name"));
+                return consultation;
             }
-            rs.close();
-            ps.close();
-
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
-        return consultations;
+        return null;
     }
 
 
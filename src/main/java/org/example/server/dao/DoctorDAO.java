@@ -2,17 +2,35 @@ package org.example.server.dao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 import org.example.server.entity.Doctor;
-import org.example.server.entity.Specialty;
+import org.example.server.journal.JournalRapports;
 import org.example.server.searchvm.DoctorSearchVM;
+import org.example.server.stockage.DepotMedecins;
 
 
-public class DoctorDAO {
+public class DoctorDAO implements DepotMedecins {
+
+    public static final FluxLignes.LecteurLigne<Doctor> LIGNE_MEDECIN = rs -> {
+        Doctor doctor = new Doctor();
+        doctor.setId(rs.getInt("id"));
+        doctor.setSpecialite_id(rs.getInt("specialite_id"));
+        doctor.setLast_name(rs.getString("last_name"));
+        doctor.setFirst_name(rs.getString("first_name"));
+        return doctor;
+    };
 
     private Connection connexion;
+    // Connexions dédiées aux flux ; null : flux sur la connexion partagée
+    private final JournalRapports.OuvreurConnexion ouvreur;
 
     public DoctorDAO(Connection connexion) {
+        this(connexion, null);
+    }
+
+    public DoctorDAO(Connection connexion, JournalRapports.OuvreurConnexion ouvreur) {
         this.connexion = connexion;
+        this.ouvreur = ouvreur;
     }
 
 
@@ -64,54 +82,12 @@ public class DoctorDAO {
 
     public ArrayList<Doctor> load(DoctorSearchVM dsearchvm) {
         ArrayList<Doctor> doctors = new ArrayList<>();
-        try {
-            String query = "SELECT d.* FROM doctor d " +
-                    "LEFT JOIN specialties s ON d.specialite_id = s.id " +
-                    "WHERE 1=1 ";
-
-            if (dsearchvm != null) {
-                if (dsearchvm.getLastName() != null && !dsearchvm.getLastName().isEmpty()) {
-                    query += "AND d.last_name LIKE ? ";
-                }
-                if (dsearchvm.getFirstName() != null && !dsearchvm.getFirstName().isEmpty()) {
-                    query += "AND d.first_name LIKE ? ";
-                }
-                if (dsearchvm.getSpecialityName() != null && !dsearchvm.getSpecialityName().isEmpty()) {
-                    query += "AND s.name LIKE ? ";
-                }
-            }
-
-            query += " ORDER BY d.last_name, d.first_name";
-
-            PreparedStatement ps = connexion.prepareStatement(query);
-
-            if (dsearchvm != null) {
-                int index = 1;
-                if (dsearchvm.getLastName() != null && !dsearchvm.getLastName().isEmpty()) {
-                    ps.setString(index++, "%" + dsearchvm.getLastName() + "%");
-                }
-                if (dsearchvm.getFirstName() != null && !dsearchvm.getFirstName().isEmpty()) {
-                    ps.setString(index++, "%" + dsearchvm.getFirstName() + "%");
-                }
-                if (dsearchvm.getSpecialityName() != null && !dsearchvm.getSpecialityName().isEmpty()) {
-                    ps.setString(index++, "%" + dsearchvm.getSpecialityName() + "%");
-                }
-            }
-
+        try (PreparedStatement ps = preparerRecherche(connexion, dsearchvm)) {
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Doctor doctor = new Doctor();
-                doctor.setId(rs.getInt("id"));
-                doctor.setSpecialite_id(rs.getInt("specialite_id"));
-                doctor.setLast_name(rs.getString("last_name"));
-                doctor.setFirst_name(rs.getString("first_name"));
-
-
-
-                doctors.add(doctor);
+                doctors.add(LIGNE_MEDECIN.lire(rs));
             }
             rs.close();
-            ps.close();
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -120,24 +96,45 @@ public class DoctorDAO {
     }
 
 
-    public ArrayList<Specialty> getAllSpecialties() {
-        ArrayList<Specialty> specialties = new ArrayList<>();
-        try {
-            String sql = "SELECT * FROM specialties ORDER BY name";
-            PreparedStatement stmt = connexion.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
+    public Stream<Doctor> flux(DoctorSearchVM dsearchvm) throws SQLException {
+        return FluxLignes.ouvrir(connexion, ouvreur, c -> preparerRecherche(c, dsearchvm), LIGNE_MEDECIN);
+    }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                specialties.add(new Specialty(id, name));
+
+    private static PreparedStatement preparerRecherche(Connection connexion, DoctorSearchVM dsearchvm)
+            throws SQLException {
+        String query = "SELECT d.* FROM doctor d " +
+                "LEFT JOIN specialties s ON d.specialite_id = s.id " +
+                "WHERE 1=1 ";
+
+        if (dsearchvm != null) {
+            if (dsearchvm.getLastName() != null && !dsearchvm.getLastName().isEmpty()) {
+                query += "AND d.last_name LIKE ? ";
+            }
+            if (dsearchvm.getFirstName() != null && !dsearchvm.getFirstName().isEmpty()) {
+                query += "AND d.first_name LIKE ? ";
             }
+            if (dsearchvm.getSpecialityName() != null && !dsearchvm.getSpecialityName().isEmpty()) {
+                query += "AND s.name LIKE ? ";
+            }
+        }
 
-            rs.close();
-            stmt.close();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        query += " ORDER BY d.last_name, d.first_name";
+
+        PreparedStatement ps = connexion.prepareStatement(query);
+
+        if (dsearchvm != null) {
+            int index = 1;
+            if (dsearchvm.getLastName() != null && !dsearchvm.getLastName().isEmpty()) {
+                ps.setString(index++, "%" + dsearchvm.getLastName() + "%");
+            }
+            if (dsearchvm.getFirstName() != null && !dsearchvm.getFirstName().isEmpty()) {
+                ps.setString(index++, "%" + dsearchvm.getFirstName() + "%");
+            }
+            if (dsearchvm.getSpecialityName() != null && !dsearchvm.getSpecialityName().isEmpty()) {
+                ps.setString(index++, "%" + dsearchvm.getSpecialityName() + "%");
+            }
         }
-        return specialties;
+        return ps;
     }
 }
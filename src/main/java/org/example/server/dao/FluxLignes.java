@@ -0,0 +1,136 @@
+package org.example.server.dao;
+
+import org.example.server.journal.JournalRapports;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Lecture d'un ResultSet en Stream, ligne par ligne, sans liste intermédiaire.
+ * <p>
+ * Avec une connexion dédiée, MySQL envoie les lignes au fil de la lecture
+ * (setFetchSize(Integer.MIN_VALUE)) : la mémoire ne dépend plus du nombre de
+ * lignes. Une connexion MySQL en cours de streaming ne peut rien exécuter
+ * d'autre, d'où la connexion ouverte pour le flux et fermée avec lui. Sans
+ * ouvreur (DAO construit sur la seule connexion partagée), le flux lit par lots
+ * de TAILLE_LOT sur cette connexion et le pilote MySQL garde alors le résultat
+ * entier en mémoire.
+ * </p>
+ * Le flux doit être fermé (try-with-resources) : il libère requête et connexion.
+ * Une SQLException levée pendant le parcours sort en {@link ErreurLecture}.
+ */
+public final class FluxLignes {
+
+    static final int TAILLE_LOT = 500;
+
+
+    private FluxLignes() {
+    }
+
+
+    /**
+     * Construit une entité à partir de la ligne courante.
+     */
+    public interface LecteurLigne<T> {
+        T lire(ResultSet rs) throws SQLException;
+    }
+
+
+    /**
+     * SQLException levée pendant le parcours d'un flux, qui ne laisse passer que
+     * des exceptions non vérifiées ; getCause() rend l'erreur d'origine.
+     */
+    public static final class ErreurLecture extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ErreurLecture(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+
+    /**
+     * Prépare la requête (paramètres compris) sur la connexion fournie.
+     */
+    interface Requete {
+        PreparedStatement preparer(Connection connexion) throws SQLException;
+    }
+
+
+    static <T> Stream<T> ouvrir(Connection partagee, JournalRapports.OuvreurConnexion ouvreur, Requete requete,
+                                LecteurLigne<T> lecteur) throws SQLException {
+        Connection connexion = ouvreur != null ? ouvreur.ouvrir() : partagee;
+        PreparedStatement stmt = null;
+        ResultSet rs;
+        try {
+            stmt = requete.preparer(connexion);
+            stmt.setFetchSize(ouvreur != null && estMySql(connexion) ? Integer.MIN_VALUE : TAILLE_LOT);
+            rs = stmt.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            fermer(null, stmt, ouvreur != null ? connexion : null);
+            throw e;
+        }
+
+        ResultSet resultat = rs;
+        PreparedStatement requetePreparee = stmt;
+        Spliterator<T> lignes = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultat.next()) {
+                        return false;
+                    }
+                    action.accept(lecteur.lire(resultat));
+                    return true;
+                } catch (SQLException e) {
+                    throw new ErreurLecture(e);
+                }
+            }
+        };
+        return StreamSupport.stream(lignes, false)
+                .onClose(() -> fermer(resultat, requetePreparee, ouvreur != null ? connexion : null));
+    }
+
+
+    // Le pilote MySQL n'accepte Integer.MIN_VALUE qu'avec un ResultSet TYPE_FORWARD_ONLY / CONCUR_READ_ONLY
+    private static boolean estMySql(Connection connexion) throws SQLException {
+        return connexion.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+
+    private static void fermer(ResultSet rs, PreparedStatement stmt, Connection dediee) {
+        try {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+            } finally {
+                try {
+                    if (stmt != null) {
+                        stmt.close();
+                    }
+                } finally {
+                    if (dediee != null) {
+                        dediee.close();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'un flux de lignes: " + e.getMessage());
+        }
+    }
+}
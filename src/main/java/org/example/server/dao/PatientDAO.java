@@ -3,16 +3,35 @@ package org.example.server.dao;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import org.example.server.entity.Patient;
+import org.example.server.journal.JournalRapports;
 import org.example.server.searchvm.PatientSearchVM;
+import org.example.server.stockage.DepotPatients;
 
 
-public class PatientDAO {
+public class PatientDAO implements DepotPatients {
+
+    public static final FluxLignes.LecteurLigne<Patient> LIGNE_PATIENT = rs -> {
+        Patient patient = new Patient();
+        patient.setId(rs.getInt("id"));
+        patient.setLast_name(rs.getString("last_name"));
+        patient.setFirst_name(rs.getString("first_name"));
+        patient.setBirth_date(rs.getString("birth_date"));
+        return patient;
+    };
 
     private Connection connexion;
+    // Connexions dédiées aux flux ; null : flux sur la connexion partagée
+    private final JournalRapports.OuvreurConnexion ouvreur;
 
     public PatientDAO(Connection connexion) {
+        this(connexion, null);
+    }
+
+    public PatientDAO(Connection connexion, JournalRapports.OuvreurConnexion ouvreur) {
         this.connexion = connexion;
+        this.ouvreur = ouvreur;
     }
 
 
@@ -43,76 +62,77 @@ public class PatientDAO {
 
     public ArrayList<Patient> load(PatientSearchVM psearchvm) {
         ArrayList<Patient> patients = new ArrayList<>();
-        try {
+        try (PreparedStatement ps = preparerRecherche(connexion, psearchvm)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                patients.add(LIGNE_PATIENT.lire(rs));
+            }
+            rs.close();
 
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return patients;
+    }
 
-            String query = "SELECT DISTINCT p.* FROM patient p ";
 
+    public Stream<Patient> flux(PatientSearchVM psearchvm) throws SQLException {
+        return FluxLignes.ouvrir(connexion, ouvreur, c -> preparerRecherche(c, psearchvm), LIGNE_PATIENT);
+    }
 
-            if (psearchvm != null && psearchvm.getDoctorId() != null) {
-                query += "INNER JOIN consultations c ON p.id = c.patient_id ";
-            }
 
-            query += "WHERE 1=1 ";
+    private static PreparedStatement preparerRecherche(Connection connexion, PatientSearchVM psearchvm)
+            throws SQLException {
+        String query = "SELECT DISTINCT p.* FROM patient p ";
 
-            if (psearchvm != null) {
-                if (psearchvm.getDoctorId() != null) {
-                    query += "AND c.doctor_id = ? ";
-                }
-                if (psearchvm.getLastName() != null && !psearchvm.getLastName().isEmpty()) {
-                    query += "AND p.last_name LIKE ? ";
-                }
-                if (psearchvm.getFirstName() != null && !psearchvm.getFirstName().isEmpty()) {
-                    query += "AND p.first_name LIKE ? ";
-                }
-                if (psearchvm.getBirthDateFrom() != null && !psearchvm.getBirthDateFrom().isEmpty()) {
-                    query += "AND p.birth_date >= ? ";
-                }
-                if (psearchvm.getBirthDateTo() != null && !psearchvm.getBirthDateTo().isEmpty()) {
-                    query += "AND p.birth_date <= ? ";
-                }
-            }
 
-            query += " ORDER BY p.last_name, p.first_name";
+        if (psearchvm != null && psearchvm.getDoctorId() != null) {
+            query += "INNER JOIN consultations c ON p.id = c.patient_id ";
+        }
 
-            PreparedStatement ps = connexion.prepareStatement(query);
+        query += "WHERE 1=1 ";
 
-            if (psearchvm != null) {
-                int index = 1;
-                if (psearchvm.getDoctorId() != null) {
-                    ps.setInt(index++, psearchvm.getDoctorId());
-                }
-                if (psearchvm.getLastName() != null && !psearchvm.getLastName().isEmpty()) {
-                    ps.setString(index++, "%" + psearchvm.getLastName() + "%");
-                }
-                if (psearchvm.getFirstName() != null && !psearchvm.getFirstName().isEmpty()) {
-                    ps.setString(index++, "%" + psearchvm.getFirstName() + "%");
-                }
-                if (psearchvm.getBirthDateFrom() != null && !psearchvm.getBirthDateFrom().isEmpty()) {
-                    ps.setString(index++, psearchvm.getBirthDateFrom());
-                }
-                if (psearchvm.getBirthDateTo() != null && !psearchvm.getBirthDateTo().isEmpty()) {
-                    ps.setString(index++, psearchvm.getBirthDateTo());
-                }
+        if (psearchvm != null) {
+            if (psearchvm.getDoctorId() != null) {
+                query += "AND c.doctor_id = ? ";
+            }
+            if (psearchvm.getLastName() != null && !psearchvm.getLastName().isEmpty()) {
+                query += "AND p.last_name LIKE ? ";
             }
+            if (psearchvm.getFirstName() != null && !psearchvm.getFirstName().isEmpty()) {
+                query += "AND p.first_name LIKE ? ";
+            }
+            if (psearchvm.getBirthDateFrom() != null && !psearchvm.getBirthDateFrom().isEmpty()) {
+                query += "AND p.birth_date >= ? ";
+            }
+            if (psearchvm.getBirthDateTo() != null && !psearchvm.getBirthDateTo().isEmpty()) {
+                query += "AND p.birth_date <= ? ";
+            }
+        }
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Patient patient = new Patient();
-                patient.setId(rs.getInt("id"));
-                patient.setLast_name(rs.getString("last_name"));
-                patient.setFirst_name(rs.getString("first_name"));
-                patient.setBirth_date(rs.getString("birth_date"));
+        query += " ORDER BY p.last_name, p.first_name";
 
-                patients.add(patient);
-            }
-            rs.close();
-            ps.close();
+        PreparedStatement ps = connexion.prepareStatement(query);
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        if (psearchvm != null) {
+            int index = 1;
+            if (psearchvm.getDoctorId() != null) {
+                ps.setInt(index++, psearchvm.getDoctorId());
+            }
+            if (psearchvm.getLastName() != null && !psearchvm.getLastName().isEmpty()) {
+                ps.setString(index++, "%" + psearchvm.getLastName() + "%");
+            }
+            if (psearchvm.getFirstName() != null && !psearchvm.getFirstName().isEmpty()) {
+                ps.setString(index++, "%" + psearchvm.getFirstName() + "%");
+            }
+            if (psearchvm.getBirthDateFrom() != null && !psearchvm.getBirthDateFrom().isEmpty()) {
+                ps.setString(index++, psearchvm.getBirthDateFrom());
+            }
+            if (psearchvm.getBirthDateTo() != null && !psearchvm.getBirthDateTo().isEmpty()) {
+                ps.setString(index++, psearchvm.getBirthDateTo());
+            }
         }
-        return patients;
+        return ps;
     }
 
 
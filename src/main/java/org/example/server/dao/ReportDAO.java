@@ -1,19 +1,43 @@
 package org.example.server.dao;
 
 import java.sql.*;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 import java.util.List;
 
 import org.example.server.entity.Report;
+import org.example.server.journal.JournalRapports;
 import org.example.server.searchvm.ReportSearchVM;
+import org.example.server.stockage.DepotRapports;
 
 
-public class ReportDAO {
+public class ReportDAO implements DepotRapports {
+
+    private static final int TAILLE_APERCU = 50;
+
+    public static final FluxLignes.LecteurLigne<Report> LIGNE_RAPPORT = rs -> {
+        Report report = new Report();
+        report.setId(rs.getInt("id"));
+        report.setDoctor_id(rs.getInt("doctor_id"));
+        report.setPatient_id(rs.getInt("patient_id"));
+        report.setDate(rs.getString("date_rapport"));
+        report.setContent(rs.getString("texte_rapport"));
+        return report;
+    };
 
     private Connection connexion;
+    // Connexions dédiées aux flux ; null : flux sur la connexion partagée
+    private final JournalRapports.OuvreurConnexion ouvreur;
 
     public ReportDAO(Connection connexion) {
+        this(connexion, null);
+    }
+
+    public ReportDAO(Connection connexion, JournalRapports.OuvreurConnexion ouvreur) {
         this.connexion = connexion;
+        this.ouvreur = ouvreur;
     }
 
 
@@ -53,6 +77,68 @@ public class ReportDAO {
     }
 
 
+    /**
+     * Insertion avec un id déjà attribué (écriture différée, voir JournalRapports).
+     */
+    public void insererRapport(int rapportId, int medecinId, int patientId, String date, String texteRapport)
+            throws SQLException {
+        String sql = "INSERT INTO reports (id, doctor_id, patient_id, date_rapport, texte_rapport) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setInt(1, rapportId);
+            stmt.setInt(2, medecinId);
+            stmt.setInt(3, patientId);
+            stmt.setDate(4, Date.valueOf(date));
+            stmt.setString(5, texteRapport);
+            stmt.executeUpdate();
+        }
+    }
+
+
+    public int getIdMax() throws SQLException {
+        try (PreparedStatement stmt = connexion.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM reports")) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+
+    /**
+     * Enregistre la clé d'idempotence d'une écriture.
+     *
+     * @return false si la clé existe déjà (écriture déjà appliquée)
+     */
+    public boolean enregistrerCleIdempotence(String cle, int rapportId) throws SQLException {
+        String sql = "INSERT IGNORE INTO report_writes (idempotency_key, report_id) VALUES (?, ?)";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setString(1, cle);
+            stmt.setInt(2, rapportId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+
+    /**
+     * Id du rapport écrit avec cette clé d'idempotence, null si la clé est inconnue.
+     */
+    public Integer trouverRapportParCle(String cle) throws SQLException {
+        String sql = "SELECT report_id FROM report_writes WHERE idempotency_key = ?";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setString(1, cle);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : null;
+        }
+    }
+
+
+    public int purgerCles(int joursConservation) throws SQLException {
+        String sql = "DELETE FROM report_writes WHERE applied_at < ?";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.from(Instant.now().minus(joursConservation, ChronoUnit.DAYS)));
+            return stmt.executeUpdate();
+        }
+    }
+
+
     public List<Rapport> listerRapportsMedecin(int medecinId) throws SQLException {
         String sql = "SELECT * FROM reports WHERE doctor_id = ? ORDER BY date_rapport DESC";
         List<Rapport> rapports = new ArrayList<>();
@@ -60,12 +146,7 @@ public class ReportDAO {
             stmt.setInt(1, medecinId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                rapports.add(new Rapport(
-                        rs.getInt("id"),
-                        rs.getInt("doctor_id"),
-                        rs.getInt("patient_id"),
-                        rs.getDate("date_rapport"),
-                        rs.getString("texte_rapport")));
+                rapports.add(lireRapport(rs));
             }
         }
         return rapports;
@@ -80,83 +161,125 @@ public class ReportDAO {
             stmt.setInt(2, patientId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                rapports.add(new Rapport(
-                        rs.getInt("id"),
-                        rs.getInt("doctor_id"),
-                        rs.getInt("patient_id"),
-                        rs.getDate("date_rapport"),
-                        rs.getString("texte_rapport")));
+                rapports.add(lireRapport(rs));
             }
         }
         return rapports;
     }
 
 
-    public ArrayList<Report> load(ReportSearchVM rsearchvm) {
-        ArrayList<Report> reports = new ArrayList<>();
-        try {
-            String query = "SELECT r.*, p.first_name AS p_first_name, p.last_name AS p_last_name, d.last_name AS d_last_name "
-                    +
-                    "FROM reports r " +
-                    "LEFT JOIN patient p ON r.patient_id = p.id " +
-                    "LEFT JOIN doctor d ON r.doctor_id = d.id " +
-                    "WHERE 1=1 ";
-
-            if (rsearchvm != null) {
-                if (rsearchvm.getPatientName() != null && !rsearchvm.getPatientName().isEmpty()) {
-                    query += "AND p.last_name LIKE ? ";
-                }
-                if (rsearchvm.getDoctorName() != null && !rsearchvm.getDoctorName().isEmpty()) {
-                    query += "AND d.last_name LIKE ? ";
-                }
-                if (rsearchvm.getDateFrom() != null && !rsearchvm.getDateFrom().isEmpty()) {
-                    query += "AND r.date_rapport >= ? ";
-                }
-                if (rsearchvm.getDateTo() != null && !rsearchvm.getDateTo().isEmpty()) {
-                    query += "AND r.date_rapport <= ? ";
-                }
-                if (rsearchvm.getContent() != null && !rsearchvm.getContent().isEmpty()) {
-                    query += "AND r.texte_rapport LIKE ? ";
-                }
+    /**
+     * Rapports du médecin créés ou modifiés depuis depuisMs (colonne updated_at).
+     * La borne est inclusive car updated_at est à la seconde : le client fusionne
+     * par id, un rapport reçu deux fois ne pose pas de problème.
+     */
+    public List<Rapport> listerRapportsModifiesDepuis(int medecinId, long depuisMs) throws SQLException {
+        String sql = "SELECT * FROM reports WHERE doctor_id = ? AND updated_at >= ? ORDER BY updated_at";
+        List<Rapport> rapports = new ArrayList<>();
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setInt(1, medecinId);
+            stmt.setTimestamp(2, new Timestamp(depuisMs));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                rapports.add(lireRapport(rs));
             }
+        }
+        return rapports;
+    }
 
-            query += " ORDER BY r.date_rapport DESC";
-
-            PreparedStatement ps = connexion.prepareStatement(query);
 
-            if (rsearchvm != null) {
-                int index = 1;
-                if (rsearchvm.getPatientName() != null && !rsearchvm.getPatientName().isEmpty()) {
-                    ps.setString(index++, "%" + rsearchvm.getPatientName() + "%");
-                }
-                if (rsearchvm.getDoctorName() != null && !rsearchvm.getDoctorName().isEmpty()) {
-                    ps.setString(index++, "%" + rsearchvm.getDoctorName() + "%");
-                }
-                if (rsearchvm.getDateFrom() != null && !rsearchvm.getDateFrom().isEmpty()) {
-                    ps.setString(index++, rsearchvm.getDateFrom());
-                }
-                if (rsearchvm.getDateTo() != null && !rsearchvm.getDateTo().isEmpty()) {
-                    ps.setString(index++, rsearchvm.getDateTo());
+    /**
+     * Une page de rapports (plus récents d'abord) avec seulement un aperçu du texte.
+     * patientId = -1 pour tous les patients du médecin.
+     */
+    public List<Rapport> listerPageRapports(int medecinId, int patientId, int debutPage, int taille)
+            throws SQLException {
+        String sql = "SELECT id, doctor_id, patient_id, date_rapport, updated_at, "
+                + "LEFT(texte_rapport, ?) AS apercu, CHAR_LENGTH(texte_rapport) > ? AS tronque "
+                + "FROM reports WHERE doctor_id = ?"
+                + (patientId != -1 ? " AND patient_id = ?" : "")
+                + " ORDER BY date_rapport DESC, id DESC LIMIT ? OFFSET ?";
+        List<Rapport> rapports = new ArrayList<>();
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            int index = 1;
+            stmt.setInt(index++, TAILLE_APERCU);
+            stmt.setInt(index++, TAILLE_APERCU);
+            stmt.setInt(index++, medecinId);
+            if (patientId != -1) {
+                stmt.setInt(index++, patientId);
+            }
+            stmt.setInt(index++, taille);
+            stmt.setInt(index, debutPage);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String apercu = rs.getString("apercu");
+                if (rs.getBoolean("tronque")) {
+                    apercu += "...";
                 }
-                if (rsearchvm.getContent() != null && !rsearchvm.getContent().isEmpty()) {
-                    ps.setString(index++, "%" + rsearchvm.getContent() + "%");
+                Rapport rapport = new Rapport(rs.getInt("id"), rs.getInt("doctor_id"), rs.getInt("patient_id"),
+                        rs.getDate("date_rapport"), apercu);
+                Timestamp misAJour = rs.getTimestamp("updated_at");
+                if (misAJour != null) {
+                    rapport.misAJourMs = misAJour.getTime();
                 }
+                rapports.add(rapport);
             }
+        }
+        return rapports;
+    }
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Report report = new Report();
-                report.setId(rs.getInt("id"));
-                report.setDoctor_id(rs.getInt("doctor_id"));
-                report.setPatient_id(rs.getInt("patient_id"));
-                report.setDate(rs.getString("date_rapport"));
-                report.setContent(rs.getString("texte_rapport"));
+
+    public int compterRapports(int medecinId, int patientId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM reports WHERE doctor_id = ?"
+                + (patientId != -1 ? " AND patient_id = ?" : "");
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setInt(1, medecinId);
+            if (patientId != -1) {
+                stmt.setInt(2, patientId);
+            }
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+
+    /**
+     * Rapport complet, seulement s'il appartient au médecin. null sinon.
+     */
+    public Rapport trouverRapport(int rapportId, int medecinId) throws SQLException {
+        String sql = "SELECT * FROM reports WHERE id = ? AND doctor_id = ?";
+        try (PreparedStatement stmt = connexion.prepareStatement(sql)) {
+            stmt.setInt(1, rapportId);
+            stmt.setInt(2, medecinId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? lireRapport(rs) : null;
+        }
+    }
+
+
+    private Rapport lireRapport(ResultSet rs) throws SQLException {
+        Rapport rapport = new Rapport(
+                rs.getInt("id"),
+                rs.getInt("doctor_id"),
+                rs.getInt("patient_id"),
+                rs.getDate("date_rapport"),
+                rs.getString("texte_rapport"));
+        Timestamp misAJour = rs.getTimestamp("updated_at");
+        if (misAJour != null) {
+            rapport.misAJourMs = misAJour.getTime();
+        }
+        return rapport;
+    }
 
 
-                reports.add(report);
+    public ArrayList<Report> load(ReportSearchVM rsearchvm) {
+        ArrayList<Report> reports = new ArrayList<>();
+        try (PreparedStatement ps = preparerRecherche(connexion, rsearchvm)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                reports.add(LIGNE_RAPPORT.lire(rs));
             }
             rs.close();
-            ps.close();
 
         } catch (SQLException e) {
             throw new RuntimeException(e);
@@ -165,12 +288,71 @@ public class ReportDAO {
     }
 
 
+    public Stream<Report> flux(ReportSearchVM rsearchvm) throws SQLException {
+        return FluxLignes.ouvrir(connexion, ouvreur, c -> preparerRecherche(c, rsearchvm), LIGNE_RAPPORT);
+    }
+
+
+    private static PreparedStatement preparerRecherche(Connection connexion, ReportSearchVM rsearchvm)
+            throws SQLException {
+        String query = "SELECT r.*, p.first_name AS p_first_name, p.last_name AS p_last_name, d.last_name AS d_last_name "
+                +
+                "FROM reports r " +
+                "LEFT JOIN patient p ON r.patient_id = p.id " +
+                "LEFT JOIN doctor d ON r.doctor_id = d.id " +
+                "WHERE 1=1 ";
+
+        if (rsearchvm != null) {
+            if (rsearchvm.getPatientName() != null && !rsearchvm.getPatientName().isEmpty()) {
+                query += "AND p.last_name LIKE ? ";
+            }
+            if (rsearchvm.getDoctorName() != null && !rsearchvm.getDoctorName().isEmpty()) {
+                query += "AND d.last_name LIKE ? ";
+            }
+            if (rsearchvm.getDateFrom() != null && !rsearchvm.getDateFrom().isEmpty()) {
+                query += "AND r.date_rapport >= ? ";
+            }
+            if (rsearchvm.getDateTo() != null && !rsearchvm.getDateTo().isEmpty()) {
+                query += "AND r.date_rapport <= ? ";
+            }
+            if (rsearchvm.getContent() != null && !rsearchvm.getContent().isEmpty()) {
+                query += "AND r.texte_rapport LIKE ? ";
+            }
+        }
+
+        query += " ORDER BY r.date_rapport DESC";
+
+        PreparedStatement ps = connexion.prepareStatement(query);
+
+        if (rsearchvm != null) {
+            int index = 1;
+            if (rsearchvm.getPatientName() != null && !rsearchvm.getPatientName().isEmpty()) {
+                ps.setString(index++, "%" + rsearchvm.getPatientName() + "%");
+            }
+            if (rsearchvm.getDoctorName() != null && !rsearchvm.getDoctorName().isEmpty()) {
+                ps.setString(index++, "%" + rsearchvm.getDoctorName() + "%");
+            }
+            if (rsearchvm.getDateFrom() != null && !rsearchvm.getDateFrom().isEmpty()) {
+                ps.setString(index++, rsearchvm.getDateFrom());
+            }
+            if (rsearchvm.getDateTo() != null && !rsearchvm.getDateTo().isEmpty()) {
+                ps.setString(index++, rsearchvm.getDateTo());
+            }
+            if (rsearchvm.getContent() != null && !rsearchvm.getContent().isEmpty()) {
+                ps.setString(index++, "%" + rsearchvm.getContent() + "%");
+            }
+        }
+        return ps;
+    }
+
+
     public static class Rapport {
         public int id;
         public int medecinId;
         public int patientId;
         public Date dateRapport;
         public String texteRapport;
+        public long misAJourMs;
 
         public Rapport(int id, int medecinId, int patientId, Date dateRapport, String texteRapport) {
             this.id = id;
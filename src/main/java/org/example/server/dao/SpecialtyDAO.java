@@ -3,8 +3,9 @@ package org.example.server.dao;
 import org.example.server.entity.Specialty;
 import java.sql.*;
 import java.util.ArrayList;
+import org.example.server.stockage.DepotSpecialites;
 
-public class SpecialtyDAO {
+public class SpecialtyDAO implements DepotSpecialites {
 
     private Connection connexion;
 
@@ -13,6 +14,27 @@ public class SpecialtyDAO {
     }
 
 
+    public ArrayList<Specialty> getAllSpecialties() {
+        ArrayList<Specialty> specialties = new ArrayList<>();
+        try {
+            String sql = "SELECT * FROM specialties ORDER BY name";
+            PreparedStatement stmt = connexion.prepareStatement(sql);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                String name = rs.getString("name");
+                specialties.add(new Specialty(id, name));
+            }
+
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return specialties;
+    }
+
 
     public ArrayList<Specialty> load(org.example.server.searchvm.SpecialtySearchVM vm) {
         ArrayList<Specialty> liste = new ArrayList<>();
@@ -15,6 +15,9 @@ public class Consultation implements Entity {
     private String patient_last_name;
     private String patient_birth_date;
 
+    private String doctor_last_name;
+    private String specialty_name;
+
     public Consultation() {
 
     }
@@ -87,6 +90,22 @@ public class Consultation implements Entity {
         this.patient_birth_date = patient_birth_date;
     }
 
+    public String getDoctor_last_name() {
+        return doctor_last_name;
+    }
+
+    public void setDoctor_last_name(String doctor_last_name) {
+        this.doctor_last_name = doctor_last_name;
+    }
+
+    public String getSpecialty_name() {
+        return specialty_name;
+    }
+
+    public void setSpecialty_name(String specialty_name) {
+        this.specialty_name = specialty_name;
+    }
+
     public void setDate(String date) {
         this.date = date;
     }
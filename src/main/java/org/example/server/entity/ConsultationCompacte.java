@@ -0,0 +1,117 @@
+package org.example.server.entity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Consultation en lecture seule pour les listes : types primitifs au lieu des
+ * Integer et des String de Consultation, identité du patient partagée entre
+ * les lignes. Sérialisée par Gson dans le même JSON que Consultation
+ * (voir RestUtils).
+ */
+public final class ConsultationCompacte {
+
+    // patient_id NULL : créneau libre
+    public static final int PATIENT_AUCUN = 0;
+    public static final int HEURE_AUCUNE = -1;
+
+    private final int id;
+    private final int medecinId;
+    private final int patientId;
+    // Jours depuis le 01/01/1970 (LocalDate.toEpochDay)
+    private final int date;
+    // Secondes depuis minuit : le JSON rend l'heure de la base à la seconde près
+    private final int heure;
+    private final String raison;
+    // null pour un créneau libre
+    private final IdentitePatient patient;
+
+
+    public ConsultationCompacte(int id, int medecinId, int patientId, int date, int heure, String raison,
+                                IdentitePatient patient) {
+        this.id = id;
+        this.medecinId = medecinId;
+        this.patientId = patientId;
+        this.date = date;
+        this.heure = heure;
+        this.raison = raison;
+        this.patient = patient;
+    }
+
+
+    public int getId() {
+        return id;
+    }
+
+
+    public int getMedecinId() {
+        return medecinId;
+    }
+
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+
+    public boolean estLibre() {
+        return patientId == PATIENT_AUCUN;
+    }
+
+
+    public int getDate() {
+        return date;
+    }
+
+
+    /**
+     * Secondes depuis minuit, HEURE_AUCUNE si l'heure n'est pas renseignée.
+     */
+    public int getHeure() {
+        return heure;
+    }
+
+
+    public String getRaison() {
+        return raison;
+    }
+
+
+    public IdentitePatient getPatient() {
+        return patient;
+    }
+
+
+    public static int secondes(LocalTime heure) {
+        return heure == null ? HEURE_AUCUNE : heure.toSecondOfDay();
+    }
+
+
+    /**
+     * Conversion d'une liste de Consultation (moteurs sans lecture compacte directe).
+     */
+    public static List<ConsultationCompacte> depuis(List<Consultation> consultations) {
+        List<ConsultationCompacte> compactes = new ArrayList<>(consultations.size());
+        Map<Integer, IdentitePatient> patients = new HashMap<>();
+        for (Consultation c : consultations) {
+            int patientId = c.getPatient_id() == null ? PATIENT_AUCUN : c.getPatient_id();
+            IdentitePatient patient = null;
+            if (patientId != PATIENT_AUCUN) {
+                patient = patients.computeIfAbsent(patientId, id -> new IdentitePatient(c.getPatient_first_name(),
+                        c.getPatient_last_name(), c.getPatient_birth_date() == null
+                                ? IdentitePatient.NAISSANCE_INCONNUE
+                                : (int) LocalDate.parse(c.getPatient_birth_date()).toEpochDay()));
+            }
+            compactes.add(new ConsultationCompacte(c.getId(), c.getDoctor_id(), patientId,
+                    (int) LocalDate.parse(c.getDate()).toEpochDay(),
+                    c.getHour() == null || c.getHour().isEmpty() ? HEURE_AUCUNE : secondes(LocalTime.parse(c.getHour())),
+                    c.getReason(), patient));
+        }
+        return compactes;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.server.entity;
+
+import java.time.LocalDate;
+
+
+/**
+ * Nom, prénom et date de naissance d'un patient, partagés par toutes les
+ * consultations compactes d'une même liste (une instance par patient).
+ */
+public final class IdentitePatient {
+
+    public static final int NAISSANCE_INCONNUE = Integer.MIN_VALUE;
+
+    private final String prenom;
+    private final String nom;
+    // Jours depuis le 01/01/1970 (LocalDate.toEpochDay)
+    private final int naissance;
+
+
+    public IdentitePatient(String prenom, String nom, int naissance) {
+        this.prenom = prenom;
+        this.nom = nom;
+        this.naissance = naissance;
+    }
+
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+
+    public String getNom() {
+        return nom;
+    }
+
+
+    public int getNaissance() {
+        return naissance;
+    }
+
+
+    /**
+     * Date de naissance au format ISO (aaaa-mm-jj), null si inconnue.
+     */
+    public String getNaissanceIso() {
+        return naissance == NAISSANCE_INCONNUE ? null : LocalDate.ofEpochDay(naissance).toString();
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.server.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Écriture de rapport (ajout ou modification) en attente d'application en base.
+ */
+final class EntreeJournal {
+
+    static final byte AJOUT = 1;
+    static final byte MODIFICATION = 2;
+
+    final byte type;
+    final String cle;
+    final int rapportId;
+    final int medecinId;
+    final int patientId;
+    final String date;
+    final String texte;
+    // Complété quand l'entrée est sur disque (fsync) : le client peut alors être acquitté
+    final CompletableFuture<Void> journalisee = new CompletableFuture<>();
+    // Refusée par la base et copiée dans les rejets (thread d'application seulement)
+    boolean rejetee;
+
+
+    EntreeJournal(byte type, String cle, int rapportId, int medecinId, int patientId, String date, String texte) {
+        this.type = type;
+        this.cle = cle;
+        this.rapportId = rapportId;
+        this.medecinId = medecinId;
+        this.patientId = patientId;
+        this.date = date;
+        this.texte = texte;
+    }
+
+
+    byte[] encoder() throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream(64 + texte.length());
+        DataOutputStream sortie = new DataOutputStream(octets);
+        sortie.writeByte(type);
+        sortie.writeUTF(cle);
+        sortie.writeInt(rapportId);
+        sortie.writeInt(medecinId);
+        sortie.writeInt(patientId);
+        sortie.writeUTF(date == null ? "" : date);
+        // writeUTF est limité à 64 Ko : le texte d'un rapport peut être plus long
+        byte[] octetsTexte = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.writeInt(octetsTexte.length);
+        sortie.write(octetsTexte);
+        return octets.toByteArray();
+    }
+
+
+    static EntreeJournal decoder(byte[] contenu) throws IOException {
+        DataInputStream entree = new DataInputStream(new ByteArrayInputStream(contenu));
+        byte type = entree.readByte();
+        if (type != AJOUT && type != MODIFICATION) {
+            throw new IOException("Type d'entrée inconnu: " + type);
+        }
+        String cle = entree.readUTF();
+        int rapportId = entree.readInt();
+        int medecinId = entree.readInt();
+        int patientId = entree.readInt();
+        String date = entree.readUTF();
+        byte[] octetsTexte = new byte[entree.readInt()];
+        entree.readFully(octetsTexte);
+        return new EntreeJournal(type, cle, rapportId, medecinId, patientId, date.isEmpty() ? null : date,
+                new String(octetsTexte, StandardCharsets.UTF_8));
+    }
+}
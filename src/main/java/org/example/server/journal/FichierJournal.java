@@ -0,0 +1,162 @@
+package org.example.server.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+
+/**
+ * Fichier du journal : suite d'enregistrements longueur (4) | CRC32 (8) | entrée.
+ * <p>
+ * Un lot est écrit puis forcé sur disque en un seul fsync. Quand toutes les
+ * entrées écrites ont été appliquées en base, le fichier est vidé. À l'ouverture,
+ * un enregistrement incomplet ou corrompu (arrêt pendant une écriture) marque la
+ * fin du journal : il est tronqué à cet endroit.
+ * </p>
+ */
+final class FichierJournal {
+
+    private static final int TAILLE_ENTETE = 4 + 8;
+    private static final int TAILLE_ENTREE_MAX = 64 * 1024 * 1024;
+
+    private final Path chemin;
+    private FileChannel canal;
+    // Entrées présentes dans le fichier et pas encore appliquées en base
+    private int nonAppliquees;
+
+
+    FichierJournal(Path chemin) {
+        this.chemin = chemin;
+    }
+
+
+    /**
+     * Ouvre le fichier et retourne les entrées à rejouer, dans l'ordre d'écriture.
+     */
+    synchronized List<EntreeJournal> ouvrir() throws IOException {
+        Path dossier = chemin.toAbsolutePath().getParent();
+        if (dossier != null) {
+            Files.createDirectories(dossier);
+        }
+        canal = FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            // Le journal contient des rapports en clair : lisible par le seul compte du serveur
+            Files.setPosixFilePermissions(chemin, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Système de fichiers non POSIX
+        }
+
+        List<EntreeJournal> entrees = new ArrayList<>();
+        ByteBuffer contenu = ByteBuffer.allocate((int) canal.size());
+        while (contenu.hasRemaining()) {
+            if (canal.read(contenu, contenu.position()) < 0) {
+                break;
+            }
+        }
+        contenu.flip();
+        long finValide = 0;
+        CRC32 crc = new CRC32();
+        while (contenu.remaining() >= TAILLE_ENTETE) {
+            int longueur = contenu.getInt();
+            long somme = contenu.getLong();
+            if (longueur <= 0 || longueur > TAILLE_ENTREE_MAX || longueur > contenu.remaining()) {
+                break;
+            }
+            byte[] octets = new byte[longueur];
+            contenu.get(octets);
+            crc.reset();
+            crc.update(octets);
+            if (crc.getValue() != somme) {
+                break;
+            }
+            try {
+                entrees.add(EntreeJournal.decoder(octets));
+            } catch (IOException e) {
+                break;
+            }
+            finValide = contenu.position();
+        }
+        if (finValide < canal.size()) {
+            System.err.println("Journal des rapports: fin incomplète ignorée (" + (canal.size() - finValide)
+                    + " octets)");
+            canal.truncate(finValide);
+        }
+        canal.position(finValide);
+        nonAppliquees = entrees.size();
+        return entrees;
+    }
+
+
+    /**
+     * Ajoute un lot et le force sur disque. En cas d'échec, le fichier est ramené
+     * à sa taille d'avant pour ne pas laisser d'enregistrement partiel au milieu.
+     */
+    synchronized void ecrire(List<EntreeJournal> lot) throws IOException {
+        List<byte[]> contenus = new ArrayList<>(lot.size());
+        int taille = 0;
+        for (EntreeJournal entree : lot) {
+            byte[] octets = entree.encoder();
+            contenus.add(octets);
+            taille += TAILLE_ENTETE + octets.length;
+        }
+        ByteBuffer tampon = ByteBuffer.allocate(taille);
+        CRC32 crc = new CRC32();
+        for (byte[] octets : contenus) {
+            crc.reset();
+            crc.update(octets);
+            tampon.putInt(octets.length).putLong(crc.getValue()).put(octets);
+        }
+        tampon.flip();
+
+        long debut = canal.position();
+        try {
+            while (tampon.hasRemaining()) {
+                canal.write(tampon);
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            try {
+                canal.truncate(debut);
+                canal.position(debut);
+            } catch (IOException ignoree) {
+                // Le fichier reste tronqué à la lecture suivante
+            }
+            throw e;
+        }
+        nonAppliquees += lot.size();
+    }
+
+
+    /**
+     * Signale des entrées appliquées en base ; vide le fichier quand il n'en reste plus.
+     */
+    synchronized void liberer(int nombre) throws IOException {
+        nonAppliquees -= nombre;
+        if (nonAppliquees <= 0 && canal.size() > 0) {
+            // Sans fsync : si le vidage est perdu, le rejeu est ignoré grâce aux clés
+            canal.truncate(0);
+            canal.position(0);
+            nonAppliquees = 0;
+        }
+    }
+
+
+    synchronized void fermer() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture du journal des rapports: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package org.example.server.journal;
+
+import org.example.server.dao.ReportDAO;
+import org.example.server.metriques.Metriques;
+import org.example.server.stockage.DepotRapports;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Écriture différée des rapports (ADD_REPORT, EDIT_REPORT).
+ * <p>
+ * Une écriture est ajoutée au journal local puis acquittée dès qu'elle est sur
+ * disque ; les écritures qui arrivent pendant un fsync partagent le suivant. Un
+ * second thread les applique ensuite dans MySQL par lots, une transaction (un
+ * commit) par lot, sur une connexion qui lui est réservée.
+ * </p>
+ * Chaque écriture porte une clé d'idempotence (fournie par le client, sinon
+ * générée), enregistrée dans la table report_writes dans la même transaction que
+ * l'écriture. Au redémarrage, le journal est rejoué : une entrée dont la clé est
+ * déjà en base est ignorée, ce qui donne une application unique même si le
+ * serveur s'est arrêté entre le commit et le vidage du journal.
+ * <p>
+ * Une écriture refusée par la base alors que la connexion est valide (contrainte,
+ * donnée invalide) est retirée du journal et copiée dans le fichier des rejets
+ * (chemin du journal suivi de .rejets), au même format, pour être reprise à la main.
+ * </p>
+ * <p>
+ * Les lectures de rapports d'un médecin attendent que ses propres écritures
+ * acquittées soient en base (attendreApplication) : il relit ce qu'il vient
+ * d'écrire, sans retarder les autres médecins.
+ * </p>
+ * <p>
+ * Les id des nouveaux rapports sont attribués ici (max(id) + 1) pour pouvoir
+ * répondre OK|id avant l'insertion : le serveur doit être le seul à insérer
+ * dans la table reports.
+ * </p>
+ */
+public class JournalRapports {
+
+    /**
+     * Ouvre une connexion dédiée (voir BdManager.ouvrirConnexion).
+     */
+    public interface OuvreurConnexion {
+        Connection ouvrir() throws SQLException;
+    }
+
+    private static final long DELAI_ACQUITTEMENT_MS = 10_000;
+    private static final long ATTENTE_REESSAI_MIN_MS = 500;
+    private static final long ATTENTE_REESSAI_MAX_MS = 30_000;
+    private static final int JOURS_CONSERVATION_CLES = 7;
+    private static final int CLES_RECENTES_MAX = 10_000;
+
+    private final FichierJournal fichier;
+    private final FichierJournal rejets;
+    private final int tailleLotMax;
+    private final long intervalleLotMs;
+    private final OuvreurConnexion ouvreur;
+
+    private final BlockingQueue<EntreeJournal> aJournaliser = new LinkedBlockingQueue<>();
+    private final BlockingQueue<EntreeJournal> aAppliquer = new LinkedBlockingQueue<>();
+    // Clé -> entrée pas encore en base : une requête rejouée reçoit la même réponse
+    private final Map<String, EntreeJournal> enAttente = new ConcurrentHashMap<>();
+    // Médecin -> nombre de ses écritures pas encore en base (moniteur : fin d'attente des lectures)
+    private final Map<Integer, Integer> enAttenteParMedecin = new ConcurrentHashMap<>();
+    // Rapport ajouté pas encore en base -> médecin, pour autoriser sa modification
+    private final Map<Integer, Integer> ajoutsEnAttente = new ConcurrentHashMap<>();
+    // Clé -> rapport des dernières écritures appliquées, renseigné avant leur retrait de enAttente
+    private final Map<String, Integer> appliqueesRecentes = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> plusAncienne) {
+                    return size() > CLES_RECENTES_MAX;
+                }
+            });
+    private final AtomicInteger prochainId = new AtomicInteger();
+
+    private volatile boolean actif;
+    private Thread threadJournal;
+    private Thread threadApplication;
+    private Connection connexion;
+    private DepotRapports dao;
+    private boolean rejetsOuverts;
+
+
+    public JournalRapports(Path chemin, int tailleLotMax, long intervalleLotMs, OuvreurConnexion ouvreur) {
+        this.fichier = new FichierJournal(chemin);
+        this.rejets = new FichierJournal(chemin.resolveSibling(chemin.getFileName() + ".rejets"));
+        this.tailleLotMax = Math.max(1, tailleLotMax);
+        this.intervalleLotMs = Math.max(0, intervalleLotMs);
+        this.ouvreur = ouvreur;
+    }
+
+
+    /**
+     * Rejoue le journal laissé par l'exécution précédente puis démarre les threads.
+     * Une entrée refusée par la base part dans le fichier des rejets ; si la base
+     * est injoignable, le journal reste intact sur disque.
+     */
+    public void demarrer() throws IOException, SQLException {
+        List<EntreeJournal> aRejouer = fichier.ouvrir();
+        ouvrirConnexion();
+        int idMax = dao.getIdMax();
+        connexion.commit();
+        for (EntreeJournal entree : aRejouer) {
+            if (entree.type == EntreeJournal.AJOUT) {
+                idMax = Math.max(idMax, entree.rapportId);
+            }
+        }
+        prochainId.set(idMax + 1);
+
+        if (!aRejouer.isEmpty()) {
+            System.out.println("Journal des rapports: " + aRejouer.size() + " écriture(s) à rejouer");
+            for (int debut = 0; debut < aRejouer.size(); debut += tailleLotMax) {
+                List<EntreeJournal> lot = aRejouer.subList(debut, Math.min(aRejouer.size(), debut + tailleLotMax));
+                appliquerLot(lot);
+            }
+        }
+        fichier.liberer(aRejouer.size());
+        dao.purgerCles(JOURS_CONSERVATION_CLES);
+        connexion.commit();
+
+        Metriques.jauge("mrps_wal_pending", "Écritures de rapports acquittées pas encore en base",
+                enAttente::size);
+        actif = true;
+        threadJournal = new Thread(this::boucleJournal, "journal-rapports");
+        threadApplication = new Thread(this::boucleApplication, "application-rapports");
+        threadJournal.start();
+        threadApplication.start();
+    }
+
+
+    /**
+     * Journalise un nouveau rapport et retourne son id, une fois l'entrée sur disque.
+     *
+     * @throws java.time.format.DateTimeParseException date absente du format aaaa-mm-jj
+     */
+    public int ajouter(int medecinId, int patientId, String date, String texte, String cle) throws IOException {
+        // L'entrée est acquittée avant d'aller en base : une date refusée plus tard serait perdue
+        LocalDate.parse(date);
+        int rapportId = prochainId.getAndIncrement();
+        EntreeJournal entree = new EntreeJournal(EntreeJournal.AJOUT, cleOuNouvelle(cle), rapportId, medecinId,
+                patientId, date, texte);
+        ajoutsEnAttente.put(rapportId, medecinId);
+        return soumettre(entree);
+    }
+
+
+    /**
+     * Journalise une modification. L'appelant a vérifié que le rapport appartient au médecin.
+     */
+    public void modifier(int rapportId, String texte, int medecinId, String cle) throws IOException {
+        soumettre(new EntreeJournal(EntreeJournal.MODIFICATION, cleOuNouvelle(cle), rapportId, medecinId, 0,
+                null, texte));
+    }
+
+
+    /**
+     * Id du rapport concerné par une écriture en attente portant cette clé, null sinon.
+     */
+    public Integer trouverEnAttente(String cle) {
+        EntreeJournal entree = cle == null ? null : enAttente.get(cle);
+        return entree == null ? null : entree.rapportId;
+    }
+
+
+    public boolean estAjoutEnAttente(int rapportId, int medecinId) {
+        Integer proprietaire = ajoutsEnAttente.get(rapportId);
+        return proprietaire != null && proprietaire == medecinId;
+    }
+
+
+    public int getNombreEnAttente() {
+        return enAttente.size();
+    }
+
+
+    /**
+     * Attend que les écritures acquittées du médecin soient appliquées en base
+     * (ou rejetées), pour que ses lectures les voient.
+     *
+     * @return false si elles ne le sont toujours pas après delaiMs
+     */
+    public boolean attendreApplication(int medecinId, long delaiMs) throws InterruptedException {
+        if (!enAttenteParMedecin.containsKey(medecinId)) {
+            return true;
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMs);
+        synchronized (enAttenteParMedecin) {
+            while (enAttenteParMedecin.containsKey(medecinId)) {
+                long reste = limite - System.nanoTime();
+                if (reste <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(enAttenteParMedecin, reste);
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Laisse les écritures en attente partir en base pendant au plus delaiMs, puis
+     * arrête les threads. Ce qui n'est pas appliqué reste dans le journal.
+     */
+    public void arreter(long delaiMs) {
+        if (!actif) {
+            return;
+        }
+        actif = false;
+        long limite = System.currentTimeMillis() + delaiMs;
+        for (Thread thread : new Thread[] { threadJournal, threadApplication }) {
+            try {
+                thread.join(Math.max(1, limite - System.currentTimeMillis()));
+                if (thread.isAlive()) {
+                    thread.interrupt();
+                    thread.join(1_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!enAttente.isEmpty()) {
+            System.err.println("Journal des rapports: " + enAttente.size()
+                    + " écriture(s) conservée(s) pour le prochain démarrage");
+        }
+        fichier.fermer();
+        rejets.fermer();
+        fermerConnexion();
+    }
+
+
+    // Retourne l'id du rapport concerné, celui de la première écriture si la clé est déjà connue
+    private int soumettre(EntreeJournal entree) throws IOException {
+        if (!actif) {
+            throw new IOException("Journal des rapports arrêté");
+        }
+        EntreeJournal existante = enAttente.putIfAbsent(entree.cle, entree);
+        if (existante != null) {
+            // Même clé déjà reçue (client qui réessaie) : même réponse, pas de seconde écriture
+            ajoutsEnAttente.remove(entree.rapportId);
+            entree = existante;
+        } else {
+            // La première écriture a pu quitter enAttente juste avant notre ajout
+            Integer appliquee = appliqueesRecentes.get(entree.cle);
+            if (appliquee != null) {
+                enAttente.remove(entree.cle, entree);
+                ajoutsEnAttente.remove(entree.rapportId);
+                return appliquee;
+            }
+            compterEnAttente(entree.medecinId, 1);
+            aJournaliser.add(entree);
+        }
+        try {
+            entree.journalisee.get(DELAI_ACQUITTEMENT_MS, TimeUnit.MILLISECONDS);
+            return entree.rapportId;
+        } catch (ExecutionException e) {
+            throw new IOException("Écriture du journal impossible: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Journal des rapports trop lent", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Écriture interrompue", e);
+        }
+    }
+
+
+    private static String cleOuNouvelle(String cle) {
+        return cle != null ? cle : UUID.randomUUID().toString();
+    }
+
+
+    // Un fsync par lot : les écritures arrivées pendant le précédent partent ensemble
+    private void boucleJournal() {
+        while (actif || !aJournaliser.isEmpty()) {
+            List<EntreeJournal> lot = new ArrayList<>();
+            try {
+                EntreeJournal premiere = aJournaliser.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+            } catch (InterruptedException e) {
+                break;
+            }
+            aJournaliser.drainTo(lot, tailleLotMax - 1);
+
+            long debut = System.nanoTime();
+            try {
+                fichier.ecrire(lot);
+            } catch (IOException e) {
+                System.err.println("Erreur d'écriture du journal des rapports: " + e.getMessage());
+                for (EntreeJournal entree : lot) {
+                    oublier(entree, false);
+                    entree.journalisee.completeExceptionally(e);
+                }
+                continue;
+            }
+            Metriques.histogramme("mrps_wal_fsync_duration_seconds", "Durée d'écriture et fsync d'un lot du journal")
+                    .enregistrerDepuis(debut);
+            Metriques.compteur("mrps_wal_fsyncs_total", "Lots forcés sur disque par le journal").increment();
+            Metriques.compteur("mrps_wal_entries_total", "Écritures de rapports journalisées").add(lot.size());
+            aAppliquer.addAll(lot);
+            for (EntreeJournal entree : lot) {
+                entree.journalisee.complete(null);
+            }
+        }
+    }
+
+
+    // Attend jusqu'à intervalleLotMs que le lot se remplisse : un commit pour tout le lot
+    private void boucleApplication() {
+        long attente = ATTENTE_REESSAI_MIN_MS;
+        List<EntreeJournal> lot = new ArrayList<>();
+        while (actif || !aAppliquer.isEmpty() || !lot.isEmpty() || threadJournal.isAlive()) {
+            try {
+                if (lot.isEmpty()) {
+                    EntreeJournal premiere = aAppliquer.poll(100, TimeUnit.MILLISECONDS);
+                    if (premiere == null) {
+                        continue;
+                    }
+                    lot.add(premiere);
+                    long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalleLotMs);
+                    while (lot.size() < tailleLotMax) {
+                        aAppliquer.drainTo(lot, tailleLotMax - lot.size());
+                        long reste = limite - System.nanoTime();
+                        if (lot.size() >= tailleLotMax || reste <= 0) {
+                            break;
+                        }
+                        EntreeJournal suivante = aAppliquer.poll(reste, TimeUnit.NANOSECONDS);
+                        if (suivante == null) {
+                            break;
+                        }
+                        lot.add(suivante);
+                    }
+                }
+
+                try {
+                    if (connexion == null) {
+                        ouvrirConnexion();
+                    }
+                    appliquerLot(lot);
+                } catch (SQLException | RuntimeException e) {
+                    // Base injoignable : le lot est retenté (les entrées déjà passées sont
+                    // reconnues par leur clé), le journal le garde sur disque
+                    System.err.println("Journal des rapports: base indisponible, nouvel essai dans " + attente
+                            + " ms (" + e.getMessage() + ")");
+                    fermerConnexion();
+                    Thread.sleep(attente);
+                    attente = Math.min(ATTENTE_REESSAI_MAX_MS, attente * 2);
+                    continue;
+                }
+                attente = ATTENTE_REESSAI_MIN_MS;
+                for (EntreeJournal entree : lot) {
+                    oublier(entree, !entree.rejetee);
+                }
+                fichier.liberer(lot.size());
+                lot.clear();
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Erreur lors du vidage du journal des rapports: " + e.getMessage());
+                lot.clear();
+            }
+        }
+    }
+
+
+    private void appliquerLot(List<EntreeJournal> lot) throws SQLException {
+        try {
+            appliquerTransaction(lot);
+        } catch (SQLException e) {
+            if (!connexionValide()) {
+                throw e;
+            }
+            appliquerUneParUne(lot);
+        } catch (RuntimeException e) {
+            appliquerUneParUne(lot);
+        }
+    }
+
+
+    private void appliquerTransaction(List<EntreeJournal> lot) throws SQLException {
+        try {
+            for (EntreeJournal entree : lot) {
+                if (!entree.rejetee) {
+                    appliquer(entree);
+                }
+            }
+            connexion.commit();
+            Metriques.compteur("mrps_wal_commits_total", "Transactions de lots appliquées en base").increment();
+        } catch (SQLException | RuntimeException e) {
+            annuler();
+            throw e;
+        }
+    }
+
+
+    // Un lot refusé par la base (contrainte) : on isole l'entrée fautive
+    private void appliquerUneParUne(List<EntreeJournal> lot) throws SQLException {
+        for (EntreeJournal entree : lot) {
+            if (entree.rejetee) {
+                continue;
+            }
+            try {
+                appliquer(entree);
+                connexion.commit();
+            } catch (SQLException e) {
+                annuler();
+                if (!connexionValide()) {
+                    throw e;
+                }
+                rejeter(entree, e);
+            } catch (RuntimeException e) {
+                annuler();
+                rejeter(entree, e);
+            }
+        }
+    }
+
+
+    // Sortie du journal sans être appliquée : l'entrée est gardée dans le fichier des rejets
+    private void rejeter(EntreeJournal entree, Exception cause) {
+        entree.rejetee = true;
+        Metriques.compteur("mrps_wal_applied_total", "Écritures du journal traitées en base",
+                "result", "failed").increment();
+        try {
+            if (!rejetsOuverts) {
+                rejets.ouvrir();
+                rejetsOuverts = true;
+            }
+            rejets.ecrire(List.of(entree));
+            System.err.println("Journal des rapports: écriture " + entree.cle + " refusée (" + cause
+                    + "), copiée dans les rejets");
+        } catch (IOException e) {
+            System.err.println("Journal des rapports: écriture " + entree.cle + " refusée (" + cause
+                    + ") et perdue, fichier des rejets inutilisable: " + e.getMessage());
+        }
+    }
+
+
+    private void appliquer(EntreeJournal entree) throws SQLException {
+        if (!dao.enregistrerCleIdempotence(entree.cle, entree.rapportId)) {
+            Metriques.compteur("mrps_wal_applied_total", "Écritures du journal traitées en base",
+                    "result", "duplicate").increment();
+            return;
+        }
+        if (entree.type == EntreeJournal.AJOUT) {
+            dao.insererRapport(entree.rapportId, entree.medecinId, entree.patientId, entree.date, entree.texte);
+        } else {
+            dao.modifierRapport(entree.rapportId, entree.texte, entree.medecinId);
+        }
+        Metriques.compteur("mrps_wal_applied_total", "Écritures du journal traitées en base",
+                "result", "applied").increment();
+    }
+
+
+    private void oublier(EntreeJournal entree, boolean appliquee) {
+        if (appliquee) {
+            appliqueesRecentes.put(entree.cle, entree.rapportId);
+        }
+        enAttente.remove(entree.cle, entree);
+        if (entree.type == EntreeJournal.AJOUT) {
+            ajoutsEnAttente.remove(entree.rapportId);
+        }
+        compterEnAttente(entree.medecinId, -1);
+    }
+
+
+    private void compterEnAttente(int medecinId, int delta) {
+        synchronized (enAttenteParMedecin) {
+            enAttenteParMedecin.merge(medecinId, delta, (avant, ajout) -> avant + ajout == 0 ? null : avant + ajout);
+            if (delta < 0) {
+                enAttenteParMedecin.notifyAll();
+            }
+        }
+    }
+
+
+    private void ouvrirConnexion() throws SQLException {
+        connexion = ouvreur.ouvrir();
+        connexion.setAutoCommit(false);
+        dao = Metriques.chronometrer(DepotRapports.class, new ReportDAO(connexion), "ReportDAO");
+    }
+
+
+    private boolean connexionValide() {
+        try {
+            return connexion != null && connexion.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+
+    private void annuler() {
+        try {
+            connexion.rollback();
+        } catch (SQLException e) {
+            // Connexion perdue : la transaction est abandonnée par le serveur MySQL
+        }
+    }
+
+
+    private void fermerConnexion() {
+        if (connexion == null) {
+            return;
+        }
+        try {
+            connexion.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture de la connexion du journal: " + e.getMessage());
+        }
+        connexion = null;
+        dao = null;
+    }
+}
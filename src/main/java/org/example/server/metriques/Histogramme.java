@@ -0,0 +1,156 @@
+package org.example.server.metriques;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Histogramme de latences à précision relative constante (dans l'esprit de HdrHistogram).
+ * <p>
+ * Les valeurs (en nanosecondes) sont rangées dans des seaux log-linéaires :
+ * chaque puissance de 2 est découpée en 8 sous-seaux, soit une erreur relative
+ * d'au plus 12,5 %, pour 472 compteurs au total quelle que soit la plage.
+ * L'enregistrement ne fait qu'un incrément atomique, sans verrou ni allocation.
+ * </p>
+ */
+public class Histogramme {
+
+    private static final int SOUS_SEAUX = 8;
+    private static final int BITS_SOUS_SEAUX = 3;
+    // Les valeurs sont plafonnées à 2^60 ns (plus de 36 ans), ce qui limite le nombre de seaux
+    private static final long VALEUR_MAX = 1L << 60;
+    private static final int NOMBRE_SEAUX = SOUS_SEAUX * 59;
+
+    // Bornes "le" exportées vers Prometheus, en secondes
+    static final double[] BORNES_SECONDES = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025,
+            0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final AtomicLongArray seaux = new AtomicLongArray(NOMBRE_SEAUX);
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder somme = new LongAdder();
+
+
+    public void enregistrer(long valeurNanos) {
+        long valeur = Math.min(VALEUR_MAX, Math.max(0, valeurNanos));
+        seaux.incrementAndGet(indice(valeur));
+        nombre.increment();
+        somme.add(valeur);
+    }
+
+
+    public void enregistrerDepuis(long debutNanos) {
+        enregistrer(System.nanoTime() - debutNanos);
+    }
+
+
+    /**
+     * Enregistre une mesure en tenant compte de l'omission coordonnée : si la mesure
+     * dépasse l'intervalle attendu entre deux envois, les requêtes qui auraient dû
+     * partir pendant l'attente sont ajoutées avec leur latence reconstituée.
+     */
+    public void enregistrerAvecIntervalleAttendu(long valeurNanos, long intervalleAttenduNanos) {
+        enregistrer(valeurNanos);
+        if (intervalleAttenduNanos <= 0) {
+            return;
+        }
+        for (long manquante = valeurNanos - intervalleAttenduNanos; manquante >= intervalleAttenduNanos;
+             manquante -= intervalleAttenduNanos) {
+            enregistrer(manquante);
+        }
+    }
+
+
+    public long getNombre() {
+        return nombre.sum();
+    }
+
+
+    public long getSommeNanos() {
+        return somme.sum();
+    }
+
+
+    /**
+     * Valeur (en nanosecondes) sous laquelle se trouvent q % des mesures, q entre 0 et 100.
+     */
+    public long percentile(double q) {
+        long total = 0;
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            total += seaux.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rang = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, q)) / 100.0);
+        rang = Math.max(1, rang);
+        long cumul = 0;
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            cumul += seaux.get(i);
+            if (cumul >= rang) {
+                return borneSuperieure(i) - 1;
+            }
+        }
+        return borneSuperieure(NOMBRE_SEAUX - 1) - 1;
+    }
+
+
+    public long maximum() {
+        for (int i = NOMBRE_SEAUX - 1; i >= 0; i--) {
+            if (seaux.get(i) > 0) {
+                return borneSuperieure(i) - 1;
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Nombres cumulés de mesures sous chaque borne de BORNES_SECONDES.
+     */
+    long[] cumulsParBorne() {
+        long[] cumuls = new long[BORNES_SECONDES.length];
+        int seau = 0;
+        long cumul = 0;
+        for (int b = 0; b < BORNES_SECONDES.length; b++) {
+            long borneNanos = (long) (BORNES_SECONDES[b] * 1_000_000_000L);
+            while (seau < NOMBRE_SEAUX && borneSuperieure(seau) <= borneNanos + 1) {
+                cumul += seaux.get(seau);
+                seau++;
+            }
+            cumuls[b] = cumul;
+        }
+        return cumuls;
+    }
+
+
+    public void reinitialiser() {
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            seaux.set(i, 0);
+        }
+        nombre.reset();
+        somme.reset();
+    }
+
+
+    static int indice(long valeur) {
+        if (valeur < SOUS_SEAUX) {
+            return (int) valeur;
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(valeur);
+        int sousSeau = (int) (valeur >>> (exposant - BITS_SOUS_SEAUX)) & (SOUS_SEAUX - 1);
+        return (exposant - BITS_SOUS_SEAUX + 1) * SOUS_SEAUX + sousSeau;
+    }
+
+
+    // Borne supérieure exclue du seau
+    static long borneSuperieure(int indice) {
+        if (indice < SOUS_SEAUX) {
+            return indice + 1;
+        }
+        int exposant = indice / SOUS_SEAUX + BITS_SOUS_SEAUX - 1;
+        int sousSeau = indice % SOUS_SEAUX;
+        return (long) (SOUS_SEAUX + sousSeau + 1) << (exposant - BITS_SOUS_SEAUX);
+    }
+}
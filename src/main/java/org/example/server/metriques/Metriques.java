@@ -0,0 +1,229 @@
+package org.example.server.metriques;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+
+/**
+ * Registre global des métriques (compteurs, histogrammes, jauges) et export
+ * au format texte Prometheus.
+ * <p>
+ * Une métrique est identifiée par son nom et ses étiquettes, passées sous forme
+ * de paires clé/valeur : compteur("mrps_commands_total", "aide", "command", "LOGIN").
+ * Le même appel renvoie toujours la même instance, on peut donc la garder dans
+ * un champ static pour éviter la recherche sur les chemins chauds.
+ * </p>
+ */
+public final class Metriques {
+
+    private static final Map<String, Famille> familles = new ConcurrentHashMap<>();
+    private static final ThreadLocal<long[]> TEMPS_DAO_THREAD = ThreadLocal.withInitial(() -> new long[1]);
+
+    private Metriques() {
+    }
+
+
+    public static LongAdder compteur(String nom, String aide, String... etiquettes) {
+        Famille famille = famille(nom, aide, "counter");
+        return (LongAdder) famille.series.computeIfAbsent(formaterEtiquettes(etiquettes), e -> new LongAdder());
+    }
+
+
+    public static Histogramme histogramme(String nom, String aide, String... etiquettes) {
+        Famille famille = famille(nom, aide, "histogram");
+        return (Histogramme) famille.series.computeIfAbsent(formaterEtiquettes(etiquettes), e -> new Histogramme());
+    }
+
+
+    /**
+     * Jauge calculée à la lecture (taille d'une file, nombre de sessions...).
+     * Un nouvel enregistrement avec les mêmes étiquettes remplace le précédent.
+     */
+    public static void jauge(String nom, String aide, DoubleSupplier valeur, String... etiquettes) {
+        Famille famille = famille(nom, aide, "gauge");
+        famille.series.put(formaterEtiquettes(etiquettes), valeur);
+    }
+
+
+    /**
+     * Compteur dont la valeur est lue sur un total déjà tenu ailleurs (LongAdder
+     * d'un autre objet) ; la valeur ne doit jamais diminuer. Le nom se termine par _total.
+     */
+    public static void compteurCalcule(String nom, String aide, DoubleSupplier valeur, String... etiquettes) {
+        Famille famille = famille(nom, aide, "counter");
+        famille.series.put(formaterEtiquettes(etiquettes), valeur);
+    }
+
+
+    /**
+     * Durée d'une méthode DAO, ex: dao("ReportDAO.ajouterRapport", debut).
+     */
+    public static void dao(String methode, long debutNanos) {
+        long duree = System.nanoTime() - debutNanos;
+        histogramme("mrps_dao_duration_seconds", "Durée des méthodes DAO", "method", methode).enregistrer(duree);
+        TEMPS_DAO_THREAD.get()[0] += duree;
+    }
+
+
+    /**
+     * Enveloppe un dépôt : chaque méthode de l'interface est mesurée comme
+     * dao(nom + "." + méthode, ...), sans toucher au code du DAO.
+     */
+    public static <T> T chronometrer(Class<T> type, T cible, String nom) {
+        Map<Method, String> noms = new ConcurrentHashMap<>();
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, methode, args) -> {
+                    if (methode.getDeclaringClass() == Object.class) {
+                        return methode.invoke(cible, args);
+                    }
+                    long debut = System.nanoTime();
+                    try {
+                        return methode.invoke(cible, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        dao(noms.computeIfAbsent(methode, m -> nom + "." + m.getName()), debut);
+                    }
+                }));
+    }
+
+
+    /**
+     * Temps DAO cumulé par le thread courant (ns) : la différence avant/après
+     * une commande donne le temps passé en base pour cette commande.
+     */
+    public static long tempsDaoThread() {
+        return TEMPS_DAO_THREAD.get()[0];
+    }
+
+
+    public static String exporterPrometheus() {
+        StringBuilder texte = new StringBuilder();
+        for (Map.Entry<String, Famille> entree : new TreeMap<>(familles).entrySet()) {
+            String nom = entree.getKey();
+            Famille famille = entree.getValue();
+            texte.append("# HELP ").append(nom).append(' ').append(famille.aide).append('\n');
+            texte.append("# TYPE ").append(nom).append(' ').append(famille.type).append('\n');
+
+            for (Map.Entry<String, Object> serie : new TreeMap<>(famille.series).entrySet()) {
+                String etiquettes = serie.getKey();
+                Object valeur = serie.getValue();
+                if (valeur instanceof LongAdder) {
+                    ligne(texte, nom, etiquettes, ((LongAdder) valeur).sum());
+                } else if (valeur instanceof DoubleSupplier) {
+                    ligne(texte, nom, etiquettes, lireJauge((DoubleSupplier) valeur));
+                } else if (valeur instanceof Histogramme) {
+                    exporterHistogramme(texte, nom, etiquettes, (Histogramme) valeur);
+                }
+            }
+        }
+        return texte.toString();
+    }
+
+
+    private static void exporterHistogramme(StringBuilder texte, String nom, String etiquettes, Histogramme h) {
+        long[] cumuls = h.cumulsParBorne();
+        for (int i = 0; i < cumuls.length; i++) {
+            String le = "le=\"" + formaterNombre(Histogramme.BORNES_SECONDES[i]) + "\"";
+            ligne(texte, nom + "_bucket", ajouterEtiquette(etiquettes, le), cumuls[i]);
+        }
+        long nombre = h.getNombre();
+        ligne(texte, nom + "_bucket", ajouterEtiquette(etiquettes, "le=\"+Inf\""), nombre);
+        ligne(texte, nom + "_sum", etiquettes, h.getSommeNanos() / 1e9);
+        ligne(texte, nom + "_count", etiquettes, nombre);
+    }
+
+
+    private static Famille famille(String nom, String aide, String type) {
+        Famille famille = familles.computeIfAbsent(nom, n -> new Famille(aide, type));
+        if (!famille.type.equals(type)) {
+            throw new IllegalArgumentException("La métrique " + nom + " est déjà de type " + famille.type);
+        }
+        return famille;
+    }
+
+
+    private static String formaterEtiquettes(String... etiquettes) {
+        if (etiquettes.length == 0) {
+            return "";
+        }
+        if (etiquettes.length % 2 != 0) {
+            throw new IllegalArgumentException("Les étiquettes vont par paires clé/valeur");
+        }
+        StringBuilder texte = new StringBuilder();
+        for (int i = 0; i < etiquettes.length; i += 2) {
+            if (i > 0) {
+                texte.append(',');
+            }
+            texte.append(etiquettes[i]).append("=\"").append(echapper(etiquettes[i + 1])).append('"');
+        }
+        return texte.toString();
+    }
+
+
+    private static String ajouterEtiquette(String etiquettes, String supplementaire) {
+        if (etiquettes.isEmpty()) {
+            return supplementaire;
+        }
+        return etiquettes + "," + supplementaire;
+    }
+
+
+    private static void ligne(StringBuilder texte, String nom, String etiquettes, double valeur) {
+        texte.append(nom);
+        if (!etiquettes.isEmpty()) {
+            texte.append('{').append(etiquettes).append('}');
+        }
+        texte.append(' ').append(formaterNombre(valeur)).append('\n');
+    }
+
+
+    private static double lireJauge(DoubleSupplier jauge) {
+        try {
+            return jauge.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+
+    private static String formaterNombre(double valeur) {
+        if (Double.isNaN(valeur)) {
+            return "NaN";
+        }
+        if (valeur == Math.rint(valeur) && !Double.isInfinite(valeur) && Math.abs(valeur) < 1e15) {
+            return String.valueOf((long) valeur);
+        }
+        if (Double.isInfinite(valeur)) {
+            return valeur > 0 ? "+Inf" : "-Inf";
+        }
+        return BigDecimal.valueOf(valeur).stripTrailingZeros().toPlainString();
+    }
+
+
+    private static String echapper(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        return valeur.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+
+    private static class Famille {
+        private final String aide;
+        private final String type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        private Famille(String aide, String type) {
+            this.aide = aide;
+            this.type = type;
+        }
+    }
+}
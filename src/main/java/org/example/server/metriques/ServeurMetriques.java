@@ -0,0 +1,59 @@
+package org.example.server.metriques;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Petit serveur HTTP exposant /metrics pour les processus qui n'ont pas déjà
+ * un HttpServer (le serveur de rapports sécurisé).
+ */
+public class ServeurMetriques {
+
+    public static final String ROUTE = "/metrics";
+
+    private final int port;
+    private HttpServer serveur;
+
+
+    public ServeurMetriques(int port) {
+        this.port = port;
+    }
+
+
+    public void demarrer() throws IOException {
+        serveur = HttpServer.create(new InetSocketAddress(port), 0);
+        serveur.createContext(ROUTE, creerHandler());
+        serveur.start();
+        System.out.println("✓ Métriques exposées sur http://localhost:" + port + ROUTE);
+    }
+
+
+    public void arreter() {
+        if (serveur != null) {
+            serveur.stop(0);
+        }
+    }
+
+
+    public static HttpHandler creerHandler() {
+        return echange -> {
+            if (!"GET".equals(echange.getRequestMethod())) {
+                echange.sendResponseHeaders(405, -1);
+                echange.close();
+                return;
+            }
+            byte[] octets = Metriques.exporterPrometheus().getBytes(StandardCharsets.UTF_8);
+            echange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=UTF-8");
+            echange.sendResponseHeaders(200, octets.length);
+            try (OutputStream sortie = echange.getResponseBody()) {
+                sortie.write(octets);
+            }
+        };
+    }
+}
@@ -0,0 +1,269 @@
+package org.example.server.sessions;
+
+import org.example.server.metriques.Metriques;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Suivi de l'activité des sessions clients et fermeture des sessions périmées.
+ * <p>
+ * Un ClientHandler bloqué dans readLine() garde son thread du pool tant que le
+ * client ne se déconnecte pas. Chaque session a donc deux échéances sur une
+ * RoueTemporisation : l'inactivité (aucune requête depuis N secondes) et la
+ * durée maximale. À l'échéance, le socket est fermé : readLine() échoue, le
+ * ClientHandler efface la clé de session et rend son thread au pool.
+ * </p>
+ * Marquer l'activité ne replanifie rien (une écriture volatile par requête) :
+ * à l'échéance d'inactivité, la session est réarmée pour le temps restant si
+ * elle a servi entre-temps. Une session qui atteint sa durée maximale pendant
+ * une requête n'est fermée qu'une fois cette requête terminée.
+ */
+public class GestionnaireSessions {
+
+    // Au-delà, une session ouverte est comptée comme inactive (jauge)
+    private static final long SEUIL_INACTIVE_MS = 60_000;
+
+    private final long delaiInactiviteMs;
+    private final long dureeMaxMs;
+    private final RoueTemporisation roue = new RoueTemporisation(1_000, 512, "sessions-roue");
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final LongAdder recolteesInactivite = new LongAdder();
+    private final LongAdder recolteesDureeMax = new LongAdder();
+    // Requêtes en cours sur toutes les sessions, pour le drainage à l'arrêt
+    private final AtomicInteger requetesEnCours = new AtomicInteger();
+    private volatile boolean drainage;
+
+
+    /**
+     * @param delaiInactiviteMs 0 pour ne pas limiter l'inactivité
+     * @param dureeMaxMs        0 pour ne pas limiter la durée totale
+     */
+    public GestionnaireSessions(long delaiInactiviteMs, long dureeMaxMs) {
+        this.delaiInactiviteMs = delaiInactiviteMs;
+        this.dureeMaxMs = dureeMaxMs;
+    }
+
+
+    /**
+     * Session d'un client connecté, à fermer par le ClientHandler à la fin de run().
+     */
+    public final class Session {
+        private final Socket socket;
+        private final long ouvertureMs = maintenantMs();
+        private volatile long derniereActiviteMs = ouvertureMs;
+        private volatile boolean occupee;
+        // Durée maximale atteinte pendant une requête (gardé par le moniteur de la session)
+        private boolean expiree;
+        private final AtomicBoolean fermee = new AtomicBoolean();
+        private volatile RoueTemporisation.Minuterie minuterieInactivite;
+        private volatile RoueTemporisation.Minuterie minuterieDureeMax;
+        private volatile PrintWriter sortie;
+
+        private Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Flux de réponses de la session, pour la notification d'arrêt.
+         */
+        public void attacherSortie(PrintWriter sortie) {
+            this.sortie = sortie;
+        }
+
+        /**
+         * Une session occupée n'est jamais fermée pour inactivité.
+         *
+         * @return false si le serveur s'arrête : la requête ne doit pas être traitée
+         */
+        public boolean debutRequete() {
+            requetesEnCours.incrementAndGet();
+            if (drainage) {
+                requetesEnCours.decrementAndGet();
+                return false;
+            }
+            synchronized (this) {
+                occupee = true;
+            }
+            derniereActiviteMs = maintenantMs();
+            return true;
+        }
+
+        public void finRequete() {
+            derniereActiviteMs = maintenantMs();
+            boolean aFermer;
+            synchronized (this) {
+                occupee = false;
+                aFermer = expiree;
+            }
+            requetesEnCours.decrementAndGet();
+            if (aFermer) {
+                recolter(this, "max_duration");
+            }
+        }
+
+        /**
+         * Retire la session du suivi (fin normale ou après récolte).
+         */
+        public void fermer() {
+            if (fermee.compareAndSet(false, true)) {
+                retirer(this);
+            }
+        }
+
+        private long inactiviteMs(long maintenant) {
+            return occupee ? 0 : maintenant - derniereActiviteMs;
+        }
+    }
+
+
+    public Session ouvrir(Socket socket) {
+        Session session = new Session(socket);
+        sessions.add(session);
+        if (delaiInactiviteMs > 0) {
+            session.minuterieInactivite = roue.planifier(delaiInactiviteMs, () -> verifierInactivite(session));
+        }
+        if (dureeMaxMs > 0) {
+            session.minuterieDureeMax = roue.planifier(dureeMaxMs, () -> verifierDureeMax(session));
+        }
+        return session;
+    }
+
+
+    public int getNombreSessions() {
+        return sessions.size();
+    }
+
+
+    public int getNombreInactives() {
+        long maintenant = maintenantMs();
+        int nombre = 0;
+        for (Session session : sessions) {
+            if (session.inactiviteMs(maintenant) >= SEUIL_INACTIVE_MS) {
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+
+    public long getNombreRecoltees() {
+        return recolteesInactivite.sum() + recolteesDureeMax.sum();
+    }
+
+
+    public int getNombreRequetesEnCours() {
+        return requetesEnCours.get();
+    }
+
+
+    /**
+     * Plus aucune nouvelle requête n'est acceptée ; celles en cours se terminent.
+     */
+    public void commencerDrainage() {
+        drainage = true;
+    }
+
+
+    /**
+     * Envoie une ligne hors protocole requête/réponse à toutes les sessions (SHUTDOWN).
+     * println() est synchronisé : la ligne ne se mélange pas à une réponse en cours.
+     */
+    public void notifierTout(String ligne) {
+        for (Session session : sessions) {
+            PrintWriter sortieSession = session.sortie;
+            if (sortieSession != null) {
+                sortieSession.println(ligne);
+            }
+        }
+    }
+
+
+    /**
+     * Ferme tous les sockets : les ClientHandler sortent de readLine() et libèrent leur thread.
+     */
+    public void fermerTout() {
+        for (Session session : sessions) {
+            session.fermer();
+            try {
+                session.socket.close();
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la fermeture d'une session: " + e.getMessage());
+            }
+        }
+    }
+
+
+    public void arreter() {
+        roue.arreter();
+    }
+
+
+    // Sur le thread de la roue
+    private void verifierInactivite(Session session) {
+        if (session.fermee.get()) {
+            return;
+        }
+        long inactivite = session.inactiviteMs(maintenantMs());
+        if (inactivite >= delaiInactiviteMs) {
+            recolter(session, "idle");
+        } else {
+            session.minuterieInactivite = roue.planifier(delaiInactiviteMs - inactivite,
+                    () -> verifierInactivite(session));
+        }
+    }
+
+
+    // Sur le thread de la roue : une requête en cours se termine avant la fermeture
+    private void verifierDureeMax(Session session) {
+        synchronized (session) {
+            session.expiree = true;
+            if (session.occupee) {
+                return;
+            }
+        }
+        recolter(session, "max_duration");
+    }
+
+
+    private void recolter(Session session, String raison) {
+        if (!session.fermee.compareAndSet(false, true)) {
+            return;
+        }
+        retirer(session);
+        (raison.equals("idle") ? recolteesInactivite : recolteesDureeMax).increment();
+        Metriques.compteur("mrps_sessions_reaped_total", "Sessions fermées par le serveur (inactivité ou durée max)",
+                "reason", raison).increment();
+        System.out.println("Session fermée (" + raison + "): " + session.socket.getInetAddress());
+        try {
+            // Débloque le readLine() du ClientHandler, qui libère son thread
+            session.socket.close();
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la fermeture d'une session périmée: " + e.getMessage());
+        }
+    }
+
+
+    private void retirer(Session session) {
+        sessions.remove(session);
+        if (session.minuterieInactivite != null) {
+            session.minuterieInactivite.annuler();
+        }
+        if (session.minuterieDureeMax != null) {
+            session.minuterieDureeMax.annuler();
+        }
+    }
+
+
+    private static long maintenantMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.server.sessions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Roue de temporisation hachée : planifier ou annuler une échéance coûte O(1),
+ * quel que soit le nombre de sessions suivies.
+ * <p>
+ * La roue a un nombre fixe de cases (puissance de 2) et avance d'une case par
+ * tick. Une échéance est rangée dans la case de son tick, avec le nombre de
+ * tours complets à attendre si elle tombe au-delà d'un tour. Un seul thread
+ * (démon) fait tourner la roue et exécute les tâches arrivées à échéance :
+ * elles doivent être courtes.
+ * </p>
+ * La précision est d'un tick, ce qui suffit pour des délais d'inactivité en minutes.
+ */
+public class RoueTemporisation {
+
+    private final long dureeTickMs;
+    private final List<ArrayDeque<Minuterie>> cases;
+    private final int masque;
+    // Ajouts des autres threads, rangés dans les cases par le thread de la roue
+    private final Queue<Minuterie> aRanger = new ConcurrentLinkedQueue<>();
+    private final long debutMs;
+    private final Thread thread;
+    private volatile boolean enCours = true;
+    private long tick;
+
+
+    public RoueTemporisation(long dureeTickMs, int nombreCases, String nom) {
+        if (Integer.bitCount(nombreCases) != 1) {
+            throw new IllegalArgumentException("Le nombre de cases doit être une puissance de 2: " + nombreCases);
+        }
+        this.dureeTickMs = dureeTickMs;
+        this.cases = new ArrayList<>(nombreCases);
+        for (int i = 0; i < nombreCases; i++) {
+            cases.add(new ArrayDeque<>());
+        }
+        this.masque = nombreCases - 1;
+        this.debutMs = maintenantMs();
+        this.thread = new Thread(this::tourner, nom);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Échéance planifiée, annulable depuis n'importe quel thread.
+     */
+    public static final class Minuterie {
+        private final long echeanceMs;
+        private final Runnable tache;
+        private long tours;
+        private volatile boolean annulee;
+
+        private Minuterie(long echeanceMs, Runnable tache) {
+            this.echeanceMs = echeanceMs;
+            this.tache = tache;
+        }
+
+        /**
+         * La tâche ne sera pas exécutée (sans effet si elle l'a déjà été).
+         */
+        public void annuler() {
+            annulee = true;
+        }
+    }
+
+
+    /**
+     * Exécute la tâche sur le thread de la roue après au moins delaiMs (à un tick près).
+     */
+    public Minuterie planifier(long delaiMs, Runnable tache) {
+        Minuterie minuterie = new Minuterie(maintenantMs() - debutMs + Math.max(0, delaiMs), tache);
+        aRanger.add(minuterie);
+        return minuterie;
+    }
+
+
+    public void arreter() {
+        enCours = false;
+        thread.interrupt();
+    }
+
+
+    private void tourner() {
+        while (enCours) {
+            long prochainTickMs = (tick + 1) * dureeTickMs;
+            long attente = prochainTickMs - (maintenantMs() - debutMs);
+            if (attente > 0) {
+                try {
+                    Thread.sleep(attente);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            tick++;
+            expirer(cases.get((int) (tick & masque)));
+            ranger();
+        }
+    }
+
+
+    private void ranger() {
+        Minuterie minuterie;
+        while ((minuterie = aRanger.poll()) != null) {
+            if (minuterie.annulee) {
+                continue;
+            }
+            // Tick où l'échéance est atteinte (arrondi au-dessus) ; la case du tick
+            // courant est déjà passée, donc au plus tôt le tick suivant
+            long tickEcheance = Math.max(tick + 1, (minuterie.echeanceMs + dureeTickMs - 1) / dureeTickMs);
+            // Passages sur la case avant celui de l'échéance
+            minuterie.tours = (tickEcheance - tick - 1) / cases.size();
+            cases.get((int) (tickEcheance & masque)).add(minuterie);
+        }
+    }
+
+
+    private void expirer(ArrayDeque<Minuterie> caseCourante) {
+        Iterator<Minuterie> iterateur = caseCourante.iterator();
+        while (iterateur.hasNext()) {
+            Minuterie minuterie = iterateur.next();
+            if (minuterie.annulee) {
+                iterateur.remove();
+            } else if (minuterie.tours > 0) {
+                minuterie.tours--;
+            } else {
+                iterateur.remove();
+                try {
+                    minuterie.tache.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Erreur dans une tâche temporisée: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+
+    private static long maintenantMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
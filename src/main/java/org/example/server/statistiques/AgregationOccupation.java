@@ -0,0 +1,113 @@
+package org.example.server.statistiques;
+
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Comptage des créneaux et des réservations par groupe sur une plage de lignes,
+ * coupée en deux tant qu'elle dépasse SEUIL (fork-join). Chaque feuille remplit
+ * ses propres compteurs, additionnés en remontant : aucun partage entre threads.
+ * <p>
+ * Résultat : tableau de 2 × groupes, créneaux puis réservations.
+ * </p>
+ */
+// Tâche fork-join, jamais sérialisée
+@SuppressWarnings("serial")
+final class AgregationOccupation extends RecursiveTask<int[]> {
+
+    static final int PAR_JOUR = 0;
+    static final int PAR_MEDECIN = 1;
+    static final int PAR_SPECIALITE = 2;
+    // Filtre désactivé
+    static final int TOUS = Integer.MIN_VALUE;
+
+    private static final int SEUIL = 1 << 14;
+
+    private final ColonnesConsultations colonnes;
+    private final int cle;
+    private final int groupes;
+    private final int debut;
+    private final int fin;
+    private final int medecin;
+    private final int specialite;
+    private final int raison;
+    private final int de;
+    private final int a;
+
+
+    AgregationOccupation(ColonnesConsultations colonnes, int cle, int groupes, int debut, int fin, int medecin,
+                         int specialite, int raison) {
+        this(colonnes, cle, groupes, debut, fin, medecin, specialite, raison, 0, colonnes.taille);
+    }
+
+
+    private AgregationOccupation(ColonnesConsultations colonnes, int cle, int groupes, int debut, int fin,
+                                 int medecin, int specialite, int raison, int de, int a) {
+        this.colonnes = colonnes;
+        this.cle = cle;
+        this.groupes = groupes;
+        this.debut = debut;
+        this.fin = fin;
+        this.medecin = medecin;
+        this.specialite = specialite;
+        this.raison = raison;
+        this.de = de;
+        this.a = a;
+    }
+
+
+    @Override
+    protected int[] compute() {
+        if (a - de <= SEUIL) {
+            return compter();
+        }
+        int milieu = (de + a) >>> 1;
+        AgregationOccupation gauche = new AgregationOccupation(colonnes, cle, groupes, debut, fin, medecin,
+                specialite, raison, de, milieu);
+        AgregationOccupation droite = new AgregationOccupation(colonnes, cle, groupes, debut, fin, medecin,
+                specialite, raison, milieu, a);
+        gauche.fork();
+        int[] total = droite.compute();
+        int[] partiel = gauche.join();
+        for (int g = 0; g < total.length; g++) {
+            total[g] += partiel[g];
+        }
+        return total;
+    }
+
+
+    private int[] compter() {
+        int[] compteurs = new int[2 * groupes];
+        int[] dates = colonnes.dates;
+        int[] medecins = colonnes.medecins;
+        int[] patients = colonnes.patients;
+        int[] raisons = colonnes.raisons;
+        int[] specialites = colonnes.referentiel.specialiteParMedecin;
+        for (int i = de; i < a; i++) {
+            int date = dates[i];
+            if (date < debut || date > fin) {
+                continue;
+            }
+            int m = medecins[i];
+            if (medecin != TOUS && m != medecin) {
+                continue;
+            }
+            int s = m >= 0 && m < specialites.length ? specialites[m] : -1;
+            if (specialite != TOUS && s != specialite) {
+                continue;
+            }
+            if (raison != TOUS && raisons[i] != raison) {
+                continue;
+            }
+            int g = cle == PAR_JOUR ? date - debut : cle == PAR_MEDECIN ? m : s;
+            if (g < 0 || g >= groupes) {
+                continue;
+            }
+            compteurs[g]++;
+            if (patients[i] != ColonnesConsultations.PATIENT_AUCUN) {
+                compteurs[groupes + g]++;
+            }
+        }
+        return compteurs;
+    }
+}
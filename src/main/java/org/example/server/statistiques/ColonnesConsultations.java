@@ -0,0 +1,212 @@
+package org.example.server.statistiques;
+
+import java.util.Arrays;
+import java.util.Map;
+
+
+/**
+ * Table consultations en colonnes de types primitifs, triée par id.
+ * <p>
+ * Les tableaux peuvent être plus longs que {@code taille} (réserve pour les
+ * ajouts) ; seules les {@code taille} premières cases sont valides. Une ligne
+ * déjà présente est modifiée sur place, des lignes nouvelles donnent de
+ * nouveaux tableaux (fusion triée).
+ * </p>
+ */
+final class ColonnesConsultations {
+
+    // patient_id NULL : créneau libre
+    static final int PATIENT_AUCUN = 0;
+    // Réservé depuis ce serveur, patient connu à la prochaine relecture
+    static final int PATIENT_INCONNU = -1;
+    static final int RAISON_AUCUNE = -1;
+    static final short HEURE_AUCUNE = -1;
+
+    final int[] ids;
+    final int[] medecins;
+    final int[] patients;
+    // Jours depuis le 01/01/1970
+    final int[] dates;
+    // Minutes depuis minuit
+    final short[] heures;
+    // Code dans codesRaisons
+    final int[] raisons;
+    final int taille;
+    final int dateMin;
+    final int dateMax;
+    final int medecinMax;
+    final Referentiel referentiel;
+    // Motif -> code, propre à une reconstruction complète et partagé par ses mises à jour
+    final Map<String, Integer> codesRaisons;
+
+
+    /**
+     * Médecins et spécialités, relus à chaque rafraîchissement.
+     */
+    static final class Referentiel {
+        // Indexé par id de médecin, -1 si inconnu
+        final int[] specialiteParMedecin;
+        final Map<Integer, String> nomsMedecins;
+        final Map<Integer, String> nomsSpecialites;
+
+        Referentiel(int[] specialiteParMedecin, Map<Integer, String> nomsMedecins,
+                    Map<Integer, String> nomsSpecialites) {
+            this.specialiteParMedecin = specialiteParMedecin;
+            this.nomsMedecins = nomsMedecins;
+            this.nomsSpecialites = nomsSpecialites;
+        }
+
+        int specialite(int medecinId) {
+            return medecinId >= 0 && medecinId < specialiteParMedecin.length ? specialiteParMedecin[medecinId] : -1;
+        }
+    }
+
+
+    /**
+     * Lignes lues en base, dans un ordre quelconque, en attente de fusion.
+     */
+    static final class Lot {
+        private int[] ids = new int[64];
+        private int[] medecins = new int[64];
+        private int[] patients = new int[64];
+        private int[] dates = new int[64];
+        private short[] heures = new short[64];
+        private int[] raisons = new int[64];
+        private int taille;
+
+        void ajouter(int id, int medecin, int patient, int date, short heure, int raison) {
+            if (taille == ids.length) {
+                int capacite = taille * 2;
+                ids = Arrays.copyOf(ids, capacite);
+                medecins = Arrays.copyOf(medecins, capacite);
+                patients = Arrays.copyOf(patients, capacite);
+                dates = Arrays.copyOf(dates, capacite);
+                heures = Arrays.copyOf(heures, capacite);
+                raisons = Arrays.copyOf(raisons, capacite);
+            }
+            ids[taille] = id;
+            medecins[taille] = medecin;
+            patients[taille] = patient;
+            dates[taille] = date;
+            heures[taille] = heure;
+            raisons[taille] = raison;
+            taille++;
+        }
+
+        int taille() {
+            return taille;
+        }
+
+        /**
+         * Positions des lignes triées par id (id et position regroupés dans un long).
+         */
+        private int[] ordreParId() {
+            long[] cles = new long[taille];
+            for (int i = 0; i < taille; i++) {
+                cles[i] = ((long) ids[i] << 32) | i;
+            }
+            Arrays.parallelSort(cles);
+            int[] ordre = new int[taille];
+            for (int i = 0; i < taille; i++) {
+                ordre[i] = (int) cles[i];
+            }
+            return ordre;
+        }
+    }
+
+
+    private ColonnesConsultations(int[] ids, int[] medecins, int[] patients, int[] dates, short[] heures,
+                                  int[] raisons, int taille, int dateMin, int dateMax, int medecinMax,
+                                  Referentiel referentiel, Map<String, Integer> codesRaisons) {
+        this.ids = ids;
+        this.medecins = medecins;
+        this.patients = patients;
+        this.dates = dates;
+        this.heures = heures;
+        this.raisons = raisons;
+        this.taille = taille;
+        this.dateMin = dateMin;
+        this.dateMax = dateMax;
+        this.medecinMax = medecinMax;
+        this.referentiel = referentiel;
+        this.codesRaisons = codesRaisons;
+    }
+
+
+    static ColonnesConsultations vide(Referentiel referentiel, Map<String, Integer> codesRaisons) {
+        return new ColonnesConsultations(new int[0], new int[0], new int[0], new int[0], new short[0], new int[0],
+                0, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, referentiel, codesRaisons);
+    }
+
+
+    int position(int id) {
+        return Arrays.binarySearch(ids, 0, taille, id);
+    }
+
+
+    /**
+     * Modifie sur place les lignes déjà présentes et ajoute les autres (nouveaux
+     * tableaux si le lot en contient). Les lecteurs en cours gardent l'instance
+     * précédente.
+     */
+    ColonnesConsultations appliquer(Lot lot, Referentiel nouveauReferentiel) {
+        Lot nouvelles = new Lot();
+        int dateMinLot = dateMin;
+        int dateMaxLot = dateMax;
+        int medecinMaxLot = medecinMax;
+        for (int i = 0; i < lot.taille; i++) {
+            dateMinLot = Math.min(dateMinLot, lot.dates[i]);
+            dateMaxLot = Math.max(dateMaxLot, lot.dates[i]);
+            medecinMaxLot = Math.max(medecinMaxLot, lot.medecins[i]);
+            int position = position(lot.ids[i]);
+            if (position < 0) {
+                nouvelles.ajouter(lot.ids[i], lot.medecins[i], lot.patients[i], lot.dates[i], lot.heures[i],
+                        lot.raisons[i]);
+                continue;
+            }
+            medecins[position] = lot.medecins[i];
+            patients[position] = lot.patients[i];
+            dates[position] = lot.dates[i];
+            heures[position] = lot.heures[i];
+            raisons[position] = lot.raisons[i];
+        }
+        if (nouvelles.taille == 0) {
+            return new ColonnesConsultations(ids, medecins, patients, dates, heures, raisons, taille, dateMinLot,
+                    dateMaxLot, medecinMaxLot, nouveauReferentiel, codesRaisons);
+        }
+
+        int total = taille + nouvelles.taille;
+        // Réserve d'un quart : les créneaux ajoutés au fil de l'eau ne recopient pas tout à chaque fois
+        int capacite = total + total / 4;
+        int[] fIds = new int[capacite];
+        int[] fMedecins = new int[capacite];
+        int[] fPatients = new int[capacite];
+        int[] fDates = new int[capacite];
+        short[] fHeures = new short[capacite];
+        int[] fRaisons = new int[capacite];
+        int[] ordre = nouvelles.ordreParId();
+        int a = 0;
+        int b = 0;
+        for (int k = 0; k < total; k++) {
+            if (b == ordre.length || (a < taille && ids[a] < nouvelles.ids[ordre[b]])) {
+                fIds[k] = ids[a];
+                fMedecins[k] = medecins[a];
+                fPatients[k] = patients[a];
+                fDates[k] = dates[a];
+                fHeures[k] = heures[a];
+                fRaisons[k] = raisons[a];
+                a++;
+            } else {
+                int j = ordre[b++];
+                fIds[k] = nouvelles.ids[j];
+                fMedecins[k] = nouvelles.medecins[j];
+                fPatients[k] = nouvelles.patients[j];
+                fDates[k] = nouvelles.dates[j];
+                fHeures[k] = nouvelles.heures[j];
+                fRaisons[k] = nouvelles.raisons[j];
+            }
+        }
+        return new ColonnesConsultations(fIds, fMedecins, fPatients, fDates, fHeures, fRaisons, total, dateMinLot,
+                dateMaxLot, medecinMaxLot, nouveauReferentiel, codesRaisons);
+    }
+}
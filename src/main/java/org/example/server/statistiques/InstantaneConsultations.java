@@ -0,0 +1,337 @@
+package org.example.server.statistiques;
+
+import org.example.server.bd.BdManager;
+import org.example.server.bd.EcouteurConsultations;
+import org.example.server.bd.EvenementConsultation;
+import org.example.server.dao.FluxLignes;
+import org.example.server.entity.Consultation;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.ConsultationSearchVM;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Copie en colonnes de la table consultations pour les statistiques
+ * d'occupation (/api/stats/occupancy), sans relire la base à chaque requête.
+ * <p>
+ * Mise à jour incrémentale :
+ * </p>
+ * <ul>
+ * <li>réservations et annulations de ce serveur : ligne modifiée dès l'évènement ;</li>
+ * <li>toutes les STATS_REFRESH_SECONDS : relecture des créneaux à partir
+ * d'aujourd'hui (là où se réserve et se crée l'essentiel), fusionnée par id ;</li>
+ * <li>toutes les STATS_REBUILD_MINUTES : reconstruction complète lue en flux,
+ * qui rattrape les suppressions et les modifications du passé.</li>
+ * </ul>
+ * Les motifs sont codés par un dictionnaire : filtrer sur un motif compare des
+ * entiers. Chaque reconstruction complète repart d'un dictionnaire neuf, publié
+ * avec les colonnes : les motifs disparus de la base n'y restent pas.
+ * <p>
+ * Une relecture peut avoir lu un créneau avant une réservation ou une annulation
+ * reçue pendant qu'elle s'exécutait : ces évènements sont rejoués sur les
+ * colonnes fusionnées, pour ne pas réécrire l'ancienne valeur.
+ * </p>
+ */
+public class InstantaneConsultations implements EcouteurConsultations {
+
+    public static final String GROUPE_JOUR = "day";
+    public static final String GROUPE_MEDECIN = "doctor";
+    public static final String GROUPE_SPECIALITE = "specialty";
+
+    // Au-delà, un regroupement par jour alloue trop de compteurs par tâche
+    static final int JOURS_MAX = 3_660;
+
+    private final BdManager bdManager;
+    private final long rafraichissementS;
+    private final long reconstructionS;
+    private volatile ColonnesConsultations colonnes;
+    private volatile long instantane;
+    private long derniereReconstruction;
+    // Évènements reçus pendant une relecture, null sinon
+    private List<EvenementConsultation> enAttente;
+    private ScheduledExecutorService planificateur;
+
+
+    public InstantaneConsultations(BdManager bdManager) {
+        this.bdManager = bdManager;
+        this.rafraichissementS = Math.max(1, bdManager.lireNombre("STATS_REFRESH_SECONDS", 30));
+        this.reconstructionS = Math.max(1, bdManager.lireNombre("STATS_REBUILD_MINUTES", 60)) * 60;
+        Metriques.jauge("mrps_stats_snapshot_rows", "Consultations de l'instantané des statistiques",
+                () -> colonnes == null ? 0 : colonnes.taille);
+        Metriques.jauge("mrps_stats_snapshot_age_seconds", "Âge de la dernière relecture de l'instantané",
+                () -> instantane == 0 ? 0 : (System.currentTimeMillis() - instantane) / 1000.0);
+    }
+
+
+    /**
+     * Première construction en arrière-plan (les statistiques répondent 503 d'ici
+     * là), puis rafraîchissements périodiques.
+     */
+    public void demarrer() {
+        bdManager.ajouterEcouteurConsultations(this);
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread fil = new Thread(r, "statistiques-consultations");
+            fil.setDaemon(true);
+            return fil;
+        });
+        planificateur.scheduleWithFixedDelay(() -> {
+            try {
+                rafraichir();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Erreur lors du rafraîchissement des statistiques: " + e.getMessage());
+            }
+        }, 0, rafraichissementS, TimeUnit.SECONDS);
+    }
+
+
+    public void arreter() {
+        bdManager.retirerEcouteurConsultations(this);
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+        }
+    }
+
+
+    public boolean estPret() {
+        return colonnes != null;
+    }
+
+
+    private void rafraichir() throws SQLException {
+        long maintenant = System.currentTimeMillis();
+        ColonnesConsultations.Referentiel referentiel = lireReferentiel();
+        boolean complete = colonnes == null || maintenant - derniereReconstruction >= reconstructionS * 1000;
+        synchronized (this) {
+            enAttente = new ArrayList<>();
+        }
+        ColonnesConsultations.Lot lot;
+        Map<String, Integer> codesRaisons;
+        try {
+            if (complete) {
+                codesRaisons = new ConcurrentHashMap<>();
+                lot = lire(null, codesRaisons);
+            } else {
+                ConsultationSearchVM aVenir = new ConsultationSearchVM();
+                aVenir.setDateFrom(LocalDate.now().toString());
+                codesRaisons = colonnes.codesRaisons;
+                lot = lire(aVenir, codesRaisons);
+            }
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                enAttente = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            ColonnesConsultations nouvelles = complete
+                    ? ColonnesConsultations.vide(referentiel, codesRaisons).appliquer(lot, referentiel)
+                    : colonnes.appliquer(lot, referentiel);
+            for (EvenementConsultation evenement : enAttente) {
+                appliquer(nouvelles, evenement);
+            }
+            colonnes = nouvelles;
+            enAttente = null;
+        }
+        if (complete) {
+            derniereReconstruction = maintenant;
+        }
+        instantane = maintenant;
+    }
+
+
+    private ColonnesConsultations.Lot lire(ConsultationSearchVM csearchvm, Map<String, Integer> codesRaisons)
+            throws SQLException {
+        ColonnesConsultations.Lot lot = new ColonnesConsultations.Lot();
+        try (Stream<Consultation> consultations = bdManager.fluxConsultations(csearchvm)) {
+            consultations.forEach(c -> lot.ajouter(c.getId(), c.getDoctor_id(),
+                    c.getPatient_id() == null ? ColonnesConsultations.PATIENT_AUCUN : c.getPatient_id(),
+                    (int) LocalDate.parse(c.getDate()).toEpochDay(), minutes(c.getHour()),
+                    coder(codesRaisons, c.getReason())));
+        } catch (FluxLignes.ErreurLecture e) {
+            throw e.getCause();
+        }
+        return lot;
+    }
+
+
+    private ColonnesConsultations.Referentiel lireReferentiel() {
+        List<Doctor> medecins = bdManager.loadDoctors(null);
+        int medecinMax = -1;
+        for (Doctor d : medecins) {
+            medecinMax = Math.max(medecinMax, d.getId());
+        }
+        int[] specialiteParMedecin = new int[medecinMax + 1];
+        Arrays.fill(specialiteParMedecin, -1);
+        Map<Integer, String> nomsMedecins = new HashMap<>();
+        for (Doctor d : medecins) {
+            specialiteParMedecin[d.getId()] = d.getSpecialite_id() == null ? -1 : d.getSpecialite_id();
+            nomsMedecins.put(d.getId(), d.getFirst_name() + " " + d.getLast_name());
+        }
+        Map<Integer, String> nomsSpecialites = new HashMap<>();
+        for (Specialty s : bdManager.getAllSpecialties()) {
+            nomsSpecialites.put(s.getId(), s.getName());
+        }
+        return new ColonnesConsultations.Referentiel(specialiteParMedecin, nomsMedecins, nomsSpecialites);
+    }
+
+
+    // Un seul thread écrit (le planificateur) : size() donne bien le prochain code
+    private static int coder(Map<String, Integer> codesRaisons, String raison) {
+        if (raison == null) {
+            return ColonnesConsultations.RAISON_AUCUNE;
+        }
+        return codesRaisons.computeIfAbsent(raison, r -> codesRaisons.size());
+    }
+
+
+    private static short minutes(String heure) {
+        if (heure == null || heure.isEmpty()) {
+            return ColonnesConsultations.HEURE_AUCUNE;
+        }
+        LocalTime t = LocalTime.parse(heure);
+        return (short) (t.getHour() * 60 + t.getMinute());
+    }
+
+
+    @Override
+    public synchronized void surEvenement(EvenementConsultation evenement) {
+        if (enAttente != null) {
+            enAttente.add(evenement);
+        }
+        ColonnesConsultations courantes = colonnes;
+        if (courantes != null) {
+            appliquer(courantes, evenement);
+        }
+    }
+
+
+    private static void appliquer(ColonnesConsultations courantes, EvenementConsultation evenement) {
+        int position = courantes.position(evenement.getConsultationId());
+        if (position < 0) {
+            // Créneau absent de l'instantané : la prochaine relecture l'ajoutera
+            return;
+        }
+        if (EvenementConsultation.TYPE_RESERVE.equals(evenement.getType())) {
+            courantes.patients[position] = ColonnesConsultations.PATIENT_INCONNU;
+        } else {
+            courantes.patients[position] = ColonnesConsultations.PATIENT_AUCUN;
+            courantes.raisons[position] = ColonnesConsultations.RAISON_AUCUNE;
+        }
+    }
+
+
+    /**
+     * Occupation par groupe entre debut et fin (inclus, null : toute la période de
+     * l'instantané), filtrée par médecin, spécialité (nom) et motif si non null.
+     *
+     * @throws IllegalStateException si la première construction n'est pas terminée
+     * @throws IllegalArgumentException groupe inconnu ou période par jour trop longue
+     */
+    public ResultatOccupation occupation(String groupe, LocalDate debut, LocalDate fin, Integer medecinId,
+                                         String specialite, String raison) {
+        ColonnesConsultations c = colonnes;
+        if (c == null) {
+            throw new IllegalStateException("Statistiques en cours de construction");
+        }
+        if (c.taille == 0) {
+            return new ResultatOccupation(new ArrayList<>(), 0, 0, 0, instantane);
+        }
+        int cle;
+        switch (groupe) {
+            case GROUPE_JOUR:
+                cle = AgregationOccupation.PAR_JOUR;
+                break;
+            case GROUPE_MEDECIN:
+                cle = AgregationOccupation.PAR_MEDECIN;
+                break;
+            case GROUPE_SPECIALITE:
+                cle = AgregationOccupation.PAR_SPECIALITE;
+                break;
+            default:
+                throw new IllegalArgumentException("Regroupement inconnu: " + groupe);
+        }
+        int de = debut != null ? (int) debut.toEpochDay() : c.dateMin;
+        int a = fin != null ? (int) fin.toEpochDay() : c.dateMax;
+
+        int filtreSpecialite = AgregationOccupation.TOUS;
+        if (specialite != null) {
+            filtreSpecialite = -1;
+            for (Map.Entry<Integer, String> s : c.referentiel.nomsSpecialites.entrySet()) {
+                if (s.getValue() != null && s.getValue().equalsIgnoreCase(specialite)) {
+                    filtreSpecialite = s.getKey();
+                }
+            }
+        }
+        int filtreRaison = AgregationOccupation.TOUS;
+        if (raison != null) {
+            filtreRaison = c.codesRaisons.getOrDefault(raison, ColonnesConsultations.RAISON_AUCUNE - 1);
+        }
+        int filtreMedecin = medecinId != null ? medecinId : AgregationOccupation.TOUS;
+
+        int groupes;
+        if (cle == AgregationOccupation.PAR_JOUR) {
+            if ((long) a - de >= JOURS_MAX) {
+                throw new IllegalArgumentException("Période trop longue pour un regroupement par jour (max "
+                        + JOURS_MAX + " jours)");
+            }
+            groupes = Math.max(0, a - de + 1);
+        } else if (cle == AgregationOccupation.PAR_MEDECIN) {
+            groupes = c.medecinMax + 1;
+        } else {
+            groupes = c.referentiel.specialiteParMedecin.length == 0 ? 0 : maximum(c.referentiel) + 1;
+        }
+
+        int[] compteurs = groupes == 0 ? new int[0]
+                : new AgregationOccupation(c, cle, groupes, de, a, filtreMedecin, filtreSpecialite, filtreRaison)
+                        .invoke();
+        List<ResultatOccupation.Groupe> resultat = new ArrayList<>();
+        int creneaux = 0;
+        int reserves = 0;
+        for (int g = 0; g < compteurs.length / 2; g++) {
+            int n = compteurs[g];
+            if (n == 0) {
+                continue;
+            }
+            creneaux += n;
+            reserves += compteurs[groupes + g];
+            String cleGroupe;
+            String libelle;
+            if (cle == AgregationOccupation.PAR_JOUR) {
+                cleGroupe = LocalDate.ofEpochDay(de + g).toString();
+                libelle = cleGroupe;
+            } else if (cle == AgregationOccupation.PAR_MEDECIN) {
+                cleGroupe = String.valueOf(g);
+                libelle = c.referentiel.nomsMedecins.get(g);
+            } else {
+                cleGroupe = String.valueOf(g);
+                libelle = c.referentiel.nomsSpecialites.get(g);
+            }
+            resultat.add(new ResultatOccupation.Groupe(cleGroupe, libelle, n, compteurs[groupes + g]));
+        }
+        return new ResultatOccupation(resultat, creneaux, reserves, c.taille, instantane);
+    }
+
+
+    private static int maximum(ColonnesConsultations.Referentiel referentiel) {
+        int max = -1;
+        for (int s : referentiel.specialiteParMedecin) {
+            max = Math.max(max, s);
+        }
+        return max;
+    }
+}
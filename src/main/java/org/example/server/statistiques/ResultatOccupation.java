@@ -0,0 +1,90 @@
+package org.example.server.statistiques;
+
+import java.util.List;
+
+
+/**
+ * Occupation des créneaux par groupe (jour, médecin ou spécialité), groupes sans créneau exclus.
+ */
+public final class ResultatOccupation {
+
+    private final List<Groupe> groupes;
+    private final int creneaux;
+    private final int reserves;
+    private final int lignes;
+    private final long instantane;
+
+
+    /**
+     * Créneaux et réservations d'un groupe.
+     */
+    public static final class Groupe {
+        private final String cle;
+        private final String libelle;
+        private final int creneaux;
+        private final int reserves;
+
+        Groupe(String cle, String libelle, int creneaux, int reserves) {
+            this.cle = cle;
+            this.libelle = libelle;
+            this.creneaux = creneaux;
+            this.reserves = reserves;
+        }
+
+        public String getCle() {
+            return cle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+
+        public int getCreneaux() {
+            return creneaux;
+        }
+
+        public int getReserves() {
+            return reserves;
+        }
+    }
+
+
+    ResultatOccupation(List<Groupe> groupes, int creneaux, int reserves, int lignes, long instantane) {
+        this.groupes = groupes;
+        this.creneaux = creneaux;
+        this.reserves = reserves;
+        this.lignes = lignes;
+        this.instantane = instantane;
+    }
+
+
+    public List<Groupe> getGroupes() {
+        return groupes;
+    }
+
+
+    public int getCreneaux() {
+        return creneaux;
+    }
+
+
+    public int getReserves() {
+        return reserves;
+    }
+
+
+    /**
+     * Lignes de l'instantané parcourues.
+     */
+    public int getLignes() {
+        return lignes;
+    }
+
+
+    /**
+     * Heure (ms depuis 1970) de la dernière relecture de la base.
+     */
+    public long getInstantane() {
+        return instantane;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.server.stockage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Anneau de hachage cohérent : chaque nœud y occupe NOEUDS_VIRTUELS positions
+ * calculées à partir de son nom, un médecin appartient au premier nœud qui suit
+ * le hachage de son id. Ajouter un nœud ne déplace que les médecins qui lui
+ * reviennent (environ 1/N), les autres ne bougent pas.
+ * <p>
+ * Les positions ne dépendent que des noms : l'ordre des nœuds dans DB_SHARDS
+ * n'a pas d'importance, un nom ne doit en revanche jamais changer.
+ * </p>
+ */
+final class AnneauShards {
+
+    private static final int NOEUDS_VIRTUELS = 160;
+
+    private final String[] noms;
+    private final long[] positions;
+    private final int[] proprietaires;
+
+
+    AnneauShards(List<String> noeuds) {
+        if (noeuds.isEmpty()) {
+            throw new IllegalArgumentException("Anneau sans nœud");
+        }
+        noms = noeuds.toArray(new String[0]);
+        long[][] points = new long[noms.length * NOEUDS_VIRTUELS][];
+        for (int n = 0; n < noms.length; n++) {
+            for (int v = 0; v < NOEUDS_VIRTUELS; v++) {
+                points[n * NOEUDS_VIRTUELS + v] = new long[] { hacher(noms[n] + "#" + v), n };
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        positions = new long[points.length];
+        proprietaires = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            positions[i] = points[i][0];
+            proprietaires[i] = (int) points[i][1];
+        }
+    }
+
+
+    String noeud(int medecinId) {
+        int i = Arrays.binarySearch(positions, melanger(medecinId));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return noms[proprietaires[i == positions.length ? 0 : i]];
+    }
+
+
+    // FNV-1a 64 bits, puis mélange final : des noms proches donnent des positions éloignées
+    private static long hacher(String texte) {
+        long h = 0xcbf29ce484222325L;
+        for (byte octet : texte.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (octet & 0xff)) * 0x100000001b3L;
+        }
+        return melanger(h);
+    }
+
+
+    // fmix64 de MurmurHash3 : des id consécutifs se répartissent sur tout l'anneau
+    private static long melanger(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e4cd3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
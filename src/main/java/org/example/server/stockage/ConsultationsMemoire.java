@@ -0,0 +1,185 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Consultation;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Patient;
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.ConsultationSearchVM;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.stream.Stream;
+
+
+final class ConsultationsMemoire implements DepotConsultations {
+
+    private final DonneesMemoire donnees;
+
+
+    ConsultationsMemoire(DonneesMemoire donnees) {
+        this.donnees = donnees;
+    }
+
+
+    @Override
+    public boolean medecinAConsultationAvecPatient(int medecinId, int patientId) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            return donnees.paireExiste(medecinId, patientId);
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("ConsultationsMemoire.medecinAConsultationAvecPatient", debut);
+        }
+    }
+
+
+    @Override
+    public List<Consultation> load(ConsultationSearchVM csearchvm) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            List<Consultation> consultations = new ArrayList<>();
+            String du = csearchvm != null && DonneesMemoire.renseigne(csearchvm.getDateFrom())
+                    ? csearchvm.getDateFrom() : null;
+            String au = csearchvm != null && DonneesMemoire.renseigne(csearchvm.getDateTo())
+                    ? csearchvm.getDateTo() : null;
+            if (du != null || au != null) {
+                // Index par date : seule la plage demandée est parcourue
+                NavigableMap<String, ListeEntiers> plage = donnees.consultationsParDate;
+                if (du != null && au != null) {
+                    plage = du.compareTo(au) <= 0 ? plage.subMap(du, true, au, true) : Collections.emptyNavigableMap();
+                } else if (du != null) {
+                    plage = plage.tailMap(du, true);
+                } else {
+                    plage = plage.headMap(au, true);
+                }
+                for (ListeEntiers ids : plage.values()) {
+                    for (int i = 0; i < ids.taille(); i++) {
+                        ajouterSiCorrespond(consultations, donnees.consultations.lire(ids.lire(i)), csearchvm);
+                    }
+                }
+            } else {
+                donnees.consultations.pourChaque(
+                        consultation -> ajouterSiCorrespond(consultations, consultation, csearchvm));
+            }
+            consultations.sort(Comparator.comparing(Consultation::getDate,
+                    Comparator.nullsLast(Comparator.<String>reverseOrder())));
+            return consultations;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("ConsultationsMemoire.load", debut);
+        }
+    }
+
+
+    @Override
+    public Consultation findById(int consultationId) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            DonneesMemoire.LigneConsultation ligne = donnees.consultations.lire(consultationId);
+            if (ligne == null) {
+                return null;
+            }
+            Consultation consultation = copie(ligne);
+            Doctor medecin = donnees.medecins.lire(ligne.medecinId);
+            if (medecin != null) {
+                consultation.setDoctor_last_name(medecin.getLast_name());
+                Specialty specialite = medecin.getSpecialite_id() != null
+                        ? donnees.specialites.lire(medecin.getSpecialite_id()) : null;
+                if (specialite != null) {
+                    consultation.setSpecialty_name(specialite.getName());
+                }
+            }
+            return consultation;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("ConsultationsMemoire.findById", debut);
+        }
+    }
+
+
+    @Override
+    public boolean bookConsultation(int consultationId, int patientId, String reason) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            DonneesMemoire.LigneConsultation ligne = donnees.consultations.lire(consultationId);
+            if (ligne == null || ligne.patientId != 0) {
+                return false;
+            }
+            donnees.changerPatient(ligne, patientId, reason);
+            donnees.modifiee();
+            return true;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("ConsultationsMemoire.bookConsultation", debut);
+        }
+    }
+
+
+    @Override
+    public boolean cancelConsultation(int consultationId) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            DonneesMemoire.LigneConsultation ligne = donnees.consultations.lire(consultationId);
+            if (ligne == null) {
+                return false;
+            }
+            donnees.changerPatient(ligne, 0, null);
+            donnees.modifiee();
+            return true;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("ConsultationsMemoire.cancelConsultation", debut);
+        }
+    }
+
+
+    private void ajouterSiCorrespond(List<Consultation> consultations, DonneesMemoire.LigneConsultation ligne,
+                                     ConsultationSearchVM vm) {
+        Patient patient = ligne.patientId != 0 ? donnees.patients.lire(ligne.patientId) : null;
+        if (vm != null) {
+            if (DonneesMemoire.renseigne(vm.getPatientName())
+                    && (patient == null || !DonneesMemoire.comme(patient.getLast_name(), vm.getPatientName()))) {
+                return;
+            }
+            if (DonneesMemoire.renseigne(vm.getDoctorName())) {
+                Doctor medecin = donnees.medecins.lire(ligne.medecinId);
+                if (medecin == null || !DonneesMemoire.comme(medecin.getLast_name(), vm.getDoctorName())) {
+                    return;
+                }
+            }
+            if (DonneesMemoire.renseigne(vm.getReason())
+                    && (ligne.raison == null || !DonneesMemoire.comme(ligne.raison, vm.getReason()))) {
+                return;
+            }
+        }
+        Consultation consultation = copie(ligne);
+        if (patient != null) {
+            consultation.setPatient_first_name(patient.getFirst_name());
+            consultation.setPatient_last_name(patient.getLast_name());
+            consultation.setPatient_birth_date(patient.getBirth_date());
+        }
+        consultations.add(consultation);
+    }
+
+
+    private static Consultation copie(DonneesMemoire.LigneConsultation ligne) {
+        return new Consultation(ligne.patientId != 0 ? ligne.patientId : null, ligne.id, ligne.medecinId, ligne.date,
+                ligne.raison, ligne.heure);
+    }
+
+
+    // Tables déjà en mémoire : le flux parcourt la copie renvoyée par load
+    @Override
+    public Stream<Consultation> flux(ConsultationSearchVM csearchvm) {
+        return load(csearchvm).stream();
+    }
+}
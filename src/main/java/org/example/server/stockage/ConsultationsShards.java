@@ -0,0 +1,107 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.searchvm.ConsultationSearchVM;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Consultations : rangées sur le shard de leur médecin. Les appels par id de
+ * consultation cherchent d'abord son médecin sur tous les nœuds (les id sont
+ * uniques entre nœuds, voir auto_increment_offset).
+ */
+final class ConsultationsShards implements DepotConsultations {
+
+    // Même ordre que ConsultationDAO.load : date décroissante, NULL à la fin
+    private static final Comparator<Consultation> PLUS_RECENTE_D_ABORD = Comparator.comparing(
+            Consultation::getDate, Comparator.nullsLast(Comparator.<String>reverseOrder()));
+
+    private static final Comparator<ConsultationCompacte> COMPACTE_PLUS_RECENTE_D_ABORD =
+            Comparator.comparingInt(ConsultationCompacte::getDate).reversed();
+
+    private final MoteurShards moteur;
+
+
+    ConsultationsShards(MoteurShards moteur) {
+        this.moteur = moteur;
+    }
+
+
+    @Override
+    public boolean medecinAConsultationAvecPatient(int medecinId, int patientId) throws SQLException {
+        return moteur.shard(medecinId).consultations().medecinAConsultationAvecPatient(medecinId, patientId);
+    }
+
+
+    @Override
+    public List<Consultation> load(ConsultationSearchVM csearchvm) {
+        try {
+            return FusionTriee.fusionner(moteur.diffuserLignes(
+                    shard -> shard.consultations().load(csearchvm), Consultation::getDoctor_id),
+                    PLUS_RECENTE_D_ABORD);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Override
+    public List<ConsultationCompacte> loadCompact(ConsultationSearchVM csearchvm) {
+        try {
+            return FusionTriee.fusionner(moteur.diffuserLignes(
+                    shard -> shard.consultations().loadCompact(csearchvm), ConsultationCompacte::getMedecinId),
+                    COMPACTE_PLUS_RECENTE_D_ABORD);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Override
+    public Stream<Consultation> flux(ConsultationSearchVM csearchvm) throws SQLException {
+        return FusionTriee.fusionnerFlux(moteur.ouvrirFlux(shard -> shard.consultations().flux(csearchvm),
+                Consultation::getDoctor_id), PLUS_RECENTE_D_ABORD);
+    }
+
+
+    @Override
+    public Consultation findById(int consultationId) throws SQLException {
+        for (Consultation consultation : moteur.diffuser(shard -> shard.consultations().findById(consultationId))) {
+            if (consultation != null) {
+                return consultation;
+            }
+        }
+        return null;
+    }
+
+
+    @Override
+    public boolean bookConsultation(int consultationId, int patientId, String reason) {
+        try {
+            Consultation consultation = findById(consultationId);
+            return consultation != null && moteur.shardEcriture(consultation.getDoctor_id()).consultations()
+                    .bookConsultation(consultationId, patientId, reason);
+        } catch (SQLException e) {
+            System.err.println("Réservation impossible: " + e.getMessage());
+            return false;
+        }
+    }
+
+
+    @Override
+    public boolean cancelConsultation(int consultationId) {
+        try {
+            Consultation consultation = findById(consultationId);
+            return consultation != null && moteur.shardEcriture(consultation.getDoctor_id()).consultations()
+                    .cancelConsultation(consultationId);
+        } catch (SQLException e) {
+            System.err.println("Annulation impossible: " + e.getMessage());
+            return false;
+        }
+    }
+}
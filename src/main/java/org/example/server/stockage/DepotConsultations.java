@@ -0,0 +1,57 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Consultation;
+import org.example.server.entity.ConsultationCompacte;
+import org.example.server.searchvm.ConsultationSearchVM;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Accès aux consultations (créneaux libres ou réservés).
+ * <p>
+ * load, loadCompact et findById ne sont pas des @Lecture : la disponibilité d'un
+ * créneau change à chaque réservation, et ce qu'ils retournent est gardé (cache
+ * REST, index des disponibilités, évènements). Lus sur un réplica en retard, un
+ * créneau déjà réservé y resterait libre ; ils vont donc toujours sur le primaire.
+ * </p>
+ */
+public interface DepotConsultations {
+
+    @Lecture
+    boolean medecinAConsultationAvecPatient(int medecinId, int patientId) throws SQLException;
+
+    /**
+     * Consultations triées par date décroissante, avec le nom du patient.
+     */
+    List<Consultation> load(ConsultationSearchVM csearchvm);
+
+    /**
+     * Même résultat que load en représentation compacte (listes longues gardées en mémoire).
+     */
+    default List<ConsultationCompacte> loadCompact(ConsultationSearchVM csearchvm) {
+        return ConsultationCompacte.depuis(load(csearchvm));
+    }
+
+    /**
+     * Même résultat que load, lu au fil de l'eau ; à fermer après lecture (try-with-resources).
+     */
+    @Lecture
+    Stream<Consultation> flux(ConsultationSearchVM csearchvm) throws SQLException;
+
+    /**
+     * Consultation avec le nom du médecin et sa spécialité, null si elle n'existe pas.
+     */
+    Consultation findById(int consultationId) throws SQLException;
+
+    /**
+     * Réserve le créneau s'il est encore libre.
+     */
+    @Ecriture
+    boolean bookConsultation(int consultationId, int patientId, String reason);
+
+    @Ecriture
+    boolean cancelConsultation(int consultationId);
+}
@@ -0,0 +1,36 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Doctor;
+import org.example.server.searchvm.DoctorSearchVM;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Accès aux médecins. Le login est "prénom.nom".
+ */
+public interface DepotMedecins {
+
+    @Lecture
+    boolean medecinExiste(String login) throws SQLException;
+
+    @Lecture
+    String getMotDePasseMedecin(String login) throws SQLException;
+
+    @Lecture
+    Integer getIdMedecin(String login) throws SQLException;
+
+    /**
+     * Médecins triés par nom puis prénom ; les critères vides sont ignorés.
+     */
+    @Lecture
+    List<Doctor> load(DoctorSearchVM dsearchvm);
+
+    /**
+     * Même résultat que load, lu au fil de l'eau ; à fermer après lecture (try-with-resources).
+     */
+    @Lecture
+    Stream<Doctor> flux(DoctorSearchVM dsearchvm) throws SQLException;
+}
@@ -0,0 +1,50 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Patient;
+import org.example.server.searchvm.PatientSearchVM;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Accès aux patients.
+ */
+public interface DepotPatients {
+
+    /**
+     * Patients ayant au moins une consultation, triés par nom puis prénom.
+     */
+    @Lecture
+    List<Patient> listerPatientsAvecConsultations() throws SQLException;
+
+    @Lecture
+    List<Patient> load();
+
+    @Lecture
+    List<Patient> load(PatientSearchVM psearchvm);
+
+    /**
+     * Même résultat que load, lu au fil de l'eau ; à fermer après lecture (try-with-resources).
+     */
+    @Lecture
+    Stream<Patient> flux(PatientSearchVM psearchvm) throws SQLException;
+
+    /**
+     * Id du patient de même nom, prénom et date de naissance, créé s'il n'existe pas.
+     *
+     * @return -1 en cas d'échec
+     */
+    @Ecriture
+    int createOrUpdatePatient(Patient p);
+
+    /**
+     * @return l'id attribué, -1 en cas d'échec
+     */
+    @Ecriture
+    int create(Patient p);
+
+    @Lecture
+    Integer findByDetails(String lastName, String firstName, String birthDate);
+}
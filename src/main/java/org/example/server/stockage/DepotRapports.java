@@ -0,0 +1,94 @@
+package org.example.server.stockage;
+
+import org.example.server.dao.ReportDAO;
+import org.example.server.entity.Report;
+import org.example.server.searchvm.ReportSearchVM;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Accès aux rapports médicaux et aux clés d'idempotence de leurs écritures.
+ * getIdMax et trouverRapportParCle ne sont pas des @Lecture : l'attribution des id
+ * et le contrôle d'idempotence doivent voir la dernière écriture.
+ */
+public interface DepotRapports {
+
+    /**
+     * @return l'id attribué, -1 en cas d'échec
+     */
+    @Ecriture
+    int ajouterRapport(int medecinId, int patientId, String date, String texteRapport) throws SQLException;
+
+    /**
+     * @return false si le rapport n'existe pas ou n'appartient pas au médecin
+     */
+    @Ecriture
+    boolean modifierRapport(int rapportId, String nouveauTexte, int medecinId) throws SQLException;
+
+    /**
+     * Insertion avec un id déjà attribué (écriture différée, voir JournalRapports).
+     */
+    @Ecriture
+    void insererRapport(int rapportId, int medecinId, int patientId, String date, String texteRapport)
+            throws SQLException;
+
+    int getIdMax() throws SQLException;
+
+    /**
+     * @return false si la clé existe déjà (écriture déjà appliquée)
+     */
+    @Ecriture
+    boolean enregistrerCleIdempotence(String cle, int rapportId) throws SQLException;
+
+    /**
+     * Id du rapport écrit avec cette clé d'idempotence, null si la clé est inconnue.
+     */
+    Integer trouverRapportParCle(String cle) throws SQLException;
+
+    @Ecriture
+    int purgerCles(int joursConservation) throws SQLException;
+
+    /**
+     * Rapports du médecin, du plus récent au plus ancien.
+     */
+    @Lecture
+    List<ReportDAO.Rapport> listerRapportsMedecin(int medecinId) throws SQLException;
+
+    @Lecture
+    List<ReportDAO.Rapport> listerRapportsMedecinPatient(int medecinId, int patientId) throws SQLException;
+
+    /**
+     * Rapports du médecin créés ou modifiés depuis depuisMs (borne incluse), par date de modification.
+     */
+    @Lecture
+    List<ReportDAO.Rapport> listerRapportsModifiesDepuis(int medecinId, long depuisMs) throws SQLException;
+
+    /**
+     * Une page de rapports (date puis id décroissants) avec seulement un aperçu du texte.
+     * patientId = -1 pour tous les patients du médecin.
+     */
+    @Lecture
+    List<ReportDAO.Rapport> listerPageRapports(int medecinId, int patientId, int debutPage, int taille)
+            throws SQLException;
+
+    @Lecture
+    int compterRapports(int medecinId, int patientId) throws SQLException;
+
+    /**
+     * Rapport complet, seulement s'il appartient au médecin. null sinon.
+     */
+    @Lecture
+    ReportDAO.Rapport trouverRapport(int rapportId, int medecinId) throws SQLException;
+
+    @Lecture
+    List<Report> load(ReportSearchVM rsearchvm);
+
+    /**
+     * Même résultat que load, lu au fil de l'eau ; à fermer après lecture (try-with-resources).
+     */
+    @Lecture
+    Stream<Report> flux(ReportSearchVM rsearchvm) throws SQLException;
+}
@@ -0,0 +1,22 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Specialty;
+import org.example.server.searchvm.SpecialtySearchVM;
+
+import java.util.List;
+
+
+/**
+ * Accès aux spécialités médicales.
+ */
+public interface DepotSpecialites {
+
+    /**
+     * Toutes les spécialités, triées par nom.
+     */
+    @Lecture
+    List<Specialty> getAllSpecialties();
+
+    @Lecture
+    List<Specialty> load(SpecialtySearchVM vm);
+}
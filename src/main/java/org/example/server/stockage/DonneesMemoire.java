@@ -0,0 +1,412 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Patient;
+import org.example.server.entity.Specialty;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Tables du moteur mémoire et leurs index secondaires.
+ * <p>
+ * Tables primaires : TableCles par id. Index :
+ * - médecins par login (prénom.nom), patients par (nom, prénom, naissance) ;
+ * - consultations par médecin, par date (TreeMap : plages de dates dans l'ordre)
+ * et nombre de consultations par paire (médecin, patient) ;
+ * - rapports par médecin, rangés par date puis id décroissants : une page est
+ * une simple tranche, sans tri.
+ * </p>
+ * Un verrou lecture/écriture protège l'ensemble : les lectures (la grande
+ * majorité) avancent en parallèle, les écritures sont courtes.
+ */
+final class DonneesMemoire {
+
+    private static final int MAGIC = 0x4D525053;
+    private static final int VERSION = 1;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    final Lock lecture = verrou.readLock();
+    final Lock ecriture = verrou.writeLock();
+
+    final TableCles<Specialty> specialites = new TableCles<>();
+    final TableCles<Doctor> medecins = new TableCles<>();
+    final Map<String, Doctor> medecinsParLogin = new HashMap<>();
+    final TableCles<Patient> patients = new TableCles<>();
+    final Map<String, Integer> patientsParIdentite = new HashMap<>();
+
+    final TableCles<LigneConsultation> consultations = new TableCles<>();
+    final TableCles<ListeEntiers> consultationsParMedecin = new TableCles<>();
+    final TreeMap<String, ListeEntiers> consultationsParDate = new TreeMap<>();
+    final TableCles<int[]> consultationsParPaire = new TableCles<>();
+
+    final TableCles<LigneRapport> rapports = new TableCles<>();
+    final TableCles<ListeEntiers> rapportsParMedecin = new TableCles<>();
+    // clé d'idempotence -> { id du rapport, date d'application en ms }
+    final Map<String, long[]> clesIdempotence = new HashMap<>();
+
+    int dernierPatient;
+    int dernierRapport;
+    // Incrémenté à chaque écriture : un instantané inchangé n'est pas réécrit
+    private volatile long version;
+
+
+    static final class LigneConsultation {
+        final int id;
+        final int medecinId;
+        // 0 : créneau libre
+        int patientId;
+        final String date;
+        final String heure;
+        String raison;
+
+        LigneConsultation(int id, int medecinId, int patientId, String date, String heure, String raison) {
+            this.id = id;
+            this.medecinId = medecinId;
+            this.patientId = patientId;
+            this.date = date;
+            this.heure = heure;
+            this.raison = raison;
+        }
+    }
+
+
+    static final class LigneRapport {
+        final int id;
+        final int medecinId;
+        final int patientId;
+        // Jours depuis le 01/01/1970, comme LocalDate.toEpochDay
+        final int date;
+        String texte;
+        long misAJourMs;
+
+        LigneRapport(int id, int medecinId, int patientId, int date, String texte, long misAJourMs) {
+            this.id = id;
+            this.medecinId = medecinId;
+            this.patientId = patientId;
+            this.date = date;
+            this.texte = texte;
+            this.misAJourMs = misAJourMs;
+        }
+    }
+
+
+    long getVersion() {
+        return version;
+    }
+
+
+    // Appelé sous le verrou d'écriture
+    void modifiee() {
+        version++;
+    }
+
+
+    void indexerMedecin(Doctor medecin) {
+        medecins.ecrire(medecin.getId(), medecin);
+        medecinsParLogin.put(medecin.getFirst_name() + "." + medecin.getLast_name(), medecin);
+    }
+
+
+    void indexerPatient(Patient patient) {
+        patients.ecrire(patient.getId(), patient);
+        patientsParIdentite.putIfAbsent(identite(patient.getLast_name(), patient.getFirst_name(),
+                patient.getBirth_date()), patient.getId());
+        dernierPatient = Math.max(dernierPatient, patient.getId());
+    }
+
+
+    static String identite(String nom, String prenom, String naissance) {
+        return nom + '\u0000' + prenom + '\u0000' + naissance;
+    }
+
+
+    void indexerConsultation(LigneConsultation consultation) {
+        consultations.ecrire(consultation.id, consultation);
+        liste(consultationsParMedecin, consultation.medecinId).ajouter(consultation.id);
+        if (consultation.date != null) {
+            consultationsParDate.computeIfAbsent(consultation.date, d -> new ListeEntiers()).ajouter(consultation.id);
+        }
+        compterPaire(consultation.medecinId, consultation.patientId, 1);
+    }
+
+
+    void changerPatient(LigneConsultation consultation, int patientId, String raison) {
+        compterPaire(consultation.medecinId, consultation.patientId, -1);
+        consultation.patientId = patientId;
+        consultation.raison = raison;
+        compterPaire(consultation.medecinId, patientId, 1);
+    }
+
+
+    boolean paireExiste(int medecinId, int patientId) {
+        return consultationsParPaire.contient(TableCles.paire(medecinId, patientId));
+    }
+
+
+    private void compterPaire(int medecinId, int patientId, int delta) {
+        if (patientId == 0) {
+            return;
+        }
+        long cle = TableCles.paire(medecinId, patientId);
+        int[] nombre = consultationsParPaire.lire(cle);
+        if (nombre == null) {
+            consultationsParPaire.ecrire(cle, new int[] { delta });
+        } else if ((nombre[0] += delta) <= 0) {
+            consultationsParPaire.retirer(cle);
+        }
+    }
+
+
+    /**
+     * Range le rapport à sa place dans l'index du médecin (date puis id décroissants).
+     */
+    void indexerRapport(LigneRapport rapport) {
+        rapports.ecrire(rapport.id, rapport);
+        ListeEntiers ids = liste(rapportsParMedecin, rapport.medecinId);
+        int bas = 0;
+        int haut = ids.taille();
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (avant(rapports.lire(ids.lire(milieu)), rapport)) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        ids.inserer(bas, rapport.id);
+        dernierRapport = Math.max(dernierRapport, rapport.id);
+    }
+
+
+    private static boolean avant(LigneRapport a, LigneRapport b) {
+        return a.date != b.date ? a.date > b.date : a.id > b.id;
+    }
+
+
+    private static ListeEntiers liste(TableCles<ListeEntiers> index, int cle) {
+        ListeEntiers ids = index.lire(cle);
+        if (ids == null) {
+            ids = new ListeEntiers();
+            index.ecrire(cle, ids);
+        }
+        return ids;
+    }
+
+
+    /**
+     * LIKE '%motif%' de MySQL (insensible à la casse) ; un motif vide ne filtre pas.
+     */
+    static boolean comme(String valeur, String motif) {
+        if (motif == null || motif.isEmpty()) {
+            return true;
+        }
+        return valeur != null && valeur.toLowerCase(Locale.ROOT).contains(motif.toLowerCase(Locale.ROOT));
+    }
+
+
+    static boolean renseigne(String critere) {
+        return critere != null && !critere.isEmpty();
+    }
+
+
+    /**
+     * Copie des tables d'une base JDBC (moteur "jdbc") dans des tables vides.
+     */
+    void importer(Connection connexion) throws SQLException {
+        try (Statement stmt = connexion.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name FROM specialties")) {
+                while (rs.next()) {
+                    specialites.ecrire(rs.getInt("id"), new Specialty(rs.getInt("id"), rs.getString("name")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, specialite_id, last_name, first_name, password FROM doctor")) {
+                while (rs.next()) {
+                    indexerMedecin(new Doctor(rs.getInt("id"), rs.getInt("specialite_id"),
+                            rs.getString("last_name"), rs.getString("first_name"), rs.getString("password")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, last_name, first_name, birth_date FROM patient")) {
+                while (rs.next()) {
+                    indexerPatient(new Patient(rs.getInt("id"), rs.getString("last_name"),
+                            rs.getString("first_name"), rs.getString("birth_date")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, doctor_id, patient_id, date, hour, reason FROM consultations")) {
+                while (rs.next()) {
+                    indexerConsultation(new LigneConsultation(rs.getInt("id"), rs.getInt("doctor_id"),
+                            rs.getInt("patient_id"), rs.getString("date"), rs.getString("hour"),
+                            rs.getString("reason")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, doctor_id, patient_id, date_rapport, texte_rapport, updated_at FROM reports")) {
+                while (rs.next()) {
+                    Date date = rs.getDate("date_rapport");
+                    Timestamp misAJour = rs.getTimestamp("updated_at");
+                    indexerRapport(new LigneRapport(rs.getInt("id"), rs.getInt("doctor_id"), rs.getInt("patient_id"),
+                            (int) date.toLocalDate().toEpochDay(), rs.getString("texte_rapport"),
+                            misAJour != null ? misAJour.getTime() : 0));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT idempotency_key, report_id, applied_at FROM report_writes")) {
+                while (rs.next()) {
+                    Timestamp applique = rs.getTimestamp("applied_at");
+                    clesIdempotence.put(rs.getString("idempotency_key"), new long[] { rs.getInt("report_id"),
+                            applique != null ? applique.getTime() : System.currentTimeMillis() });
+                }
+            }
+        }
+        modifiee();
+    }
+
+
+    /**
+     * Écrit toutes les tables ; l'appelant tient le verrou de lecture.
+     */
+    void ecrire(DataOutputStream sortie) throws IOException {
+        sortie.writeInt(MAGIC);
+        sortie.writeInt(VERSION);
+
+        sortie.writeInt(specialites.taille());
+        for (Specialty specialite : valeurs(specialites)) {
+            sortie.writeInt(specialite.getId());
+            ecrireTexte(sortie, specialite.getName());
+        }
+        sortie.writeInt(medecins.taille());
+        for (Doctor medecin : valeurs(medecins)) {
+            sortie.writeInt(medecin.getId());
+            sortie.writeInt(medecin.getSpecialite_id() != null ? medecin.getSpecialite_id() : 0);
+            ecrireTexte(sortie, medecin.getLast_name());
+            ecrireTexte(sortie, medecin.getFirst_name());
+            ecrireTexte(sortie, medecin.getPassword());
+        }
+        sortie.writeInt(patients.taille());
+        for (Patient patient : valeurs(patients)) {
+            sortie.writeInt(patient.getId());
+            ecrireTexte(sortie, patient.getLast_name());
+            ecrireTexte(sortie, patient.getFirst_name());
+            ecrireTexte(sortie, patient.getBirth_date());
+        }
+        sortie.writeInt(consultations.taille());
+        for (LigneConsultation consultation : valeurs(consultations)) {
+            sortie.writeInt(consultation.id);
+            sortie.writeInt(consultation.medecinId);
+            sortie.writeInt(consultation.patientId);
+            ecrireTexte(sortie, consultation.date);
+            ecrireTexte(sortie, consultation.heure);
+            ecrireTexte(sortie, consultation.raison);
+        }
+        sortie.writeInt(rapports.taille());
+        for (LigneRapport rapport : valeurs(rapports)) {
+            sortie.writeInt(rapport.id);
+            sortie.writeInt(rapport.medecinId);
+            sortie.writeInt(rapport.patientId);
+            sortie.writeInt(rapport.date);
+            ecrireTexte(sortie, rapport.texte);
+            sortie.writeLong(rapport.misAJourMs);
+        }
+        sortie.writeInt(clesIdempotence.size());
+        for (Map.Entry<String, long[]> cle : clesIdempotence.entrySet()) {
+            ecrireTexte(sortie, cle.getKey());
+            sortie.writeInt((int) cle.getValue()[0]);
+            sortie.writeLong(cle.getValue()[1]);
+        }
+    }
+
+
+    /**
+     * Relit un instantané écrit par ecrire() dans des tables vides.
+     */
+    void lire(DataInputStream entree) throws IOException {
+        if (entree.readInt() != MAGIC) {
+            throw new IOException("Ce fichier n'est pas un instantané du moteur mémoire");
+        }
+        int version = entree.readInt();
+        if (version != VERSION) {
+            throw new IOException("Version d'instantané non prise en charge: " + version);
+        }
+
+        for (int i = entree.readInt(); i > 0; i--) {
+            int id = entree.readInt();
+            specialites.ecrire(id, new Specialty(id, lireTexte(entree)));
+        }
+        for (int i = entree.readInt(); i > 0; i--) {
+            int id = entree.readInt();
+            int specialiteId = entree.readInt();
+            indexerMedecin(new Doctor(id, specialiteId, lireTexte(entree), lireTexte(entree), lireTexte(entree)));
+        }
+        for (int i = entree.readInt(); i > 0; i--) {
+            int id = entree.readInt();
+            indexerPatient(new Patient(id, lireTexte(entree), lireTexte(entree), lireTexte(entree)));
+        }
+        for (int i = entree.readInt(); i > 0; i--) {
+            int id = entree.readInt();
+            int medecinId = entree.readInt();
+            int patientId = entree.readInt();
+            indexerConsultation(new LigneConsultation(id, medecinId, patientId, lireTexte(entree), lireTexte(entree),
+                    lireTexte(entree)));
+        }
+        for (int i = entree.readInt(); i > 0; i--) {
+            int id = entree.readInt();
+            int medecinId = entree.readInt();
+            int patientId = entree.readInt();
+            int date = entree.readInt();
+            indexerRapport(new LigneRapport(id, medecinId, patientId, date, lireTexte(entree), entree.readLong()));
+        }
+        for (int i = entree.readInt(); i > 0; i--) {
+            String cle = lireTexte(entree);
+            clesIdempotence.put(cle, new long[] { entree.readInt(), entree.readLong() });
+        }
+    }
+
+
+    private static <V> List<V> valeurs(TableCles<V> table) {
+        List<V> liste = new ArrayList<>(table.taille());
+        table.pourChaque(liste::add);
+        return liste;
+    }
+
+
+    // writeUTF est limité à 64 Ko : un rapport peut être plus long
+    private static void ecrireTexte(DataOutputStream sortie, String texte) throws IOException {
+        if (texte == null) {
+            sortie.writeInt(-1);
+            return;
+        }
+        byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.writeInt(octets.length);
+        sortie.write(octets);
+    }
+
+
+    private static String lireTexte(DataInputStream entree) throws IOException {
+        int longueur = entree.readInt();
+        if (longueur < 0) {
+            return null;
+        }
+        byte[] octets = new byte[longueur];
+        entree.readFully(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.server.stockage;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Méthode de dépôt qui modifie des données : exécutée sur le primaire, puis les
+ * lectures du médecin courant y restent le temps que les réplicas rattrapent.
+ * Une méthode sans annotation va aussi sur le primaire, sans cet effet.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Ecriture {
+}
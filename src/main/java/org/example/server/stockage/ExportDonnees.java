@@ -0,0 +1,90 @@
+package org.example.server.stockage;
+
+import com.google.gson.Gson;
+import org.example.server.bd.BdManager;
+import org.example.server.dao.FluxLignes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+
+/**
+ * Export d'une table en JSON Lines (un objet par ligne), sur la sortie standard
+ * ou dans un fichier : "ExportDonnees rapports|consultations|patients|medecins [fichier]".
+ * Les lignes sont lues en flux (BdManager.flux*) : la mémoire ne dépend pas de la
+ * taille de la table.
+ */
+public final class ExportDonnees {
+
+    private ExportDonnees() {
+    }
+
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage : ExportDonnees rapports|consultations|patients|medecins [fichier]");
+            System.exit(2);
+        }
+        BdManager manager = new BdManager();
+        Gson gson = new Gson();
+        AtomicLong lignes = new AtomicLong();
+        int code = 0;
+        try {
+            manager.connecter();
+            try (Writer sortie = args.length == 2
+                    ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+                    : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                 Stream<?> flux = ouvrir(manager, args[0])) {
+                flux.forEach(ligne -> {
+                    try {
+                        gson.toJson(ligne, sortie);
+                        sortie.write('\n');
+                        lignes.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            System.err.println("✓ " + lignes.get() + " ligne(s) exportée(s)");
+        } catch (SQLException | IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("✗ Export impossible: " + e.getMessage());
+            code = 1;
+        } catch (FluxLignes.ErreurLecture e) {
+            // Base perdue en cours d'export : le fichier est incomplet
+            System.err.println("✗ Export impossible: " + e.getCause().getMessage());
+            code = 1;
+        } finally {
+            try {
+                manager.deconnecter();
+            } catch (SQLException e) {
+                System.err.println("✗ Erreur lors de la déconnexion: " + e.getMessage());
+            }
+        }
+        System.exit(code);
+    }
+
+
+    private static Stream<?> ouvrir(BdManager manager, String table) throws SQLException {
+        switch (table) {
+            case "rapports":
+                return manager.fluxRapports(null);
+            case "consultations":
+                return manager.fluxConsultations(null);
+            case "patients":
+                return manager.fluxPatients(null);
+            case "medecins":
+                return manager.fluxMedecins(null);
+            default:
+                throw new IllegalArgumentException("Table inconnue : " + table);
+        }
+    }
+}
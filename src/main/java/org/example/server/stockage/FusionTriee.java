@@ -0,0 +1,103 @@
+package org.example.server.stockage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Fusion de k listes ou flux déjà triés (un par shard, un par médecin pour
+ * IndexDisponibilites) en O(n log k), sans retrier le tout.
+ */
+public final class FusionTriee {
+
+    private FusionTriee() {
+    }
+
+
+    static <T> List<T> fusionner(List<List<T>> listes, Comparator<? super T> ordre) {
+        int total = 0;
+        // tête de chaque liste : { indice de la liste, position dans la liste }
+        PriorityQueue<int[]> tetes = new PriorityQueue<>(Math.max(1, listes.size()),
+                (a, b) -> ordre.compare(listes.get(a[0]).get(a[1]), listes.get(b[0]).get(b[1])));
+        for (int i = 0; i < listes.size(); i++) {
+            total += listes.get(i).size();
+            if (!listes.get(i).isEmpty()) {
+                tetes.add(new int[] { i, 0 });
+            }
+        }
+        List<T> resultat = new ArrayList<>(total);
+        while (!tetes.isEmpty()) {
+            int[] tete = tetes.poll();
+            List<T> liste = listes.get(tete[0]);
+            resultat.add(liste.get(tete[1]));
+            if (++tete[1] < liste.size()) {
+                tetes.add(tete);
+            }
+        }
+        return resultat;
+    }
+
+
+    /**
+     * Même fusion sur des flux, consommés au fur et à mesure ; fermer le résultat ferme chaque flux.
+     */
+    public static <T> Stream<T> fusionnerFlux(List<Stream<T>> flux, Comparator<? super T> ordre) {
+        List<Iterator<T>> sources = new ArrayList<>(flux.size());
+        for (Stream<T> f : flux) {
+            sources.add(f.iterator());
+        }
+        // tête de chaque flux : { valeur, indice du flux }
+        PriorityQueue<Object[]> tetes = new PriorityQueue<>(Math.max(1, flux.size()),
+                (a, b) -> ordre.compare(valeur(a), valeur(b)));
+        Iterator<T> fusion = new Iterator<T>() {
+            private boolean amorce;
+
+            @Override
+            public boolean hasNext() {
+                if (!amorce) {
+                    amorce = true;
+                    for (int i = 0; i < sources.size(); i++) {
+                        avancer(i);
+                    }
+                }
+                return !tetes.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] tete = tetes.poll();
+                avancer((Integer) tete[1]);
+                return valeur(tete);
+            }
+
+            private void avancer(int i) {
+                if (sources.get(i).hasNext()) {
+                    tetes.add(new Object[] { sources.get(i).next(), i });
+                }
+            }
+        };
+        Stream<T> resultat = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(fusion, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        for (Stream<T> f : flux) {
+            resultat = resultat.onClose(f::close);
+        }
+        return resultat;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> T valeur(Object[] tete) {
+        return (T) tete[0];
+    }
+}
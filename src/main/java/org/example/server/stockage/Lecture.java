@@ -0,0 +1,15 @@
+package org.example.server.stockage;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Méthode de dépôt en lecture seule : MoteurRepliques peut l'envoyer sur un réplica.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Lecture {
+}
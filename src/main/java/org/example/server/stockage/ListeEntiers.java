@@ -0,0 +1,58 @@
+package org.example.server.stockage;
+
+import java.util.Arrays;
+
+
+/**
+ * Liste d'int sans boîte, pour les index secondaires (ids d'un médecin, d'une date...).
+ */
+final class ListeEntiers {
+
+    private int[] valeurs;
+    private int taille;
+
+
+    ListeEntiers() {
+        valeurs = new int[4];
+    }
+
+
+    int taille() {
+        return taille;
+    }
+
+
+    int lire(int position) {
+        return valeurs[position];
+    }
+
+
+    void ajouter(int valeur) {
+        inserer(taille, valeur);
+    }
+
+
+    void inserer(int position, int valeur) {
+        if (taille == valeurs.length) {
+            valeurs = Arrays.copyOf(valeurs, taille * 2);
+        }
+        System.arraycopy(valeurs, position, valeurs, position + 1, taille - position);
+        valeurs[position] = valeur;
+        taille++;
+    }
+
+
+    /**
+     * Retire la première occurrence de valeur ; false si elle est absente.
+     */
+    boolean retirer(int valeur) {
+        for (int i = 0; i < taille; i++) {
+            if (valeurs[i] == valeur) {
+                System.arraycopy(valeurs, i + 1, valeurs, i, taille - i - 1);
+                taille--;
+                return true;
+            }
+        }
+        return false;
+    }
+}
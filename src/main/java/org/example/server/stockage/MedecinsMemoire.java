@@ -0,0 +1,98 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.DoctorSearchVM;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+final class MedecinsMemoire implements DepotMedecins {
+
+    private final DonneesMemoire donnees;
+
+
+    MedecinsMemoire(DonneesMemoire donnees) {
+        this.donnees = donnees;
+    }
+
+
+    @Override
+    public boolean medecinExiste(String login) {
+        return trouver(login, "MedecinsMemoire.medecinExiste") != null;
+    }
+
+
+    @Override
+    public String getMotDePasseMedecin(String login) {
+        Doctor medecin = trouver(login, "MedecinsMemoire.getMotDePasseMedecin");
+        return medecin != null ? medecin.getPassword() : null;
+    }
+
+
+    @Override
+    public Integer getIdMedecin(String login) {
+        Doctor medecin = trouver(login, "MedecinsMemoire.getIdMedecin");
+        return medecin != null ? medecin.getId() : null;
+    }
+
+
+    @Override
+    public List<Doctor> load(DoctorSearchVM dsearchvm) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            List<Doctor> medecins = new ArrayList<>();
+            donnees.medecins.pourChaque(medecin -> {
+                if (dsearchvm == null || correspond(medecin, dsearchvm)) {
+                    // Sans le mot de passe, comme DoctorDAO.load
+                    medecins.add(new Doctor(medecin.getId(), medecin.getSpecialite_id(), medecin.getLast_name(),
+                            medecin.getFirst_name()));
+                }
+            });
+            medecins.sort(Comparator.comparing(Doctor::getLast_name, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Doctor::getFirst_name, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return medecins;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("MedecinsMemoire.load", debut);
+        }
+    }
+
+
+    private boolean correspond(Doctor medecin, DoctorSearchVM vm) {
+        if (!DonneesMemoire.comme(medecin.getLast_name(), vm.getLastName())
+                || !DonneesMemoire.comme(medecin.getFirst_name(), vm.getFirstName())) {
+            return false;
+        }
+        if (!DonneesMemoire.renseigne(vm.getSpecialityName())) {
+            return true;
+        }
+        Specialty specialite = medecin.getSpecialite_id() != null
+                ? donnees.specialites.lire(medecin.getSpecialite_id()) : null;
+        return specialite != null && DonneesMemoire.comme(specialite.getName(), vm.getSpecialityName());
+    }
+
+
+    private Doctor trouver(String login, String methode) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            return donnees.medecinsParLogin.get(login);
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao(methode, debut);
+        }
+    }
+
+
+    // Tables déjà en mémoire : le flux parcourt la copie renvoyée par load
+    @Override
+    public Stream<Doctor> flux(DoctorSearchVM dsearchvm) {
+        return load(dsearchvm).stream();
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.server.stockage;
+
+import org.example.server.dao.ConsultationDAO;
+import org.example.server.dao.DoctorDAO;
+import org.example.server.dao.PatientDAO;
+import org.example.server.dao.ReportDAO;
+import org.example.server.dao.SpecialtyDAO;
+import org.example.server.journal.JournalRapports;
+import org.example.server.metriques.Metriques;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+
+/**
+ * Moteur historique : les DAO JDBC sur une connexion partagée (MySQL/MariaDB).
+ * <p>
+ * Un thread de BdAsync peut avoir sa propre connexion (attacherConnexionThread) :
+ * ses requêtes ne passent plus après celles des autres threads et peuvent être
+ * annulées (RequetesAnnulables).
+ * </p>
+ */
+public class MoteurJdbc implements MoteurStockage {
+
+    public static final String NOM = "jdbc";
+
+    private final JournalRapports.OuvreurConnexion ouvreur;
+    private Connection connexion;
+    private Depots partages;
+    private final ThreadLocal<Depots> depotsThread = new ThreadLocal<>();
+
+
+    // Les DAO d'une connexion
+    private static final class Depots {
+        final Connection connexion;
+        final DepotMedecins doctorDAO;
+        final DepotSpecialites specialtyDAO;
+        final DepotPatients patientDAO;
+        final DepotConsultations consultationDAO;
+        final DepotRapports reportDAO;
+
+        Depots(Connection connexion, JournalRapports.OuvreurConnexion flux) {
+            this.connexion = connexion;
+            // Durées mesurées à l'entrée de chaque méthode (mrps_dao_duration_seconds)
+            doctorDAO = Metriques.chronometrer(DepotMedecins.class, new DoctorDAO(connexion, flux), "DoctorDAO");
+            specialtyDAO = Metriques.chronometrer(DepotSpecialites.class, new SpecialtyDAO(connexion),
+                    "SpecialtyDAO");
+            patientDAO = Metriques.chronometrer(DepotPatients.class, new PatientDAO(connexion, flux), "PatientDAO");
+            consultationDAO = Metriques.chronometrer(DepotConsultations.class, new ConsultationDAO(connexion, flux),
+                    "ConsultationDAO");
+            reportDAO = Metriques.chronometrer(DepotRapports.class, new ReportDAO(connexion, flux), "ReportDAO");
+        }
+    }
+
+
+    public MoteurJdbc(JournalRapports.OuvreurConnexion ouvreur) {
+        this.ouvreur = ouvreur;
+    }
+
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+
+    @Override
+    public void demarrer() throws SQLException {
+        // Pas d'annulation sur la connexion partagée : cancel() y arrêterait la requête d'un autre thread
+        connexion = ouvreur.ouvrir();
+        partages = new Depots(connexion, flux());
+    }
+
+
+    // Un flux garde sa propre connexion jusqu'à sa fermeture
+    private JournalRapports.OuvreurConnexion flux() {
+        return () -> RequetesAnnulables.surveiller(ouvreur.ouvrir());
+    }
+
+
+    @Override
+    public void arreter() throws SQLException {
+        if (connexion != null && !connexion.isClosed()) {
+            connexion.close();
+        }
+    }
+
+
+    /**
+     * Ouvre une connexion réservée au thread courant (rouverte si elle a été fermée) :
+     * ses appels aux dépôts y passent jusqu'à detacherConnexionThread.
+     */
+    @Override
+    public void attacherConnexionThread() throws SQLException {
+        Depots depots = depotsThread.get();
+        if (depots != null && !depots.connexion.isClosed()) {
+            return;
+        }
+        // Un seul thread l'utilise : cancel() n'y arrête que la requête de sa tâche
+        depotsThread.set(new Depots(RequetesAnnulables.surveiller(ouvreur.ouvrir()), flux()));
+    }
+
+
+    @Override
+    public void detacherConnexionThread() {
+        Depots depots = depotsThread.get();
+        if (depots == null) {
+            return;
+        }
+        depotsThread.remove();
+        try {
+            depots.connexion.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une connexion de thread: " + e.getMessage());
+        }
+    }
+
+
+    public Connection getConnexion() {
+        return connexion;
+    }
+
+
+    private Depots depots() {
+        Depots depots = depotsThread.get();
+        return depots != null ? depots : partages;
+    }
+
+
+    @Override
+    public DepotMedecins medecins() {
+        return depots().doctorDAO;
+    }
+
+
+    @Override
+    public DepotSpecialites specialites() {
+        return depots().specialtyDAO;
+    }
+
+
+    @Override
+    public DepotPatients patients() {
+        return depots().patientDAO;
+    }
+
+
+    @Override
+    public DepotConsultations consultations() {
+        return depots().consultationDAO;
+    }
+
+
+    @Override
+    public DepotRapports rapports() {
+        return depots().reportDAO;
+    }
+}
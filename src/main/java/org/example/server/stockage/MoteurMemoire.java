@@ -0,0 +1,251 @@
+package org.example.server.stockage;
+
+import org.example.server.bd.BdManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+
+/**
+ * Moteur "memoire" : toutes les tables tiennent en mémoire (DonneesMemoire),
+ * sans serveur de base de données. Pensé pour un petit cabinet isolé ou pour
+ * les tests de charge.
+ * <p>
+ * Durabilité : un instantané complet est écrit toutes les intervalleMs (s'il y a
+ * eu des écritures) et à l'arrêt, dans un fichier temporaire synchronisé puis
+ * renommé atomiquement. Un arrêt brutal perd au plus les écritures du dernier
+ * intervalle. Un CRC32 en fin de fichier détecte un instantané tronqué ou altéré.
+ * </p>
+ * Le fichier initial se crée depuis une base MySQL existante avec main().
+ */
+public class MoteurMemoire implements MoteurStockage {
+
+    public static final String NOM = "memoire";
+    public static final String FICHIER_PAR_DEFAUT = "data/stockage.snapshot";
+    public static final long INTERVALLE_PAR_DEFAUT_S = 60;
+
+    private final Path fichier;
+    private final long intervalleMs;
+    private final DonneesMemoire donnees = new DonneesMemoire();
+    private final MedecinsMemoire medecins = new MedecinsMemoire(donnees);
+    private final SpecialitesMemoire specialites = new SpecialitesMemoire(donnees);
+    private final PatientsMemoire patients = new PatientsMemoire(donnees);
+    private final ConsultationsMemoire consultations = new ConsultationsMemoire(donnees);
+    private final RapportsMemoire rapports = new RapportsMemoire(donnees);
+
+    private ScheduledExecutorService planificateur;
+    private long versionEcrite = -1;
+
+
+    /**
+     * @param intervalleMs 0 : instantané seulement à l'arrêt
+     */
+    public MoteurMemoire(Path fichier, long intervalleMs) {
+        this.fichier = fichier;
+        this.intervalleMs = intervalleMs;
+    }
+
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+
+    @Override
+    public void demarrer() throws SQLException {
+        if (Files.exists(fichier)) {
+            try {
+                charger();
+            } catch (IOException e) {
+                throw new SQLException("Instantané illisible " + fichier + ": " + e.getMessage(), e);
+            }
+            System.out.println("Moteur mémoire : instantané " + fichier + " chargé (" + donnees.medecins.taille()
+                    + " médecins, " + donnees.patients.taille() + " patients, " + donnees.rapports.taille()
+                    + " rapports)");
+        } else {
+            System.out.println("Moteur mémoire : pas d'instantané " + fichier + ", démarrage sur des tables vides");
+        }
+        versionEcrite = donnees.getVersion();
+
+        if (intervalleMs > 0) {
+            planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread fil = new Thread(r, "instantane-stockage");
+                fil.setDaemon(true);
+                return fil;
+            });
+            planificateur.scheduleWithFixedDelay(() -> {
+                try {
+                    ecrireInstantane();
+                } catch (IOException e) {
+                    System.err.println("Erreur lors de l'écriture de l'instantané: " + e.getMessage());
+                }
+            }, intervalleMs, intervalleMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    @Override
+    public void arreter() throws SQLException {
+        if (planificateur != null) {
+            planificateur.shutdown();
+            try {
+                planificateur.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            ecrireInstantane();
+        } catch (IOException e) {
+            throw new SQLException("Instantané final non écrit: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Écrit l'instantané si des écritures ont eu lieu depuis le précédent.
+     * Les tables sont sérialisées en mémoire sous le verrou de lecture : les
+     * écritures ne sont bloquées que le temps de la copie, pas celui du disque.
+     */
+    public synchronized void ecrireInstantane() throws IOException {
+        ByteArrayOutputStream tampon = new ByteArrayOutputStream(1 << 16);
+        long version;
+        donnees.lecture.lock();
+        try {
+            version = donnees.getVersion();
+            if (version == versionEcrite) {
+                return;
+            }
+            DataOutputStream sortie = new DataOutputStream(tampon);
+            donnees.ecrire(sortie);
+            sortie.flush();
+        } finally {
+            donnees.lecture.unlock();
+        }
+        byte[] contenu = tampon.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(contenu);
+
+        Path parent = fichier.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                // Dossiers patients et rapports en clair, comme le journal des rapports
+                Files.setPosixFilePermissions(temporaire, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Système de fichiers non POSIX
+            }
+            ByteBuffer[] blocs = { ByteBuffer.wrap(contenu),
+                    ByteBuffer.allocate(Long.BYTES).putLong(0, crc.getValue()) };
+            while (blocs[1].hasRemaining()) {
+                canal.write(blocs);
+            }
+            canal.force(true);
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        versionEcrite = version;
+    }
+
+
+    private void charger() throws IOException {
+        byte[] contenu = Files.readAllBytes(fichier);
+        if (contenu.length < Long.BYTES) {
+            throw new IOException("fichier tronqué");
+        }
+        int longueur = contenu.length - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(contenu, 0, longueur);
+        if (crc.getValue() != ByteBuffer.wrap(contenu, longueur, Long.BYTES).getLong()) {
+            throw new IOException("somme de contrôle incorrecte");
+        }
+        donnees.ecriture.lock();
+        try {
+            donnees.lire(new DataInputStream(new ByteArrayInputStream(contenu, 0, longueur)));
+        } finally {
+            donnees.ecriture.unlock();
+        }
+    }
+
+
+    /**
+     * Copie une base JDBC dans un nouvel instantané.
+     */
+    public static void importer(Connection connexion, Path fichier) throws SQLException, IOException {
+        MoteurMemoire moteur = new MoteurMemoire(fichier, 0);
+        moteur.donnees.ecriture.lock();
+        try {
+            moteur.donnees.importer(connexion);
+        } finally {
+            moteur.donnees.ecriture.unlock();
+        }
+        moteur.ecrireInstantane();
+    }
+
+
+    @Override
+    public DepotMedecins medecins() {
+        return medecins;
+    }
+
+
+    @Override
+    public DepotSpecialites specialites() {
+        return specialites;
+    }
+
+
+    @Override
+    public DepotPatients patients() {
+        return patients;
+    }
+
+
+    @Override
+    public DepotConsultations consultations() {
+        return consultations;
+    }
+
+
+    @Override
+    public DepotRapports rapports() {
+        return rapports;
+    }
+
+
+    /**
+     * Importe la base configurée (DB_URL...) dans STORAGE_SNAPSHOT_FILE, ou dans le fichier passé en argument.
+     */
+    public static void main(String[] args) {
+        BdManager manager = new BdManager();
+        String configure = manager.getProperty("STORAGE_SNAPSHOT_FILE");
+        Path fichier = Paths.get(args.length > 0 ? args[0] : configure != null ? configure : FICHIER_PAR_DEFAUT);
+        try (Connection connexion = manager.ouvrirConnexion()) {
+            importer(connexion, fichier);
+            System.out.println("✓ Base importée dans " + fichier.toAbsolutePath());
+        } catch (SQLException | IOException e) {
+            System.err.println("✗ Import impossible: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.server.stockage;
+
+import org.example.server.journal.JournalRapports;
+import org.example.server.metriques.Metriques;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+
+/**
+ * Moteur JDBC avec réplicas en lecture (DB_REPLICA_URLS).
+ * <p>
+ * Chaque dépôt est un proxy : une méthode @Lecture part sur un réplica en
+ * rotation (à tour de rôle), tout le reste sur le primaire. Une lecture va
+ * aussi sur le primaire quand aucun réplica n'est disponible, quand le médecin
+ * courant vient d'écrire (SessionLectures) ou quand le réplica choisi échoue ;
+ * dans ce dernier cas il sort de la rotation jusqu'à la prochaine vérification.
+ * </p>
+ * Un thread vérifie les réplicas toutes les intervalleS : reconnexion, mesure
+ * du retard, exclusion au-delà de retardMaxS.
+ */
+public class MoteurRepliques extends MoteurJdbc {
+
+    private final List<Replique> repliques;
+    private final long retardMaxS;
+    private final long intervalleS;
+    // Couvre le pire cas : un réplica à retardMaxS pas encore revérifié
+    private final long fenetreEcritureMs;
+    private final AtomicInteger prochain = new AtomicInteger();
+    private ScheduledExecutorService surveillance;
+
+    private DepotMedecins medecins;
+    private DepotSpecialites specialites;
+    private DepotPatients patients;
+    private DepotConsultations consultations;
+    private DepotRapports rapports;
+
+
+    /**
+     * @param repliques nom (URL) -> ouverture d'une connexion sur ce réplica
+     */
+    public MoteurRepliques(JournalRapports.OuvreurConnexion primaire,
+                           Map<String, JournalRapports.OuvreurConnexion> repliques,
+                           long retardMaxS, long intervalleS) {
+        super(primaire);
+        this.repliques = repliques.entrySet().stream()
+                .map(replique -> new Replique(replique.getKey(), replique.getValue()))
+                .toList();
+        this.retardMaxS = retardMaxS;
+        this.intervalleS = intervalleS;
+        this.fenetreEcritureMs = TimeUnit.SECONDS.toMillis(retardMaxS + intervalleS + 1);
+    }
+
+
+    @Override
+    public void demarrer() throws SQLException {
+        super.demarrer();
+        medecins = router(DepotMedecins.class, super::medecins, MoteurJdbc::medecins);
+        specialites = router(DepotSpecialites.class, super::specialites, MoteurJdbc::specialites);
+        patients = router(DepotPatients.class, super::patients, MoteurJdbc::patients);
+        consultations = router(DepotConsultations.class, super::consultations, MoteurJdbc::consultations);
+        rapports = router(DepotRapports.class, super::rapports, MoteurJdbc::rapports);
+
+        // Un réplica injoignable au démarrage n'empêche pas de servir depuis le primaire
+        for (Replique replique : repliques) {
+            replique.verifier(retardMaxS);
+        }
+        surveillance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread fil = new Thread(r, "surveillance-repliques");
+            fil.setDaemon(true);
+            return fil;
+        });
+        surveillance.scheduleWithFixedDelay(() -> {
+            for (Replique replique : repliques) {
+                replique.verifier(retardMaxS);
+            }
+        }, intervalleS, intervalleS, TimeUnit.SECONDS);
+    }
+
+
+    @Override
+    public void arreter() throws SQLException {
+        if (surveillance != null) {
+            surveillance.shutdownNow();
+        }
+        for (Replique replique : repliques) {
+            try {
+                replique.getMoteur().arreter();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la fermeture du réplica " + replique.getNom() + ": "
+                        + e.getMessage());
+            }
+        }
+        super.arreter();
+    }
+
+
+    public void enregistrerJauges() {
+        Metriques.jauge("mrps_db_replicas_in_rotation", "Réplicas recevant des lectures",
+                () -> repliques.stream().filter(Replique::estEnRotation).count());
+        for (Replique replique : repliques) {
+            Metriques.jauge("mrps_db_replica_lag_seconds", "Retard mesuré du réplica (-1 : inconnu)",
+                    replique::getRetardS, "replica", replique.getNom());
+        }
+    }
+
+
+    /**
+     * Connexions du thread sur le primaire et sur chaque réplica joignable.
+     */
+    @Override
+    public void attacherConnexionThread() throws SQLException {
+        super.attacherConnexionThread();
+        for (Replique replique : repliques) {
+            try {
+                replique.getMoteur().attacherConnexionThread();
+            } catch (SQLException e) {
+                // Réplica injoignable : ses lectures passent par sa connexion partagée ou par le primaire
+            }
+        }
+    }
+
+
+    @Override
+    public void detacherConnexionThread() {
+        for (Replique replique : repliques) {
+            replique.getMoteur().detacherConnexionThread();
+        }
+        super.detacherConnexionThread();
+    }
+
+
+    // primaire : relu à chaque appel, le thread courant peut avoir sa propre connexion
+    private <D> D router(Class<D> type, Supplier<D> primaire, Function<MoteurJdbc, D> depotReplique) {
+        Map<Method, Boolean> lectures = new HashMap<>();
+        Map<Method, Boolean> ecritures = new HashMap<>();
+        for (Method methode : type.getMethods()) {
+            lectures.put(methode, methode.isAnnotationPresent(Lecture.class));
+            ecritures.put(methode, methode.isAnnotationPresent(Ecriture.class));
+        }
+        InvocationHandler routeur = (proxy, methode, arguments) -> {
+            if (methode.getDeclaringClass() == Object.class) {
+                return methode.invoke(primaire.get(), arguments);
+            }
+            if (!lectures.getOrDefault(methode, false)) {
+                Object resultat = invoquer(primaire.get(), methode, arguments);
+                if (ecritures.get(methode)) {
+                    SessionLectures.ecritureFaite();
+                }
+                return resultat;
+            }
+            Replique replique = choisirReplique();
+            if (replique != null) {
+                try {
+                    Object resultat = invoquer(depotReplique.apply(replique.getMoteur()), methode, arguments);
+                    compterLecture("replica");
+                    return resultat;
+                } catch (SQLException | RuntimeException e) {
+                    // Les DAO enveloppent parfois l'erreur SQL dans une RuntimeException
+                    replique.exclure(e.getMessage());
+                }
+            }
+            compterLecture("primary");
+            return invoquer(primaire.get(), methode, arguments);
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, routeur));
+    }
+
+
+    private Replique choisirReplique() {
+        if (SessionLectures.doitLireSurPrimaire(fenetreEcritureMs)) {
+            return null;
+        }
+        int nombre = repliques.size();
+        int depart = Math.floorMod(prochain.getAndIncrement(), nombre);
+        for (int i = 0; i < nombre; i++) {
+            Replique replique = repliques.get((depart + i) % nombre);
+            if (replique.estEnRotation()) {
+                return replique;
+            }
+        }
+        return null;
+    }
+
+
+    private static Object invoquer(Object cible, Method methode, Object[] arguments) throws Exception {
+        try {
+            return methode.invoke(cible, arguments);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+
+    private static void compterLecture(String cible) {
+        Metriques.compteur("mrps_db_reads_total", "Lectures des dépôts par destination", "target", cible)
+                .increment();
+    }
+
+
+    @Override
+    public DepotMedecins medecins() {
+        return medecins;
+    }
+
+
+    @Override
+    public DepotSpecialites specialites() {
+        return specialites;
+    }
+
+
+    @Override
+    public DepotPatients patients() {
+        return patients;
+    }
+
+
+    @Override
+    public DepotConsultations consultations() {
+        return consultations;
+    }
+
+
+    @Override
+    public DepotRapports rapports() {
+        return rapports;
+    }
+}
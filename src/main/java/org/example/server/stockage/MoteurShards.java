@@ -0,0 +1,321 @@
+package org.example.server.stockage;
+
+import org.example.server.journal.JournalRapports;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+
+/**
+ * Moteur "shards" : rapports et consultations répartis par médecin sur plusieurs
+ * nœuds MySQL (DB_SHARDS) par un anneau de hachage cohérent.
+ * <p>
+ * Le nœud principal (DB_URL) garde les tables de référence (médecins, patients,
+ * spécialités), les clés d'idempotence et la table doctor_shards. Chaque shard
+ * doit en avoir une copie (réplication MySQL des tables de référence) : les DAO
+ * y font leurs jointures comme sur une base unique.
+ * </p>
+ * <p>
+ * doctor_shards fixe le nœud de certains médecins (déplacements en cours, voir
+ * RebalanceurShards) et prime sur l'anneau. Elle est relue toutes les
+ * intervalleS ; un médecin marqué "moving" est en lecture seule le temps de la
+ * copie de ses données.
+ * </p>
+ */
+public class MoteurShards implements MoteurStockage {
+
+    public static final String NOM = "shards";
+
+    private final MoteurJdbc principal;
+    // Nœuds de l'anneau, puis nœuds sortants (encore joignables, hors anneau)
+    private final Map<String, MoteurJdbc> noeuds = new LinkedHashMap<>();
+    private final AnneauShards anneau;
+    private final long intervalleS;
+
+    private volatile Map<Integer, String> affectations = Collections.emptyMap();
+    private volatile Set<Integer> enDeplacement = Collections.emptySet();
+    private boolean avertiSansTable;
+    private ExecutorService diffusion;
+    private ScheduledExecutorService relecture;
+
+    private final DepotPatients patients = new PatientsShards(this);
+    private final DepotConsultations consultations = new ConsultationsShards(this);
+    private final DepotRapports rapports = new RapportsShards(this);
+
+
+    /**
+     * Fonction exécutée sur un shard (requête d'un DAO).
+     */
+    interface RequeteShard<R> {
+        R executer(MoteurJdbc shard) throws SQLException;
+    }
+
+
+    public MoteurShards(JournalRapports.OuvreurConnexion principal,
+                        Map<String, JournalRapports.OuvreurConnexion> shards,
+                        Map<String, JournalRapports.OuvreurConnexion> sortants, long intervalleS) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("DB_SHARDS est vide");
+        }
+        this.principal = new MoteurJdbc(principal);
+        shards.forEach((nom, ouvreur) -> noeuds.put(nom, new MoteurJdbc(ouvreur)));
+        sortants.forEach((nom, ouvreur) -> noeuds.putIfAbsent(nom, new MoteurJdbc(ouvreur)));
+        this.anneau = new AnneauShards(new ArrayList<>(shards.keySet()));
+        this.intervalleS = intervalleS;
+    }
+
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+
+    @Override
+    public void demarrer() throws SQLException {
+        principal.demarrer();
+        for (MoteurJdbc noeud : noeuds.values()) {
+            noeud.demarrer();
+        }
+        relireAffectations();
+
+        AtomicInteger numero = new AtomicInteger();
+        diffusion = Executors.newFixedThreadPool(noeuds.size(), r -> {
+            Thread fil = new Thread(r, "shards-diffusion-" + numero.incrementAndGet());
+            fil.setDaemon(true);
+            return fil;
+        });
+        relecture = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread fil = new Thread(r, "shards-affectations");
+            fil.setDaemon(true);
+            return fil;
+        });
+        relecture.scheduleWithFixedDelay(() -> {
+            try {
+                relireAffectations();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la relecture de doctor_shards: " + e.getMessage());
+            }
+        }, intervalleS, intervalleS, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Connexions du thread sur le nœud principal et sur chaque shard.
+     */
+    @Override
+    public void attacherConnexionThread() throws SQLException {
+        principal.attacherConnexionThread();
+        for (MoteurJdbc noeud : noeuds.values()) {
+            noeud.attacherConnexionThread();
+        }
+    }
+
+
+    @Override
+    public void detacherConnexionThread() {
+        for (MoteurJdbc noeud : noeuds.values()) {
+            noeud.detacherConnexionThread();
+        }
+        principal.detacherConnexionThread();
+    }
+
+
+    @Override
+    public void arreter() throws SQLException {
+        if (relecture != null) {
+            relecture.shutdownNow();
+        }
+        if (diffusion != null) {
+            diffusion.shutdownNow();
+        }
+        for (MoteurJdbc noeud : noeuds.values()) {
+            noeud.arreter();
+        }
+        principal.arreter();
+    }
+
+
+    public MoteurJdbc getPrincipal() {
+        return principal;
+    }
+
+
+    private void relireAffectations() throws SQLException {
+        Map<Integer, String> lues = new HashMap<>();
+        Set<Integer> bloques = new HashSet<>();
+        try (PreparedStatement stmt = principal.getConnexion().prepareStatement(
+                "SELECT doctor_id, shard, moving FROM doctor_shards")) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                lues.put(rs.getInt("doctor_id"), rs.getString("shard"));
+                if (rs.getBoolean("moving")) {
+                    bloques.add(rs.getInt("doctor_id"));
+                }
+            }
+        } catch (SQLException e) {
+            // Sans la table, l'anneau seul décide (aucun déplacement possible)
+            if (!avertiSansTable) {
+                avertiSansTable = true;
+                System.err.println("Table doctor_shards illisible, routage par l'anneau seul: " + e.getMessage());
+            }
+            return;
+        }
+        affectations = lues;
+        enDeplacement = bloques;
+    }
+
+
+    /**
+     * Nom du nœud qui détient les données du médecin.
+     */
+    String nomNoeud(int medecinId) {
+        String affecte = affectations.get(medecinId);
+        return affecte != null ? affecte : anneau.noeud(medecinId);
+    }
+
+
+    MoteurJdbc shard(int medecinId) throws SQLException {
+        String nom = nomNoeud(medecinId);
+        MoteurJdbc noeud = noeuds.get(nom);
+        if (noeud == null) {
+            throw new SQLException("Nœud " + nom + " du médecin " + medecinId + " absent de DB_SHARDS");
+        }
+        return noeud;
+    }
+
+
+    MoteurJdbc shardEcriture(int medecinId) throws SQLException {
+        if (enDeplacement.contains(medecinId)) {
+            throw new SQLException("Dossiers du médecin en cours de déplacement, réessayez dans quelques secondes");
+        }
+        return shard(medecinId);
+    }
+
+
+    /**
+     * Exécute la requête sur tous les nœuds en parallèle ; résultats dans l'ordre des nœuds.
+     */
+    <R> List<R> diffuser(RequeteShard<R> requete) throws SQLException {
+        List<Future<R>> reponses = new ArrayList<>(noeuds.size());
+        for (MoteurJdbc noeud : noeuds.values()) {
+            reponses.add(diffusion.submit(() -> requete.executer(noeud)));
+        }
+        List<R> resultats = new ArrayList<>(reponses.size());
+        try {
+            for (Future<R> reponse : reponses) {
+                resultats.add(reponse.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Requête multi-shards interrompue", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            for (Future<R> reponse : reponses) {
+                reponse.cancel(true);
+            }
+        }
+        return resultats;
+    }
+
+
+    /**
+     * Diffuse une requête de liste et ne garde sur chaque nœud que les lignes des
+     * médecins qu'il détient : pendant un déplacement, les lignes copiées existent
+     * sur deux nœuds jusqu'au nettoyage de l'ancien.
+     */
+    <T> List<List<T>> diffuserLignes(RequeteShard<List<T>> requete, Function<T, Integer> medecin)
+            throws SQLException {
+        List<List<T>> resultats = diffuser(requete);
+        List<String> noms = new ArrayList<>(noeuds.keySet());
+        for (int i = 0; i < resultats.size(); i++) {
+            String nom = noms.get(i);
+            resultats.get(i).removeIf(ligne -> {
+                Integer medecinId = medecin.apply(ligne);
+                return medecinId != null && !nom.equals(nomNoeud(medecinId));
+            });
+        }
+        return resultats;
+    }
+
+
+    /**
+     * Ouvre le flux de chaque nœud, filtré comme {@link #diffuserLignes} ; en cas
+     * d'échec, les flux déjà ouverts sont refermés.
+     */
+    <T> List<Stream<T>> ouvrirFlux(RequeteShard<Stream<T>> requete, Function<T, Integer> medecin)
+            throws SQLException {
+        List<Stream<T>> flux = new ArrayList<>(noeuds.size());
+        try {
+            for (Map.Entry<String, MoteurJdbc> noeud : noeuds.entrySet()) {
+                String nom = noeud.getKey();
+                flux.add(requete.executer(noeud.getValue()).filter(ligne -> {
+                    Integer medecinId = medecin.apply(ligne);
+                    return medecinId == null || nom.equals(nomNoeud(medecinId));
+                }));
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (Stream<T> ouvert : flux) {
+                ouvert.close();
+            }
+            throw e;
+        }
+        return flux;
+    }
+
+
+    @Override
+    public DepotMedecins medecins() {
+        return principal.medecins();
+    }
+
+
+    @Override
+    public DepotSpecialites specialites() {
+        return principal.specialites();
+    }
+
+
+    @Override
+    public DepotPatients patients() {
+        return patients;
+    }
+
+
+    @Override
+    public DepotConsultations consultations() {
+        return consultations;
+    }
+
+
+    @Override
+    public DepotRapports rapports() {
+        return rapports;
+    }
+}
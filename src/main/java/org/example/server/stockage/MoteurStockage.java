@@ -0,0 +1,38 @@
+package org.example.server.stockage;
+
+import java.sql.SQLException;
+
+
+/**
+ * Moteur de stockage choisi par STORAGE_ENGINE : "jdbc" (MySQL, défaut),
+ * "memoire" (tables en mémoire, instantanés sur disque) ou "shards" (plusieurs
+ * nœuds MySQL). BdManager ne passe que par les dépôts, les moteurs sont donc
+ * interchangeables.
+ */
+public interface MoteurStockage {
+
+    String getNom();
+
+    void demarrer() throws SQLException;
+
+    void arreter() throws SQLException;
+
+    /**
+     * Donne au thread courant (pool de BdAsync) ses propres connexions, si le moteur en a.
+     */
+    default void attacherConnexionThread() throws SQLException {
+    }
+
+    default void detacherConnexionThread() {
+    }
+
+    DepotMedecins medecins();
+
+    DepotSpecialites specialites();
+
+    DepotPatients patients();
+
+    DepotConsultations consultations();
+
+    DepotRapports rapports();
+}
@@ -0,0 +1,169 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Patient;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.PatientSearchVM;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+final class PatientsMemoire implements DepotPatients {
+
+    private static final Comparator<Patient> ORDRE = Comparator
+            .comparing(Patient::getLast_name, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Patient::getFirst_name, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private final DonneesMemoire donnees;
+
+
+    PatientsMemoire(DonneesMemoire donnees) {
+        this.donnees = donnees;
+    }
+
+
+    @Override
+    public List<Patient> listerPatientsAvecConsultations() {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            TableCles<Boolean> vus = new TableCles<>();
+            List<Patient> patients = new ArrayList<>();
+            donnees.consultations.pourChaque(consultation -> {
+                int patientId = consultation.patientId;
+                if (patientId != 0 && !vus.contient(patientId)) {
+                    vus.ecrire(patientId, Boolean.TRUE);
+                    Patient patient = donnees.patients.lire(patientId);
+                    if (patient != null) {
+                        patients.add(copie(patient));
+                    }
+                }
+            });
+            patients.sort(ORDRE);
+            return patients;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("PatientsMemoire.listerPatientsAvecConsultations", debut);
+        }
+    }
+
+
+    @Override
+    public List<Patient> load() {
+        return load(null);
+    }
+
+
+    @Override
+    public List<Patient> load(PatientSearchVM psearchvm) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            List<Patient> patients = new ArrayList<>();
+            if (psearchvm != null && psearchvm.getDoctorId() != null) {
+                // Index par médecin : seuls ses patients sont examinés
+                ListeEntiers ids = donnees.consultationsParMedecin.lire(psearchvm.getDoctorId());
+                TableCles<Boolean> vus = new TableCles<>();
+                for (int i = 0; ids != null && i < ids.taille(); i++) {
+                    int patientId = donnees.consultations.lire(ids.lire(i)).patientId;
+                    if (patientId != 0 && !vus.contient(patientId)) {
+                        vus.ecrire(patientId, Boolean.TRUE);
+                        Patient patient = donnees.patients.lire(patientId);
+                        if (patient != null && correspond(patient, psearchvm)) {
+                            patients.add(copie(patient));
+                        }
+                    }
+                }
+            } else {
+                donnees.patients.pourChaque(patient -> {
+                    if (psearchvm == null || correspond(patient, psearchvm)) {
+                        patients.add(copie(patient));
+                    }
+                });
+            }
+            patients.sort(ORDRE);
+            return patients;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("PatientsMemoire.load", debut);
+        }
+    }
+
+
+    @Override
+    public int createOrUpdatePatient(Patient p) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            Integer id = donnees.patientsParIdentite.get(DonneesMemoire.identite(p.getLast_name(), p.getFirst_name(),
+                    p.getBirth_date()));
+            return id != null ? id : inserer(p);
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("PatientsMemoire.createOrUpdatePatient", debut);
+        }
+    }
+
+
+    @Override
+    public int create(Patient p) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            return inserer(p);
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("PatientsMemoire.create", debut);
+        }
+    }
+
+
+    @Override
+    public Integer findByDetails(String lastName, String firstName, String birthDate) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            return donnees.patientsParIdentite.get(DonneesMemoire.identite(lastName, firstName, birthDate));
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("PatientsMemoire.findByDetails", debut);
+        }
+    }
+
+
+    private int inserer(Patient p) {
+        int id = donnees.dernierPatient + 1;
+        donnees.indexerPatient(new Patient(id, p.getLast_name(), p.getFirst_name(), p.getBirth_date()));
+        donnees.modifiee();
+        return id;
+    }
+
+
+    private static boolean correspond(Patient patient, PatientSearchVM vm) {
+        if (!DonneesMemoire.comme(patient.getLast_name(), vm.getLastName())
+                || !DonneesMemoire.comme(patient.getFirst_name(), vm.getFirstName())) {
+            return false;
+        }
+        String naissance = patient.getBirth_date();
+        if (DonneesMemoire.renseigne(vm.getBirthDateFrom())
+                && (naissance == null || naissance.compareTo(vm.getBirthDateFrom()) < 0)) {
+            return false;
+        }
+        return !DonneesMemoire.renseigne(vm.getBirthDateTo())
+                || (naissance != null && naissance.compareTo(vm.getBirthDateTo()) <= 0);
+    }
+
+
+    private static Patient copie(Patient patient) {
+        return new Patient(patient.getId(), patient.getLast_name(), patient.getFirst_name(), patient.getBirth_date());
+    }
+
+
+    // Tables déjà en mémoire : le flux parcourt la copie renvoyée par load
+    @Override
+    public Stream<Patient> flux(PatientSearchVM psearchvm) {
+        return load(psearchvm).stream();
+    }
+}
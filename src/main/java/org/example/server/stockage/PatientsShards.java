@@ -0,0 +1,94 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Patient;
+import org.example.server.searchvm.PatientSearchVM;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+
+/**
+ * Patients : table de référence du nœud principal. Seules les requêtes qui
+ * passent par les consultations vont sur les shards.
+ */
+final class PatientsShards implements DepotPatients {
+
+    // Approche la collation insensible à la casse de ORDER BY last_name, first_name
+    private static final Comparator<Patient> ORDRE = Comparator
+            .comparing(Patient::getLast_name, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Patient::getFirst_name, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+
+    private final MoteurShards moteur;
+
+
+    PatientsShards(MoteurShards moteur) {
+        this.moteur = moteur;
+    }
+
+
+    @Override
+    public List<Patient> listerPatientsAvecConsultations() throws SQLException {
+        List<Patient> fusion = FusionTriee.fusionner(
+                moteur.diffuser(shard -> shard.patients().listerPatientsAvecConsultations()), ORDRE);
+        // Un patient suivi par des médecins de plusieurs nœuds revient plusieurs fois
+        Set<Integer> vus = new HashSet<>();
+        List<Patient> patients = new ArrayList<>(fusion.size());
+        for (Patient patient : fusion) {
+            if (vus.add(patient.getId())) {
+                patients.add(patient);
+            }
+        }
+        return patients;
+    }
+
+
+    @Override
+    public List<Patient> load() {
+        return moteur.getPrincipal().patients().load();
+    }
+
+
+    @Override
+    public List<Patient> load(PatientSearchVM psearchvm) {
+        if (psearchvm == null || psearchvm.getDoctorId() == null) {
+            return moteur.getPrincipal().patients().load(psearchvm);
+        }
+        try {
+            return moteur.shard(psearchvm.getDoctorId()).patients().load(psearchvm);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Override
+    public Stream<Patient> flux(PatientSearchVM psearchvm) throws SQLException {
+        if (psearchvm == null || psearchvm.getDoctorId() == null) {
+            return moteur.getPrincipal().patients().flux(psearchvm);
+        }
+        return moteur.shard(psearchvm.getDoctorId()).patients().flux(psearchvm);
+    }
+
+
+    @Override
+    public int createOrUpdatePatient(Patient p) {
+        return moteur.getPrincipal().patients().createOrUpdatePatient(p);
+    }
+
+
+    @Override
+    public int create(Patient p) {
+        return moteur.getPrincipal().patients().create(p);
+    }
+
+
+    @Override
+    public Integer findByDetails(String lastName, String firstName, String birthDate) {
+        return moteur.getPrincipal().patients().findByDetails(lastName, firstName, birthDate);
+    }
+}
@@ -0,0 +1,364 @@
+package org.example.server.stockage;
+
+import org.example.server.dao.ReportDAO;
+import org.example.server.entity.Doctor;
+import org.example.server.entity.Patient;
+import org.example.server.entity.Report;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.ReportSearchVM;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+final class RapportsMemoire implements DepotRapports {
+
+    private static final int TAILLE_APERCU = 50;
+
+    private final DonneesMemoire donnees;
+
+
+    RapportsMemoire(DonneesMemoire donnees) {
+        this.donnees = donnees;
+    }
+
+
+    @Override
+    public int ajouterRapport(int medecinId, int patientId, String date, String texteRapport) {
+        long debut = System.nanoTime();
+        // Date.valueOf rejette une date mal formée, comme le DAO JDBC
+        int jour = (int) Date.valueOf(date).toLocalDate().toEpochDay();
+        donnees.ecriture.lock();
+        try {
+            int id = donnees.dernierRapport + 1;
+            donnees.indexerRapport(new DonneesMemoire.LigneRapport(id, medecinId, patientId, jour, texteRapport,
+                    System.currentTimeMillis()));
+            donnees.modifiee();
+            return id;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("RapportsMemoire.ajouterRapport", debut);
+        }
+    }
+
+
+    @Override
+    public boolean modifierRapport(int rapportId, String nouveauTexte, int medecinId) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            DonneesMemoire.LigneRapport rapport = donnees.rapports.lire(rapportId);
+            if (rapport == null || rapport.medecinId != medecinId) {
+                return false;
+            }
+            rapport.texte = nouveauTexte;
+            rapport.misAJourMs = System.currentTimeMillis();
+            donnees.modifiee();
+            return true;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("RapportsMemoire.modifierRapport", debut);
+        }
+    }
+
+
+    @Override
+    public void insererRapport(int rapportId, int medecinId, int patientId, String date, String texteRapport)
+            throws SQLException {
+        long debut = System.nanoTime();
+        int jour = (int) Date.valueOf(date).toLocalDate().toEpochDay();
+        donnees.ecriture.lock();
+        try {
+            if (donnees.rapports.contient(rapportId)) {
+                throw new SQLException("Rapport " + rapportId + " déjà présent");
+            }
+            donnees.indexerRapport(new DonneesMemoire.LigneRapport(rapportId, medecinId, patientId, jour,
+                    texteRapport, System.currentTimeMillis()));
+            donnees.modifiee();
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("RapportsMemoire.insererRapport", debut);
+        }
+    }
+
+
+    @Override
+    public int getIdMax() {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            return donnees.dernierRapport;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.getIdMax", debut);
+        }
+    }
+
+
+    @Override
+    public boolean enregistrerCleIdempotence(String cle, int rapportId) {
+        long debut = System.nanoTime();
+        donnees.ecriture.lock();
+        try {
+            if (donnees.clesIdempotence.putIfAbsent(cle, new long[] { rapportId, System.currentTimeMillis() })
+                    != null) {
+                return false;
+            }
+            donnees.modifiee();
+            return true;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("RapportsMemoire.enregistrerCleIdempotence", debut);
+        }
+    }
+
+
+    @Override
+    public Integer trouverRapportParCle(String cle) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            long[] ecriture = donnees.clesIdempotence.get(cle);
+            return ecriture != null ? (int) ecriture[0] : null;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.trouverRapportParCle", debut);
+        }
+    }
+
+
+    @Override
+    public int purgerCles(int joursConservation) {
+        long debut = System.nanoTime();
+        long limite = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(joursConservation);
+        donnees.ecriture.lock();
+        try {
+            int purgees = 0;
+            for (Iterator<long[]> it = donnees.clesIdempotence.values().iterator(); it.hasNext(); ) {
+                if (it.next()[1] < limite) {
+                    it.remove();
+                    purgees++;
+                }
+            }
+            if (purgees > 0) {
+                donnees.modifiee();
+            }
+            return purgees;
+        } finally {
+            donnees.ecriture.unlock();
+            Metriques.dao("RapportsMemoire.purgerCles", debut);
+        }
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsMedecin(int medecinId) {
+        long debut = System.nanoTime();
+        try {
+            return lister(medecinId, -1, 0, Integer.MAX_VALUE, false);
+        } finally {
+            Metriques.dao("RapportsMemoire.listerRapportsMedecin", debut);
+        }
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsMedecinPatient(int medecinId, int patientId) {
+        long debut = System.nanoTime();
+        try {
+            return lister(medecinId, patientId, 0, Integer.MAX_VALUE, false);
+        } finally {
+            Metriques.dao("RapportsMemoire.listerRapportsMedecinPatient", debut);
+        }
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsModifiesDepuis(int medecinId, long depuisMs) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            List<DonneesMemoire.LigneRapport> lignes = new ArrayList<>();
+            ListeEntiers ids = donnees.rapportsParMedecin.lire(medecinId);
+            for (int i = 0; ids != null && i < ids.taille(); i++) {
+                DonneesMemoire.LigneRapport rapport = donnees.rapports.lire(ids.lire(i));
+                if (rapport.misAJourMs >= depuisMs) {
+                    lignes.add(rapport);
+                }
+            }
+            lignes.sort(Comparator.comparingLong(rapport -> rapport.misAJourMs));
+            List<ReportDAO.Rapport> rapports = new ArrayList<>(lignes.size());
+            for (DonneesMemoire.LigneRapport rapport : lignes) {
+                rapports.add(copie(rapport, rapport.texte));
+            }
+            return rapports;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.listerRapportsModifiesDepuis", debut);
+        }
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerPageRapports(int medecinId, int patientId, int debutPage, int taille) {
+        long debut = System.nanoTime();
+        try {
+            return lister(medecinId, patientId, debutPage, taille, true);
+        } finally {
+            Metriques.dao("RapportsMemoire.listerPageRapports", debut);
+        }
+    }
+
+
+    @Override
+    public int compterRapports(int medecinId, int patientId) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            ListeEntiers ids = donnees.rapportsParMedecin.lire(medecinId);
+            if (ids == null) {
+                return 0;
+            }
+            if (patientId == -1) {
+                return ids.taille();
+            }
+            int nombre = 0;
+            for (int i = 0; i < ids.taille(); i++) {
+                if (donnees.rapports.lire(ids.lire(i)).patientId == patientId) {
+                    nombre++;
+                }
+            }
+            return nombre;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.compterRapports", debut);
+        }
+    }
+
+
+    @Override
+    public ReportDAO.Rapport trouverRapport(int rapportId, int medecinId) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            DonneesMemoire.LigneRapport rapport = donnees.rapports.lire(rapportId);
+            return rapport != null && rapport.medecinId == medecinId ? copie(rapport, rapport.texte) : null;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.trouverRapport", debut);
+        }
+    }
+
+
+    @Override
+    public List<Report> load(ReportSearchVM rsearchvm) {
+        long debut = System.nanoTime();
+        donnees.lecture.lock();
+        try {
+            List<DonneesMemoire.LigneRapport> lignes = new ArrayList<>();
+            donnees.rapports.pourChaque(rapport -> {
+                if (rsearchvm == null || correspond(rapport, rsearchvm)) {
+                    lignes.add(rapport);
+                }
+            });
+            lignes.sort(Comparator.comparingInt((DonneesMemoire.LigneRapport rapport) -> rapport.date).reversed());
+            List<Report> reports = new ArrayList<>(lignes.size());
+            for (DonneesMemoire.LigneRapport rapport : lignes) {
+                Report report = new Report();
+                report.setId(rapport.id);
+                report.setDoctor_id(rapport.medecinId);
+                report.setPatient_id(rapport.patientId);
+                report.setDate(LocalDate.ofEpochDay(rapport.date).toString());
+                report.setContent(rapport.texte);
+                reports.add(report);
+            }
+            return reports;
+        } finally {
+            donnees.lecture.unlock();
+            Metriques.dao("RapportsMemoire.load", debut);
+        }
+    }
+
+
+    /**
+     * Tranche de l'index du médecin, déjà rangé par date puis id décroissants.
+     */
+    private List<ReportDAO.Rapport> lister(int medecinId, int patientId, int debutPage, int taille,
+                                           boolean apercu) {
+        donnees.lecture.lock();
+        try {
+            List<ReportDAO.Rapport> rapports = new ArrayList<>();
+            ListeEntiers ids = donnees.rapportsParMedecin.lire(medecinId);
+            int ignores = 0;
+            for (int i = 0; ids != null && i < ids.taille() && rapports.size() < taille; i++) {
+                DonneesMemoire.LigneRapport rapport = donnees.rapports.lire(ids.lire(i));
+                if (patientId != -1 && rapport.patientId != patientId) {
+                    continue;
+                }
+                if (ignores < debutPage) {
+                    ignores++;
+                    continue;
+                }
+                rapports.add(copie(rapport, apercu ? apercu(rapport.texte) : rapport.texte));
+            }
+            return rapports;
+        } finally {
+            donnees.lecture.unlock();
+        }
+    }
+
+
+    private boolean correspond(DonneesMemoire.LigneRapport rapport, ReportSearchVM vm) {
+        if (DonneesMemoire.renseigne(vm.getPatientName())) {
+            Patient patient = donnees.patients.lire(rapport.patientId);
+            if (patient == null || !DonneesMemoire.comme(patient.getLast_name(), vm.getPatientName())) {
+                return false;
+            }
+        }
+        if (DonneesMemoire.renseigne(vm.getDoctorName())) {
+            Doctor medecin = donnees.medecins.lire(rapport.medecinId);
+            if (medecin == null || !DonneesMemoire.comme(medecin.getLast_name(), vm.getDoctorName())) {
+                return false;
+            }
+        }
+        String date = LocalDate.ofEpochDay(rapport.date).toString();
+        if (DonneesMemoire.renseigne(vm.getDateFrom()) && date.compareTo(vm.getDateFrom()) < 0) {
+            return false;
+        }
+        if (DonneesMemoire.renseigne(vm.getDateTo()) && date.compareTo(vm.getDateTo()) > 0) {
+            return false;
+        }
+        return !DonneesMemoire.renseigne(vm.getContent())
+                || (rapport.texte != null && DonneesMemoire.comme(rapport.texte, vm.getContent()));
+    }
+
+
+    private static String apercu(String texte) {
+        if (texte == null || texte.length() <= TAILLE_APERCU) {
+            return texte;
+        }
+        return texte.substring(0, TAILLE_APERCU) + "...";
+    }
+
+
+    private static ReportDAO.Rapport copie(DonneesMemoire.LigneRapport ligne, String texte) {
+        ReportDAO.Rapport rapport = new ReportDAO.Rapport(ligne.id, ligne.medecinId, ligne.patientId,
+                Date.valueOf(LocalDate.ofEpochDay(ligne.date)), texte);
+        rapport.misAJourMs = ligne.misAJourMs;
+        return rapport;
+    }
+
+
+    // Tables déjà en mémoire : le flux parcourt la copie renvoyée par load
+    @Override
+    public Stream<Report> flux(ReportSearchVM rsearchvm) {
+        return load(rsearchvm).stream();
+    }
+}
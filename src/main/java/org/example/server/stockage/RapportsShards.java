@@ -0,0 +1,133 @@
+package org.example.server.stockage;
+
+import org.example.server.dao.ReportDAO;
+import org.example.server.entity.Report;
+import org.example.server.searchvm.ReportSearchVM;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Rapports : chaque appel va au shard du médecin, sauf la recherche globale
+ * (diffusée puis fusionnée) et les clés d'idempotence (nœud principal).
+ */
+final class RapportsShards implements DepotRapports {
+
+    // Même ordre que ReportDAO.load : date_rapport décroissante
+    private static final Comparator<Report> PLUS_RECENT_D_ABORD = Comparator.comparing(Report::getDate,
+            Comparator.nullsLast(Comparator.<String>reverseOrder()));
+
+    private final MoteurShards moteur;
+
+
+    RapportsShards(MoteurShards moteur) {
+        this.moteur = moteur;
+    }
+
+
+    @Override
+    public int ajouterRapport(int medecinId, int patientId, String date, String texteRapport) throws SQLException {
+        return moteur.shardEcriture(medecinId).rapports().ajouterRapport(medecinId, patientId, date, texteRapport);
+    }
+
+
+    @Override
+    public boolean modifierRapport(int rapportId, String nouveauTexte, int medecinId) throws SQLException {
+        return moteur.shardEcriture(medecinId).rapports().modifierRapport(rapportId, nouveauTexte, medecinId);
+    }
+
+
+    @Override
+    public void insererRapport(int rapportId, int medecinId, int patientId, String date, String texteRapport)
+            throws SQLException {
+        moteur.shardEcriture(medecinId).rapports().insererRapport(rapportId, medecinId, patientId, date,
+                texteRapport);
+    }
+
+
+    @Override
+    public int getIdMax() throws SQLException {
+        int max = 0;
+        for (int idMax : moteur.diffuser(shard -> shard.rapports().getIdMax())) {
+            max = Math.max(max, idMax);
+        }
+        return max;
+    }
+
+
+    @Override
+    public boolean enregistrerCleIdempotence(String cle, int rapportId) throws SQLException {
+        return moteur.getPrincipal().rapports().enregistrerCleIdempotence(cle, rapportId);
+    }
+
+
+    @Override
+    public Integer trouverRapportParCle(String cle) throws SQLException {
+        return moteur.getPrincipal().rapports().trouverRapportParCle(cle);
+    }
+
+
+    @Override
+    public int purgerCles(int joursConservation) throws SQLException {
+        return moteur.getPrincipal().rapports().purgerCles(joursConservation);
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsMedecin(int medecinId) throws SQLException {
+        return moteur.shard(medecinId).rapports().listerRapportsMedecin(medecinId);
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsMedecinPatient(int medecinId, int patientId) throws SQLException {
+        return moteur.shard(medecinId).rapports().listerRapportsMedecinPatient(medecinId, patientId);
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerRapportsModifiesDepuis(int medecinId, long depuisMs) throws SQLException {
+        return moteur.shard(medecinId).rapports().listerRapportsModifiesDepuis(medecinId, depuisMs);
+    }
+
+
+    @Override
+    public List<ReportDAO.Rapport> listerPageRapports(int medecinId, int patientId, int debutPage, int taille)
+            throws SQLException {
+        return moteur.shard(medecinId).rapports().listerPageRapports(medecinId, patientId, debutPage, taille);
+    }
+
+
+    @Override
+    public int compterRapports(int medecinId, int patientId) throws SQLException {
+        return moteur.shard(medecinId).rapports().compterRapports(medecinId, patientId);
+    }
+
+
+    @Override
+    public ReportDAO.Rapport trouverRapport(int rapportId, int medecinId) throws SQLException {
+        return moteur.shard(medecinId).rapports().trouverRapport(rapportId, medecinId);
+    }
+
+
+    @Override
+    public List<Report> load(ReportSearchVM rsearchvm) {
+        try {
+            return FusionTriee.fusionner(moteur.diffuserLignes(shard -> shard.rapports().load(rsearchvm),
+                    Report::getDoctor_id),
+                    PLUS_RECENT_D_ABORD);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    @Override
+    public Stream<Report> flux(ReportSearchVM rsearchvm) throws SQLException {
+        return FusionTriee.fusionnerFlux(moteur.ouvrirFlux(shard -> shard.rapports().flux(rsearchvm),
+                Report::getDoctor_id), PLUS_RECENT_D_ABORD);
+    }
+}
@@ -0,0 +1,250 @@
+package org.example.server.stockage;
+
+import org.example.server.bd.BdManager;
+import org.example.server.journal.JournalRapports;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Rééquilibrage en ligne des shards après un changement de DB_SHARDS, serveurs démarrés.
+ * <ol>
+ * <li>"preparer ancien=a,b" (anciens noms de nœuds) : chaque médecin qui change
+ * de nœud est fixé sur l'ancien dans doctor_shards.</li>
+ * <li>Redémarrage des serveurs un par un avec le nouveau DB_SHARDS (et les nœuds
+ * retirés dans DB_SHARDS_SORTANTS) : les médecins fixés restent où sont leurs données.</li>
+ * <li>"deplacer" : médecin par médecin, écritures suspendues, copie de ses
+ * consultations et rapports vers le nouveau nœud dans une transaction, bascule de
+ * doctor_shards, puis suppression des lignes de l'ancien nœud.</li>
+ * </ol>
+ * Chaque étape peut être relancée après une interruption. Aucun médecin ne doit
+ * être créé entre "preparer" et la fin du redémarrage.
+ */
+public final class RebalanceurShards {
+
+    private static final List<String> TABLES = List.of("consultations", "reports");
+    private static final int TAILLE_LOT = 500;
+
+    private final BdManager manager;
+    private final Map<String, JournalRapports.OuvreurConnexion> noeuds = new LinkedHashMap<>();
+    private final AnneauShards nouvelAnneau;
+    // Délai pour que tous les serveurs aient relu doctor_shards
+    private final long attenteMs;
+
+
+    private RebalanceurShards(BdManager manager) {
+        this.manager = manager;
+        Map<String, JournalRapports.OuvreurConnexion> shards = manager.lireShards("DB_SHARDS");
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("DB_SHARDS est vide");
+        }
+        noeuds.putAll(shards);
+        manager.lireShards("DB_SHARDS_SORTANTS").forEach(noeuds::putIfAbsent);
+        this.nouvelAnneau = new AnneauShards(new ArrayList<>(shards.keySet()));
+        this.attenteMs = 2 * manager.lireNombre("DB_SHARD_REFRESH_SECONDS", 2) * 1000 + 500;
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            RebalanceurShards rebalanceur = new RebalanceurShards(new BdManager());
+            if (args.length == 2 && args[0].equals("preparer") && args[1].startsWith("ancien=")) {
+                rebalanceur.preparer(Arrays.asList(args[1].substring("ancien=".length()).split(",")));
+            } else if (args.length == 1 && args[0].equals("deplacer")) {
+                rebalanceur.deplacer();
+            } else {
+                System.err.println("Usage : RebalanceurShards preparer ancien=nom1,nom2 | deplacer");
+                System.exit(2);
+            }
+        } catch (SQLException | IllegalArgumentException | InterruptedException e) {
+            System.err.println("✗ Rééquilibrage interrompu: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+
+    private void preparer(List<String> anciensNoms) throws SQLException {
+        List<String> noms = new ArrayList<>();
+        for (String nom : anciensNoms) {
+            if (!nom.isBlank()) {
+                noms.add(nom.trim());
+            }
+        }
+        AnneauShards ancienAnneau = new AnneauShards(noms);
+        int fixes = 0;
+        try (Connection principal = manager.ouvrirConnexion()) {
+            Set<Integer> dejaFixes = lireAffectations(principal).keySet();
+            List<Integer> medecins = new ArrayList<>();
+            try (PreparedStatement stmt = principal.prepareStatement("SELECT id FROM doctor")) {
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    medecins.add(rs.getInt("id"));
+                }
+            }
+            try (PreparedStatement stmt = principal.prepareStatement(
+                    "INSERT INTO doctor_shards (doctor_id, shard, moving) VALUES (?, ?, FALSE)")) {
+                for (int medecinId : medecins) {
+                    String ancien = ancienAnneau.noeud(medecinId);
+                    if (!dejaFixes.contains(medecinId) && !ancien.equals(nouvelAnneau.noeud(medecinId))) {
+                        stmt.setInt(1, medecinId);
+                        stmt.setString(2, ancien);
+                        stmt.executeUpdate();
+                        fixes++;
+                    }
+                }
+            }
+        }
+        System.out.println("✓ " + fixes + " médecin(s) fixé(s) sur leur nœud actuel. Redémarrez les serveurs avec "
+                + "le nouveau DB_SHARDS, puis lancez \"deplacer\".");
+    }
+
+
+    private void deplacer() throws SQLException, InterruptedException {
+        try (Connection principal = manager.ouvrirConnexion()) {
+            Map<Integer, String> affectations = lireAffectations(principal);
+            for (Map.Entry<Integer, String> affectation : affectations.entrySet()) {
+                int medecinId = affectation.getKey();
+                String source = affectation.getValue();
+                String cible = nouvelAnneau.noeud(medecinId);
+                if (!source.equals(cible)) {
+                    marquer(principal, medecinId, source, true);
+                    Thread.sleep(attenteMs);
+                    copier(medecinId, source, cible);
+                    marquer(principal, medecinId, cible, false);
+                    Thread.sleep(attenteMs);
+                }
+                nettoyer(medecinId, cible);
+                try (PreparedStatement stmt = principal.prepareStatement(
+                        "DELETE FROM doctor_shards WHERE doctor_id = ?")) {
+                    stmt.setInt(1, medecinId);
+                    stmt.executeUpdate();
+                }
+                System.out.println("✓ Médecin " + medecinId + " sur " + cible);
+            }
+            System.out.println("✓ " + affectations.size() + " médecin(s) traité(s). DB_SHARDS_SORTANTS peut être vidé.");
+        }
+    }
+
+
+    private static Map<Integer, String> lireAffectations(Connection principal) throws SQLException {
+        Map<Integer, String> affectations = new LinkedHashMap<>();
+        try (PreparedStatement stmt = principal.prepareStatement(
+                "SELECT doctor_id, shard FROM doctor_shards ORDER BY doctor_id")) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                affectations.put(rs.getInt("doctor_id"), rs.getString("shard"));
+            }
+        }
+        return affectations;
+    }
+
+
+    private static void marquer(Connection principal, int medecinId, String shard, boolean enDeplacement)
+            throws SQLException {
+        try (PreparedStatement stmt = principal.prepareStatement(
+                "UPDATE doctor_shards SET shard = ?, moving = ? WHERE doctor_id = ?")) {
+            stmt.setString(1, shard);
+            stmt.setBoolean(2, enDeplacement);
+            stmt.setInt(3, medecinId);
+            stmt.executeUpdate();
+        }
+    }
+
+
+    /**
+     * Remplace les lignes du médecin sur la cible par celles de la source, id compris.
+     */
+    private void copier(int medecinId, String source, String cible) throws SQLException {
+        try (Connection depuis = ouvrir(source); Connection vers = ouvrir(cible)) {
+            vers.setAutoCommit(false);
+            try {
+                supprimer(vers, medecinId);
+                for (String table : TABLES) {
+                    copierTable(depuis, vers, table, medecinId);
+                }
+                vers.commit();
+            } catch (SQLException e) {
+                vers.rollback();
+                throw e;
+            }
+        }
+    }
+
+
+    private static void copierTable(Connection depuis, Connection vers, String table, int medecinId)
+            throws SQLException {
+        try (PreparedStatement lecture = depuis.prepareStatement("SELECT * FROM " + table + " WHERE doctor_id = ?")) {
+            lecture.setInt(1, medecinId);
+            ResultSet rs = lecture.executeQuery();
+            ResultSetMetaData colonnes = rs.getMetaData();
+            int nombre = colonnes.getColumnCount();
+            StringBuilder noms = new StringBuilder();
+            StringBuilder marques = new StringBuilder();
+            for (int c = 1; c <= nombre; c++) {
+                noms.append(c > 1 ? ", " : "").append(colonnes.getColumnName(c));
+                marques.append(c > 1 ? ", ?" : "?");
+            }
+            try (PreparedStatement ecriture = vers.prepareStatement(
+                    "INSERT INTO " + table + " (" + noms + ") VALUES (" + marques + ")")) {
+                int enAttente = 0;
+                while (rs.next()) {
+                    for (int c = 1; c <= nombre; c++) {
+                        ecriture.setObject(c, rs.getObject(c));
+                    }
+                    ecriture.addBatch();
+                    if (++enAttente == TAILLE_LOT) {
+                        ecriture.executeBatch();
+                        enAttente = 0;
+                    }
+                }
+                if (enAttente > 0) {
+                    ecriture.executeBatch();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Supprime les lignes du médecin sur tous les nœuds sauf celui qui les détient.
+     */
+    private void nettoyer(int medecinId, String detenteur) throws SQLException {
+        for (String nom : noeuds.keySet()) {
+            if (!nom.equals(detenteur)) {
+                try (Connection connexion = ouvrir(nom)) {
+                    supprimer(connexion, medecinId);
+                }
+            }
+        }
+    }
+
+
+    private static void supprimer(Connection connexion, int medecinId) throws SQLException {
+        for (int t = TABLES.size() - 1; t >= 0; t--) {
+            try (PreparedStatement stmt = connexion.prepareStatement(
+                    "DELETE FROM " + TABLES.get(t) + " WHERE doctor_id = ?")) {
+                stmt.setInt(1, medecinId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+
+    private Connection ouvrir(String nom) throws SQLException {
+        JournalRapports.OuvreurConnexion ouvreur = noeuds.get(nom);
+        if (ouvreur == null) {
+            throw new SQLException("Nœud " + nom + " absent de DB_SHARDS et DB_SHARDS_SORTANTS");
+        }
+        return ouvreur.ouvrir();
+    }
+}
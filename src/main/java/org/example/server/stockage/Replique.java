@@ -0,0 +1,126 @@
+package org.example.server.stockage;
+
+import org.example.server.journal.JournalRapports;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+
+/**
+ * Un réplica en lecture : ses propres DAO sur sa connexion, et son état dans la rotation.
+ */
+final class Replique {
+
+    // Retard inconnu (base sans SHOW REPLICA STATUS, base de test par exemple)
+    static final long RETARD_NON_MESURABLE = -1;
+
+    private final String nom;
+    private final MoteurJdbc moteur;
+    private volatile boolean enRotation;
+    private volatile long retardS = RETARD_NON_MESURABLE;
+    private volatile String raisonExclusion = "pas encore vérifié";
+    private boolean avertiNonMesurable;
+
+
+    Replique(String nom, JournalRapports.OuvreurConnexion ouvreur) {
+        this.nom = nom;
+        this.moteur = new MoteurJdbc(ouvreur);
+    }
+
+
+    String getNom() {
+        return nom;
+    }
+
+
+    MoteurJdbc getMoteur() {
+        return moteur;
+    }
+
+
+    boolean estEnRotation() {
+        return enRotation;
+    }
+
+
+    long getRetardS() {
+        return retardS;
+    }
+
+
+    String getRaisonExclusion() {
+        return raisonExclusion;
+    }
+
+
+    void exclure(String raison) {
+        if (enRotation) {
+            System.err.println("Réplica " + nom + " retiré de la rotation: " + raison);
+        }
+        enRotation = false;
+        raisonExclusion = raison;
+    }
+
+
+    /**
+     * Reconnecte si besoin, mesure le retard et remet le réplica en rotation s'il est sous retardMaxS.
+     * Appelé par le seul thread de surveillance.
+     */
+    void verifier(long retardMaxS) {
+        try {
+            Connection connexion = moteur.getConnexion();
+            if (connexion == null || !connexion.isValid(2)) {
+                moteur.arreter();
+                moteur.demarrer();
+                connexion = moteur.getConnexion();
+            }
+            long retard = mesurerRetard(connexion);
+            retardS = retard;
+            if (retard > retardMaxS) {
+                exclure("retard de " + retard + " s");
+                return;
+            }
+            if (!enRotation) {
+                System.out.println("Réplica " + nom + " en rotation"
+                        + (retard >= 0 ? " (retard " + retard + " s)" : ""));
+            }
+            enRotation = true;
+            raisonExclusion = null;
+        } catch (SQLException e) {
+            exclure(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Seconds_Behind_Source de MySQL 8 (Seconds_Behind_Master avant 8.0.22).
+     * NULL (réplication arrêtée) ou aucun résultat (pas un réplica) : exception.
+     */
+    private long mesurerRetard(Connection connexion) throws SQLException {
+        String[][] variantes = {
+                { "SHOW REPLICA STATUS", "Seconds_Behind_Source" },
+                { "SHOW SLAVE STATUS", "Seconds_Behind_Master" } };
+        for (String[] variante : variantes) {
+            try (Statement stmt = connexion.createStatement(); ResultSet rs = stmt.executeQuery(variante[0])) {
+                if (!rs.next()) {
+                    throw new SQLException("la réplication n'est pas configurée sur cette base");
+                }
+                long retard = rs.getLong(variante[1]);
+                if (rs.wasNull()) {
+                    throw new SQLException("réplication arrêtée");
+                }
+                return retard;
+            } catch (SQLSyntaxErrorException e) {
+                // Commande inconnue : variante suivante
+            }
+        }
+        if (!avertiNonMesurable) {
+            avertiNonMesurable = true;
+            System.out.println("Réplica " + nom + " : retard non mesurable sur cette base, considéré à jour");
+        }
+        return RETARD_NON_MESURABLE;
+    }
+}
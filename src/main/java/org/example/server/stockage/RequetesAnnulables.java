@@ -0,0 +1,100 @@
+package org.example.server.stockage;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Annulation des requêtes SQL d'une tâche asynchrone (BdAsync).
+ * <p>
+ * MoteurJdbc enveloppe les connexions utilisées par un seul thread (celles des
+ * threads de BdAsync et celles des flux) : chaque Statement créé par un thread qui exécute une tâche est rattaché au
+ * jeton de cette tâche. Annuler le jeton appelle Statement.cancel() sur la
+ * requête en cours (KILL QUERY côté MySQL) et refuse les suivantes. Hors tâche,
+ * la connexion se comporte normalement. La connexion partagée n'est pas
+ * enveloppée : cancel() y arrêterait la requête qu'un autre thread y exécute.
+ * </p>
+ */
+public final class RequetesAnnulables {
+
+    private static final ThreadLocal<Jeton> JETON_COURANT = new ThreadLocal<>();
+
+
+    private RequetesAnnulables() {
+    }
+
+
+    /**
+     * Requêtes SQL d'une tâche.
+     */
+    public static final class Jeton {
+        private final List<Statement> requetes = new ArrayList<>();
+        private boolean annule;
+
+        /**
+         * Rattache au jeton les requêtes créées par le thread courant jusqu'à {@link #detacher()}.
+         */
+        public void attacher() {
+            JETON_COURANT.set(this);
+        }
+
+        public void detacher() {
+            JETON_COURANT.remove();
+            synchronized (this) {
+                requetes.clear();
+            }
+        }
+
+        public void annuler() {
+            List<Statement> enCours;
+            synchronized (this) {
+                annule = true;
+                enCours = new ArrayList<>(requetes);
+            }
+            for (Statement requete : enCours) {
+                try {
+                    if (!requete.isClosed()) {
+                        requete.cancel();
+                    }
+                } catch (SQLException e) {
+                    // Requête terminée entre-temps ou pilote sans annulation : rien à interrompre
+                }
+            }
+        }
+
+        private synchronized void rattacher(Statement requete) throws SQLException {
+            if (annule) {
+                requete.close();
+                throw new SQLException("Requête annulée");
+            }
+            requetes.add(requete);
+        }
+    }
+
+
+    /**
+     * Enveloppe une connexion utilisée par un seul thread pour que les requêtes
+     * des tâches asynchrones puissent être annulées.
+     */
+    static Connection surveiller(Connection connexion) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, methode, args) -> {
+                    Object resultat;
+                    try {
+                        resultat = methode.invoke(connexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    Jeton jeton = JETON_COURANT.get();
+                    if (jeton != null && resultat instanceof Statement) {
+                        jeton.rattacher((Statement) resultat);
+                    }
+                    return resultat;
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.server.stockage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Lire ses propres écritures malgré les réplicas en retard : après une écriture,
+ * les lectures du même médecin vont sur le primaire pendant une fenêtre qui
+ * couvre le retard maximal toléré d'un réplica.
+ * <p>
+ * ClientHandler déclare le médecin de la commande en cours (ouvrir/fermer). La
+ * clé est le médecin plutôt que la connexion, pour qu'une session reprise par
+ * RESUME sur une nouvelle connexion garde la même garantie. Hors commande (REST),
+ * il n'y a pas de médecin : les lectures suivent la rotation normale.
+ * </p>
+ */
+public final class SessionLectures {
+
+    private static final ThreadLocal<Integer> MEDECIN_COURANT = new ThreadLocal<>();
+    // médecin -> heure de sa dernière écriture (ms)
+    private static final ConcurrentMap<Integer, Long> DERNIERES_ECRITURES = new ConcurrentHashMap<>();
+
+
+    private SessionLectures() {
+    }
+
+
+    public static void ouvrir(Integer medecinId) {
+        MEDECIN_COURANT.set(medecinId);
+    }
+
+
+    public static void fermer() {
+        MEDECIN_COURANT.remove();
+    }
+
+
+    /**
+     * Appelé après toute écriture, y compris celles qui passent par le journal des rapports.
+     */
+    public static void ecritureFaite() {
+        Integer medecinId = MEDECIN_COURANT.get();
+        if (medecinId != null) {
+            DERNIERES_ECRITURES.put(medecinId, System.currentTimeMillis());
+        }
+    }
+
+
+    /**
+     * @return true si le médecin courant a écrit il y a moins de fenetreMs
+     */
+    static boolean doitLireSurPrimaire(long fenetreMs) {
+        Integer medecinId = MEDECIN_COURANT.get();
+        if (medecinId == null) {
+            return false;
+        }
+        Long derniere = DERNIERES_ECRITURES.get(medecinId);
+        if (derniere == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - derniere < fenetreMs) {
+            return true;
+        }
+        DERNIERES_ECRITURES.remove(medecinId, derniere);
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.server.stockage;
+
+import org.example.server.entity.Specialty;
+import org.example.server.metriques.Metriques;
+import org.example.server.searchvm.SpecialtySearchVM;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+
+final class SpecialitesMemoire implements DepotSpecialites {
+
+    private final DonneesMemoire donnees;
+
+
+    SpecialitesMemoire(DonneesMemoire donnees) {
+        this.donnees = donnees;
+    }
+
+
+    @Override
+    public List<Specialty> getAllSpecialties() {
+        long debut = System.nanoTime();
+        try {
+            List<Specialty> specialites = lister(null);
+            specialites.sort(Comparator.comparing(Specialty::getName,
+                    Comparator.nullsFirst(Comparator.naturalOrder())));
+            return specialites;
+        } finally {
+            Metriques.dao("SpecialitesMemoire.getAllSpecialties", debut);
+        }
+    }
+
+
+    @Override
+    public List<Specialty> load(SpecialtySearchVM vm) {
+        long debut = System.nanoTime();
+        try {
+            List<Specialty> specialites = lister(vm != null ? vm.getName() : null);
+            specialites.sort(Comparator.comparing(Specialty::getId));
+            return specialites;
+        } finally {
+            Metriques.dao("SpecialitesMemoire.load", debut);
+        }
+    }
+
+
+    private List<Specialty> lister(String nom) {
+        donnees.lecture.lock();
+        try {
+            List<Specialty> specialites = new ArrayList<>();
+            donnees.specialites.pourChaque(specialite -> {
+                if (DonneesMemoire.comme(specialite.getName(), nom)) {
+                    specialites.add(new Specialty(specialite.getId(), specialite.getName()));
+                }
+            });
+            return specialites;
+        } finally {
+            donnees.lecture.unlock();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.server.stockage;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+
+/**
+ * Table de hachage à clés long primitives (adressage ouvert, sondage linéaire) :
+ * ni boîte Integer/Long par clé ni objet Entry par valeur. Les ids int sont
+ * rangés tels quels, une paire d'ids tient dans un seul long.
+ * <p>
+ * Non synchronisée : DonneesMemoire la protège par son verrou.
+ * </p>
+ */
+final class TableCles<V> {
+
+    private static final float CHARGE_MAX = 0.6f;
+
+    private long[] cles;
+    private Object[] valeurs;
+    private int taille;
+    private int seuil;
+
+
+    TableCles() {
+        this(16);
+    }
+
+
+    TableCles(int capaciteInitiale) {
+        int capacite = Integer.highestOneBit(Math.max(8, (int) (capaciteInitiale / CHARGE_MAX)) - 1) << 1;
+        allouer(capacite);
+    }
+
+
+    static long paire(int a, int b) {
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+
+    int taille() {
+        return taille;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    V lire(long cle) {
+        int i = position(cle);
+        return i < 0 ? null : (V) valeurs[i];
+    }
+
+
+    boolean contient(long cle) {
+        return position(cle) >= 0;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    V ecrire(long cle, V valeur) {
+        if (valeur == null) {
+            throw new IllegalArgumentException("Valeur nulle");
+        }
+        int masque = cles.length - 1;
+        int i = hacher(cle) & masque;
+        while (valeurs[i] != null) {
+            if (cles[i] == cle) {
+                V ancienne = (V) valeurs[i];
+                valeurs[i] = valeur;
+                return ancienne;
+            }
+            i = (i + 1) & masque;
+        }
+        cles[i] = cle;
+        valeurs[i] = valeur;
+        if (++taille > seuil) {
+            agrandir();
+        }
+        return null;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    V retirer(long cle) {
+        int i = position(cle);
+        if (i < 0) {
+            return null;
+        }
+        V ancienne = (V) valeurs[i];
+        // Suppression par décalage arrière : pas de marqueur, les chaînes restent continues
+        int masque = cles.length - 1;
+        int trou = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & masque;
+            if (valeurs[j] == null) {
+                break;
+            }
+            int ideal = hacher(cles[j]) & masque;
+            if (((j - ideal) & masque) >= ((j - trou) & masque)) {
+                cles[trou] = cles[j];
+                valeurs[trou] = valeurs[j];
+                trou = j;
+            }
+        }
+        valeurs[trou] = null;
+        taille--;
+        return ancienne;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    void pourChaque(Consumer<V> action) {
+        for (Object valeur : valeurs) {
+            if (valeur != null) {
+                action.accept((V) valeur);
+            }
+        }
+    }
+
+
+    void vider() {
+        Arrays.fill(valeurs, null);
+        taille = 0;
+    }
+
+
+    private int position(long cle) {
+        int masque = cles.length - 1;
+        int i = hacher(cle) & masque;
+        while (valeurs[i] != null) {
+            if (cles[i] == cle) {
+                return i;
+            }
+            i = (i + 1) & masque;
+        }
+        return -1;
+    }
+
+
+    private void agrandir() {
+        long[] anciennesCles = cles;
+        Object[] anciennesValeurs = valeurs;
+        allouer(cles.length * 2);
+        int masque = cles.length - 1;
+        for (int k = 0; k < anciennesCles.length; k++) {
+            if (anciennesValeurs[k] != null) {
+                int i = hacher(anciennesCles[k]) & masque;
+                while (valeurs[i] != null) {
+                    i = (i + 1) & masque;
+                }
+                cles[i] = anciennesCles[k];
+                valeurs[i] = anciennesValeurs[k];
+            }
+        }
+    }
+
+
+    private void allouer(int capacite) {
+        cles = new long[capacite];
+        valeurs = new Object[capacite];
+        seuil = (int) (capacite * CHARGE_MAX);
+    }
+
+
+    // Les ids se suivent : le mélange évite qu'ils occupent des cases voisines
+    private static int hacher(long cle) {
+        long h = cle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -7,14 +7,23 @@ public class Protocol {
     public static final String CMD_ADD_REPORT = "ADD_REPORT";
     public static final String CMD_EDIT_REPORT = "EDIT_REPORT";
     public static final String CMD_LIST_REPORTS = "LIST_REPORTS";
+    public static final String CMD_LIST_REPORTS_SINCE = "LIST_REPORTS_SINCE";
+    public static final String CMD_LIST_REPORTS_PAGE = "LIST_REPORTS_PAGE";
+    public static final String CMD_GET_REPORT = "GET_REPORT";
     public static final String CMD_LIST_PATIENTS = "LIST_PATIENTS";
     public static final String CMD_LOGOUT = "LOGOUT";
+    public static final String CMD_RESUME = "RESUME";
 
 
     public static final String RESP_OK = "OK";
     public static final String RESP_ERROR = "ERROR";
     public static final String RESP_SALT = "SALT";
     public static final String RESP_DIGEST = "DIGEST";
+    // ERROR|BUSY|délai_ms : serveur surchargé, réessayer après le délai
+    public static final String RESP_BUSY = "BUSY";
+    // SHUTDOWN|délai_ms, envoyé hors requête : le serveur s'arrête après avoir terminé
+    // les commandes en cours. ERROR|SHUTDOWN refuse une commande reçue pendant l'arrêt.
+    public static final String RESP_SHUTDOWN = "SHUTDOWN";
 
 
     public static final String DELIMITER = "|";
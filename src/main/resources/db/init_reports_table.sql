@@ -26,6 +26,18 @@ CREATE TABLE IF NOT EXISTS reports (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci 
 COMMENT='Table des rapports médicaux';
 
+-- Clés d'idempotence des écritures différées (REPORT_WRITE_BEHIND=true)
+-- Écrites dans la même transaction que le rapport : un rejeu du journal ne
+-- s'applique jamais deux fois. Purgées au bout de 7 jours.
+CREATE TABLE IF NOT EXISTS report_writes (
+    idempotency_key VARCHAR(80) PRIMARY KEY COMMENT 'id_medecin:clé fournie par le client',
+    report_id INT NOT NULL COMMENT 'Rapport ajouté ou modifié',
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT 'Date d''application',
+
+    INDEX idx_applied_at (applied_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Écritures de rapports déjà appliquées';
+
 -- ============================================================================
 -- Vérification de l'intégrité
 -- ============================================================================
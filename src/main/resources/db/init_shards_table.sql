@@ -0,0 +1,29 @@
+-- ============================================================================
+-- Répartition des dossiers par médecin (STORAGE_ENGINE=shards)
+-- Serveur Rapport Médical Sécurisé (MRPS)
+-- ============================================================================
+
+-- Sur le nœud principal (DB_URL) : médecins fixés sur un nœud, prioritaires
+-- sur l'anneau de hachage. Remplie et vidée par RebalanceurShards.
+CREATE TABLE IF NOT EXISTS doctor_shards (
+    doctor_id INT PRIMARY KEY COMMENT 'ID du médecin',
+    shard VARCHAR(64) NOT NULL COMMENT 'Nom du nœud (DB_SHARDS) qui détient ses données',
+    moving BOOLEAN NOT NULL DEFAULT FALSE COMMENT 'Copie en cours : écritures du médecin refusées'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Affectation des médecins aux nœuds de données';
+
+-- ============================================================================
+-- Sur chaque nœud de DB_SHARDS
+-- ============================================================================
+-- 1. Tables doctor, patient et specialties répliquées depuis le nœud principal
+--    (réplication MySQL filtrée : replicate-do-table), tables consultations et
+--    reports créées par init_reports_table.sql / init_database.c.
+-- 2. Identifiants uniques entre nœuds : même pas pour tous, décalage propre à
+--    chacun (ici jusqu'à 16 nœuds, nœud n° 3) :
+--
+--    SET PERSIST auto_increment_increment = 16;
+--    SET PERSIST auto_increment_offset = 3;
+--
+--    Puis repartir au-delà du plus grand id existant de tous les nœuds :
+--    ALTER TABLE reports AUTO_INCREMENT = <max + 1>;
+--    ALTER TABLE consultations AUTO_INCREMENT = <max + 1>;
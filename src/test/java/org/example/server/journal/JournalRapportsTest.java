@@ -0,0 +1,200 @@
+package org.example.server.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * Rejeu du journal, application unique par clé et fichier des rejets, sur une base H2 en mode MySQL.
+ */
+class JournalRapportsTest {
+
+    private static final int MEDECIN = 1;
+    private static final int PATIENT = 10;
+    private static int numeroBase;
+
+    @TempDir
+    Path dossier;
+
+    private String url;
+    private Connection base;
+    private JournalRapports journal;
+
+
+    @BeforeEach
+    void creerBase() throws SQLException {
+        url = "jdbc:h2:mem:journal" + (++numeroBase) + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        base = DriverManager.getConnection(url, "sa", "");
+        try (Statement stmt = base.createStatement()) {
+            stmt.execute("CREATE TABLE reports (id INT AUTO_INCREMENT PRIMARY KEY, doctor_id INT NOT NULL, "
+                    + "patient_id INT NOT NULL, date_rapport DATE NOT NULL, texte_rapport TEXT NOT NULL, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE report_writes (idempotency_key VARCHAR(80) PRIMARY KEY, "
+                    + "report_id INT NOT NULL, applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+
+    @AfterEach
+    void fermerBase() throws SQLException {
+        if (journal != null) {
+            journal.arreter(1_000);
+        }
+        try (Statement stmt = base.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        base.close();
+    }
+
+
+    @Test
+    void rejeuIgnoreLaFinTronquee() throws Exception {
+        ecrireJournal(ajout("a", 1, "complet"), ajout("b", 2, "coupé"));
+        // Arrêt pendant l'écriture du second enregistrement
+        try (FileChannel canal = FileChannel.open(chemin(), StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 3);
+        }
+
+        demarrer();
+
+        assertEquals(1, compter("SELECT COUNT(*) FROM reports"));
+        assertEquals("complet", texte(1));
+        assertNull(texte(2));
+        assertEquals(0, compter("SELECT COUNT(*) FROM report_writes WHERE idempotency_key = 'b'"));
+        assertEquals(0, Files.size(chemin()));
+        // L'id de l'entrée perdue n'a jamais été en base : il est réattribué
+        assertEquals(2, journal.ajouter(MEDECIN, PATIENT, "2024-03-02", "suivant", null));
+    }
+
+
+    @Test
+    void cleDejaAppliqueeNEstPasRejouee() throws Exception {
+        // Arrêt entre le commit et le vidage du journal : l'écriture est déjà en base
+        executer("INSERT INTO reports (id, doctor_id, patient_id, date_rapport, texte_rapport) "
+                + "VALUES (1, " + MEDECIN + ", " + PATIENT + ", '2024-03-01', 'appliqué')");
+        executer("INSERT INTO report_writes (idempotency_key, report_id) VALUES ('a', 1)");
+        executer("INSERT INTO report_writes (idempotency_key, report_id) VALUES ('m', 1)");
+        ecrireJournal(ajout("a", 1, "appliqué"),
+                new EntreeJournal(EntreeJournal.MODIFICATION, "m", 1, MEDECIN, 0, null, "rejoué"),
+                ajout("c", 2, "nouveau"),
+                ajout("c", 2, "nouveau"));
+
+        demarrer();
+
+        assertEquals("appliqué", texte(1));
+        assertEquals("nouveau", texte(2));
+        assertEquals(2, compter("SELECT COUNT(*) FROM reports"));
+        assertEquals(3, compter("SELECT COUNT(*) FROM report_writes"));
+        assertFalse(Files.exists(cheminRejets()));
+    }
+
+
+    @Test
+    void memeCleAcquitteeDeuxFoisEstAppliqueeUneFois() throws Exception {
+        demarrer();
+
+        int premier = journal.ajouter(MEDECIN, PATIENT, "2024-03-01", "texte", "1:cle");
+        int second = journal.ajouter(MEDECIN, PATIENT, "2024-03-01", "texte", "1:cle");
+
+        assertEquals(premier, second);
+        assertTrue(journal.attendreApplication(MEDECIN, 5_000));
+        assertEquals(1, compter("SELECT COUNT(*) FROM reports"));
+        assertEquals("texte", texte(premier));
+    }
+
+
+    @Test
+    void ecritureRefuseeVaDansLesRejets() throws Exception {
+        executer("INSERT INTO reports (id, doctor_id, patient_id, date_rapport, texte_rapport) "
+                + "VALUES (5, " + MEDECIN + ", " + PATIENT + ", '2024-03-01', 'existant')");
+        ecrireJournal(ajout("x", 5, "collision"), ajout("y", 6, "accepté"));
+
+        demarrer();
+        journal.arreter(1_000);
+        journal = null;
+
+        assertEquals("existant", texte(5));
+        assertEquals("accepté", texte(6));
+        assertEquals(0, compter("SELECT COUNT(*) FROM report_writes WHERE idempotency_key = 'x'"));
+        FichierJournal rejets = new FichierJournal(cheminRejets());
+        List<EntreeJournal> rejetees = rejets.ouvrir();
+        rejets.fermer();
+        assertEquals(1, rejetees.size());
+        assertEquals("x", rejetees.get(0).cle);
+        assertEquals("collision", rejetees.get(0).texte);
+    }
+
+
+    private void demarrer() throws IOException, SQLException {
+        journal = new JournalRapports(chemin(), 10, 0, () -> DriverManager.getConnection(url, "sa", ""));
+        journal.demarrer();
+    }
+
+
+    private Path chemin() {
+        return dossier.resolve("reports.wal");
+    }
+
+
+    private Path cheminRejets() {
+        return dossier.resolve("reports.wal.rejets");
+    }
+
+
+    private void ecrireJournal(EntreeJournal... entrees) throws IOException {
+        FichierJournal fichier = new FichierJournal(chemin());
+        fichier.ouvrir();
+        fichier.ecrire(List.of(entrees));
+        fichier.fermer();
+    }
+
+
+    private static EntreeJournal ajout(String cle, int rapportId, String texte) {
+        return new EntreeJournal(EntreeJournal.AJOUT, cle, rapportId, MEDECIN, PATIENT, "2024-03-01", texte);
+    }
+
+
+    private void executer(String sql) throws SQLException {
+        try (Statement stmt = base.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+
+    private int compter(String sql) throws SQLException {
+        try (Statement stmt = base.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+
+    private String texte(int rapportId) throws SQLException {
+        try (PreparedStatement stmt = base.prepareStatement("SELECT texte_rapport FROM reports WHERE id = ?")) {
+            stmt.setInt(1, rapportId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}